@@ -45,4 +45,10 @@ public @interface MessageHandle {
      * 注意：HTTP连接收到的消息可能会忽略此项，因为HTTP消息默认不会进入队列
      */
     boolean sequential() default true;
+
+    /**
+     * 单个连接每秒最多允许发送该消息的次数，不大于0表示不限制，默认不限制<br>
+     * 注意：只有游戏服务器开启了连接流量限制（见GameServerRegisterAdaptor#setRateLimit）时，该项才会生效
+     */
+    int rateLimit() default 0;
 }
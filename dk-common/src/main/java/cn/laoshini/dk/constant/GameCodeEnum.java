@@ -33,6 +33,7 @@ public enum GameCodeEnum {
     MESSAGE_TOO_LARGE(706, "MESSAGE BODY TOO LARGE"),
     UNSUPPORTED_HTTP_PROTOCOL(707, "UNSUPPORTED HTTP PROTOCOL"),
     UNSUPPORTED_TCP_PROTOCOL(708, "UNSUPPORTED TCP PROTOCOL"),
+    MESSAGE_QUEUE_FULL(709, "MESSAGE QUEUE FULL"),
     LOGIN_NAME_ERROR(801, "LOGIN NAME ERROR"),
     LOGIN_NAME_DUPLICATED(802, "LOGIN NAME DUPLICATED"),
     PLAYER_NOT_FOUND(803, "PLAYER NOT FOUND"),
@@ -1,5 +1,8 @@
 package cn.laoshini.dk.util;
 
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -7,6 +10,12 @@ import cn.laoshini.dk.constant.LogLabel;
 
 /**
  * 统一日志输出工具类
+ * <p>
+ * 所有方法都先判断日志级别，级别未开启时不会拼接字符串、不会格式化参数；消息日志提供固定参数个数的重载和{@link Supplier}重载，
+ * 关闭消息日志时调用不会创建参数数组。
+ * 调用位置（类名、方法名、行号）需要遍历线程栈，默认不输出，可以通过系统属性-Ddk.log.caller-location=true
+ * 或{@link #setCallerLocation(boolean)}开启。
+ * </p>
  *
  * @author fagarine
  */
@@ -22,6 +31,67 @@ public class LogUtil {
     private static Logger ERROR_LOGGER = COMMON_LOGGER;
     private static Logger WARN_LOGGER = COMMON_LOGGER;
 
+    private static final String[] LABEL_PREFIXES = new String[LogLabel.values().length];
+
+    static {
+        for (LogLabel label : LogLabel.values()) {
+            LABEL_PREFIXES[label.ordinal()] = "[" + label.getLabel() + "] ";
+        }
+    }
+
+    private static final String TRACE_PREFIX = "[trace] ";
+
+    private static final String DEBUG_PREFIX = "[debug] ";
+
+    /**
+     * 是否输出调用位置
+     */
+    private static volatile boolean callerLocation = Boolean.getBoolean("dk.log.caller-location");
+
+    /**
+     * 消息日志的采样率：每多少条消息记录一条，不大于1表示全部记录
+     */
+    private static volatile int messageSampleRate = 1;
+
+    /**
+     * 设置是否在日志中输出调用位置，开启后每条日志都需要获取一次线程栈
+     *
+     * @param enabled 是否开启
+     */
+    public static void setCallerLocation(boolean enabled) {
+        callerLocation = enabled;
+    }
+
+    public static boolean isCallerLocation() {
+        return callerLocation;
+    }
+
+    /**
+     * 设置消息日志的采样率，用于压测或线上排查时只记录部分消息
+     *
+     * @param rate 每多少条消息记录一条，不大于1表示全部记录
+     */
+    public static void setMessageSampleRate(int rate) {
+        messageSampleRate = Math.max(rate, 1);
+    }
+
+    /**
+     * 消息日志是否开启，开启采样时按采样率随机返回，每次调用都视为一次采样
+     *
+     * @return 返回本次消息是否需要记录
+     */
+    public static boolean isMessageEnabled() {
+        if (!MESSAGE_LOGGER.isInfoEnabled()) {
+            return false;
+        }
+        int rate = messageSampleRate;
+        return rate <= 1 || ThreadLocalRandom.current().nextInt(rate) == 0;
+    }
+
+    public static boolean isDebugEnabled() {
+        return COMMON_LOGGER.isDebugEnabled();
+    }
+
     /**
      * 带异常的错误日志
      *
@@ -30,7 +100,7 @@ public class LogUtil {
      */
     public static void error(String message, Throwable t) {
         if (ERROR_LOGGER.isErrorEnabled()) {
-            ERROR_LOGGER.error("[" + LogLabel.ERROR.getLabel() + "] " + getClassPath() + message, t);
+            ERROR_LOGGER.error(prefix(LogLabel.ERROR, 3) + message, t);
         }
     }
 
@@ -55,7 +125,7 @@ public class LogUtil {
      */
     public static void error(LogLabel label, String message, Throwable t) {
         if (ERROR_LOGGER.isErrorEnabled()) {
-            ERROR_LOGGER.error("[" + label.getLabel() + "] " + getClassPath(4) + message, t);
+            ERROR_LOGGER.error(prefix(label, 4) + message, t);
         }
     }
 
@@ -68,7 +138,7 @@ public class LogUtil {
      */
     public static void error(LogLabel label, String format, Object... arguments) {
         if (ERROR_LOGGER.isErrorEnabled()) {
-            ERROR_LOGGER.error("[" + label.getLabel() + "] " + getClassPath(4) + format, arguments);
+            ERROR_LOGGER.error(prefix(label, 4) + format, arguments);
         }
     }
 
@@ -80,7 +150,7 @@ public class LogUtil {
      */
     public static void error(LogLabel label, String message) {
         if (ERROR_LOGGER.isErrorEnabled()) {
-            ERROR_LOGGER.error("[" + label.getLabel() + "] " + getClassPath(4) + message);
+            ERROR_LOGGER.error(prefix(label, 4) + message);
         }
     }
 
@@ -102,19 +172,19 @@ public class LogUtil {
      */
     public static void warn(String format, Object... arguments) {
         if (WARN_LOGGER.isWarnEnabled()) {
-            WARN_LOGGER.warn("[" + LogLabel.WARN.getLabel() + "] " + getClassPath() + format, arguments);
+            WARN_LOGGER.warn(prefix(LogLabel.WARN, 3) + format, arguments);
         }
     }
 
     public static void agent(String message) {
         if (COMMON_LOGGER.isInfoEnabled()) {
-            COMMON_LOGGER.info("[" + LogLabel.AGENT.getLabel() + "] " + getClassPath() + message);
+            COMMON_LOGGER.info(prefix(LogLabel.AGENT, 3) + message);
         }
     }
 
     public static void agent(String format, Object... arguments) {
         if (COMMON_LOGGER.isInfoEnabled()) {
-            COMMON_LOGGER.info("[" + LogLabel.AGENT.getLabel() + "] " + getClassPath() + format, arguments);
+            COMMON_LOGGER.info(prefix(LogLabel.AGENT, 3) + format, arguments);
         }
     }
 
@@ -126,25 +196,25 @@ public class LogUtil {
      */
     public static void start(String format, Object... arguments) {
         if (COMMON_LOGGER.isInfoEnabled()) {
-            COMMON_LOGGER.info("[" + LogLabel.INFO.getLabel() + "] " + getClassPath() + format, arguments);
+            COMMON_LOGGER.info(prefix(LogLabel.INFO, 3) + format, arguments);
         }
     }
 
     public static void trace(String format, Object... arguments) {
         if (COMMON_LOGGER.isTraceEnabled()) {
-            COMMON_LOGGER.trace("[trace] " + getClassPath() + format, arguments);
+            COMMON_LOGGER.trace(prefix(TRACE_PREFIX, 3) + format, arguments);
         }
     }
 
     public static void debug(String format, Object... arguments) {
         if (COMMON_LOGGER.isDebugEnabled()) {
-            COMMON_LOGGER.debug("[debug] " + getClassPath() + format, arguments);
+            COMMON_LOGGER.debug(prefix(DEBUG_PREFIX, 3) + format, arguments);
         }
     }
 
     public static void debug(String message) {
         if (COMMON_LOGGER.isDebugEnabled()) {
-            COMMON_LOGGER.debug("[debug] " + getClassPath() + message);
+            COMMON_LOGGER.debug(prefix(DEBUG_PREFIX, 3) + message);
         }
     }
 
@@ -157,7 +227,7 @@ public class LogUtil {
      */
     public static void info(LogLabel label, String format, Object... arguments) {
         if (COMMON_LOGGER.isInfoEnabled()) {
-            COMMON_LOGGER.info("[" + label.getLabel() + "] " + getClassPath(4) + format, arguments);
+            COMMON_LOGGER.info(prefix(label, 4) + format, arguments);
         }
     }
 
@@ -199,8 +269,26 @@ public class LogUtil {
      * @param arguments 填入参数
      */
     public static void message(LogLabel label, String format, Object... arguments) {
-        if (MESSAGE_LOGGER.isInfoEnabled()) {
-            MESSAGE_LOGGER.info("[" + label.getLabel() + "] " + getClassPath(4) + format, arguments);
+        if (isMessageEnabled()) {
+            MESSAGE_LOGGER.info(prefix(label, 4) + format, arguments);
+        }
+    }
+
+    private static void message(LogLabel label, String format, Object argument) {
+        if (isMessageEnabled()) {
+            MESSAGE_LOGGER.info(prefix(label, 4) + format, argument);
+        }
+    }
+
+    private static void message(LogLabel label, String format, Object argument1, Object argument2) {
+        if (isMessageEnabled()) {
+            MESSAGE_LOGGER.info(prefix(label, 4) + format, argument1, argument2);
+        }
+    }
+
+    private static void message(LogLabel label, Supplier<String> supplier) {
+        if (isMessageEnabled()) {
+            MESSAGE_LOGGER.info(prefix(label, 4) + supplier.get());
         }
     }
 
@@ -214,6 +302,29 @@ public class LogUtil {
         message(LogLabel.C2S, format, arguments);
     }
 
+    /**
+     * 记录客户端发往服务器的协议，单个参数，日志关闭时不会创建参数数组
+     *
+     * @param format 日志输出格式
+     * @param argument 填入参数
+     */
+    public static void c2sMessage(String format, Object argument) {
+        message(LogLabel.C2S, format, argument);
+    }
+
+    public static void c2sMessage(String format, Object argument1, Object argument2) {
+        message(LogLabel.C2S, format, argument1, argument2);
+    }
+
+    /**
+     * 记录客户端发往服务器的协议，日志内容在日志开启时才会生成
+     *
+     * @param supplier 日志内容
+     */
+    public static void c2sMessage(Supplier<String> supplier) {
+        message(LogLabel.C2S, supplier);
+    }
+
     /**
      * 记录服务器发往客户端的消息
      *
@@ -224,6 +335,29 @@ public class LogUtil {
         message(LogLabel.S2C, format, arguments);
     }
 
+    /**
+     * 记录服务器发往客户端的消息，单个参数，日志关闭时不会创建参数数组
+     *
+     * @param format 日志输出格式
+     * @param argument 填入参数
+     */
+    public static void s2cMessage(String format, Object argument) {
+        message(LogLabel.S2C, format, argument);
+    }
+
+    public static void s2cMessage(String format, Object argument1, Object argument2) {
+        message(LogLabel.S2C, format, argument1, argument2);
+    }
+
+    /**
+     * 记录服务器发往客户端的消息，日志内容在日志开启时才会生成
+     *
+     * @param supplier 日志内容
+     */
+    public static void s2cMessage(Supplier<String> supplier) {
+        message(LogLabel.S2C, supplier);
+    }
+
     /**
      * 通用消息日志，不区分上行下行
      *
@@ -234,10 +368,31 @@ public class LogUtil {
         message(LogLabel.MESSAGE, format, arguments);
     }
 
-    private static String getClassPath() {
-        StackTraceElement[] stackTraceElements = Thread.currentThread().getStackTrace();
-        StackTraceElement ele = stackTraceElements[3];
-        return getSimpleClassName(ele.getFileName()) + "." + ele.getMethodName() + "():" + ele.getLineNumber() + " - ";
+    /**
+     * 调试日志，日志内容在DEBUG级别开启时才会生成
+     *
+     * @param supplier 日志内容
+     */
+    public static void debug(Supplier<String> supplier) {
+        if (COMMON_LOGGER.isDebugEnabled()) {
+            COMMON_LOGGER.debug(prefix(DEBUG_PREFIX, 3) + supplier.get());
+        }
+    }
+
+    /**
+     * 返回日志前缀，开启调用位置时追加调用方信息
+     *
+     * @param label 日志标签
+     * @param stackIndex 调用方在线程栈中的位置（不计算该方法）
+     */
+    private static String prefix(LogLabel label, int stackIndex) {
+        String labelPrefix = LABEL_PREFIXES[label.ordinal()];
+        // 经过prefix方法调用，栈中多了一层
+        return callerLocation ? labelPrefix + getClassPath(stackIndex + 1) : labelPrefix;
+    }
+
+    private static String prefix(String labelPrefix, int stackIndex) {
+        return callerLocation ? labelPrefix + getClassPath(stackIndex + 1) : labelPrefix;
     }
 
     private static String getClassPath(int stackIndex) {
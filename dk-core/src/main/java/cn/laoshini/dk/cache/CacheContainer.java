@@ -1,5 +1,7 @@
 package cn.laoshini.dk.cache;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import cn.laoshini.dk.exception.CacheException;
@@ -30,4 +32,11 @@ public class CacheContainer {
 
         caches.put(cacheKey, cache);
     }
+
+    /**
+     * 返回所有已登记的缓存池，用于统计缓存命中率
+     */
+    public static Map<String, IDkCache> getCaches() {
+        return Collections.unmodifiableMap(caches);
+    }
 }
@@ -63,4 +63,22 @@ public interface IDkCache<K, V> {
      */
     void cleanUp();
 
+    /**
+     * 缓存命中次数，用于统计命中率
+     *
+     * @return 不支持统计的实现返回0
+     */
+    default long hitCount() {
+        return 0L;
+    }
+
+    /**
+     * 缓存未命中次数，用于统计命中率
+     *
+     * @return 不支持统计的实现返回0
+     */
+    default long missCount() {
+        return 0L;
+    }
+
 }
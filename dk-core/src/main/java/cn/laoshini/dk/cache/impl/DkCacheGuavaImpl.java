@@ -44,7 +44,7 @@ public class DkCacheGuavaImpl<K, V> implements IDkCache<K, V> {
         cache.maxSize = maxSize;
         cache.expireTime = expireTime;
         cache.delegate = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterAccess(expireTime, TimeUnit.SECONDS)
-                .build();
+                .recordStats().build();
         return cache;
     }
 
@@ -86,6 +86,16 @@ public class DkCacheGuavaImpl<K, V> implements IDkCache<K, V> {
         delegate.cleanUp();
     }
 
+    @Override
+    public long hitCount() {
+        return delegate.stats().hitCount();
+    }
+
+    @Override
+    public long missCount() {
+        return delegate.stats().missCount();
+    }
+
     public long getMaxSize() {
         return maxSize;
     }
@@ -0,0 +1,37 @@
+package cn.laoshini.dk.constant;
+
+/**
+ * 游戏服务器消息执行模型枚举，决定消息到达后由哪个线程执行处理逻辑
+ *
+ * @author fagarine
+ */
+public enum MessageExecuteModel {
+
+    /**
+     * 直接在Netty的IO线程（事件循环）中执行消息处理和消息发送，没有任何线程切换，
+     * 仅适用于处理逻辑简单、不包含阻塞操作的Handler，否则会拖慢同一IO线程上的所有连接
+     */
+    EVENT_LOOP,
+
+    /**
+     * 消息交给有序线程池执行，发送消息也经过发送线程池，系统默认使用该模型
+     */
+    POOLED,
+
+    /**
+     * 每个会话的消息在虚拟线程中按顺序执行，需要JDK 21及以上版本，不支持的运行环境中会退回到{@link #POOLED}模型
+     */
+    VIRTUAL_THREAD,
+    ;
+
+    public static MessageExecuteModel of(String name, MessageExecuteModel defaultModel) {
+        if (name != null) {
+            for (MessageExecuteModel model : values()) {
+                if (model.name().equalsIgnoreCase(name.trim().replace('-', '_'))) {
+                    return model;
+                }
+            }
+        }
+        return defaultModel;
+    }
+}
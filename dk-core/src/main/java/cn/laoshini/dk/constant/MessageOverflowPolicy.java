@@ -0,0 +1,36 @@
+package cn.laoshini.dk.constant;
+
+/**
+ * 单个会话待处理消息数量达到上限时的处理策略
+ *
+ * @author fagarine
+ */
+public enum MessageOverflowPolicy {
+    /**
+     * 暂停读取该连接的数据（关闭Netty的autoRead），待处理消息数量降到恢复阈值以下后再恢复读取，
+     * 数据会积压在TCP缓冲区中，由TCP流量控制反压到客户端
+     */
+    PAUSE_READ,
+
+    /**
+     * 拒绝新到的消息，并返回{@link GameCodeEnum#MESSAGE_QUEUE_FULL}错误
+     */
+    REJECT,
+
+    /**
+     * 丢弃该会话中最早进入、尚未执行的消息，为新消息腾出位置
+     */
+    DROP_OLDEST,
+    ;
+
+    public static MessageOverflowPolicy of(String name, MessageOverflowPolicy defaultPolicy) {
+        if (name != null) {
+            for (MessageOverflowPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(name.trim().replace('-', '_'))) {
+                    return policy;
+                }
+            }
+        }
+        return defaultPolicy;
+    }
+}
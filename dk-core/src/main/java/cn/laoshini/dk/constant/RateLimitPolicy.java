@@ -0,0 +1,32 @@
+package cn.laoshini.dk.constant;
+
+/**
+ * 连接流量超过限制时的处理策略
+ *
+ * @author fagarine
+ */
+public enum RateLimitPolicy {
+
+    /**
+     * 暂停读取该连接的数据，等待令牌恢复后继续处理，消息不会丢失；
+     * 超过限制的单条消息（按消息id限制）直接丢弃
+     */
+    THROTTLE,
+
+    /**
+     * 记录日志并断开连接
+     */
+    KICK,
+    ;
+
+    public static RateLimitPolicy of(String name, RateLimitPolicy defaultPolicy) {
+        if (name != null) {
+            for (RateLimitPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(name.trim())) {
+                    return policy;
+                }
+            }
+        }
+        return defaultPolicy;
+    }
+}
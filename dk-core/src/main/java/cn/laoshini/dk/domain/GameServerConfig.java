@@ -8,6 +8,7 @@ import lombok.Setter;
 import lombok.ToString;
 
 import cn.laoshini.dk.constant.GameServerProtocolEnum;
+import cn.laoshini.dk.constant.MessageExecuteModel;
 import cn.laoshini.dk.constant.MessageFormatEnum;
 import cn.laoshini.dk.constant.ServerType;
 
@@ -71,4 +72,14 @@ public class GameServerConfig {
      * 使用TCP连接时，消息是否立即发送
      */
     private boolean tcpNoDelay;
+
+    /**
+     * 消息执行模型
+     */
+    private MessageExecuteModel executeModel;
+
+    /**
+     * 使用TCP连接时的消息帧压缩阈值，单位：字节，大于0时开启协商压缩（使用最快的压缩级别），客户端需要开启相同的配置
+     */
+    private int compressionThreshold;
 }
@@ -24,6 +24,11 @@ public class HandlerDesc {
      */
     private boolean sequential = true;
 
+    /**
+     * 单个连接每秒最多允许发送该消息的次数，不大于0表示不限制
+     */
+    private int rateLimit;
+
     /**
      * 是否是按当康系统消息Handler规范实现的Handler
      */
@@ -98,6 +103,14 @@ public class HandlerDesc {
         this.sequential = sequential;
     }
 
+    public int getRateLimit() {
+        return rateLimit;
+    }
+
+    public void setRateLimit(int rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
     public boolean isInternal() {
         return internal;
     }
@@ -117,7 +130,7 @@ public class HandlerDesc {
     @Override
     public String toString() {
         return "HandlerDesc{" + "id=" + id + ", description='" + description + '\'' + ", allowGuestRequest="
-                + allowGuestRequest + ", sequential=" + sequential + ", internal=" + internal + ", genericType="
-                + genericType + '}';
+                + allowGuestRequest + ", sequential=" + sequential + ", rateLimit=" + rateLimit + ", internal="
+                + internal + ", genericType=" + genericType + '}';
     }
 }
@@ -1,5 +1,6 @@
 package cn.laoshini.dk.executor;
 
+import cn.laoshini.dk.monitor.LatencyHistogram;
 import cn.laoshini.dk.util.LogUtil;
 
 /**
@@ -11,6 +12,9 @@ public abstract class AbstractOrderedWorker implements Runnable {
 
     @Override
     public void run() {
+        if (waitTime != null) {
+            waitTime.record(System.nanoTime() - enqueueNanos);
+        }
         try {
             action();
         } catch (Throwable t) {
@@ -28,6 +32,10 @@ public abstract class AbstractOrderedWorker implements Runnable {
      */
     private TaskQueue<AbstractOrderedWorker> taskQueue;
 
+    private long enqueueNanos;
+
+    private LatencyHistogram waitTime;
+
     public TaskQueue<AbstractOrderedWorker> getTaskQueue() {
         return taskQueue;
     }
@@ -35,4 +43,14 @@ public abstract class AbstractOrderedWorker implements Runnable {
     public void setTaskQueue(TaskQueue<AbstractOrderedWorker> taskQueue) {
         this.taskQueue = taskQueue;
     }
+
+    /**
+     * 任务加入队列时调用，记录加入时间，任务开始执行时将等待时间记录到线程池的统计中
+     *
+     * @param waitTime 线程池的等待时间统计
+     */
+    public void markEnqueued(LatencyHistogram waitTime) {
+        this.enqueueNanos = System.nanoTime();
+        this.waitTime = waitTime;
+    }
 }
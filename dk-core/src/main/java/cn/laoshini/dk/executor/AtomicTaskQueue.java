@@ -0,0 +1,124 @@
+package cn.laoshini.dk.executor;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 无锁任务队列，供{@link LockFreeOrderedExecutor}使用
+ * <p>
+ * 队列本身是多生产者单消费者模式：任意线程都可以添加任务，但同一时刻最多只有一个线程在消费队列中的任务，
+ * 消费权通过{@link #scheduled}标记的CAS操作获取，保证了同一队列中的任务按加入的先后顺序串行执行。
+ * </p>
+ *
+ * @author fagarine
+ */
+class AtomicTaskQueue implements Runnable {
+
+    /**
+     * 队列长度的特殊值，表示队列已被回收，不能再加入任务
+     */
+    private static final int RETIRED = -1;
+
+    private final Queue<AbstractOrderedWorker> tasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 队列中尚未执行完的任务数量，先于任务入队增加，任务执行完成后减少；值为{@link #RETIRED}时表示队列已被回收
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * 队列是否已提交给线程池执行（或正在执行中）
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private final Executor executor;
+
+    /**
+     * 单次调度最多连续执行的任务数量，避免一个繁忙的队列长期占用线程
+     */
+    private final int batchSize;
+
+    /**
+     * 队列最后一次执行完任务的时间
+     */
+    private volatile long lastActiveTime = System.currentTimeMillis();
+
+    AtomicTaskQueue(Executor executor, int batchSize) {
+        this.executor = executor;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 添加任务，如果队列当前没有在执行，提交给线程池执行
+     *
+     * @param task 任务
+     * @param maxQueueSize 队列最大长度，仅为正整数时有效
+     * @return 如果队列已满或已被回收，返回false
+     */
+    boolean offer(AbstractOrderedWorker task, int maxQueueSize) {
+        int current;
+        do {
+            current = size.get();
+            if (current == RETIRED || (maxQueueSize > 0 && current >= maxQueueSize)) {
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+
+        tasks.offer(task);
+        trySchedule();
+        return true;
+    }
+
+    private void trySchedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            AbstractOrderedWorker task;
+            for (int i = 0; i < batchSize && (task = tasks.poll()) != null; i++) {
+                try {
+                    task.run();
+                } finally {
+                    // 任务执行完才减少长度，执行期间长度不为0，回收操作不会成功
+                    size.decrementAndGet();
+                }
+            }
+        } finally {
+            lastActiveTime = System.currentTimeMillis();
+            scheduled.set(false);
+            // 释放执行权后，如果有新任务进入（或者本次未执行完），重新提交执行
+            if (!tasks.isEmpty()) {
+                trySchedule();
+            }
+        }
+    }
+
+    /**
+     * 尝试回收队列，仅在队列为空、没有正在执行的任务且没有正在入队的任务时才会成功，回收后的队列不能再加入任务
+     *
+     * @return 返回是否回收成功
+     */
+    boolean tryRetire() {
+        // 长度包含正在执行的任务，长度为0时队列中既没有待执行的任务，也没有正在执行的任务
+        return size.compareAndSet(0, RETIRED);
+    }
+
+    boolean isRetired() {
+        return size.get() == RETIRED;
+    }
+
+    int size() {
+        return Math.max(size.get(), 0);
+    }
+
+    long getLastActiveTime() {
+        return lastActiveTime;
+    }
+}
@@ -1,6 +1,10 @@
 package cn.laoshini.dk.executor;
 
 import cn.laoshini.dk.annotation.ConfigurableFunction;
+import cn.laoshini.dk.function.VariousWaysManager;
+import cn.laoshini.dk.monitor.DkMetrics;
+import cn.laoshini.dk.monitor.LatencyHistogram;
+import cn.laoshini.dk.util.LogUtil;
 
 /**
  * 有序线程池接口
@@ -27,4 +31,50 @@ public interface IOrderedExecutor<KeyType> {
      * @return 返回是否成功加入队列
      */
     boolean addTask(KeyType key, AbstractOrderedWorker task);
+
+    /**
+     * 获取剩余任务数量，用于监控队列长度
+     *
+     * @return 不支持统计的实现返回0
+     */
+    default int getTotalTaskCount() {
+        return 0;
+    }
+
+    /**
+     * 获取任务从加入队列到开始执行的等待时间统计
+     *
+     * @return 不支持统计的实现返回null
+     */
+    default LatencyHistogram getWaitTime() {
+        return null;
+    }
+
+    /**
+     * 创建并返回一个有序线程池，具体使用哪种实现由配置项 dk.ordered.executor 决定；
+     * 如果可配置功能尚未初始化，或创建失败，使用{@link OrderedQueuePoolExecutor}；创建的线程池会登记到{@link DkMetrics}中
+     *
+     * @param name 线程池名称
+     * @param corePoolSize 核心线程数量
+     * @param maxQueueSize 单个任务队列的最大长度
+     * @return 该方法不会返回null
+     */
+    @SuppressWarnings("unchecked")
+    static IOrderedExecutor<Long> newExecutor(String name, int corePoolSize, int maxQueueSize) {
+        Object[] initArgs = { name, corePoolSize, maxQueueSize };
+        Class<?>[] argTypes = { String.class, Integer.class, Integer.class };
+        IOrderedExecutor<Long> executor = null;
+        if (VariousWaysManager.containsFunction(IOrderedExecutor.class)) {
+            try {
+                executor = VariousWaysManager.getCurrentImplWithType(IOrderedExecutor.class, initArgs, argTypes);
+            } catch (Exception e) {
+                LogUtil.error(String.format("有序线程池[%s]创建失败，使用默认实现", name), e);
+            }
+        }
+        if (executor == null) {
+            executor = new OrderedQueuePoolExecutor(name, corePoolSize, maxQueueSize);
+        }
+        DkMetrics.registerExecutor(name, executor);
+        return executor;
+    }
 }
@@ -0,0 +1,147 @@
+package cn.laoshini.dk.executor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import cn.laoshini.dk.annotation.FunctionVariousWays;
+import cn.laoshini.dk.monitor.LatencyHistogram;
+import cn.laoshini.dk.util.LogUtil;
+
+/**
+ * 无锁有序线程池
+ * <p>
+ * 与{@link OrderedQueuePoolExecutor}的区别在于：添加任务和调度任务的过程中不使用任何锁，
+ * 每个任务队列是一个{@link AtomicTaskQueue}，同一队列同一时刻只会被一个线程执行，通过CAS操作竞争执行权；
+ * 任务队列的选择方式与{@link OrderedQueuePoolExecutor}一致，具有同一特征码的key共用一个任务队列。
+ * </p>
+ * <p>
+ * 使用方式：配置项中设置 dk.ordered.executor=lock-free
+ * </p>
+ *
+ * @author fagarine
+ */
+@FunctionVariousWays(value = "lock-free", singleton = false, description = "使用无锁队列和CAS调度标记实现的有序线程池")
+public class LockFreeOrderedExecutor implements IOrderedExecutor<Long> {
+
+    /**
+     * 单个任务队列，单次调度最多连续执行的任务数量
+     */
+    private static final int BATCH_SIZE = 64;
+
+    private final Map<Long, AtomicTaskQueue> queues = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor;
+
+    private final String name;
+
+    private final int corePoolSize;
+
+    private final int maxQueueSize;
+
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+
+    public LockFreeOrderedExecutor(String name, Integer corePoolSize, Integer maxQueueSize) {
+        this(name, corePoolSize, maxQueueSize, null);
+    }
+
+    /**
+     * 使用指定的线程池执行任务
+     *
+     * @param name 线程池名称
+     * @param corePoolSize 核心线程数量
+     * @param maxQueueSize 单个任务队列的最大长度
+     * @param executor 实际执行任务的线程池，为null时创建一个工作窃取线程池
+     */
+    protected LockFreeOrderedExecutor(String name, Integer corePoolSize, Integer maxQueueSize,
+            ExecutorService executor) {
+        this.name = name;
+        this.corePoolSize = corePoolSize <= 0 || corePoolSize > OrderedQueuePoolExecutor.MAX_POOL_SIZE ?
+                OrderedQueuePoolExecutor.MAX_POOL_SIZE :
+                corePoolSize;
+        this.maxQueueSize = maxQueueSize;
+        this.executor = executor != null ? executor : new ForkJoinPool(this.corePoolSize, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(name + "-" + thread.getPoolIndex());
+            return thread;
+        }, (t, e) -> LogUtil.error(String.format("有序线程池[%s]线程[%s]执行出错", name, t.getName()), e), true);
+    }
+
+    public LockFreeOrderedExecutor(String name, Integer corePoolSize) {
+        this(name, corePoolSize, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean addTask(Long key, AbstractOrderedWorker task) {
+        Long code = queueKey(key);
+        task.markEnqueued(waitTime);
+        while (true) {
+            AtomicTaskQueue queue = queues.get(code);
+            if (queue == null) {
+                queue = queues.computeIfAbsent(code, k -> new AtomicTaskQueue(executor, BATCH_SIZE));
+            }
+
+            if (queue.offer(task, maxQueueSize)) {
+                return true;
+            }
+
+            if (!queue.isRetired()) {
+                LogUtil.error("队列" + name + "(" + key + ")已满，抛弃新到的任务!");
+                return false;
+            }
+
+            // 队列刚好被回收，移除后重新获取
+            queues.remove(code, queue);
+        }
+    }
+
+    /**
+     * 计算key对应的任务队列的key，这里简单以key对核心线程数的余数为特征码
+     *
+     * @param key 用户相关key
+     * @return 返回任务队列的key
+     */
+    protected long queueKey(long key) {
+        return (key < 0 ? 0 : key) % corePoolSize;
+    }
+
+    Map<Long, AtomicTaskQueue> getQueues() {
+        return queues;
+    }
+
+    /**
+     * 获取剩余任务数量
+     */
+    @Override
+    public int getTotalTaskCount() {
+        // 队列长度已包含正在执行的任务
+        int count = 0;
+        for (AtomicTaskQueue queue : queues.values()) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    @Override
+    public LatencyHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCorePoolSize() {
+        return corePoolSize;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -19,9 +19,12 @@ public class OrderedQueuePool<K, V> {
      * @return 该方法不会返回null
      */
     public TaskQueue<V> getTaskQueue(K key) {
-        synchronized (taskQueueMap) {
-            return taskQueueMap.computeIfAbsent(key, (k) -> new TaskQueue<>());
+        // ConcurrentHashMap的computeIfAbsent()本身是原子操作，先查询可以避免已存在队列时的加锁开销
+        TaskQueue<V> queue = taskQueueMap.get(key);
+        if (queue == null) {
+            queue = taskQueueMap.computeIfAbsent(key, (k) -> new TaskQueue<>());
         }
+        return queue;
     }
 
     /**
@@ -5,6 +5,7 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import cn.laoshini.dk.annotation.FunctionVariousWays;
+import cn.laoshini.dk.monitor.LatencyHistogram;
 import cn.laoshini.dk.util.LogUtil;
 
 /**
@@ -29,6 +30,8 @@ public class OrderedQueuePoolExecutor extends ThreadPoolExecutor implements IOrd
 
     private int maxQueueSize;
 
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+
     public OrderedQueuePoolExecutor(String name, Integer corePoolSize, Integer maxQueueSize) {
         super(poolSize(corePoolSize), poolSize(2 * corePoolSize), 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
         this.name = name;
@@ -69,11 +72,13 @@ public class OrderedQueuePoolExecutor extends ThreadPoolExecutor implements IOrd
         // 是否立即执行任务（如果当前任务队列为空，则可以要求任务立即执行）
         boolean run = false;
         synchronized (queue) {
-            if (maxQueueSize > 0 && queue.size() > maxQueueSize) {
-                LogUtil.error("队列" + name + "(" + key + ")已满，抛弃队列指令!");
-                queue.clear();
+            if (maxQueueSize > 0 && queue.size() >= maxQueueSize) {
+                // 队列已满时抛弃新到的任务，而不是清空队列，避免已到达的任务被静默丢弃
+                LogUtil.error("队列" + name + "(" + key + ")已满，抛弃新到的任务!");
+                return false;
             }
 
+            task.markEnqueued(waitTime);
             result = queue.add(task);
             if (result) {
                 task.setTaskQueue(queue);
@@ -136,9 +141,15 @@ public class OrderedQueuePoolExecutor extends ThreadPoolExecutor implements IOrd
         }
     }
 
+    @Override
+    public LatencyHistogram getWaitTime() {
+        return waitTime;
+    }
+
     /**
      * 获取剩余任务数量
      */
+    @Override
     public int getTotalTaskCount() {
         int count = super.getActiveCount();
         for (TaskQueue<AbstractOrderedWorker> taskQueue : pool.getTaskQueues().values()) {
@@ -0,0 +1,129 @@
+package cn.laoshini.dk.executor;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
+import cn.laoshini.dk.annotation.FunctionVariousWays;
+import cn.laoshini.dk.monitor.DkMetrics;
+import cn.laoshini.dk.util.LogUtil;
+
+/**
+ * 按key独立排队的有序线程池
+ * <p>
+ * 与{@link LockFreeOrderedExecutor}不同，这里不再按特征码把多个key合并到同一个队列中，而是每个key（如会话id、角色id）独占一个任务队列，
+ * 同一个key的任务仍然严格按到达顺序执行，但不同key之间互不阻塞，任意空闲线程都可以执行任意空闲key的任务，
+ * 一个玩家的耗时操作不会再拖慢其他玩家的消息处理。
+ * </p>
+ * <p>
+ * 由于key的数量与在线玩家数量相关，长时间没有任务的队列会被定时回收，回收时间由构造参数idleSeconds指定。
+ * </p>
+ * <p>
+ * 使用方式：配置项中设置 dk.ordered.executor=per-key
+ * </p>
+ *
+ * @author fagarine
+ */
+@FunctionVariousWays(value = "per-key", singleton = false, description = "每个key独占任务队列，空闲队列定时回收的有序线程池")
+public class PerKeyOrderedExecutor extends LockFreeOrderedExecutor {
+
+    /**
+     * 默认的队列空闲回收时间，单位：秒
+     */
+    public static final int DEFAULT_IDLE_SECONDS = 60;
+
+    private static final ScheduledExecutorService EVICT_EXECUTOR = new ScheduledThreadPoolExecutor(1,
+            new BasicThreadFactory.Builder().namingPattern("dk-ordered-queue-evict-%d").daemon(true).build());
+
+    private final long idleMillis;
+
+    private final ScheduledFuture<?> evictFuture;
+
+    public PerKeyOrderedExecutor(String name, Integer corePoolSize, Integer maxQueueSize, Integer idleSeconds) {
+        this(name, corePoolSize, maxQueueSize, idleSeconds, null);
+    }
+
+    private PerKeyOrderedExecutor(String name, Integer corePoolSize, Integer maxQueueSize, Integer idleSeconds,
+            ExecutorService executor) {
+        super(name, corePoolSize, maxQueueSize, executor);
+        int idle = idleSeconds == null || idleSeconds <= 0 ? DEFAULT_IDLE_SECONDS : idleSeconds;
+        this.idleMillis = TimeUnit.SECONDS.toMillis(idle);
+        this.evictFuture = EVICT_EXECUTOR.scheduleWithFixedDelay(this::evictIdleQueues, idle, idle, TimeUnit.SECONDS);
+    }
+
+    public PerKeyOrderedExecutor(String name, Integer corePoolSize, Integer maxQueueSize) {
+        this(name, corePoolSize, maxQueueSize, DEFAULT_IDLE_SECONDS);
+    }
+
+    public PerKeyOrderedExecutor(String name, Integer corePoolSize) {
+        this(name, corePoolSize, Integer.MAX_VALUE, DEFAULT_IDLE_SECONDS);
+    }
+
+    /**
+     * 创建一个使用虚拟线程执行任务的有序线程池，每个key的任务仍然串行执行，但不再占用固定的平台线程，适合包含阻塞操作的任务
+     * <p>
+     * 虚拟线程需要JDK 21及以上版本，这里通过反射调用，当前运行环境不支持时返回null；
+     * 与{@link IOrderedExecutor#newExecutor(String, int, int)}一样，创建后登记到{@link DkMetrics}，
+     * 使用方关闭线程池时需要调用{@link DkMetrics#unregisterExecutor(String)}
+     * </p>
+     *
+     * @param name 线程池名称
+     * @param maxQueueSize 单个任务队列的最大长度
+     * @return 该方法可能返回null
+     */
+    public static PerKeyOrderedExecutor newVirtualThreadExecutor(String name, int maxQueueSize) {
+        ExecutorService executor;
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            executor = (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+        PerKeyOrderedExecutor orderedExecutor = new PerKeyOrderedExecutor(name,
+                Runtime.getRuntime().availableProcessors(), maxQueueSize, DEFAULT_IDLE_SECONDS, executor);
+        DkMetrics.registerExecutor(name, orderedExecutor);
+        return orderedExecutor;
+    }
+
+    @Override
+    protected long queueKey(long key) {
+        return key;
+    }
+
+    /**
+     * 回收超过空闲时间没有任务的队列
+     */
+    private void evictIdleQueues() {
+        try {
+            long deadline = System.currentTimeMillis() - idleMillis;
+            for (Map.Entry<Long, AtomicTaskQueue> entry : getQueues().entrySet()) {
+                AtomicTaskQueue queue = entry.getValue();
+                if (queue.getLastActiveTime() < deadline && queue.tryRetire()) {
+                    getQueues().remove(entry.getKey(), queue);
+                }
+            }
+        } catch (Throwable t) {
+            LogUtil.error(String.format("有序线程池[%s]回收空闲队列出错", getName()), t);
+        }
+    }
+
+    /**
+     * 获取当前任务队列数量
+     */
+    public int getQueueCount() {
+        return getQueues().size();
+    }
+
+    @Override
+    public void shutdown() {
+        evictFuture.cancel(false);
+        super.shutdown();
+    }
+}
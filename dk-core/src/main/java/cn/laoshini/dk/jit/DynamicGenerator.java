@@ -42,20 +42,25 @@ public class DynamicGenerator {
         File root = new File(FileUtil.getProjectPath(IClassFileGenerator.GENERATED_PATH));
         File[] files;
         if (root.exists() && root.isDirectory() && (files = root.listFiles()) != null) {
-            for (File file : files) {
-                if (file.getName().endsWith(Constants.CLASS_FILE_SUFFIX)) {
-                    String fileName = file.getName();
-                    String className =
-                            IClassFileGenerator.GENERATED_PACKAGE + "." + fileName.substring(0, fileName.length() - 5);
-                    Class<?> clazz = JIT_CLASS_LOADER.loadClass(file.getAbsolutePath(), className);
-                    if (ICustomDto.class.isAssignableFrom(clazz)) {
-                        TypeUseManager.registerCustomDtoClass((Class<? extends ICustomDto>) clazz);
-                    } else if (IMessageHandler.class.isAssignableFrom(clazz)) {
-                        MessageHandle annotation = clazz.getAnnotation(MessageHandle.class);
-                        MessageHandlerHolder.registerHandler(annotation.id(), clazz, annotation.allowGuestRequest());
+            MessageHandlerHolder.batchUpdate(() -> {
+                for (File file : files) {
+                    if (file.getName().endsWith(Constants.CLASS_FILE_SUFFIX)) {
+                        loadAndRegister(file);
                     }
                 }
-            }
+            });
+        }
+    }
+
+    private static void loadAndRegister(File classFile) {
+        String fileName = classFile.getName();
+        String className = IClassFileGenerator.GENERATED_PACKAGE + "." + fileName.substring(0, fileName.length() - 5);
+        Class<?> clazz = JIT_CLASS_LOADER.loadClass(classFile.getAbsolutePath(), className);
+        if (ICustomDto.class.isAssignableFrom(clazz)) {
+            TypeUseManager.registerCustomDtoClass((Class<? extends ICustomDto>) clazz);
+        } else if (IMessageHandler.class.isAssignableFrom(clazz)) {
+            MessageHandle annotation = clazz.getAnnotation(MessageHandle.class);
+            MessageHandlerHolder.registerHandler(annotation.id(), clazz, annotation.allowGuestRequest());
         }
     }
 
@@ -1,12 +1,16 @@
 package cn.laoshini.dk.jit.generator;
 
 import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.springframework.util.StringUtils;
 
 import cn.laoshini.dk.constant.BeanTypeEnum;
 import cn.laoshini.dk.jit.type.CompositeBean;
 import cn.laoshini.dk.jit.type.ITypeBean;
+import cn.laoshini.dk.jit.type.ListBean;
+import cn.laoshini.dk.net.msg.IByteDto;
 
 /**
  * 自定义格式消息的DTO类源文件生成器的抽象
@@ -17,6 +21,46 @@ class AbstractCustomDtoClassFileGenerator extends AbstractClassFileGenerator {
 
     protected static final String JDK_BYTE_BUFF = ByteBuffer.class.getName();
 
+    /**
+     * 基本类型对应的读写方法名称（去掉read、write前缀的部分），生成类直接调用对应的方法，不再在运行时判断类型
+     */
+    private static final Map<BeanTypeEnum, String> ACCESSOR_NAMES = new HashMap<>();
+
+    /**
+     * 基本类型的包装类型值为null时，写入的默认值
+     */
+    private static final Map<BeanTypeEnum, String> ZERO_VALUES = new HashMap<>();
+
+    /**
+     * 集合元素类型对应的集合读写方法名称（去掉read、write前缀的部分）
+     */
+    private static final Map<Class<?>, String> LIST_ACCESSOR_NAMES = new HashMap<>();
+
+    static {
+        ACCESSOR_NAMES.put(BeanTypeEnum.BOOLEAN, "Boolean");
+        ACCESSOR_NAMES.put(BeanTypeEnum.BYTE, "Byte");
+        ACCESSOR_NAMES.put(BeanTypeEnum.SHORT, "Short");
+        ACCESSOR_NAMES.put(BeanTypeEnum.INTEGER, "Int");
+        ACCESSOR_NAMES.put(BeanTypeEnum.LONG, "Long");
+        ACCESSOR_NAMES.put(BeanTypeEnum.DOUBLE, "Double");
+        ACCESSOR_NAMES.put(BeanTypeEnum.STRING, "String");
+
+        ZERO_VALUES.put(BeanTypeEnum.BOOLEAN, "false");
+        ZERO_VALUES.put(BeanTypeEnum.BYTE, "(byte) 0");
+        ZERO_VALUES.put(BeanTypeEnum.SHORT, "(short) 0");
+        ZERO_VALUES.put(BeanTypeEnum.INTEGER, "0");
+        ZERO_VALUES.put(BeanTypeEnum.LONG, "0L");
+        ZERO_VALUES.put(BeanTypeEnum.DOUBLE, "0D");
+
+        LIST_ACCESSOR_NAMES.put(Boolean.class, "BooleanList");
+        LIST_ACCESSOR_NAMES.put(Byte.class, "ByteList");
+        LIST_ACCESSOR_NAMES.put(Short.class, "ShortList");
+        LIST_ACCESSOR_NAMES.put(Integer.class, "IntList");
+        LIST_ACCESSOR_NAMES.put(Long.class, "LongList");
+        LIST_ACCESSOR_NAMES.put(Double.class, "DoubleList");
+        LIST_ACCESSOR_NAMES.put(String.class, "StringList");
+    }
+
     /**
      * 生成类使用的缓冲区的类名
      */
@@ -76,16 +120,18 @@ class AbstractCustomDtoClassFileGenerator extends AbstractClassFileGenerator {
      */
     @Override
     protected StringBuilder buildJavaFileContent() {
-        StringBuilder content = new StringBuilder("public class ").append(className).append(" implements ICustomDto {")
-                .append(PG);
+        String dtoInterface = dtoInterfaceClassName.substring(dtoInterfaceClassName.lastIndexOf('.') + 1);
+        StringBuilder content = new StringBuilder("public class ").append(className).append(IMP).append(dtoInterface)
+                .append(" {").append(PG);
 
         StringBuilder paramStr = new StringBuilder();
         StringBuilder methodStr = new StringBuilder();
         StringBuilder hashContent = new StringBuilder();
         StringBuilder toStringContent = new StringBuilder();
         int index = 1;
-        readMethodStr.append(ORI).append("public void read(ByteBuffer b) {").append(LS);
-        writeMethodStr.append(ORI).append("public void write(ByteBuffer b) {").append(LS);
+        String bufferType = byteBufferClassName.substring(byteBufferClassName.lastIndexOf('.') + 1);
+        readMethodStr.append(ORI).append("public void read(").append(bufferType).append(" b) {").append(LS);
+        writeMethodStr.append(ORI).append("public void write(").append(bufferType).append(" b) {").append(LS);
         byteSizeStr.append(ORI).append("public int byteSize() {").append(LS).append(RT);
         hashCodeStr.append(ORI).append("public int hashCode() {").append(LS);
         toStringStr.append(ORI).append("public String toString() {").append(LS);
@@ -155,15 +201,47 @@ class AbstractCustomDtoClassFileGenerator extends AbstractClassFileGenerator {
         methodStr.append("    public void set").append(capitalize).append("(").append(detailedParamStr).append(") {");
         methodStr.append(LS).append(TH).append(paramName).append(" = ").append(paramName).append(";").append(END);
 
-        // read() write()
-        if (BeanTypeEnum.LIST.equals(typeBean.getType())) {
-            readMethodStr.append(TH).append(paramName).append(" = readList(b, ").append(typeBean.getGenericClassName())
-                    .append(".class);").append(LS);
-            writeMethodStr.append(I2).append("writeList(b, ").append(paramName).append(");").append(LS);
+        // read() write()，已知类型的参数直接调用对应类型的读写方法，生成直线式的代码
+        String accessor = ACCESSOR_NAMES.get(typeBean.getType());
+        if (accessor != null) {
+            appendReadWrite("read" + accessor + "(b)", "write" + accessor + "(b, " + writeValue(typeBean) + ")");
+        } else if (BeanTypeEnum.LIST.equals(typeBean.getType())) {
+            appendListReadWrite((ListBean<?>) typeBean);
+        } else if (BeanTypeEnum.ORDINARY.equals(typeBean.getType()) && IByteDto.class
+                .isAssignableFrom(typeBean.getValueType())) {
+            appendReadWrite("readBean(b, " + paramTypeStr + ".class, true)", "writeBean(b, " + paramName + ", true)");
         } else {
-            readMethodStr.append(TH).append(paramName).append(" = (").append(paramTypeStr).append(") readByType(b, ")
-                    .append(paramTypeStr).append(".class);").append(LS);
-            writeMethodStr.append(I2).append("writeObj(b, ").append(paramName).append(");").append(LS);
+            appendReadWrite("(" + paramTypeStr + ") readByType(b, " + paramTypeStr + ".class)",
+                    "writeObj(b, " + paramName + ")");
+        }
+    }
+
+    private void appendListReadWrite(ListBean<?> listBean) {
+        Class<?> elementType = listBean.getActualClass();
+        String genericName = listBean.getGenericClassName();
+        String accessor = LIST_ACCESSOR_NAMES.get(elementType);
+        if (accessor != null) {
+            appendReadWrite("read" + accessor + "(b)", "write" + accessor + "(b, " + paramName + ")");
+        } else if (elementType != null && IByteDto.class.isAssignableFrom(elementType)) {
+            appendReadWrite("readBeanList(b, " + genericName + ".class)", "writeBeanList(b, " + paramName + ")");
+        } else {
+            appendReadWrite("readList(b, " + genericName + ".class)", "writeList(b, " + paramName + ")");
+        }
+    }
+
+    private void appendReadWrite(String readExpression, String writeExpression) {
+        readMethodStr.append(TH).append(paramName).append(" = ").append(readExpression).append(";").append(LS);
+        writeMethodStr.append(I2).append(writeExpression).append(";").append(LS);
+    }
+
+    /**
+     * 返回写入参数时使用的值，包装类型的值为null时写入默认值
+     */
+    private String writeValue(ITypeBean typeBean) {
+        String zero = ZERO_VALUES.get(typeBean.getType());
+        if (zero == null || typeBean.getValueType().isPrimitive()) {
+            return paramName;
         }
+        return paramName + " == null ? " + zero + " : " + paramName;
     }
 }
@@ -9,7 +9,7 @@ import cn.laoshini.dk.jit.type.CompositeBean;
  */
 public class NettyCustomDtoClassFileGenerator extends AbstractCustomDtoClassFileGenerator {
     public NettyCustomDtoClassFileGenerator(CompositeBean compositeBean, ClassLoader classLoader) {
-        super(compositeBean, classLoader, "io.netty.buffer.ByteBuf", "cn.laoshini.dk.server.message.INettyDto");
+        super(compositeBean, classLoader, "io.netty.buffer.ByteBuf", "cn.laoshini.dk.net.msg.INettyDto");
     }
 
     @Override
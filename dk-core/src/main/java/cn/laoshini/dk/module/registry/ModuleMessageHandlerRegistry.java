@@ -50,13 +50,16 @@ class ModuleMessageHandlerRegistry extends AbstractRecoverableModuleRegistry {
     @Override
     public void register(JarFile jarFile) {
         if (!handlerClassesMap.isEmpty()) {
-            for (Map.Entry<IMessageHandlerRegister, List<Class<?>>> entry : handlerClassesMap.entrySet()) {
-                IMessageHandlerRegister handlerRegister = entry.getKey();
-                for (Class<?> handlerClass : entry.getValue()) {
-                    handlerRegister.registerHandlerClass(handlerClass);
+            // 模块内的所有Handler注册完成后，只重新生成一次消息分发表
+            MessageHandlerHolder.batchUpdate(() -> {
+                for (Map.Entry<IMessageHandlerRegister, List<Class<?>>> entry : handlerClassesMap.entrySet()) {
+                    IMessageHandlerRegister handlerRegister = entry.getKey();
+                    for (Class<?> handlerClass : entry.getValue()) {
+                        handlerRegister.registerHandlerClass(handlerClass);
+                    }
+                    entry.getValue().clear();
                 }
-                entry.getValue().clear();
-            }
+            });
             handlerClassesMap.clear();
         }
     }
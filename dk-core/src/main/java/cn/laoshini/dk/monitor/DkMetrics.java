@@ -0,0 +1,247 @@
+package cn.laoshini.dk.monitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.IntSupplier;
+
+import cn.laoshini.dk.cache.CacheContainer;
+import cn.laoshini.dk.cache.IDkCache;
+import cn.laoshini.dk.executor.IOrderedExecutor;
+
+/**
+ * 服务器运行指标统一登记和查询入口
+ * <p>
+ * 记录的指标包括：每个消息id的Handler执行耗时分布和排队、执行、总耗时分布（见{@link MessageTracer}）、每个有序线程池的队列长度和任务等待时间、每个游戏服的收发字节数和消息数、
+ * 在线数以及缓存池的命中率；指标在业务线程中只做原子计数，在查询时才汇总计算。
+ * 查询结果可以通过{@link #snapshot()}获取（GM服务器使用），或通过{@link #scrape()}输出为Prometheus文本格式，
+ * 由{@link MetricsHttpServer}提供给Prometheus抓取。
+ * </p>
+ *
+ * @author fagarine
+ */
+public final class DkMetrics {
+
+    private static final ConcurrentMap<Integer, LatencyHistogram> HANDLER_LATENCY = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<Integer, ServerMetrics> SERVERS = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<Integer, IntSupplier> ONLINE = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<String, IOrderedExecutor<?>> EXECUTORS = new ConcurrentHashMap<>();
+
+    private DkMetrics() {
+    }
+
+    /**
+     * 获取消息id对应的Handler执行耗时统计，不存在时创建；Handler热更新后统计数据保留
+     *
+     * @param messageId 消息id
+     * @return 该方法不会返回null
+     */
+    public static LatencyHistogram handlerLatency(int messageId) {
+        LatencyHistogram histogram = HANDLER_LATENCY.get(messageId);
+        if (histogram == null) {
+            histogram = HANDLER_LATENCY.computeIfAbsent(messageId, id -> new LatencyHistogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * 登记游戏服，返回该游戏服的流量统计对象；同一个服务器id重复登记时返回同一个对象
+     *
+     * @param serverId 游戏服id
+     * @param online 在线数
+     * @return 该方法不会返回null
+     */
+    public static ServerMetrics registerServer(int serverId, IntSupplier online) {
+        ONLINE.put(serverId, online);
+        return SERVERS.computeIfAbsent(serverId, ServerMetrics::new);
+    }
+
+    public static void unregisterServer(int serverId) {
+        ONLINE.remove(serverId);
+        SERVERS.remove(serverId);
+    }
+
+    /**
+     * 登记有序线程池，用于统计队列长度和任务等待时间
+     *
+     * @param name 线程池名称
+     * @param executor 线程池
+     */
+    public static void registerExecutor(String name, IOrderedExecutor<?> executor) {
+        EXECUTORS.put(name, executor);
+    }
+
+    public static void unregisterExecutor(String name) {
+        EXECUTORS.remove(name);
+    }
+
+    /**
+     * 返回所有指标的当前值，耗时类指标的单位为毫秒
+     *
+     * @return 返回有序的指标集合
+     */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+
+        List<Map<String, Object>> servers = new ArrayList<>();
+        for (ServerMetrics metrics : new TreeMap<>(SERVERS).values()) {
+            Map<String, Object> server = new LinkedHashMap<>();
+            server.put("serverId", metrics.getServerId());
+            server.put("online", online(metrics.getServerId()));
+            server.put("bytesInPerSecond", metrics.bytesIn().ratePerSecond());
+            server.put("bytesOutPerSecond", metrics.bytesOut().ratePerSecond());
+            server.put("messagesInPerSecond", metrics.messagesIn().ratePerSecond());
+            server.put("messagesOutPerSecond", metrics.messagesOut().ratePerSecond());
+            server.put("messagesIn", metrics.messagesIn().total());
+            server.put("messagesOut", metrics.messagesOut().total());
+            servers.add(server);
+        }
+        snapshot.put("servers", servers);
+
+        Map<Integer, Object> handlers = new TreeMap<>();
+        for (Map.Entry<Integer, LatencyHistogram> entry : HANDLER_LATENCY.entrySet()) {
+            if (entry.getValue().count() > 0) {
+                handlers.put(entry.getKey(), latencyToMap(entry.getValue()));
+            }
+        }
+        snapshot.put("handlers", handlers);
+
+        Map<Integer, Object> messages = new TreeMap<>();
+        for (Map.Entry<Integer, MessageTimings> entry : MessageTracer.allTimings().entrySet()) {
+            MessageTimings timings = entry.getValue();
+            if (timings.total().count() > 0) {
+                Map<String, Object> message = new LinkedHashMap<>();
+                message.put("queueWait", latencyToMap(timings.queueWait()));
+                message.put("execution", latencyToMap(timings.execution()));
+                message.put("total", latencyToMap(timings.total()));
+                messages.put(entry.getKey(), message);
+            }
+        }
+        snapshot.put("messages", messages);
+
+        Map<String, Object> executors = new TreeMap<>();
+        for (Map.Entry<String, IOrderedExecutor<?>> entry : EXECUTORS.entrySet()) {
+            Map<String, Object> executor = new LinkedHashMap<>();
+            executor.put("queuedTasks", entry.getValue().getTotalTaskCount());
+            LatencyHistogram waitTime = entry.getValue().getWaitTime();
+            if (waitTime != null) {
+                executor.put("waitTime", latencyToMap(waitTime));
+            }
+            executors.put(entry.getKey(), executor);
+        }
+        snapshot.put("executors", executors);
+
+        Map<String, Object> caches = new TreeMap<>();
+        for (Map.Entry<String, IDkCache> entry : CacheContainer.getCaches().entrySet()) {
+            IDkCache<?, ?> cache = entry.getValue();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("size", cache.size());
+            stats.put("hits", cache.hitCount());
+            stats.put("misses", cache.missCount());
+            stats.put("hitRate", hitRate(cache));
+            caches.put(entry.getKey(), stats);
+        }
+        snapshot.put("caches", caches);
+        return snapshot;
+    }
+
+    /**
+     * 返回Prometheus文本格式（version 0.0.4）的指标
+     */
+    public static String scrape() {
+        PrometheusTextWriter writer = new PrometheusTextWriter();
+
+        writer.type("dk_server_online", "gauge");
+        writer.type("dk_server_received_bytes_total", "counter");
+        writer.type("dk_server_sent_bytes_total", "counter");
+        writer.type("dk_server_received_messages_total", "counter");
+        writer.type("dk_server_sent_messages_total", "counter");
+        for (ServerMetrics metrics : new TreeMap<>(SERVERS).values()) {
+            String label = PrometheusTextWriter.label("server_id", metrics.getServerId());
+            writer.sample("dk_server_online", label, online(metrics.getServerId()));
+            writer.sample("dk_server_received_bytes_total", label, metrics.bytesIn().total());
+            writer.sample("dk_server_sent_bytes_total", label, metrics.bytesOut().total());
+            writer.sample("dk_server_received_messages_total", label, metrics.messagesIn().total());
+            writer.sample("dk_server_sent_messages_total", label, metrics.messagesOut().total());
+        }
+
+        writer.type("dk_handler_latency_seconds", "summary");
+        for (Map.Entry<Integer, LatencyHistogram> entry : new TreeMap<>(HANDLER_LATENCY).entrySet()) {
+            if (entry.getValue().count() == 0) {
+                continue;
+            }
+            writer.summary("dk_handler_latency_seconds", PrometheusTextWriter.label("message_id", entry.getKey()),
+                    entry.getValue());
+        }
+
+        writer.type("dk_message_queue_wait_seconds", "summary");
+        writer.type("dk_message_execution_seconds", "summary");
+        writer.type("dk_message_total_seconds", "summary");
+        for (Map.Entry<Integer, MessageTimings> entry : new TreeMap<>(MessageTracer.allTimings()).entrySet()) {
+            MessageTimings timings = entry.getValue();
+            if (timings.total().count() == 0) {
+                continue;
+            }
+            String label = PrometheusTextWriter.label("message_id", entry.getKey());
+            writer.summary("dk_message_queue_wait_seconds", label, timings.queueWait());
+            writer.summary("dk_message_execution_seconds", label, timings.execution());
+            writer.summary("dk_message_total_seconds", label, timings.total());
+        }
+
+        writer.type("dk_executor_queued_tasks", "gauge");
+        writer.type("dk_executor_wait_seconds", "summary");
+        for (Map.Entry<String, IOrderedExecutor<?>> entry : new TreeMap<>(EXECUTORS).entrySet()) {
+            String label = PrometheusTextWriter.label("executor", entry.getKey());
+            writer.sample("dk_executor_queued_tasks", label, entry.getValue().getTotalTaskCount());
+            LatencyHistogram waitTime = entry.getValue().getWaitTime();
+            if (waitTime != null) {
+                writer.summary("dk_executor_wait_seconds", label, waitTime);
+            }
+        }
+
+        writer.type("dk_cache_size", "gauge");
+        writer.type("dk_cache_hits_total", "counter");
+        writer.type("dk_cache_misses_total", "counter");
+        for (Map.Entry<String, IDkCache> entry : new TreeMap<>(CacheContainer.getCaches()).entrySet()) {
+            String label = PrometheusTextWriter.label("cache", entry.getKey());
+            writer.sample("dk_cache_size", label, entry.getValue().size());
+            writer.sample("dk_cache_hits_total", label, entry.getValue().hitCount());
+            writer.sample("dk_cache_misses_total", label, entry.getValue().missCount());
+        }
+        return writer.toString();
+    }
+
+    private static int online(int serverId) {
+        IntSupplier online = ONLINE.get(serverId);
+        return online == null ? 0 : online.getAsInt();
+    }
+
+    private static double hitRate(IDkCache<?, ?> cache) {
+        long requests = cache.hitCount() + cache.missCount();
+        return requests == 0 ? 0D : (double) cache.hitCount() / requests;
+    }
+
+    private static Map<String, Object> latencyToMap(LatencyHistogram histogram) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", histogram.count());
+        map.put("mean", toMillis(histogram.mean()));
+        map.put("p50", toMillis(histogram.percentile(0.5)));
+        map.put("p90", toMillis(histogram.percentile(0.9)));
+        map.put("p99", toMillis(histogram.percentile(0.99)));
+        map.put("p999", toMillis(histogram.percentile(0.999)));
+        map.put("max", toMillis(histogram.max()));
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / 1_000_000D;
+    }
+}
@@ -0,0 +1,137 @@
+package cn.laoshini.dk.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 耗时分布统计（单位：纳秒），可以在多个线程中并发记录
+ * <p>
+ * 按HdrHistogram的思路使用对数-线性分桶：每个2的幂区间再均分为{@value #SUB_BUCKETS}个桶，统计结果的相对误差不超过1/{@value #SUB_BUCKETS}；
+ * 桶的数量固定，记录一次只需要定位桶下标并原子自增，不分配对象、不加锁。
+ * </p>
+ *
+ * @author fagarine
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_MASK = SUB_BUCKETS - 1;
+
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时，单位：纳秒，小于0时按0记录
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0L);
+        buckets.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * 返回记录次数
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * 返回所有记录的总耗时，单位：纳秒
+     */
+    public long sum() {
+        return sum.sum();
+    }
+
+    /**
+     * 返回记录过的最大耗时，单位：纳秒
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * 返回平均耗时，单位：纳秒
+     */
+    public double mean() {
+        long c = count();
+        return c == 0 ? 0D : (double) sum() / c;
+    }
+
+    /**
+     * 返回指定百分位的耗时（所在桶的上界），单位：纳秒
+     *
+     * @param percentile 百分位，取值范围(0, 1]，如0.99
+     * @return 没有记录时返回0
+     */
+    public long percentile(double percentile) {
+        long total = 0L;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+
+        long target = (long) Math.ceil(total * Math.min(Math.max(percentile, 0D), 1D));
+        long seen = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= target && snapshot[i] > 0) {
+                return Math.min(bucketUpperBound(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * 清空统计数据，与记录操作并发执行时，可能有少量记录丢失
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0L);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0L);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & SUB_BUCKET_MASK;
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lower = (long) (SUB_BUCKETS + (index & SUB_BUCKET_MASK)) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
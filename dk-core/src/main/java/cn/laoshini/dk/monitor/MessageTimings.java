@@ -0,0 +1,36 @@
+package cn.laoshini.dk.monitor;
+
+/**
+ * 单个消息id的分阶段耗时统计
+ *
+ * @author fagarine
+ */
+public class MessageTimings {
+
+    /**
+     * 从加入执行队列到开始执行的等待时间
+     */
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    /**
+     * 从开始执行到Handler执行完成的时间
+     */
+    private final LatencyHistogram execution = new LatencyHistogram();
+
+    /**
+     * 从消息解码完成到Handler执行完成的总时间
+     */
+    private final LatencyHistogram total = new LatencyHistogram();
+
+    public LatencyHistogram queueWait() {
+        return queueWait;
+    }
+
+    public LatencyHistogram execution() {
+        return execution;
+    }
+
+    public LatencyHistogram total() {
+        return total;
+    }
+}
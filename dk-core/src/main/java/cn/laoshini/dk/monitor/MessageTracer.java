@@ -0,0 +1,119 @@
+package cn.laoshini.dk.monitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import cn.laoshini.dk.constant.Constants;
+import cn.laoshini.dk.domain.msg.ReqMessage;
+
+/**
+ * 消息处理过程的分阶段耗时统计
+ * <p>
+ * 每条到达的消息在解码完成、加入执行队列、开始执行时由{@link ReqMessage}记录时间点，Handler执行完成后调用{@link #record}，
+ * 按消息id分别统计排队等待时间、执行时间和总时间；总时间超过阈值的消息记录到固定长度的环形缓冲中，可以通过GM查询最近的慢消息，
+ * 根据排队时间和Handler执行时间的占比，判断延迟是线程池饱和造成的还是Handler代码慢造成的。
+ * </p>
+ *
+ * @author fagarine
+ */
+public final class MessageTracer {
+
+    /**
+     * 慢消息环形缓冲的长度，必须是2的幂
+     */
+    private static final int SLOW_BUFFER_SIZE = 256;
+
+    private static final ConcurrentMap<Integer, MessageTimings> TIMINGS = new ConcurrentHashMap<>();
+
+    private static final AtomicReferenceArray<SlowMessageRecord> SLOW_RECORDS = new AtomicReferenceArray<>(
+            SLOW_BUFFER_SIZE);
+
+    private static final AtomicLong SLOW_CURSOR = new AtomicLong();
+
+    private static volatile long slowThresholdNanos = TimeUnit.MILLISECONDS
+            .toNanos(Constants.HANDLER_RESPONSE_LIMIT);
+
+    private MessageTracer() {
+    }
+
+    /**
+     * 设置慢消息阈值
+     *
+     * @param millis 消息从解码完成到处理完成的总耗时超过该值时记录为慢消息，单位：毫秒
+     */
+    public static void setSlowThreshold(long millis) {
+        slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(millis, 0L));
+    }
+
+    /**
+     * 获取消息id对应的分阶段耗时统计，不存在时创建
+     *
+     * @param messageId 消息id
+     * @return 该方法不会返回null
+     */
+    public static MessageTimings timings(int messageId) {
+        MessageTimings timings = TIMINGS.get(messageId);
+        if (timings == null) {
+            timings = TIMINGS.computeIfAbsent(messageId, id -> new MessageTimings());
+        }
+        return timings;
+    }
+
+    static Map<Integer, MessageTimings> allTimings() {
+        return TIMINGS;
+    }
+
+    /**
+     * Handler执行完成后记录本条消息的各阶段耗时，缺少的时间点按Handler开始执行的时间计算
+     *
+     * @param messageId 消息id
+     * @param message 消息
+     * @param handlerStart Handler开始执行的时间（System.nanoTime()）
+     * @param handlerEnd Handler执行完成的时间（System.nanoTime()）
+     */
+    public static void record(int messageId, ReqMessage<?> message, long handlerStart, long handlerEnd) {
+        long dequeue = message.dequeueNanos() != 0L ? message.dequeueNanos() : handlerStart;
+        long enqueue = message.enqueueNanos() != 0L ? message.enqueueNanos() : dequeue;
+        long decode = message.decodeNanos() != 0L ? message.decodeNanos() : enqueue;
+
+        long queueWait = dequeue - enqueue;
+        long execution = handlerEnd - dequeue;
+        long total = handlerEnd - decode;
+        MessageTimings timings = timings(messageId);
+        timings.queueWait().record(queueWait);
+        timings.execution().record(execution);
+        timings.total().record(total);
+
+        if (total > slowThresholdNanos) {
+            SlowMessageRecord record = new SlowMessageRecord(messageId, enqueue - decode, queueWait, execution,
+                    handlerEnd - handlerStart, total);
+            int slot = (int) (SLOW_CURSOR.getAndIncrement() & (SLOW_BUFFER_SIZE - 1));
+            SLOW_RECORDS.set(slot, record);
+        }
+    }
+
+    /**
+     * 返回最近的慢消息记录，最新的在前
+     *
+     * @param limit 最多返回的数量
+     * @return 该方法不会返回null
+     */
+    public static List<SlowMessageRecord> recentSlowMessages(int limit) {
+        int count = Math.min(Math.max(limit, 0), SLOW_BUFFER_SIZE);
+        List<SlowMessageRecord> records = new ArrayList<>(count);
+        long cursor = SLOW_CURSOR.get();
+        for (long i = cursor - 1; i >= 0 && i >= cursor - SLOW_BUFFER_SIZE && records.size() < count; i--) {
+            SlowMessageRecord record = SLOW_RECORDS.get((int) (i & (SLOW_BUFFER_SIZE - 1)));
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,119 @@
+package cn.laoshini.dk.monitor;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import cn.laoshini.dk.exception.BusinessException;
+import cn.laoshini.dk.util.LogUtil;
+
+/**
+ * 指标查询HTTP服务，供Prometheus抓取
+ * <p>
+ * 只处理GET {@value #METRICS_PATH}请求，返回{@link DkMetrics#scrape()}的结果；使用独立的单线程事件循环，不占用游戏服的工作线程
+ * </p>
+ *
+ * @author fagarine
+ */
+public class MetricsHttpServer {
+
+    public static final String METRICS_PATH = "/metrics";
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final int port;
+
+    private EventLoopGroup group;
+
+    private Channel channel;
+
+    public MetricsHttpServer(int port) {
+        this.port = port;
+    }
+
+    public synchronized void start() {
+        if (channel != null) {
+            return;
+        }
+
+        group = new NioEventLoopGroup(1, new DefaultThreadFactory("dk-metrics-http"));
+        ServerBootstrap b = new ServerBootstrap();
+        b.group(group).channel(NioServerSocketChannel.class).childHandler(new ChannelInitializer<SocketChannel>() {
+            @Override
+            protected void initChannel(SocketChannel ch) {
+                ch.pipeline().addLast(new HttpServerCodec());
+                ch.pipeline().addLast(new HttpObjectAggregator(8192));
+                ch.pipeline().addLast(new MetricsHandler());
+            }
+        });
+        try {
+            channel = b.bind(port).sync().channel();
+        } catch (Exception e) {
+            group.shutdownGracefully();
+            group = null;
+            throw new BusinessException("metrics.server.start.error", String.format("指标查询服务绑定端口 [%d] 失败", port));
+        }
+        LogUtil.start("指标查询服务启动完成，端口 [{}]，路径 [{}]", port, METRICS_PATH);
+    }
+
+    public synchronized void shutdown() {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        if (group != null) {
+            group.shutdownGracefully();
+            group = null;
+        }
+    }
+
+    private static class MetricsHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+            FullHttpResponse response;
+            if (!HttpMethod.GET.equals(request.method()) || !request.uri().startsWith(METRICS_PATH)) {
+                response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_FOUND);
+            } else {
+                ByteBuf content = ByteBufUtil.writeUtf8(ctx.alloc(), DkMetrics.scrape());
+                response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, content);
+                response.headers().set(HttpHeaderNames.CONTENT_TYPE, CONTENT_TYPE);
+            }
+            HttpUtil.setContentLength(response, response.content().readableBytes());
+
+            boolean keepAlive = HttpUtil.isKeepAlive(request);
+            HttpUtil.setKeepAlive(response, keepAlive);
+            if (keepAlive) {
+                ctx.writeAndFlush(response);
+            } else {
+                ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            LogUtil.error("指标查询请求处理出错", cause);
+            ctx.close();
+        }
+    }
+}
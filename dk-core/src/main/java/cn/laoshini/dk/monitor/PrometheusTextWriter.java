@@ -0,0 +1,48 @@
+package cn.laoshini.dk.monitor;
+
+/**
+ * Prometheus文本格式输出
+ *
+ * @author fagarine
+ */
+class PrometheusTextWriter {
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000D;
+
+    private final StringBuilder out = new StringBuilder(4096);
+
+    static String label(String name, Object value) {
+        String text = String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return name + "=\"" + text + '"';
+    }
+
+    void type(String metric, String type) {
+        out.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+    }
+
+    void sample(String metric, String labels, double value) {
+        out.append(metric).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    void sample(String metric, String labels, long value) {
+        out.append(metric).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    /**
+     * 将耗时分布输出为summary类型，单位转换为秒
+     */
+    void summary(String metric, String labels, LatencyHistogram histogram) {
+        for (double quantile : QUANTILES) {
+            sample(metric, labels + ",quantile=\"" + quantile + '"', histogram.percentile(quantile) / NANOS_PER_SECOND);
+        }
+        sample(metric + "_sum", labels, histogram.sum() / NANOS_PER_SECOND);
+        sample(metric + "_count", labels, histogram.count());
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package cn.laoshini.dk.monitor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 计数与速率统计，计数可以在多个线程中并发执行
+ * <p>
+ * 速率在读取时根据累计计数计算：保留最近两个间隔至少1秒的计数采样，每次读取都从距今至少1秒的最新采样开始计算到当前时刻，
+ * 读取只会追加采样，不会消耗其他读取方的统计区间，GM查询、监控采集等多个读取方可以交替读取而互不影响，也不需要额外的定时任务
+ * </p>
+ *
+ * @author fagarine
+ */
+public class RateMeter {
+
+    private static final long MIN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * 上一个采样，与最新采样的间隔至少1秒；hasPrevious为false时（只有创建时的采样）无效
+     */
+    private long previousNanos;
+
+    private long previousTotal;
+
+    /**
+     * 最新的采样
+     */
+    private long latestNanos;
+
+    private long latestTotal;
+
+    private boolean hasPrevious;
+
+    public RateMeter() {
+        this(System.nanoTime());
+    }
+
+    RateMeter(long now) {
+        this.latestNanos = now;
+    }
+
+    public void mark() {
+        total.increment();
+    }
+
+    public void mark(long n) {
+        total.add(n);
+    }
+
+    /**
+     * 返回累计计数
+     */
+    public long total() {
+        return total.sum();
+    }
+
+    /**
+     * 返回最近至少1秒的统计区间内的每秒速率
+     */
+    public double ratePerSecond() {
+        return ratePerSecond(System.nanoTime());
+    }
+
+    synchronized double ratePerSecond(long now) {
+        long current = total.sum();
+        long baseNanos;
+        long baseTotal;
+        if (now - latestNanos >= MIN_INTERVAL_NANOS) {
+            baseNanos = latestNanos;
+            baseTotal = latestTotal;
+            previousNanos = latestNanos;
+            previousTotal = latestTotal;
+            hasPrevious = true;
+            latestNanos = now;
+            latestTotal = current;
+        } else if (hasPrevious) {
+            // 上一个采样与最新采样的间隔至少1秒，所以距今也至少1秒
+            baseNanos = previousNanos;
+            baseTotal = previousTotal;
+        } else {
+            // 创建后不足1秒，按创建以来的区间计算
+            baseNanos = latestNanos;
+            baseTotal = latestTotal;
+        }
+
+        long elapsed = now - baseNanos;
+        return elapsed <= 0L ? 0D : (current - baseTotal) * NANOS_PER_SECOND / elapsed;
+    }
+}
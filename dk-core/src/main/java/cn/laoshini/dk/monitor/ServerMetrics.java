@@ -0,0 +1,43 @@
+package cn.laoshini.dk.monitor;
+
+/**
+ * 单个游戏服的流量统计
+ *
+ * @author fagarine
+ */
+public class ServerMetrics {
+
+    private final int serverId;
+
+    private final RateMeter bytesIn = new RateMeter();
+
+    private final RateMeter bytesOut = new RateMeter();
+
+    private final RateMeter messagesIn = new RateMeter();
+
+    private final RateMeter messagesOut = new RateMeter();
+
+    ServerMetrics(int serverId) {
+        this.serverId = serverId;
+    }
+
+    public int getServerId() {
+        return serverId;
+    }
+
+    public RateMeter bytesIn() {
+        return bytesIn;
+    }
+
+    public RateMeter bytesOut() {
+        return bytesOut;
+    }
+
+    public RateMeter messagesIn() {
+        return messagesIn;
+    }
+
+    public RateMeter messagesOut() {
+        return messagesOut;
+    }
+}
@@ -0,0 +1,88 @@
+package cn.laoshini.dk.monitor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 慢消息记录，记录一条消息在各处理阶段的耗时，对外提供的耗时单位为毫秒
+ *
+ * @author fagarine
+ */
+public class SlowMessageRecord {
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int messageId;
+
+    private final long time;
+
+    private final long dispatchNanos;
+
+    private final long queueWaitNanos;
+
+    private final long executionNanos;
+
+    private final long handlerNanos;
+
+    private final long totalNanos;
+
+    SlowMessageRecord(int messageId, long dispatchNanos, long queueWaitNanos, long executionNanos, long handlerNanos,
+            long totalNanos) {
+        this.messageId = messageId;
+        this.time = System.currentTimeMillis();
+        this.dispatchNanos = dispatchNanos;
+        this.queueWaitNanos = queueWaitNanos;
+        this.executionNanos = executionNanos;
+        this.handlerNanos = handlerNanos;
+        this.totalNanos = totalNanos;
+    }
+
+    public int getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * 返回记录时间（毫秒时间戳）
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * 从解码完成到加入执行队列的耗时
+     */
+    public double getDispatchMillis() {
+        return dispatchNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * 在执行队列中等待的耗时，该值偏大说明线程池已饱和
+     */
+    public double getQueueWaitMillis() {
+        return queueWaitNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * 从开始执行到执行完成的耗时
+     */
+    public double getExecutionMillis() {
+        return executionNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * 其中Handler逻辑本身的耗时，该值偏大说明Handler代码较慢
+     */
+    public double getHandlerMillis() {
+        return handlerNanos / NANOS_PER_MILLI;
+    }
+
+    public double getTotalMillis() {
+        return totalNanos / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public String toString() {
+        return "SlowMessageRecord{" + "messageId=" + messageId + ", time=" + time + ", queueWaitMillis="
+               + getQueueWaitMillis() + ", handlerMillis=" + getHandlerMillis() + ", totalMillis=" + getTotalMillis()
+               + '}';
+    }
+}
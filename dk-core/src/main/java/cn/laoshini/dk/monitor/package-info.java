@@ -1,6 +1,10 @@
 /**
  * 服务器状态监控相关
+ * <p>
+ * {@link cn.laoshini.dk.monitor.DkMetrics}为指标的登记和查询入口，
+ * {@link cn.laoshini.dk.monitor.MetricsHttpServer}以Prometheus文本格式对外提供指标
+ * </p>
  *
  * @author fagarine
  */
-package cn.laoshini.dk.monitor;
\ No newline at end of file
+package cn.laoshini.dk.monitor;
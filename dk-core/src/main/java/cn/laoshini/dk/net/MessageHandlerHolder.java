@@ -1,15 +1,26 @@
 package cn.laoshini.dk.net;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
 
 import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 
+import cn.laoshini.dk.annotation.MessageHandle;
 import cn.laoshini.dk.annotation.ResourceHolder;
 import cn.laoshini.dk.common.SpringContextHolder;
 import cn.laoshini.dk.constant.Constants;
@@ -21,6 +32,9 @@ import cn.laoshini.dk.domain.msg.ReqMessage;
 import cn.laoshini.dk.domain.msg.RespMessage;
 import cn.laoshini.dk.exception.BusinessException;
 import cn.laoshini.dk.exception.MessageException;
+import cn.laoshini.dk.monitor.DkMetrics;
+import cn.laoshini.dk.monitor.LatencyHistogram;
+import cn.laoshini.dk.monitor.MessageTracer;
 import cn.laoshini.dk.net.handler.ExpressionMessageHandler;
 import cn.laoshini.dk.net.handler.IHttpMessageHandler;
 import cn.laoshini.dk.net.handler.IMessageHandler;
@@ -63,6 +77,29 @@ public enum MessageHandlerHolder {
      */
     private static final Map<ClassLoader, Set<String>> SPRING_BEAN_NAMES = new HashMap<>();
     private static final Map<Integer, HandlerDesc> DESCRIPTORS = new ConcurrentHashMap<>();
+    /**
+     * 缓存原型模式Handler类的构造方法句柄
+     */
+    private static final Map<Class<?>, MethodHandle> CONSTRUCTOR_CACHE = new ConcurrentHashMap<>();
+    /**
+     * 小于该值的消息id，使用数组下标直接查找
+     */
+    private static final int DENSE_ID_LIMIT = 1 << 16;
+    /**
+     * protobuf是可选依赖，不存在时不解析消息的Parser
+     */
+    private static final boolean PROTOBUF_PRESENT = ClassUtils
+            .isPresent("com.google.protobuf.Message", MessageHandlerHolder.class.getClassLoader());
+    private static final Object TABLE_LOCK = new Object();
+    /**
+     * 当前线程是否正在批量修改注册信息，批量修改期间不重新生成消息分发表，见{@link #batchUpdate(Runnable)}
+     */
+    private static final ThreadLocal<Boolean> BATCH_UPDATING = new ThreadLocal<>();
+    /**
+     * 消息分发表，由以上注册信息编译而成，注册信息变化后（批量修改时在全部修改完成后）重新生成并整体替换，消息分发时只读取该表
+     */
+    private static volatile DispatchTable dispatchTable = new DispatchTable(new HandlerEntry[0],
+            Collections.emptyMap());
     private static int maxResponseTime;
 
     private static void checkDuplicate(int messageId, Class<?> clazz) {
@@ -81,9 +118,15 @@ public enum MessageHandlerHolder {
         }
     }
 
-    private static void recordHandlerDescriptor(int messageId, Class<?> clazz, boolean allowGuestRequest) {
+    private static void recordHandlerDescriptor(int messageId, Class<?> clazz, boolean allowGuestRequest,
+            MessageHandle annotation) {
         HandlerDesc desc = new HandlerDesc(messageId);
         desc.setAllowGuestRequest(allowGuestRequest);
+        if (annotation != null) {
+            desc.setDescription(annotation.description());
+            desc.setSequential(annotation.sequential());
+            desc.setRateLimit(annotation.rateLimit());
+        }
         if (IMessageHandler.class.isAssignableFrom(clazz)) {
             desc.setInternal(true);
             Class<?> genericType = MessageDtoClassHolder.getDtoClass(messageId);
@@ -107,7 +150,8 @@ public enum MessageHandlerHolder {
 
         HANDLER_TYPE_MAP.put(messageId, clazz);
         MESSAGE_ID_MAP.computeIfAbsent(clazz.getClassLoader(), (cl) -> new CopyOnWriteArraySet<>()).add(messageId);
-        recordHandlerDescriptor(messageId, clazz, allowGuestRequest);
+        recordHandlerDescriptor(messageId, clazz, allowGuestRequest, clazz.getAnnotation(MessageHandle.class));
+        rebuildDispatchTable();
     }
 
     /**
@@ -133,7 +177,8 @@ public enum MessageHandlerHolder {
         HANDLER_INSTANCE_MAP.put(messageId, handler);
         MESSAGE_ID_MAP.computeIfAbsent(handler.getClass().getClassLoader(), (cl) -> new CopyOnWriteArraySet<>())
                 .add(messageId);
-        recordHandlerDescriptor(messageId, handler.getClass(), allowGuestRequest);
+        recordHandlerDescriptor(messageId, handler.getClass(), allowGuestRequest, getHandleAnnotation(handler));
+        rebuildDispatchTable();
     }
 
     /**
@@ -143,11 +188,16 @@ public enum MessageHandlerHolder {
      * @param handler 消息处理对象
      */
     public static void registerSingletonHandler(int messageId, Object handler) {
-        checkDuplicate(messageId, handler.getClass());
+        // 该方法注册的Handler原先不记录描述信息，默认允许未登录用户请求，这里保持该行为
+        registerSingletonHandler(messageId, handler, true);
+    }
 
-        HANDLER_INSTANCE_MAP.put(messageId, handler);
-        MESSAGE_ID_MAP.computeIfAbsent(handler.getClass().getClassLoader(), (cl) -> new CopyOnWriteArraySet<>())
-                .add(messageId);
+    private static MessageHandle getHandleAnnotation(Object handler) {
+        if (handler instanceof ExpressionMessageHandler) {
+            return ((ExpressionMessageHandler) handler).getExecutorBean().getAnnotation();
+        }
+        // Spring管理的Handler可能是代理类，需要从原始类上读取注解
+        return ClassUtils.getUserClass(handler).getAnnotation(MessageHandle.class);
     }
 
     /**
@@ -195,12 +245,14 @@ public enum MessageHandlerHolder {
                 }
             }
         }
+        rebuildDispatchTable();
     }
 
     public static void cancelPrepareUnregister() {
         HANDLER_INSTANCE_MAP.putAll(HANDLER_INSTANCE_CACHE);
         HANDLER_INSTANCE_CACHE.clear();
         HANDLER_TYPE_CACHE.clear();
+        rebuildDispatchTable();
     }
 
     /**
@@ -218,6 +270,8 @@ public enum MessageHandlerHolder {
             }
         }
         SPRING_BEAN_NAMES.remove(classLoader);
+        CONSTRUCTOR_CACHE.keySet().removeIf(clazz -> clazz.getClassLoader() == classLoader);
+        rebuildDispatchTable();
     }
 
     /**
@@ -228,11 +282,133 @@ public enum MessageHandlerHolder {
     public static void unregisterHandler(int messageId) {
         Object handler = HANDLER_INSTANCE_MAP.remove(messageId);
         if (handler != null) {
+            DESCRIPTORS.remove(messageId);
             Set<Integer> ids = MESSAGE_ID_MAP.get(handler.getClass().getClassLoader());
             if (ids != null) {
                 ids.remove(messageId);
             }
         }
+        rebuildDispatchTable();
+    }
+
+    /**
+     * 批量修改Handler注册信息，传入逻辑中的所有注册、注销操作完成后只重新生成一次消息分发表
+     * <p>
+     * 扫描注册整个模块的Handler时使用，避免每注册一个Handler都重新生成整张表；嵌套调用时由最外层统一重新生成。
+     * 批量修改只对当前线程生效，批量修改过程中其他线程的注册操作仍会立即重新生成消息分发表；
+     * 传入逻辑抛出异常时，已完成的修改同样会生效。
+     * </p>
+     *
+     * @param updates 注册、注销Handler的逻辑
+     */
+    public static void batchUpdate(Runnable updates) {
+        if (BATCH_UPDATING.get() != null) {
+            updates.run();
+            return;
+        }
+
+        BATCH_UPDATING.set(Boolean.TRUE);
+        try {
+            updates.run();
+        } finally {
+            BATCH_UPDATING.remove();
+            rebuildDispatchTable();
+        }
+    }
+
+    /**
+     * 根据当前的注册信息，重新生成消息分发表；当前线程正在批量修改时，由批量修改结束时统一生成
+     */
+    private static void rebuildDispatchTable() {
+        if (BATCH_UPDATING.get() != null) {
+            return;
+        }
+
+        synchronized (TABLE_LOCK) {
+            Set<Integer> messageIds = new HashSet<>(HANDLER_INSTANCE_MAP.keySet());
+            messageIds.addAll(HANDLER_INSTANCE_CACHE.keySet());
+            messageIds.addAll(HANDLER_TYPE_MAP.keySet());
+            messageIds.addAll(HANDLER_TYPE_CACHE.keySet());
+            messageIds.addAll(DESCRIPTORS.keySet());
+
+            int maxDenseId = -1;
+            for (int messageId : messageIds) {
+                if (messageId >= 0 && messageId < DENSE_ID_LIMIT) {
+                    maxDenseId = Math.max(maxDenseId, messageId);
+                }
+            }
+
+            HandlerEntry[] dense = new HandlerEntry[maxDenseId + 1];
+            Map<Integer, HandlerEntry> sparse = new HashMap<>();
+            for (int messageId : messageIds) {
+                HandlerEntry entry = newHandlerEntry(messageId);
+                if (messageId >= 0 && messageId < DENSE_ID_LIMIT) {
+                    dense[messageId] = entry;
+                } else {
+                    sparse.put(messageId, entry);
+                }
+            }
+            dispatchTable = new DispatchTable(dense, sparse);
+        }
+    }
+
+    private static HandlerEntry newHandlerEntry(int messageId) {
+        Object singleton = HANDLER_INSTANCE_MAP.get(messageId);
+        if (singleton == null) {
+            singleton = HANDLER_INSTANCE_CACHE.get(messageId);
+        }
+
+        Class<?> handlerClass = null;
+        MethodHandle constructor = null;
+        if (singleton == null) {
+            handlerClass = HANDLER_TYPE_MAP.get(messageId);
+            if (handlerClass == null) {
+                handlerClass = HANDLER_TYPE_CACHE.get(messageId);
+            }
+            if (handlerClass != null) {
+                constructor = CONSTRUCTOR_CACHE.computeIfAbsent(handlerClass, MessageHandlerHolder::findConstructor);
+            }
+        }
+        HandlerDesc desc = DESCRIPTORS.get(messageId);
+        Class<?> genericType = desc == null ? null : desc.getGenericType();
+        if (genericType == null) {
+            genericType = MessageDtoClassHolder.getDtoClass(messageId);
+        }
+        Object parser = PROTOBUF_PRESENT ? findProtobufParser(genericType) : null;
+        LatencyHistogram latency = DkMetrics.handlerLatency(messageId);
+        return new HandlerEntry(singleton, handlerClass, constructor, desc, parser, latency);
+    }
+
+    /**
+     * 如果传入类型是protobuf消息类，通过其默认实例获取消息的Parser，消息分发表生成时调用，不在消息解码时反射
+     */
+    private static Object findProtobufParser(Class<?> clazz) {
+        if (clazz == null || !Message.class.isAssignableFrom(clazz)) {
+            return null;
+        }
+        try {
+            Method method = clazz.getMethod("getDefaultInstance");
+            return ((Message) method.invoke(null)).getParserForType();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LogUtil.error(String.format("获取protobuf消息类[%s]的Parser失败", clazz.getName()), e);
+            return null;
+        }
+    }
+
+    private static MethodHandle findConstructor(Class<?> clazz) {
+        try {
+            Constructor<?> constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor)
+                    .asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+            LogUtil.error(String.format("消息处理类[%s]缺少可用的无参构造方法", clazz.getName()), e);
+            return null;
+        }
+    }
+
+    private static HandlerEntry getHandlerEntry(int messageId) {
+        return dispatchTable.get(messageId);
     }
 
     /**
@@ -243,11 +419,8 @@ public enum MessageHandlerHolder {
      * @return 该方法可能返回null
      */
     public static <H> Class<H> getProtoHandlerClass(int messageId) {
-        Class<?> clazz = HANDLER_TYPE_MAP.get(messageId);
-        if (clazz == null) {
-            return (Class<H>) HANDLER_TYPE_CACHE.get(messageId);
-        }
-        return (Class<H>) clazz;
+        HandlerEntry entry = getHandlerEntry(messageId);
+        return entry == null ? null : (Class<H>) entry.handlerClass;
     }
 
     /**
@@ -258,11 +431,8 @@ public enum MessageHandlerHolder {
      * @return 该方法可能返回null
      */
     public static <H> H getSingletonHandler(int messageId) {
-        Object handler = HANDLER_INSTANCE_MAP.get(messageId);
-        if (handler == null) {
-            return (H) HANDLER_INSTANCE_CACHE.get(messageId);
-        }
-        return (H) handler;
+        HandlerEntry entry = getHandlerEntry(messageId);
+        return entry == null ? null : (H) entry.singleton;
     }
 
     /**
@@ -288,7 +458,8 @@ public enum MessageHandlerHolder {
      * @return 返回查找结果
      */
     public static boolean exists(int messageId) {
-        return getProtoHandlerClass(messageId) != null || getSingletonHandler(messageId) != null;
+        HandlerEntry entry = getHandlerEntry(messageId);
+        return entry != null && entry.exists();
     }
 
     /**
@@ -298,10 +469,37 @@ public enum MessageHandlerHolder {
      * @return 如果消息id找不到Handler记录，将返回false
      */
     public static boolean allowGuestRequest(int messageId) {
-        HandlerDesc desc = DESCRIPTORS.get(messageId);
+        HandlerDesc desc = getHandlerDesc(messageId);
         return desc == null || desc.isAllowGuestRequest();
     }
 
+    /**
+     * 判断指定消息是否需要按到达顺序执行
+     *
+     * @param messageId 消息id
+     * @return 如果消息id找不到Handler记录，将返回true
+     */
+    public static boolean isSequential(int messageId) {
+        HandlerDesc desc = getHandlerDesc(messageId);
+        return desc == null || desc.isSequential();
+    }
+
+    /**
+     * 获取单个连接每秒最多允许发送指定消息的次数
+     *
+     * @param messageId 消息id
+     * @return 返回不大于0的值表示不限制
+     */
+    public static int getRateLimit(int messageId) {
+        HandlerDesc desc = getHandlerDesc(messageId);
+        return desc == null ? 0 : desc.getRateLimit();
+    }
+
+    private static HandlerDesc getHandlerDesc(int messageId) {
+        HandlerEntry entry = getHandlerEntry(messageId);
+        return entry == null ? null : entry.desc;
+    }
+
     /**
      * 获取Handler的泛型类型，当康系统{@link IMessageHandler}类型的Handler专用
      *
@@ -309,8 +507,8 @@ public enum MessageHandlerHolder {
      * @return 该方法可能返回null
      */
     public static Class<?> getHandlerGenericType(int messageId) {
-        HandlerDesc desc = DESCRIPTORS.get(messageId);
-        if (desc.getGenericType() == null) {
+        HandlerDesc desc = getHandlerDesc(messageId);
+        if (desc == null || desc.getGenericType() == null) {
             return MessageDtoClassHolder.getDtoClass(messageId);
         }
         return desc.getGenericType();
@@ -337,6 +535,17 @@ public enum MessageHandlerHolder {
                 String.format("消息id [%d] 的handler配置错误，不是protobuf消息处理handler", messageId));
     }
 
+    /**
+     * 获取消息id对应的protobuf消息Parser，Parser在消息分发表生成时已解析好，该方法只有一次数组查找
+     *
+     * @param messageId 消息id
+     * @return 如果消息id没有对应的Handler，或Handler的泛型类型不是protobuf消息类，返回null
+     */
+    public static Parser<? extends Message> getProtobufParser(int messageId) {
+        HandlerEntry entry = getHandlerEntry(messageId);
+        return entry == null ? null : (Parser<? extends Message>) entry.protobufParser;
+    }
+
     /**
      * 执行消息handler逻辑
      *
@@ -350,19 +559,19 @@ public enum MessageHandlerHolder {
 
         IMessageHandler<Object> handler = getMessageHandlerOnCheck(reqMessage.getId());
         if (handler instanceof IHttpMessageHandler) {
-            RespMessage resp = invokeHandlerCall(reqMessage.getId(), reqMessage, gameSubject);
+            RespMessage resp = invokeHandlerCall((IHttpMessageHandler<Object>) handler, reqMessage.getId(), reqMessage,
+                    gameSubject);
             if (resp != null) {
                 gameSubject.getSession().sendMessage(resp);
             }
         } else {
-            invokeHandlerAction(reqMessage.getId(), reqMessage, gameSubject);
+            invokeHandlerAction(handler, reqMessage.getId(), reqMessage, gameSubject);
         }
     }
 
-    private static void invokeHandlerAction(int messageId, ReqMessage<Object> reqMessage, GameSubject subject) {
-        IMessageHandler<Object> handler = getMessageHandlerOnCheck(messageId);
-
-        long now = System.currentTimeMillis();
+    private static void invokeHandlerAction(IMessageHandler<Object> handler, int messageId,
+            ReqMessage<Object> reqMessage, GameSubject subject) {
+        long start = System.nanoTime();
         try {
             handler.action(reqMessage, subject);
         } catch (Throwable t) {
@@ -372,31 +581,30 @@ public enum MessageHandlerHolder {
             LogUtil.error(print, t);
             throw t;
         } finally {
-            long duration = System.currentTimeMillis() - now;
-            // 超过最大响应时间的操作，记录日志
-            if (duration > getMaxResponseTime()) {
-                LogUtil.error(LogLabel.HANDLER, "消息[{}]处理时间[{}]ms", reqMessage, duration);
-            }
+            recordHandlerTime(messageId, reqMessage, start, System.nanoTime());
         }
     }
 
     private static IMessageHandler<Object> getMessageHandlerOnCheck(int messageId) {
-        boolean exists = exists(messageId);
-        if (!exists) {
+        HandlerEntry entry = getHandlerEntry(messageId);
+        if (entry == null || !entry.exists()) {
             throw new MessageException(GameCodeEnum.NO_HANDLER, "message.handler.missing",
                     String.format("找不到消息id[%d]的处理类", messageId));
         }
 
-        IMessageHandler<Object> handler = getSingletonHandler(messageId);
-        if (handler == null) {
-            Class<IMessageHandler<Object>> handlerClass = getProtoHandlerClass(messageId);
+        if (entry.singleton != null) {
+            return (IMessageHandler<Object>) entry.singleton;
+        }
+
+        if (entry.constructor != null) {
             try {
-                return handlerClass.newInstance();
-            } catch (InstantiationException | IllegalAccessException e) {
-                e.printStackTrace();
+                return (IMessageHandler<Object>) (Object) entry.constructor.invokeExact();
+            } catch (Throwable t) {
+                LogUtil.error(String.format("消息id[%d]的处理类[%s]实例化失败", messageId, entry.handlerClass.getName()), t);
             }
         }
-        return handler;
+        throw new MessageException(GameCodeEnum.SERVER_EXCEPTION, "handler.instance.error",
+                String.format("消息id[%d]的处理类[%s]实例化失败", messageId, entry.handlerClass.getName()));
     }
 
     private static IHttpMessageHandler<Object> getHttpHandlerOnCheck(int messageId) {
@@ -420,13 +628,13 @@ public enum MessageHandlerHolder {
             throw new MessageException(GameCodeEnum.PARAM_ERROR, "req.message.null", "进入消息不能为空");
         }
 
-        return invokeHandlerCall(reqMessage.getId(), reqMessage, gameSubject);
+        return invokeHandlerCall(getHttpHandlerOnCheck(reqMessage.getId()), reqMessage.getId(), reqMessage,
+                gameSubject);
     }
 
-    private static RespMessage invokeHandlerCall(int messageId, ReqMessage<Object> reqMessage, GameSubject subject) {
-        IHttpMessageHandler<Object> handler = getHttpHandlerOnCheck(messageId);
-
-        long now = System.currentTimeMillis();
+    private static RespMessage invokeHandlerCall(IHttpMessageHandler<Object> handler, int messageId,
+            ReqMessage<Object> reqMessage, GameSubject subject) {
+        long start = System.nanoTime();
         try {
             return handler.call(reqMessage, subject);
         } catch (Throwable t) {
@@ -436,11 +644,22 @@ public enum MessageHandlerHolder {
             LogUtil.error(print, t);
             throw t;
         } finally {
-            long duration = System.currentTimeMillis() - now;
-            // 超过最大响应时间的操作，记录日志
-            if (duration > getMaxResponseTime()) {
-                LogUtil.error(LogLabel.HANDLER, "消息[{}]处理时间[{}]ms", reqMessage, duration);
-            }
+            recordHandlerTime(messageId, reqMessage, start, System.nanoTime());
+        }
+    }
+
+    /**
+     * 记录Handler的执行耗时和消息各阶段的耗时，Handler执行超过最大响应时间的操作同时记录日志
+     */
+    private static void recordHandlerTime(int messageId, ReqMessage<Object> reqMessage, long start, long end) {
+        long nanos = end - start;
+        HandlerEntry entry = getHandlerEntry(messageId);
+        (entry != null ? entry.latency : DkMetrics.handlerLatency(messageId)).record(nanos);
+        MessageTracer.record(messageId, reqMessage, start, end);
+
+        long duration = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (duration > getMaxResponseTime()) {
+            LogUtil.error(LogLabel.HANDLER, "消息[{}]处理时间[{}]ms", reqMessage, duration);
         }
     }
 
@@ -449,6 +668,7 @@ public enum MessageHandlerHolder {
             if (SpringContextHolder.isInitialized()) {
                 maxResponseTime = SpringContextHolder
                         .getIntProperty("dk.max-response", Constants.HANDLER_RESPONSE_LIMIT);
+                MessageTracer.setSlowThreshold(maxResponseTime);
             } else {
                 return Constants.HANDLER_RESPONSE_LIMIT;
             }
@@ -456,4 +676,78 @@ public enum MessageHandlerHolder {
         return maxResponseTime;
     }
 
+    /**
+     * 消息分发表中的一项，记录一个消息id对应的已解析的Handler信息
+     */
+    private static final class HandlerEntry {
+
+        /**
+         * 单例模式的Handler对象
+         */
+        private final Object singleton;
+
+        /**
+         * 原型模式的Handler类
+         */
+        private final Class<?> handlerClass;
+
+        /**
+         * 原型模式Handler类的无参构造方法句柄
+         */
+        private final MethodHandle constructor;
+
+        private final HandlerDesc desc;
+
+        /**
+         * Handler泛型类型为protobuf消息类时，该类型的Parser；声明为Object，避免未引入protobuf时加载失败
+         */
+        private final Object protobufParser;
+
+        /**
+         * Handler执行耗时统计
+         */
+        private final LatencyHistogram latency;
+
+        private HandlerEntry(Object singleton, Class<?> handlerClass, MethodHandle constructor, HandlerDesc desc,
+                Object protobufParser, LatencyHistogram latency) {
+            this.singleton = singleton;
+            this.handlerClass = handlerClass;
+            this.constructor = constructor;
+            this.desc = desc;
+            this.protobufParser = protobufParser;
+            this.latency = latency;
+        }
+
+        private boolean exists() {
+            return singleton != null || handlerClass != null;
+        }
+    }
+
+    /**
+     * 消息分发表，生成后不再修改
+     */
+    private static final class DispatchTable {
+
+        /**
+         * 消息id小于{@link #DENSE_ID_LIMIT}的记录，以消息id为下标
+         */
+        private final HandlerEntry[] dense;
+
+        /**
+         * 其他消息id的记录
+         */
+        private final Map<Integer, HandlerEntry> sparse;
+
+        private DispatchTable(HandlerEntry[] dense, Map<Integer, HandlerEntry> sparse) {
+            this.dense = dense;
+            this.sparse = sparse;
+        }
+
+        private HandlerEntry get(int messageId) {
+            if (messageId >= 0 && messageId < dense.length) {
+                return dense[messageId];
+            }
+            return sparse.isEmpty() ? null : sparse.get(messageId);
+        }
+    }
 }
@@ -0,0 +1,221 @@
+package cn.laoshini.dk.net.codec;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * zlib预设字典训练器
+ * <p>
+ * 使用方式：从录制的线上消息（编码后的消息内容）中取样，调用{@link #addSample(byte[])}加入训练器，
+ * 然后调用{@link #train(int)}生成字典，将字典保存为文件，服务器和客户端加载同一份字典使用。
+ * </p>
+ * <p>
+ * 也可以直接在线上取样：通过{@link #setSampling(int, int)}设置取样间隔和样本上限，再交给
+ * {@link cn.laoshini.dk.net.server.FrameCompressionHandler}（服务器通过
+ * {@link cn.laoshini.dk.register.GameServerRegisterAdaptor#setCompressionSampler(CompressionDictionaryTrainer)}设置），
+ * 所有连接发出的帧按间隔取样，达到上限后不再取样。
+ * </p>
+ * <p>
+ * 训练方法：将每个样本按固定长度切分为片段，统计各片段在不同样本中出现的次数，按出现次数从高到低选取片段，直到达到字典大小；
+ * 出现次数越多的片段越靠近字典末尾（距离被压缩数据越近，deflate编码的距离越短）。
+ * 字典长度不应超过32KB（deflate的窗口大小），超出的部分不会被使用。
+ * </p>
+ *
+ * @author fagarine
+ */
+public class CompressionDictionaryTrainer {
+
+    /**
+     * deflate的窗口大小，字典的最大有效长度
+     */
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    private static final int DEFAULT_SEGMENT_LENGTH = 16;
+
+    private final int segmentLength;
+
+    private final Map<Segment, int[]> segmentCounts = new HashMap<>();
+
+    private int sampleCount;
+
+    /**
+     * 通过{@link #offer(ByteBuf)}取样时，每多少个帧取一个样本
+     */
+    private int sampleInterval = 1;
+
+    /**
+     * 最多接收的样本数量，达到后不再接收样本，避免长时间取样占用过多内存
+     */
+    private int maxSamples = Integer.MAX_VALUE;
+
+    /**
+     * 通过{@link #offer(ByteBuf)}提交的帧数量
+     */
+    private final AtomicLong offered = new AtomicLong();
+
+    private volatile boolean full;
+
+    public CompressionDictionaryTrainer() {
+        this(DEFAULT_SEGMENT_LENGTH);
+    }
+
+    /**
+     * @param segmentLength 片段长度，建议8~32，消息中的公共结构越长可以设置越大
+     */
+    public CompressionDictionaryTrainer(int segmentLength) {
+        if (segmentLength < 4) {
+            throw new IllegalArgumentException("片段长度不能小于4: " + segmentLength);
+        }
+        this.segmentLength = segmentLength;
+    }
+
+    /**
+     * 设置在线取样的参数
+     *
+     * @param interval 取样间隔，每interval个帧取一个样本，不大于1表示每个帧都取样
+     * @param maxSamples 最多接收的样本数量
+     * @return 返回当前对象
+     */
+    public synchronized CompressionDictionaryTrainer setSampling(int interval, int maxSamples) {
+        if (maxSamples <= 0) {
+            throw new IllegalArgumentException("样本上限必须大于0: " + maxSamples);
+        }
+        this.sampleInterval = Math.max(interval, 1);
+        this.maxSamples = maxSamples;
+        this.full = sampleCount >= maxSamples;
+        return this;
+    }
+
+    /**
+     * 提交一个待发送的帧，按取样间隔决定是否作为样本，在连接的事件线程中调用
+     *
+     * @param frame 编码后的消息内容，只读取可读部分，不会改变读索引
+     */
+    public void offer(ByteBuf frame) {
+        if (full || offered.getAndIncrement() % sampleInterval != 0) {
+            return;
+        }
+
+        byte[] sample = new byte[frame.readableBytes()];
+        frame.getBytes(frame.readerIndex(), sample);
+        addSample(sample);
+    }
+
+    /**
+     * 加入一个样本，同一样本中重复出现的片段只计算一次；样本数量达到上限后不再接收
+     *
+     * @param sample 消息样本
+     */
+    public synchronized void addSample(byte[] sample) {
+        if (sample == null || sample.length < segmentLength || sampleCount >= maxSamples) {
+            return;
+        }
+
+        sampleCount++;
+        full = sampleCount >= maxSamples;
+        Map<Segment, Boolean> seen = new HashMap<>();
+        for (int offset = 0; offset + segmentLength <= sample.length; offset += segmentLength) {
+            Segment segment = new Segment(sample, offset, segmentLength);
+            if (seen.put(segment, Boolean.TRUE) == null) {
+                segmentCounts.computeIfAbsent(segment, k -> new int[1])[0]++;
+            }
+        }
+    }
+
+    /**
+     * 生成字典
+     *
+     * @param dictionarySize 字典大小，不超过{@link #MAX_DICTIONARY_SIZE}
+     * @return 返回字典内容，没有样本时返回空数组
+     */
+    public synchronized byte[] train(int dictionarySize) {
+        int size = Math.min(dictionarySize, MAX_DICTIONARY_SIZE);
+        List<Map.Entry<Segment, int[]>> entries = new ArrayList<>(segmentCounts.entrySet());
+        // 只出现在一个样本中的片段没有共性，不放入字典
+        entries.removeIf(e -> e.getValue()[0] < 2 && sampleCount > 1);
+        entries.sort((a, b) -> Integer.compare(b.getValue()[0], a.getValue()[0]));
+
+        int count = Math.min(entries.size(), size / segmentLength);
+        byte[] dictionary = new byte[count * segmentLength];
+        // 出现次数越多越靠后
+        for (int i = 0; i < count; i++) {
+            Segment segment = entries.get(i).getKey();
+            int position = (count - 1 - i) * segmentLength;
+            System.arraycopy(segment.data, segment.offset, dictionary, position, segmentLength);
+        }
+        return dictionary;
+    }
+
+    /**
+     * 生成字典并保存到文件
+     *
+     * @param dictionarySize 字典大小
+     * @param file 保存的文件
+     * @throws IOException 写入文件出错时抛出
+     */
+    public void trainTo(int dictionarySize, Path file) throws IOException {
+        Files.write(file, train(dictionarySize));
+    }
+
+    public synchronized int sampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return 样本数量是否已达到上限
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    private static final class Segment {
+        private final byte[] data;
+        private final int offset;
+        private final int length;
+        private final int hash;
+
+        private Segment(byte[] data, int offset, int length) {
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+            int h = 1;
+            for (int i = offset; i < offset + length; i++) {
+                h = 31 * h + data[i];
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Segment)) {
+                return false;
+            }
+            Segment other = (Segment) o;
+            if (hash != other.hash || length != other.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (data[offset + i] != other.data[other.offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -9,9 +9,10 @@ import io.netty.handler.codec.MessageToMessageDecoder;
 
 import cn.laoshini.dk.domain.GameSubject;
 import cn.laoshini.dk.domain.msg.AbstractMessage;
-import cn.laoshini.dk.util.CollectionUtil;
 import cn.laoshini.dk.util.MessageUtil;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /**
  * JSON格式消息解码器
  *
@@ -38,13 +39,10 @@ public class JsonNettyMessageDecoder extends MessageToMessageDecoder<ByteBuf>
 
         // 消息长度
         int length = readLength(data);
-        byte[] bytes = new byte[length];
-        data.readBytes(bytes);
-        List<AbstractMessage<?>> messages = MessageUtil.jsonBytesToMessage(bytes);
-        if (CollectionUtil.isNotEmpty(messages)) {
-            return messages.get(0);
-        }
-        return null;
+        // 直接从缓冲解码字符串（Netty使用线程内复用的字符数组），再流式解析为消息对象，不经过中间的字节数组和JSONObject
+        String jsonStr = data.toString(data.readerIndex(), length, UTF_8);
+        data.skipBytes(length);
+        return MessageUtil.readJsonMessage(jsonStr);
     }
 
     private int readLength(ByteBuf buf) {
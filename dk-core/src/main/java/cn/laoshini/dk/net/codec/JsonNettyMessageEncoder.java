@@ -1,19 +1,24 @@
 package cn.laoshini.dk.net.codec;
 
+import java.io.IOException;
 import java.io.Serializable;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.serialization.ObjectEncoder;
 
 import cn.laoshini.dk.domain.GameSubject;
 import cn.laoshini.dk.domain.msg.AbstractMessage;
+import cn.laoshini.dk.util.ChannelUtil;
 import cn.laoshini.dk.util.MessageUtil;
 
 /**
  * JSON格式消息编码器
+ * <p>
+ * 先写入长度占位，消息序列化后直接写入输出缓冲，最后回填长度，不创建中间的字符串和字节数组
+ * </p>
  *
  * @author fagarine
  */
@@ -23,9 +28,7 @@ public class JsonNettyMessageEncoder extends ObjectEncoder implements INettyMess
     @Override
     protected void encode(ChannelHandlerContext ctx, Serializable msg, ByteBuf out) throws Exception {
         if (msg instanceof AbstractMessage) {
-            byte[] bytes = MessageUtil.messageToJsonBytes((AbstractMessage<?>) msg);
-            writeLength(out, bytes.length);
-            out.writeBytes(bytes);
+            writeMessage((AbstractMessage<?>) msg, out);
         } else {
             super.encode(ctx, msg, out);
         }
@@ -33,14 +36,43 @@ public class JsonNettyMessageEncoder extends ObjectEncoder implements INettyMess
 
     @Override
     public ByteBuf encode(AbstractMessage<?> message, GameSubject subject) {
-        byte[] bytes = MessageUtil.messageToJsonBytes(message);
-        ByteBuf buf = Unpooled.buffer();
-        writeLength(buf, bytes.length);
-        buf.writeBytes(bytes);
+        ByteBuf buf = ChannelUtil.allocator(subject).ioBuffer();
+        try {
+            writeMessage(message, buf);
+        } catch (IOException e) {
+            buf.release();
+            throw new IllegalStateException("JSON消息编码失败, message:" + message, e);
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
         return buf;
     }
 
-    protected void writeLength(ByteBuf buf, int length) {
-        buf.writeInt(length);
+    private void writeMessage(AbstractMessage<?> message, ByteBuf out) throws IOException {
+        int start = out.writerIndex();
+        int lengthBytes = lengthFieldBytes();
+        // 长度占位
+        out.writeZero(lengthBytes);
+        int length = MessageUtil.writeJsonMessage(message, new ByteBufOutputStream(out));
+        setLength(out, start, length);
+    }
+
+    /**
+     * 消息头中记录消息长度的字节数
+     */
+    protected int lengthFieldBytes() {
+        return Integer.BYTES;
+    }
+
+    /**
+     * 回填消息长度
+     *
+     * @param buf 输出缓冲
+     * @param index 长度字段所在位置
+     * @param length 消息内容长度
+     */
+    protected void setLength(ByteBuf buf, int index, int length) {
+        buf.setInt(index, length);
     }
 }
@@ -6,8 +6,14 @@ import io.netty.buffer.ByteBuf;
  * @author fagarine
  */
 public class JsonShortLengthNettyMessageEncoder extends JsonNettyMessageEncoder {
+
+    @Override
+    protected int lengthFieldBytes() {
+        return Short.BYTES;
+    }
+
     @Override
-    protected void writeLength(ByteBuf buf, int length) {
-        buf.writeShort(length);
+    protected void setLength(ByteBuf buf, int index, int length) {
+        buf.setShort(index, length);
     }
 }
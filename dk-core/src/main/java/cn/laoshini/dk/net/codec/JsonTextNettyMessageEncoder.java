@@ -8,7 +8,12 @@ import io.netty.buffer.ByteBuf;
 public class JsonTextNettyMessageEncoder extends JsonNettyMessageEncoder {
 
     @Override
-    protected void writeLength(ByteBuf buf, int length) {
+    protected int lengthFieldBytes() {
+        return 0;
+    }
+
+    @Override
+    protected void setLength(ByteBuf buf, int index, int length) {
         // 不记录长度信息
     }
 }
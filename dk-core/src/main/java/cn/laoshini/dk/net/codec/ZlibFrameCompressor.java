@@ -0,0 +1,174 @@
+package cn.laoshini.dk.net.codec;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.FastThreadLocal;
+
+/**
+ * 基于zlib的帧压缩工具，每个线程复用一个{@link Deflater}和{@link Inflater}，支持预设字典
+ * <p>
+ * 预设字典由{@link CompressionDictionaryTrainer}从实际消息样本中训练得到，通信双方使用相同的字典；
+ * 对于5KB~50KB这类结构相近的消息（如场景快照），使用字典可以显著提高压缩率
+ * </p>
+ *
+ * @author fagarine
+ */
+public final class ZlibFrameCompressor {
+
+    private static final int CHUNK_BYTES = 8192;
+
+    private static final FastThreadLocal<Deflater[]> DEFLATERS = new FastThreadLocal<Deflater[]>() {
+        @Override
+        protected Deflater[] initialValue() {
+            return new Deflater[Deflater.BEST_COMPRESSION + 1];
+        }
+
+        @Override
+        protected void onRemoval(Deflater[] deflaters) {
+            for (Deflater deflater : deflaters) {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+        }
+    };
+
+    private static final FastThreadLocal<Inflater> INFLATER = new FastThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+
+        @Override
+        protected void onRemoval(Inflater inflater) {
+            inflater.end();
+        }
+    };
+
+    private static final FastThreadLocal<byte[]> CHUNK = new FastThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[CHUNK_BYTES];
+        }
+    };
+
+    /**
+     * 直接内存缓冲作为输入时的中转数组，按需扩容
+     */
+    private static final FastThreadLocal<byte[]> INPUT = new FastThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[CHUNK_BYTES];
+        }
+    };
+
+    private ZlibFrameCompressor() {
+    }
+
+    /**
+     * 压缩src中的可读内容并写入dst
+     *
+     * @param src 原始内容，读索引不会改变
+     * @param dst 输出缓冲
+     * @param level 压缩级别，0~9
+     * @param dictionary 预设字典，允许为null
+     * @return 如果压缩后的长度不小于原内容，停止压缩并返回false，此时dst中已写入的内容无效
+     */
+    public static boolean compress(ByteBuf src, ByteBuf dst, int level, byte[] dictionary) {
+        int length = src.readableBytes();
+        Deflater deflater = deflater(level);
+        deflater.reset();
+        if (dictionary != null) {
+            deflater.setDictionary(dictionary);
+        }
+        setInput(src, length, deflater, null);
+        deflater.finish();
+
+        byte[] chunk = CHUNK.get();
+        int written = 0;
+        while (!deflater.finished()) {
+            int count = deflater.deflate(chunk);
+            dst.writeBytes(chunk, 0, count);
+            written += count;
+            if (written >= length) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 解压src中的可读内容并写入dst
+     *
+     * @param src 压缩内容，读索引不会改变
+     * @param dst 输出缓冲
+     * @param dictionary 预设字典，压缩时使用了字典的内容必须传入相同的字典
+     * @param maxLength 解压后的最大长度，超过时抛出异常，防止恶意数据耗尽内存
+     * @throws DataFormatException 数据格式错误、缺少字典或超过最大长度时抛出
+     */
+    public static void decompress(ByteBuf src, ByteBuf dst, byte[] dictionary, int maxLength)
+            throws DataFormatException {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        setInput(src, src.readableBytes(), null, inflater);
+
+        byte[] chunk = CHUNK.get();
+        int total = 0;
+        while (!inflater.finished()) {
+            int count = inflater.inflate(chunk);
+            if (count == 0) {
+                if (inflater.needsDictionary()) {
+                    if (dictionary == null) {
+                        throw new DataFormatException("压缩数据需要预设字典");
+                    }
+                    inflater.setDictionary(dictionary);
+                    continue;
+                }
+                if (inflater.needsInput()) {
+                    throw new DataFormatException("压缩数据不完整");
+                }
+            }
+            total += count;
+            if (total > maxLength) {
+                throw new DataFormatException("解压后的数据超过最大长度: " + maxLength);
+            }
+            dst.writeBytes(chunk, 0, count);
+        }
+    }
+
+    private static void setInput(ByteBuf src, int length, Deflater deflater, Inflater inflater) {
+        byte[] input;
+        int offset;
+        if (src.hasArray()) {
+            input = src.array();
+            offset = src.arrayOffset() + src.readerIndex();
+        } else {
+            input = INPUT.get();
+            if (input.length < length) {
+                input = new byte[Math.max(length, input.length << 1)];
+                INPUT.set(input);
+            }
+            src.getBytes(src.readerIndex(), input, 0, length);
+            offset = 0;
+        }
+
+        if (deflater != null) {
+            deflater.setInput(input, offset, length);
+        } else {
+            inflater.setInput(input, offset, length);
+        }
+    }
+
+    private static Deflater deflater(int level) {
+        Deflater[] deflaters = DEFLATERS.get();
+        Deflater deflater = deflaters[level];
+        if (deflater == null) {
+            deflater = new Deflater(level);
+            deflaters[level] = deflater;
+        }
+        return deflater;
+    }
+}
@@ -96,7 +96,8 @@ public class ExpressionMessageHandler implements IHttpMessageHandler {
 
         @Override
         public boolean sequential() {
-            return descriptor.getSequential();
+            // 未配置时默认按顺序执行
+            return descriptor.getSequential() == null || descriptor.getSequential();
         }
 
         @Override
@@ -14,6 +14,15 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * 与字节数据转换的DTO对象接口
+ * <p>
+ * 当前数据格式为版本2，格式本身不带版本信息，通信双方需要使用同一版本生成的代码；与版本1的区别：
+ * <ul>
+ * <li>集合中的{@link IByteDto}对象写入和读取时都不带检查信息（版本1写入时不带、读取时却要求带，集合无法正确读取）</li>
+ * <li>值为null的包装类型参数和集合元素写入该类型的0值（版本1写入参数时只写一个字节的检查信息，写入集合时直接跳过，之后的数据都会错位）</li>
+ * <li>值为null的{@link IByteDto}参数的检查信息写入false（版本1写入true，读取方会继续读取一个不存在的对象）</li>
+ * </ul>
+ * 非null值的编码与版本1相同；客户端使用版本1的生成代码时需要重新生成
+ * </p>
  *
  * @param <BufferType> 字节缓冲区类型
  * @author fagarine
@@ -27,6 +36,7 @@ public interface IByteDto<BufferType> extends Serializable {
             .asList(boolean.class.getSimpleName(), byte.class.getSimpleName(), byte[].class.getSimpleName(),
                     short.class.getSimpleName(), int.class.getSimpleName(), long.class.getSimpleName(),
                     double.class.getSimpleName(), String.class.getSimpleName(), IByteDto.class.getSimpleName());
+
     /**
      * 单个参数的hashcode最大值
      */
@@ -191,18 +201,29 @@ public interface IByteDto<BufferType> extends Serializable {
      */
     default <T extends IByteDto<BufferType>> T readBean(BufferType buf, Class<T> beanClass, boolean check) {
         if ((!check || readBoolean(buf)) && beanClass != null) {
-            try {
-                T bean = beanClass.newInstance();
-                bean.read(buf);
-                return bean;
-            } catch (InstantiationException | IllegalAccessException e) {
-                throw new MessageException(GameCodeEnum.PARAM_ERROR, "build.dto.fail",
-                        "创建IByteDto实例出错:" + beanClass.getName());
-            }
+            T bean = newBean(beanClass);
+            bean.read(buf);
+            return bean;
         }
         return null;
     }
 
+    /**
+     * 创建读取数据用的对象，子类可以覆盖该方法实现对象的复用
+     *
+     * @param beanClass 要创建的对象的类型，必须是{@link IByteDto}的子类
+     * @param <T> 对象类型
+     * @return 该方法不会返回null
+     */
+    default <T extends IByteDto<BufferType>> T newBean(Class<T> beanClass) {
+        try {
+            return beanClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new MessageException(GameCodeEnum.PARAM_ERROR, "build.dto.fail",
+                    "创建IByteDto实例出错:" + beanClass.getName());
+        }
+    }
+
     /**
      * 根据指定类型读取数据（不包含集合类型）
      *
@@ -247,8 +268,11 @@ public interface IByteDto<BufferType> extends Serializable {
             short size = readShort(buf);
 
             List<T> list = new ArrayList<>(size);
+            // 集合中的IByteDto对象不带检查信息
+            boolean bean = IByteDto.class.isAssignableFrom(beanClass);
             for (int i = 0; i < size; i++) {
-                list.add((T) readByType(buf, beanClass));
+                list.add(bean ? (T) readBean(buf, (Class<? extends IByteDto<BufferType>>) beanClass, false)
+                        : (T) readByType(buf, beanClass));
             }
             return list;
         }
@@ -281,9 +305,12 @@ public interface IByteDto<BufferType> extends Serializable {
      */
     default void writeByType(BufferType buf, Object obj, boolean check) {
         if (obj == null) {
-            if (check) {
-                writeBoolean(buf, check);
+            if (!check) {
+                // 集合中的元素无法确定类型，不能写入0值，直接跳过会导致之后的数据错位
+                throw new MessageException(GameCodeEnum.PARAM_ERROR, "custom.list.null",
+                        "自定义格式消息中，集合元素不能为null");
             }
+            writeBoolean(buf, false);
             return;
         }
 
@@ -343,6 +370,273 @@ public interface IByteDto<BufferType> extends Serializable {
         }
     }
 
+    /**
+     * 从缓冲读取布尔值集合，集合中的元素类型已知，不需要逐个判断元素类型
+     *
+     * @param buf 字节缓冲区对象
+     * @return 该方法不会返回null
+     */
+    default List<Boolean> readBooleanList(BufferType buf) {
+        short size = readShort(buf);
+        List<Boolean> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readBoolean(buf));
+        }
+        return list;
+    }
+
+    /**
+     * 向缓冲写入布尔值集合，与{@link #writeList(Object, List)}写入的格式一致
+     *
+     * @param buf 字节缓冲区对象
+     * @param list 要写入的数据集合
+     */
+    default void writeBooleanList(BufferType buf, List<Boolean> list) {
+        if (CollectionUtil.isEmpty(list)) {
+            writeShort(buf, (short) 0);
+            return;
+        }
+
+        writeShort(buf, (short) list.size());
+        for (Boolean v : list) {
+            writeBoolean(buf, v == null ? false : v);
+        }
+    }
+
+    /**
+     * 从缓冲读取byte集合，集合中的元素类型已知，不需要逐个判断元素类型
+     *
+     * @param buf 字节缓冲区对象
+     * @return 该方法不会返回null
+     */
+    default List<Byte> readByteList(BufferType buf) {
+        short size = readShort(buf);
+        List<Byte> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readByte(buf));
+        }
+        return list;
+    }
+
+    /**
+     * 向缓冲写入byte集合，与{@link #writeList(Object, List)}写入的格式一致
+     *
+     * @param buf 字节缓冲区对象
+     * @param list 要写入的数据集合
+     */
+    default void writeByteList(BufferType buf, List<Byte> list) {
+        if (CollectionUtil.isEmpty(list)) {
+            writeShort(buf, (short) 0);
+            return;
+        }
+
+        writeShort(buf, (short) list.size());
+        for (Byte v : list) {
+            writeByte(buf, v == null ? (byte) 0 : v);
+        }
+    }
+
+    /**
+     * 从缓冲读取short集合，集合中的元素类型已知，不需要逐个判断元素类型
+     *
+     * @param buf 字节缓冲区对象
+     * @return 该方法不会返回null
+     */
+    default List<Short> readShortList(BufferType buf) {
+        short size = readShort(buf);
+        List<Short> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readShort(buf));
+        }
+        return list;
+    }
+
+    /**
+     * 向缓冲写入short集合，与{@link #writeList(Object, List)}写入的格式一致
+     *
+     * @param buf 字节缓冲区对象
+     * @param list 要写入的数据集合
+     */
+    default void writeShortList(BufferType buf, List<Short> list) {
+        if (CollectionUtil.isEmpty(list)) {
+            writeShort(buf, (short) 0);
+            return;
+        }
+
+        writeShort(buf, (short) list.size());
+        for (Short v : list) {
+            writeShort(buf, v == null ? (short) 0 : v);
+        }
+    }
+
+    /**
+     * 从缓冲读取int集合，集合中的元素类型已知，不需要逐个判断元素类型
+     *
+     * @param buf 字节缓冲区对象
+     * @return 该方法不会返回null
+     */
+    default List<Integer> readIntList(BufferType buf) {
+        short size = readShort(buf);
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readInt(buf));
+        }
+        return list;
+    }
+
+    /**
+     * 向缓冲写入int集合，与{@link #writeList(Object, List)}写入的格式一致
+     *
+     * @param buf 字节缓冲区对象
+     * @param list 要写入的数据集合
+     */
+    default void writeIntList(BufferType buf, List<Integer> list) {
+        if (CollectionUtil.isEmpty(list)) {
+            writeShort(buf, (short) 0);
+            return;
+        }
+
+        writeShort(buf, (short) list.size());
+        for (Integer v : list) {
+            writeInt(buf, v == null ? 0 : v);
+        }
+    }
+
+    /**
+     * 从缓冲读取long集合，集合中的元素类型已知，不需要逐个判断元素类型
+     *
+     * @param buf 字节缓冲区对象
+     * @return 该方法不会返回null
+     */
+    default List<Long> readLongList(BufferType buf) {
+        short size = readShort(buf);
+        List<Long> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readLong(buf));
+        }
+        return list;
+    }
+
+    /**
+     * 向缓冲写入long集合，与{@link #writeList(Object, List)}写入的格式一致
+     *
+     * @param buf 字节缓冲区对象
+     * @param list 要写入的数据集合
+     */
+    default void writeLongList(BufferType buf, List<Long> list) {
+        if (CollectionUtil.isEmpty(list)) {
+            writeShort(buf, (short) 0);
+            return;
+        }
+
+        writeShort(buf, (short) list.size());
+        for (Long v : list) {
+            writeLong(buf, v == null ? 0L : v);
+        }
+    }
+
+    /**
+     * 从缓冲读取double集合，集合中的元素类型已知，不需要逐个判断元素类型
+     *
+     * @param buf 字节缓冲区对象
+     * @return 该方法不会返回null
+     */
+    default List<Double> readDoubleList(BufferType buf) {
+        short size = readShort(buf);
+        List<Double> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readDouble(buf));
+        }
+        return list;
+    }
+
+    /**
+     * 向缓冲写入double集合，与{@link #writeList(Object, List)}写入的格式一致
+     *
+     * @param buf 字节缓冲区对象
+     * @param list 要写入的数据集合
+     */
+    default void writeDoubleList(BufferType buf, List<Double> list) {
+        if (CollectionUtil.isEmpty(list)) {
+            writeShort(buf, (short) 0);
+            return;
+        }
+
+        writeShort(buf, (short) list.size());
+        for (Double v : list) {
+            writeDouble(buf, v == null ? 0D : v);
+        }
+    }
+
+    /**
+     * 从缓冲读取字符串集合，集合中的元素类型已知，不需要逐个判断元素类型
+     *
+     * @param buf 字节缓冲区对象
+     * @return 该方法不会返回null
+     */
+    default List<String> readStringList(BufferType buf) {
+        short size = readShort(buf);
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readString(buf));
+        }
+        return list;
+    }
+
+    /**
+     * 向缓冲写入字符串集合，与{@link #writeList(Object, List)}写入的格式一致
+     *
+     * @param buf 字节缓冲区对象
+     * @param list 要写入的数据集合
+     */
+    default void writeStringList(BufferType buf, List<String> list) {
+        if (CollectionUtil.isEmpty(list)) {
+            writeShort(buf, (short) 0);
+            return;
+        }
+
+        writeShort(buf, (short) list.size());
+        for (String v : list) {
+            writeString(buf, v);
+        }
+    }
+
+    /**
+     * 从缓冲读取{@link IByteDto}对象集合
+     *
+     * @param buf 字节缓冲区对象
+     * @param beanClass 集合中对象的类型
+     * @param <T> 集合中对象的类型
+     * @return 该方法不会返回null
+     */
+    default <T extends IByteDto<BufferType>> List<T> readBeanList(BufferType buf, Class<T> beanClass) {
+        short size = readShort(buf);
+        List<T> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readBean(buf, beanClass, false));
+        }
+        return list;
+    }
+
+    /**
+     * 向缓冲写入{@link IByteDto}对象集合，与{@link #writeList(Object, List)}写入的格式一致
+     *
+     * @param buf 字节缓冲区对象
+     * @param list 要写入的数据集合
+     * @param <T> 集合中对象的类型
+     */
+    default <T extends IByteDto<BufferType>> void writeBeanList(BufferType buf, List<T> list) {
+        if (CollectionUtil.isEmpty(list)) {
+            writeShort(buf, (short) 0);
+            return;
+        }
+
+        writeShort(buf, (short) list.size());
+        for (T t : list) {
+            writeBean(buf, t, false);
+        }
+    }
+
     /**
      * 默认的hashcode计算方法
      *
@@ -0,0 +1,17 @@
+package cn.laoshini.dk.net.msg;
+
+/**
+ * 可回收对象接口，实现该接口的消息或数据对象，在使用完成后可以交还对象池重复使用
+ * <p>
+ * 注意：对象回收后会被清空并交给其他消息使用，回收后不能再持有或访问该对象
+ * </p>
+ *
+ * @author fagarine
+ */
+public interface IRecyclable {
+
+    /**
+     * 回收对象，如果对象不是从对象池中获取的，该方法不做任何操作
+     */
+    void recycle();
+}
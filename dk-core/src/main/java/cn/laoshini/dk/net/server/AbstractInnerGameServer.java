@@ -2,12 +2,16 @@ package cn.laoshini.dk.net.server;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import cn.laoshini.dk.constant.GameServerProtocolEnum;
+import cn.laoshini.dk.constant.MessageExecuteModel;
 import cn.laoshini.dk.exception.BusinessException;
+import cn.laoshini.dk.executor.PerKeyOrderedExecutor;
 import cn.laoshini.dk.net.session.AbstractSession;
 import cn.laoshini.dk.net.session.IMessageSender;
 import cn.laoshini.dk.net.session.ISessionCreator;
@@ -29,6 +33,11 @@ public abstract class AbstractInnerGameServer<S, M> extends AbstractGameServer {
 
     private final Map<Long, S> sessionMap = new ConcurrentHashMap<>();
 
+    /**
+     * 虚拟线程模型下，负责按会话顺序执行消息转发逻辑的线程池，其他模型下为null
+     */
+    protected PerKeyOrderedExecutor messageExecutor;
+
     public AbstractInnerGameServer(GameServerRegisterAdaptor<S, M> gameServerRegister, String serverThreadName) {
         super(gameServerRegister.toGameServerConfig(), serverThreadName);
         this.gameServerRegister = gameServerRegister;
@@ -57,6 +66,16 @@ public abstract class AbstractInnerGameServer<S, M> extends AbstractGameServer {
             buildSession = ((UdpGameServerRegister) register).isBuildSession();
         }
 
+        // 消息执行模型，运行环境不支持虚拟线程时，退回到线程池模型
+        if (MessageExecuteModel.VIRTUAL_THREAD.equals(register.executeModel()) && messageExecutor == null) {
+            messageExecutor = PerKeyOrderedExecutor
+                    .newVirtualThreadExecutor(getServerName() + "-message", Integer.MAX_VALUE);
+            if (messageExecutor == null) {
+                LogUtil.warn("当前运行环境不支持虚拟线程，游戏服[{}]使用线程池模型执行消息", getServerName());
+                register.setExecuteModel(MessageExecuteModel.POOLED);
+            }
+        }
+
         if (register.sessionCreator() == null) {
             // 如果用户没有设置自己的会话创建对象，默认使用系统会话
             LogUtil.debug("用户没有设置Session构造器，使用系统默认Session");
@@ -145,7 +164,11 @@ public abstract class AbstractInnerGameServer<S, M> extends AbstractGameServer {
     protected abstract int messageSenderThreads();
 
     private IMessageSender newDefaultSender() {
-        return IMessageSender.defaultSender(messageSenderThreads());
+        if (MessageExecuteModel.POOLED.equals(getGameServerRegister().executeModel())) {
+            return IMessageSender.defaultSender(messageSenderThreads());
+        }
+        // 非线程池模型下，消息直接写入连接，不在IO线程中时由Netty负责切换到IO线程
+        return IMessageSender.directSender();
     }
 
     private void checkPort() {
@@ -196,6 +219,15 @@ public abstract class AbstractInnerGameServer<S, M> extends AbstractGameServer {
         return null;
     }
 
+    /**
+     * 返回会话集合的只读视图，不复制集合，适合只需要遍历的场景
+     *
+     * @return 返回的集合会随会话的加入和移除而变化
+     */
+    protected Collection<S> sessionView() {
+        return Collections.unmodifiableCollection(sessionMap.values());
+    }
+
     public List<AbstractSession> getInnerSessions() {
         return new ArrayList<>(innerSessionMap.values());
     }
@@ -3,22 +3,41 @@ package cn.laoshini.dk.net.server;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
+import io.netty.bootstrap.AbstractBootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.ChannelMatcher;
+import io.netty.channel.group.ChannelMatchers;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.util.Attribute;
 import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.MultithreadEventExecutorGroup;
 
+import cn.laoshini.dk.constant.RateLimitPolicy;
+import cn.laoshini.dk.domain.GameSubject;
+import cn.laoshini.dk.domain.msg.ReqMessage;
+import cn.laoshini.dk.exception.BusinessException;
+import cn.laoshini.dk.executor.AbstractOrderedWorker;
+import cn.laoshini.dk.monitor.DkMetrics;
+import cn.laoshini.dk.monitor.ServerMetrics;
 import cn.laoshini.dk.net.msg.IMessageInterceptor;
 import cn.laoshini.dk.net.session.AbstractSession;
+import cn.laoshini.dk.net.session.SessionIdAllocator;
 import cn.laoshini.dk.register.GameServerRegisterAdaptor;
-import cn.laoshini.dk.util.ChannelUtil;
 import cn.laoshini.dk.util.LogUtil;
 
 /**
@@ -28,13 +47,262 @@ public abstract class AbstractInnerNettyGameServer<S, M> extends AbstractInnerGa
 
     private static final AttributeKey<Long> CHANNEL_ID = AttributeKey.valueOf("CHANNEL ID");
 
+    /**
+     * 通道上直接保存的会话对象，通过通道查找会话时不再需要查询会话表
+     */
+    private static final AttributeKey<AbstractSession> INNER_SESSION = AttributeKey.valueOf("DK INNER SESSION");
+
+    private static final AttributeKey<Object> SESSION = AttributeKey.valueOf("DK SESSION");
+
     /**
      * Netty服务器中负责用户业务的工作组
      */
     protected EventLoopGroup workerGroup;
 
+    /**
+     * 当前服务器使用的传输层实现
+     */
+    protected final NettyTransport transport;
+
+    /**
+     * 所有在线连接的通道组，连接关闭后由Netty自动移除，用于广播消息
+     */
+    private final ChannelGroup allChannels;
+
+    /**
+     * 监听端口的通道组，开启SO_REUSEPORT时同一端口会绑定多个通道
+     */
+    private final ChannelGroup boundChannels;
+
+    /**
+     * 会话id分配器，服务器启动时根据服务器id创建
+     */
+    private SessionIdAllocator sessionIdAllocator;
+
+    /**
+     * 当前服务器的流量统计，服务器启动时登记
+     */
+    protected ServerMetrics metrics;
+
+    private TrafficMetricsHandler bytesMetricsHandler;
+
+    private TrafficMetricsHandler messagesMetricsHandler;
+
     public AbstractInnerNettyGameServer(GameServerRegisterAdaptor<S, M> gameServerRegister, String serverThreadName) {
         super(gameServerRegister, serverThreadName);
+        this.transport = NettyTransport.select(gameServerRegister.isNativeTransport());
+        this.allChannels = new DefaultChannelGroup(serverThreadName, GlobalEventExecutor.INSTANCE);
+        this.boundChannels = new DefaultChannelGroup(serverThreadName + "-bound", GlobalEventExecutor.INSTANCE);
+    }
+
+    @Override
+    public void run() {
+        super.run();
+        sessionIdAllocator = new SessionIdAllocator(getServerId());
+        metrics = DkMetrics.registerServer(getServerId(), this::getOnlineCount);
+        bytesMetricsHandler = TrafficMetricsHandler.bytes(metrics);
+        messagesMetricsHandler = TrafficMetricsHandler.messages(metrics);
+    }
+
+    @Override
+    protected void recordInnerSession(long sessionId, AbstractSession session) {
+        super.recordInnerSession(sessionId, session);
+        if (isChannelBroadcastSupported() && session.getChannel() instanceof Channel) {
+            allChannels.add((Channel) session.getChannel());
+        }
+    }
+
+    /**
+     * 是否每个会话独占一个通道，只有这样才能使用通道组广播（UDP所有会话共用一个通道，HTTP每个请求只有一个响应，都不支持）
+     */
+    protected boolean isChannelBroadcastSupported() {
+        return false;
+    }
+
+    /**
+     * 向所有在线会话广播消息，消息只编码一次，所有连接共享编码后的缓冲
+     *
+     * @param message 消息
+     * @return 返回消息写入的连接数量
+     */
+    public int broadcast(Object message) {
+        if (!isChannelBroadcastSupported()) {
+            return sendOneByOne(message, session -> true);
+        }
+        return broadcast(message, allChannels, ChannelMatchers.all());
+    }
+
+    /**
+     * 向所有满足条件的在线会话广播消息，消息只编码一次
+     *
+     * @param message 消息
+     * @param filter 会话过滤条件
+     * @return 返回消息写入的连接数量
+     */
+    public int broadcast(Object message, Predicate<S> filter) {
+        if (!isChannelBroadcastSupported()) {
+            return sendOneByOne(message, filter);
+        }
+        return broadcast(message, allChannels, channel -> {
+            S session = getSessionByChannel(channel);
+            return session != null && filter.test(session);
+        });
+    }
+
+    /**
+     * 创建一个会话组（如房间、队伍、场景），通过会话组广播时只需要编码一次
+     *
+     * @param name 会话组名称
+     * @return 返回新创建的会话组
+     */
+    public SessionGroup newSessionGroup(String name) {
+        if (!isChannelBroadcastSupported()) {
+            throw new BusinessException("session.group.unsupported",
+                    String.format("游戏服 [%s] 使用的协议 [%s] 不支持会话组", getGameName(), getProtocolType()));
+        }
+        return new SessionGroup(name, this);
+    }
+
+    /**
+     * 向通道组中满足条件的连接广播消息
+     *
+     * @param message 消息
+     * @param channels 通道组
+     * @param matcher 通道过滤条件
+     * @return 返回消息写入的连接数量
+     */
+    int broadcast(Object message, ChannelGroup channels, ChannelMatcher matcher) {
+        if (channels.isEmpty()) {
+            return 0;
+        }
+
+        // 池化的消息编码后会被回收，日志必须在编码之前记录
+        LogUtil.s2cMessage("广播消息：{}", message);
+        // 编码后的缓冲引用计数为1，每个连接写入一个共享内容的副本（引用计数+1），写出后由Netty释放副本
+        ByteBuf encoded = getGameServerRegister().encoder().encode((M) message, null);
+        int count = 0;
+        try {
+            for (Channel channel : channels) {
+                if (channel.isActive() && matcher.matches(channel)) {
+                    channel.writeAndFlush(broadcastFrame(encoded.retainedDuplicate()), channel.voidPromise());
+                    count++;
+                }
+            }
+        } finally {
+            encoded.release();
+        }
+        return count;
+    }
+
+    /**
+     * 不支持通道组广播时，逐个会话发送消息（每个会话都会编码一次）
+     */
+    private int sendOneByOne(Object message, Predicate<S> filter) {
+        int count = 0;
+        for (S session : sessionView()) {
+            if (filter.test(session)) {
+                getGameServerRegister().messageSender().send(session, (M) message);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 将编码后的消息包装为写入通道的对象，子类可以在这里包装为对应协议的数据帧
+     *
+     * @param encoded 编码后的消息，由调用方负责释放
+     * @return 返回实际写入通道的对象
+     */
+    protected Object broadcastFrame(ByteBuf encoded) {
+        return encoded;
+    }
+
+    AbstractSession innerSession(long sessionId) {
+        return getInnerSession(sessionId);
+    }
+
+    /**
+     * 创建接收连接的线程组，开启SO_REUSEPORT时每个接收线程各自绑定一次端口
+     */
+    protected EventLoopGroup newAcceptorGroup(String threadName) {
+        return transport.newEventLoopGroup(getGameServerRegister().acceptorThreads(), threadName);
+    }
+
+    /**
+     * 创建处理读写的线程组
+     */
+    protected EventLoopGroup newWorkerGroup(String threadName) {
+        return transport.newEventLoopGroup(getGameServerRegister().workerThreads(), threadName);
+    }
+
+    /**
+     * 设置连接的socket参数，仅设置了有效值的参数才会覆盖操作系统的默认值
+     *
+     * @param b 服务器启动对象
+     */
+    protected void applyChildOptions(ServerBootstrap b) {
+        GameServerRegisterAdaptor<S, M> register = getGameServerRegister();
+        if (register.receiveBufferSize() > 0) {
+            // 在监听socket上设置接收缓冲区，才能在三次握手时生效（窗口扩大选项）
+            b.option(ChannelOption.SO_RCVBUF, register.receiveBufferSize());
+            b.childOption(ChannelOption.SO_RCVBUF, register.receiveBufferSize());
+        }
+        if (register.sendBufferSize() > 0) {
+            b.childOption(ChannelOption.SO_SNDBUF, register.sendBufferSize());
+        }
+        if (register.writeBufferHighWaterMark() > 0) {
+            b.childOption(ChannelOption.WRITE_BUFFER_WATER_MARK,
+                    new WriteBufferWaterMark(register.writeBufferLowWaterMark(), register.writeBufferHighWaterMark()));
+        }
+        if (isTcpNoDelay()) {
+            b.childOption(ChannelOption.TCP_NODELAY, true);
+        }
+    }
+
+    /**
+     * 绑定端口，开启了SO_REUSEPORT且传输层支持时，按接收线程数量多次绑定同一端口；所有绑定的通道都记录在监听通道组中，
+     * 通过{@link #awaitBoundChannelsClosed()}等待全部关闭，服务器关闭时由{@link #closeBoundChannels()}全部关闭
+     *
+     * @param b 启动对象
+     * @param port 端口
+     * @return 返回第一个绑定成功的通道
+     * @throws InterruptedException 等待绑定时被中断
+     */
+    protected Channel bind(AbstractBootstrap<?, ?> b, int port) throws InterruptedException {
+        int binds = 1;
+        if (getGameServerRegister().isReusePort()) {
+            if (transport.isReusePortSupported()) {
+                b.option(EpollChannelOption.SO_REUSEPORT, true);
+                binds = getGameServerRegister().acceptorThreads();
+            } else {
+                LogUtil.start("游戏 [{}] 当前传输层 [{}] 不支持SO_REUSEPORT，忽略该设置", getGameName(), transport);
+            }
+        }
+
+        Channel channel = b.bind(port).sync().channel();
+        boundChannels.add(channel);
+        for (int i = 1; i < binds; i++) {
+            boundChannels.add(b.bind(port).sync().channel());
+        }
+        LogUtil.start("游戏 [{}] 使用传输层 [{}]，端口绑定次数 [{}]", getGameName(), transport, binds);
+        return channel;
+    }
+
+    /**
+     * 等待所有监听端口的通道关闭
+     *
+     * @throws InterruptedException 等待时被中断
+     */
+    protected void awaitBoundChannelsClosed() throws InterruptedException {
+        boundChannels.newCloseFuture().sync();
+    }
+
+    /**
+     * 关闭所有监听端口的通道，并等待关闭完成
+     */
+    protected void closeBoundChannels() {
+        boundChannels.close().awaitUninterruptibly();
     }
 
     protected void setChannelId(Channel channel, long channelId) {
@@ -46,20 +314,64 @@ public abstract class AbstractInnerNettyGameServer<S, M> extends AbstractInnerGa
         return channel.attr(CHANNEL_ID).get();
     }
 
-    protected long channel2Id(Channel channel) {
-        return ChannelUtil.channel2Id(channel);
+    /**
+     * 分配一个新的会话id
+     *
+     * @return 返回服务器内唯一的正整数
+     */
+    protected long nextSessionId() {
+        return sessionIdAllocator.next();
+    }
+
+    /**
+     * 将会话对象保存到通道上，之后通过通道查找会话时直接读取通道属性；仅适用于每个会话独占一个通道的协议
+     *
+     * @param channel 通道
+     * @param innerSession 当康系统内部会话对象
+     * @param session 用户会话对象
+     */
+    protected void bindSession(Channel channel, AbstractSession innerSession, S session) {
+        channel.attr(INNER_SESSION).set(innerSession);
+        channel.attr(SESSION).set(session);
     }
 
+    @SuppressWarnings("unchecked")
     protected S getSessionByChannel(Channel channel) {
+        Object session = channel.attr(SESSION).get();
+        if (session != null) {
+            return (S) session;
+        }
         Long channelId = getChannelId(channel);
         return channelId == null ? null : getSession(channelId);
     }
 
     protected AbstractSession getInnerSessionByChannel(Channel channel) {
+        AbstractSession session = channel.attr(INNER_SESSION).get();
+        if (session != null) {
+            return session;
+        }
         Long channelId = getChannelId(channel);
         return channelId == null ? null : getInnerSession(channelId);
     }
 
+    /**
+     * 使用注册的解码器解码消息，并在解码完成时记录消息的解码时间点（用于消息处理的分阶段耗时统计）
+     * <p>
+     * 所有连接类型都通过该方法解码，记录解码时间点不依赖解码器的具体实现
+     * </p>
+     *
+     * @param data 消息数据
+     * @param subject 消息所属主体对象
+     * @return 返回解码后的消息，解码器返回null时返回null
+     */
+    protected M decodeMessage(ByteBuf data, GameSubject subject) {
+        M message = getGameServerRegister().decoder().decode(data, subject);
+        if (message instanceof ReqMessage) {
+            ((ReqMessage<?>) message).markDecoded();
+        }
+        return message;
+    }
+
     /**
      * 检查消息是否应该被拦截
      *
@@ -89,6 +401,7 @@ public abstract class AbstractInnerNettyGameServer<S, M> extends AbstractInnerGa
     }
 
     protected void dispatchMessage(S session, M msg) {
+        metrics.messagesIn().mark();
         // 如果服务器已暂停对外提供服务，但是消息还是进来了，说明该服务器可能需要处理GM服务器消息，执行相关检查
         if (pause.get()) {
             // 游戏服和GM服共享端口的，只允许通过GM服的消息
@@ -110,18 +423,36 @@ public abstract class AbstractInnerNettyGameServer<S, M> extends AbstractInnerGa
             return;
         }
         // 执行真正的消息转发
-        getGameServerRegister().messageDispatcher().dispatch(session, msg);
+        if (messageExecutor != null) {
+            messageExecutor.addTask(dispatchKey(session), new MessageDispatchWorker(session, msg));
+        } else {
+            getGameServerRegister().messageDispatcher().dispatch(session, msg);
+        }
+    }
+
+    private long dispatchKey(S session) {
+        if (session instanceof AbstractSession) {
+            return ((AbstractSession) session).getId();
+        }
+        return System.identityHashCode(session);
     }
 
     @Override
     protected int messageSenderThreads() {
         // 默认使用工作组同样多的线程数
-        return ((NioEventLoopGroup) workerGroup).executorCount();
+        return ((MultithreadEventExecutorGroup) workerGroup).executorCount();
     }
 
     @Override
     protected void shutdown0() {
+        DkMetrics.unregisterServer(getServerId());
+        closeBoundChannels();
         workerGroup.shutdownGracefully();
+        if (messageExecutor != null) {
+            DkMetrics.unregisterExecutor(messageExecutor.getName());
+            messageExecutor.shutdown();
+            messageExecutor = null;
+        }
     }
 
     protected void idleHandler(ChannelPipeline pipeLine) {
@@ -132,6 +463,78 @@ public abstract class AbstractInnerNettyGameServer<S, M> extends AbstractInnerGa
         }
     }
 
+    /**
+     * 加入连接流量限制处理器，需要在帧解码器之后、消息解码器之前调用
+     */
+    protected void inboundRateLimitHandler(ChannelPipeline pipeLine) {
+        GameServerRegisterAdaptor<S, M> register = getGameServerRegister();
+        if (register.isRateLimitEnabled() && (register.rateLimitBytes() > 0 || register.rateLimitMessages() > 0)) {
+            pipeLine.addLast("rateLimit", new InboundRateLimitHandler(register.rateLimitBytes(),
+                    register.rateLimitMessages(), register.rateLimitPolicy()));
+        }
+    }
+
+    /**
+     * 加入消息帧压缩处理器，需要在帧编解码器与消息编解码器之间调用
+     */
+    protected void compressionHandler(ChannelPipeline pipeLine) {
+        GameServerRegisterAdaptor<S, M> register = getGameServerRegister();
+        if (register.isCompressionEnabled()) {
+            pipeLine.addLast("compression",
+                    new FrameCompressionHandler(register.compressionThreshold(), register.compressionLevel(),
+                            register.compressionDictionary(), register.compressionSampler()));
+        }
+    }
+
+    /**
+     * 加入按消息id限制请求频率的处理器，需要在消息解码器之后调用
+     */
+    protected void messageRateLimitHandler(ChannelPipeline pipeLine) {
+        if (getGameServerRegister().isRateLimitEnabled()) {
+            RateLimitPolicy policy = getGameServerRegister().rateLimitPolicy();
+            pipeLine.addLast("messageRateLimit", new MessageRateLimitHandler(policy));
+        }
+    }
+
+    /**
+     * 加入流量统计处理器，需要在其他处理器都加入之后调用
+     */
+    protected void trafficMetricsHandler(ChannelPipeline pipeLine) {
+        pipeLine.addFirst("bytesMetrics", bytesMetricsHandler);
+        pipeLine.addLast("messagesMetrics", messagesMetricsHandler);
+    }
+
+    protected void flushConsolidationHandler(ChannelPipeline pipeLine) {
+        int explicitFlushAfterFlushes = getGameServerRegister().flushConsolidation();
+        if (explicitFlushAfterFlushes > 0) {
+            // 合并写出，需要放在所有出站处理器之后（靠近pipeline头部），才能拦截到所有的flush操作
+            pipeLine.addFirst("flushConsolidation", new FlushConsolidationHandler(explicitFlushAfterFlushes, true));
+        }
+    }
+
+    private class MessageDispatchWorker extends AbstractOrderedWorker {
+
+        private S session;
+
+        private M msg;
+
+        MessageDispatchWorker(S session, M msg) {
+            this.session = session;
+            this.msg = msg;
+            if (msg instanceof ReqMessage) {
+                ((ReqMessage<?>) msg).markEnqueued();
+            }
+        }
+
+        @Override
+        protected void action() {
+            if (msg instanceof ReqMessage) {
+                ((ReqMessage<?>) msg).markDequeued();
+            }
+            getGameServerRegister().messageDispatcher().dispatch(session, msg);
+        }
+    }
+
     private class HeartbeatHandler extends ChannelDuplexHandler {
         @Override
         public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
@@ -139,7 +542,7 @@ public abstract class AbstractInnerNettyGameServer<S, M> extends AbstractInnerGa
             if (evt instanceof IdleStateEvent) {
                 IdleStateEvent e = (IdleStateEvent) evt;
                 if (e.state() == IdleState.READER_IDLE) {
-                    LogUtil.session("连接触发心跳超时，断开连接:" + ctx.channel());
+                    LogUtil.session("连接触发心跳超时，断开连接:{}", ctx.channel());
                     ctx.close();
                 }
             }
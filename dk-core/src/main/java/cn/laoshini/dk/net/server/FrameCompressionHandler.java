@@ -0,0 +1,134 @@
+package cn.laoshini.dk.net.server;
+
+import java.util.List;
+import java.util.zip.DataFormatException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageCodec;
+
+import cn.laoshini.dk.net.codec.CompressionDictionaryTrainer;
+import cn.laoshini.dk.net.codec.ZlibFrameCompressor;
+import cn.laoshini.dk.util.LogUtil;
+
+import static cn.laoshini.dk.constant.GameConstant.MAX_FRAME_LENGTH;
+
+/**
+ * 消息帧压缩处理器，每个连接一个实例
+ * <p>
+ * 开启压缩后，每个帧的内容前都带有1个字节的标记：低7位为压缩方式（0：未压缩，1：zlib），最高位表示发送方是否接受压缩的帧。
+ * 压缩在连接内协商：服务器发出的帧总是带有接受压缩的标记，客户端发来的帧带有该标记后，服务器才会压缩发给该客户端的帧；
+ * 未声明接受压缩的客户端只会收到未压缩的帧，只需要处理标记字节即可。
+ * </p>
+ * <p>
+ * 只有长度不小于阈值的帧才会压缩，压缩后长度没有减小的帧按未压缩发送；广播消息编码一次，由每个连接各自决定是否压缩。
+ * 放在帧编解码器与消息编解码器之间，且在连接流量限制之后，限流按压缩后的实际流量计算。
+ * </p>
+ * <p>
+ * 不论使用哪种消息编解码器，TCP服务器和客户端都通过该处理器压缩，消息编解码器本身不做压缩。
+ * </p>
+ * <p>
+ * 传入取样器时，发出的帧在压缩前交给{@link CompressionDictionaryTrainer#offer(ByteBuf)}取样，用于从线上消息训练预设字典。
+ * </p>
+ *
+ * @author fagarine
+ */
+public class FrameCompressionHandler extends MessageToMessageCodec<ByteBuf, ByteBuf> {
+
+    private static final int CODEC_MASK = 0x7F;
+
+    private static final int ACCEPT_COMPRESSED = 0x80;
+
+    private static final int CODEC_NONE = 0;
+
+    private static final int CODEC_ZLIB = 1;
+
+    private final int threshold;
+
+    private final int level;
+
+    private final byte[] dictionary;
+
+    private final CompressionDictionaryTrainer sampler;
+
+    /**
+     * 对方是否接受压缩的帧，只在通道的事件线程中读写
+     */
+    private boolean peerAccepts;
+
+    /**
+     * @param threshold 压缩阈值（字节），长度不小于该值的帧才会压缩
+     * @param level 压缩级别，0~9
+     * @param dictionary 预设字典，不使用字典时传入null
+     */
+    public FrameCompressionHandler(int threshold, int level, byte[] dictionary) {
+        this(threshold, level, dictionary, null);
+    }
+
+    /**
+     * @param threshold 压缩阈值（字节），长度不小于该值的帧才会压缩
+     * @param level 压缩级别，0~9
+     * @param dictionary 预设字典，不使用字典时传入null
+     * @param sampler 字典训练取样器，多个连接共用，不需要取样时传入null
+     */
+    public FrameCompressionHandler(int threshold, int level, byte[] dictionary, CompressionDictionaryTrainer sampler) {
+        this.threshold = threshold;
+        this.level = level;
+        this.dictionary = dictionary;
+        this.sampler = sampler;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) {
+        if (sampler != null) {
+            sampler.offer(msg);
+        }
+
+        int length = msg.readableBytes();
+        if (peerAccepts && length >= threshold) {
+            ByteBuf compressed = ctx.alloc().ioBuffer(1 + (length >> 1));
+            compressed.writeByte(ACCEPT_COMPRESSED | CODEC_ZLIB);
+            if (ZlibFrameCompressor.compress(msg, compressed, level, dictionary)) {
+                out.add(compressed);
+                return;
+            }
+            compressed.release();
+        }
+
+        // 未压缩的帧只增加标记字节，不拷贝消息内容
+        ByteBuf flag = ctx.alloc().ioBuffer(1).writeByte(ACCEPT_COMPRESSED | CODEC_NONE);
+        CompositeByteBuf frame = ctx.alloc().compositeDirectBuffer(2);
+        out.add(frame.addComponents(true, flag, msg.retain()));
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) {
+        if (!msg.isReadable()) {
+            return;
+        }
+
+        int flag = msg.readUnsignedByte();
+        peerAccepts = (flag & ACCEPT_COMPRESSED) != 0;
+        switch (flag & CODEC_MASK) {
+            case CODEC_NONE:
+                out.add(msg.retainedSlice());
+                break;
+            case CODEC_ZLIB:
+                ByteBuf inflated = ctx.alloc().buffer(msg.readableBytes() << 2);
+                try {
+                    ZlibFrameCompressor.decompress(msg, inflated, dictionary, MAX_FRAME_LENGTH);
+                } catch (DataFormatException e) {
+                    inflated.release();
+                    LogUtil.session("压缩帧解压失败，断开连接:{}, error:{}", ctx.channel(), e.getMessage());
+                    ctx.close();
+                    return;
+                }
+                out.add(inflated);
+                break;
+            default:
+                LogUtil.session("不支持的帧压缩方式:{}，断开连接:{}", flag & CODEC_MASK, ctx.channel());
+                ctx.close();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package cn.laoshini.dk.net.server;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+
+import cn.laoshini.dk.constant.RateLimitPolicy;
+import cn.laoshini.dk.util.LogUtil;
+
+/**
+ * 连接入站流量限制处理器，每个连接一个实例
+ * <p>
+ * 放在帧解码器之后、消息解码器之前，每个到达的帧计为一条消息，按帧内容的长度计算字节数，分别使用令牌桶限制每秒的字节数和消息数；
+ * 超过限制时按{@link RateLimitPolicy}处理：暂停读取并在令牌恢复后按到达顺序继续处理，或断开连接。
+ * 限流在事件线程中完成，超限的消息不会进入消息解码和业务队列，单个连接无法挤占共享的有序执行队列。
+ * </p>
+ *
+ * @author fagarine
+ */
+class InboundRateLimitHandler extends ChannelInboundHandlerAdapter {
+
+    /**
+     * 暂停读取期间最多缓存的帧数，超过后断开连接
+     */
+    private static final int MAX_THROTTLED_FRAMES = 256;
+
+    private final TokenBucket byteBucket;
+
+    private final TokenBucket messageBucket;
+
+    private final RateLimitPolicy policy;
+
+    private final Deque<Object> throttled = new ArrayDeque<>();
+
+    private boolean paused;
+
+    InboundRateLimitHandler(int bytesPerSecond, int messagesPerSecond, RateLimitPolicy policy) {
+        this(bytesPerSecond, messagesPerSecond, policy, System.nanoTime());
+    }
+
+    InboundRateLimitHandler(int bytesPerSecond, int messagesPerSecond, RateLimitPolicy policy, long now) {
+        this.byteBucket = bytesPerSecond > 0 ? new TokenBucket(bytesPerSecond, now) : null;
+        this.messageBucket = messagesPerSecond > 0 ? new TokenBucket(messagesPerSecond, now) : null;
+        this.policy = policy;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (paused) {
+            enqueue(ctx, msg);
+            return;
+        }
+
+        long waitNanos = acquire(msg);
+        if (waitNanos == 0L) {
+            ctx.fireChannelRead(msg);
+        } else if (RateLimitPolicy.KICK.equals(policy)) {
+            ReferenceCountUtil.release(msg);
+            LogUtil.session("连接流量超过限制，断开连接:{}", ctx.channel());
+            ctx.close();
+        } else {
+            paused = true;
+            ReadSuspension.suspend(ctx.channel(), ReadSuspension.Reason.RATE_LIMIT);
+            enqueue(ctx, msg);
+            scheduleResume(ctx, waitNanos);
+        }
+    }
+
+    private void enqueue(ChannelHandlerContext ctx, Object msg) {
+        if (throttled.size() >= MAX_THROTTLED_FRAMES) {
+            ReferenceCountUtil.release(msg);
+            LogUtil.session("连接限流期间缓存的消息过多，断开连接:{}", ctx.channel());
+            ctx.close();
+            return;
+        }
+        throttled.addLast(msg);
+    }
+
+    private void scheduleResume(ChannelHandlerContext ctx, long waitNanos) {
+        ctx.executor().schedule(() -> resume(ctx), waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void resume(ChannelHandlerContext ctx) {
+        if (!ctx.channel().isActive()) {
+            releaseThrottled();
+            return;
+        }
+
+        Object msg;
+        while ((msg = throttled.peekFirst()) != null) {
+            long waitNanos = acquire(msg);
+            if (waitNanos > 0L) {
+                ctx.fireChannelReadComplete();
+                scheduleResume(ctx, waitNanos);
+                return;
+            }
+            throttled.pollFirst();
+            ctx.fireChannelRead(msg);
+        }
+        ctx.fireChannelReadComplete();
+
+        paused = false;
+        ReadSuspension.resume(ctx.channel(), ReadSuspension.Reason.RATE_LIMIT);
+    }
+
+    /**
+     * 获取消息所需的令牌，两个令牌桶都满足时才同时扣除，任一令牌桶不足时不扣除任何令牌，
+     * 避免字节数超限期间的反复尝试消耗消息数的令牌
+     *
+     * @return 返回0表示获取成功，否则返回需要等待的纳秒数
+     */
+    private long acquire(Object msg) {
+        return acquire(msg, System.nanoTime());
+    }
+
+    long acquire(Object msg, long now) {
+        int size = sizeOf(msg);
+        long messageWait = messageBucket == null ? 0L : messageBucket.waitNanos(1, now);
+        long byteWait = byteBucket == null ? 0L : byteBucket.waitNanos(size, now);
+        if (messageWait > 0L || byteWait > 0L) {
+            return Math.max(messageWait, byteWait);
+        }
+
+        if (messageBucket != null) {
+            messageBucket.take(1);
+        }
+        if (byteBucket != null) {
+            byteBucket.take(size);
+        }
+        return 0L;
+    }
+
+    private int sizeOf(Object msg) {
+        if (msg instanceof ByteBuf) {
+            return ((ByteBuf) msg).readableBytes();
+        }
+        if (msg instanceof ByteBufHolder) {
+            return ((ByteBufHolder) msg).content().readableBytes();
+        }
+        return 0;
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        if (!paused) {
+            ctx.fireChannelReadComplete();
+        }
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        releaseThrottled();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        releaseThrottled();
+        ctx.fireChannelInactive();
+    }
+
+    private void releaseThrottled() {
+        Object msg;
+        while ((msg = throttled.pollFirst()) != null) {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+}
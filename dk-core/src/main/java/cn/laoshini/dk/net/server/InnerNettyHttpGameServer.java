@@ -1,7 +1,11 @@
 package cn.laoshini.dk.net.server;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
@@ -9,17 +13,12 @@ import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.codec.http.HttpContent;
-import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpContentCompressor;
 import io.netty.handler.codec.http.HttpObjectAggregator;
-import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpServerCodec;
-import io.netty.handler.codec.http.HttpServerExpectContinueHandler;
-import io.netty.handler.codec.http.HttpUtil;
-import io.netty.handler.codec.http.LastHttpContent;
 
 import cn.laoshini.dk.exception.BusinessException;
 import cn.laoshini.dk.net.session.AbstractSession;
@@ -34,6 +33,16 @@ public class InnerNettyHttpGameServer<S, M> extends AbstractInnerNettyGameServer
 
     private static final String FAVICON_ICO = "/favicon.ico";
 
+    /**
+     * 每个连接最多排队的管线化请求数，超过后暂停读取，直到队列中的请求被处理
+     */
+    private static final int MAX_PENDING_REQUESTS = 16;
+
+    /**
+     * 单个请求的最长处理时间（秒），超时未响应的请求返回504，继续处理下一个请求
+     */
+    private static final int REQUEST_TIMEOUT_SECONDS = 30;
+
     private EventLoopGroup bossGroup;
 
     public InnerNettyHttpGameServer(GameServerRegisterAdaptor<S, M> gameServerRegister) {
@@ -45,32 +54,38 @@ public class InnerNettyHttpGameServer<S, M> extends AbstractInnerNettyGameServer
         super.run();
 
         int port = getPort();
-        bossGroup = new NioEventLoopGroup();
-        workerGroup = new NioEventLoopGroup();
+        bossGroup = newAcceptorGroup("http-boss");
+        workerGroup = newWorkerGroup("http-worker");
         try {
             LogUtil.start("HTTP游戏 [{}] 开始启动...", getGameName());
             ServerBootstrap b = new ServerBootstrap();
-            b.group(bossGroup, workerGroup).channel(NioServerSocketChannel.class).option(ChannelOption.SO_BACKLOG, 1024)
+            applyChildOptions(b);
+            b.group(bossGroup, workerGroup).channel(transport.serverChannelClass())
+                    .option(ChannelOption.SO_BACKLOG, 1024)
                     .childHandler(new ChannelInitializer<SocketChannel>() {
                         @Override
                         protected void initChannel(SocketChannel ch) throws Exception {
                             ChannelPipeline p = ch.pipeline();
                             // 使用HttpRequestDecoder & HttpResponseEncoder
                             p.addLast(new HttpServerCodec());
-                            // 在处理POST消息体时需要加上
+                            if (getGameServerRegister().isCompressionEnabled()) {
+                                // 开启消息帧压缩时，HTTP按请求的Accept-Encoding协商压缩响应内容
+                                p.addLast(new HttpContentCompressor(getGameServerRegister().compressionLevel()));
+                            }
+                            // 聚合为完整的请求，聚合器同时处理"Expect: 100-continue"，不需要单独的处理器
                             p.addLast(new HttpObjectAggregator(1024 * 1024));
-                            p.addLast(new HttpServerExpectContinueHandler());
                             p.addLast(new DefaultHttpServerHandler());
+                            trafficMetricsHandler(p);
                         }
                     });
 
-            Channel ch = b.bind(port).sync().channel();
+            bind(b, port);
             LogUtil.start("HTTP游戏 [{}] 成功绑定端口 [{}]", getGameName(), port);
 
             // 执行游戏服启动成功后的逻辑
             serverStartsSuccessful();
 
-            ch.closeFuture().sync();
+            awaitBoundChannelsClosed();
         } catch (InterruptedException e) {
             throw new BusinessException("http.start.error", String.format("HTTP游戏服 [%s] 启动异常", getServerConfig()));
         } finally {
@@ -81,6 +96,7 @@ public class InnerNettyHttpGameServer<S, M> extends AbstractInnerNettyGameServer
 
     @Override
     protected void shutdown0() {
+        closeBoundChannels();
         bossGroup.shutdownGracefully();
         workerGroup.shutdownGracefully();
 
@@ -88,73 +104,161 @@ public class InnerNettyHttpGameServer<S, M> extends AbstractInnerNettyGameServer
         clearSessions();
     }
 
-    private class DefaultHttpServerHandler extends SimpleChannelInboundHandler<HttpObject> {
+    /**
+     * HTTP连接处理器，每个连接一个实例
+     * <p>
+     * 连接建立时创建会话，连接上的所有请求复用该会话；支持HTTP/1.1管线化：上一个请求的响应发出之前到达的请求进入队列，
+     * 响应发出后按到达顺序处理下一个，保证响应顺序与请求顺序一致
+     * </p>
+     * <p>
+     * 没有业务响应的请求（业务暂停、解码失败、消息被拦截或业务未返回消息等）由超时兜底：超时后返回504并继续处理下一个请求，
+     * 避免一个未响应的请求阻塞连接上的后续请求
+     * </p>
+     */
+    private class DefaultHttpServerHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+
+        private final Deque<FullHttpRequest> pendingRequests = new ArrayDeque<>();
+
+        private NettyHttpSession innerSession;
+
+        private S session;
+
+        /**
+         * 是否有请求正在处理，只在通道的事件线程中访问
+         */
+        private boolean processing;
+
+        /**
+         * 当前请求的超时任务，只在通道的事件线程中访问
+         */
+        private ScheduledFuture<?> timeoutFuture;
 
         @Override
-        protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) throws Exception {
-            if (isShutdown()) {
-                return;
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            super.channelActive(ctx);
+            Channel channel = ctx.channel();
+
+            long channelId = nextSessionId();
+            setChannelId(channel, channelId);
+            innerSession = new NettyHttpSession(channel, false);
+            innerSession.setId(channelId);
+            innerSession.addEncoder(getGameServerRegister().encoder());
+            innerSession.setResponseListener(() -> onResponded(channel));
+            recordInnerSession(channelId, innerSession);
+
+            session = getGameServerRegister().sessionCreator().newSession(innerSession);
+            recordSession(channelId, session);
+            bindSession(channel, innerSession, session);
+
+            if (getGameServerRegister().connectOpenedOperation() != null) {
+                getGameServerRegister().connectOpenedOperation().onConnected(session);
             }
+        }
 
-            if (isPaused()) {
-                // 业务暂停时，停止接受客户端消息，或返回提示信息，或考虑其他的处理方式
-                sendPauseMessage(getSessionByChannel(ctx.channel()));
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) throws Exception {
+            if (isShutdown()) {
+                ctx.close();
                 return;
             }
 
-            if (msg instanceof HttpRequest) {
-                HttpRequest request = (HttpRequest) msg;
-                String uri = request.uri();
-                if (FAVICON_ICO.equals(uri)) {
-                    return;
+            if (processing) {
+                // 上一个请求还未响应，排队等待
+                pendingRequests.addLast(request.retain());
+                if (pendingRequests.size() >= MAX_PENDING_REQUESTS) {
+                    ReadSuspension.suspend(ctx.channel(), ReadSuspension.Reason.HTTP_PIPELINE);
                 }
+                return;
+            }
+            processRequest(request);
+        }
 
-                LogUtil.info("request uri:" + uri);
-
-                if (msg instanceof HttpContent) {
-                    ByteBuf in = ((HttpContent) msg).content();
-                    if (msg instanceof LastHttpContent) {
-                        boolean keepAlive = HttpUtil.isKeepAlive(request);
-                        Channel channel = ctx.channel();
+        private void processRequest(FullHttpRequest request) {
+            processing = true;
+            innerSession.beginRequest(request);
+            Channel channel = innerSession.getChannel();
+            if (FAVICON_ICO.equals(request.uri())) {
+                innerSession.sendStatus(HttpResponseStatus.NOT_FOUND);
+                return;
+            }
 
-                        long channelId = channel2Id(channel);
-                        setChannelId(channel, channelId);
-                        NettyHttpSession innerSession = new NettyHttpSession(channel, keepAlive);
-                        innerSession.setId(channelId);
-                        innerSession.addEncoder(getGameServerRegister().encoder());
-                        recordInnerSession(channelId, innerSession);
+            timeoutFuture = channel.eventLoop()
+                    .schedule(() -> onTimeout(channel), REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            LogUtil.c2sMessage("request uri:{}", request.uri());
 
-                        // 记录URI和header等信息
-                        innerSession.setUri(uri);
-                        innerSession.setMethod(request.method().name());
-                        innerSession.setHeaders(request.headers().entries());
+            M message;
+            try {
+                // 消息解码
+                message = decodeMessage(request.content(), innerSession.getSubject());
+            } catch (RuntimeException e) {
+                LogUtil.error("http消息解码失败, uri:" + request.uri(), e);
+                innerSession.sendStatus(HttpResponseStatus.BAD_REQUEST);
+                return;
+            }
+            LogUtil.c2sMessage("读取到http消息:{}", message);
+            if (message == null) {
+                innerSession.sendStatus(HttpResponseStatus.BAD_REQUEST);
+                return;
+            }
 
-                        S session = getGameServerRegister().sessionCreator().newSession(innerSession);
-                        recordSession(channelId, session);
+            // 消息分发，业务暂停或消息被拦截时可能没有响应，由超时任务兜底
+            dispatchMessage(session, message);
+        }
 
-                        if (getGameServerRegister().connectOpenedOperation() != null) {
-                            getGameServerRegister().connectOpenedOperation().onConnected(session);
-                        }
+        /**
+         * 请求处理超时，如果还没有响应，返回504，响应发出后会继续处理下一个请求
+         */
+        private void onTimeout(Channel channel) {
+            timeoutFuture = null;
+            if (processing && innerSession.sendStatus(HttpResponseStatus.GATEWAY_TIMEOUT)) {
+                LogUtil.error("http请求处理超时, channel:{}, uri:{}", channel, innerSession.getUri());
+            }
+        }
 
-                        // 消息解码
-                        M message = getGameServerRegister().decoder().decode(in, null);
-                        LogUtil.c2sMessage("读取到http消息:" + message);
+        private void cancelTimeout() {
+            if (timeoutFuture != null) {
+                timeoutFuture.cancel(false);
+                timeoutFuture = null;
+            }
+        }
 
-                        // 消息分发
-                        dispatchMessage(session, message);
-                    }
-                }
+        /**
+         * 保持连接的请求响应发出后调用，可能在业务线程中调用
+         */
+        private void onResponded(Channel channel) {
+            if (channel.eventLoop().inEventLoop()) {
+                processNext(channel);
+            } else {
+                channel.eventLoop().execute(() -> processNext(channel));
             }
         }
 
-        @Override
-        public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
-            ctx.flush();
+        private void processNext(Channel channel) {
+            processing = false;
+            cancelTimeout();
+            if (!channel.isActive()) {
+                return;
+            }
+            FullHttpRequest next = pendingRequests.pollFirst();
+            if (next == null) {
+                return;
+            }
+
+            if (pendingRequests.size() < MAX_PENDING_REQUESTS) {
+                ReadSuspension.resume(channel, ReadSuspension.Reason.HTTP_PIPELINE);
+            }
+            try {
+                processRequest(next);
+            } catch (RuntimeException e) {
+                LogUtil.error("http request process error, channel:" + channel, e);
+                channel.close();
+            } finally {
+                next.release();
+            }
         }
 
         @Override
         public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
-            super.exceptionCaught(ctx, cause);
             LogUtil.error("http server channel exception", cause);
             ctx.close();
         }
@@ -163,14 +267,21 @@ public class InnerNettyHttpGameServer<S, M> extends AbstractInnerNettyGameServer
         public void channelInactive(ChannelHandlerContext ctx) throws Exception {
             super.channelInactive(ctx);
 
+            processing = false;
+            cancelTimeout();
+            FullHttpRequest request;
+            while ((request = pendingRequests.pollFirst()) != null) {
+                request.release();
+            }
+
             Long channelId = getChannelId(ctx.channel());
-            S session = removeSession(channelId);
-            if (session != null && getGameServerRegister().connectClosedOperation() != null) {
-                getGameServerRegister().connectClosedOperation().onDisconnected(session);
+            S removed = removeSession(channelId);
+            if (removed != null && getGameServerRegister().connectClosedOperation() != null) {
+                getGameServerRegister().connectClosedOperation().onDisconnected(removed);
             }
-            AbstractSession innerSession = removeInnerSession(channelId);
-            if (innerSession != null) {
-                innerSession.close();
+            AbstractSession removedInner = removeInnerSession(channelId);
+            if (removedInner != null) {
+                removedInner.close();
             }
         }
     }
@@ -12,13 +12,11 @@ import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.LengthFieldPrepender;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
 import io.netty.handler.traffic.GlobalTrafficShapingHandler;
 
 import cn.laoshini.dk.domain.GameSubject;
@@ -50,35 +48,31 @@ class InnerNettyTcpGameServer<S, M> extends AbstractInnerNettyGameServer<S, M> {
 
         int port = getPort();
 
-        // 大小为监听的端口数目
-        accepterGroup = new NioEventLoopGroup();
-        workerGroup = new NioEventLoopGroup();
+        // 开启SO_REUSEPORT时，每个接收线程各自绑定一次端口
+        accepterGroup = newAcceptorGroup("tcp-accepter");
+        workerGroup = newWorkerGroup("tcp-worker");
 
         LogUtil.start("TCP游戏 [{}] 开始启动...", getGameName());
         try {
             ServerBootstrap b = new ServerBootstrap();
             trafficShapingHandler = new GlobalTrafficShapingHandler(workerGroup, 5000L);
-            b.group(accepterGroup, workerGroup).channel(NioServerSocketChannel.class);
+            b.group(accepterGroup, workerGroup).channel(transport.serverChannelClass());
             b.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
             b.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 2000);
             b.option(ChannelOption.SO_BACKLOG, 1024);
-            if (isTcpNoDelay()) {
-                b.option(ChannelOption.TCP_NODELAY, true);
-            }
 
             b.childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
-            b.childOption(ChannelOption.SO_RCVBUF, 1024);
-            b.childOption(ChannelOption.SO_SNDBUF, 4096);
+            applyChildOptions(b);
 
             b.childHandler(newBusinessHandler());
 
-            Channel channel = b.bind(port).sync().channel();
+            bind(b, port);
             LogUtil.start("TCP游戏 [{}] 成功绑定端口 [{}]", getGameName(), port);
 
             // 执行游戏服启动成功后的逻辑
             serverStartsSuccessful();
 
-            channel.closeFuture().sync();
+            awaitBoundChannelsClosed();
         } catch (Exception e) {
             throw new BusinessException("tcp.start.error", String.format("TCP游戏服 [%s] 启动异常", getServerConfig()));
         } finally {
@@ -92,17 +86,24 @@ class InnerNettyTcpGameServer<S, M> extends AbstractInnerNettyGameServer<S, M> {
             @Override
             protected void initChannel(SocketChannel ch) throws Exception {
                 ChannelPipeline pipeLine = ch.pipeline();
+                flushConsolidationHandler(pipeLine);
                 pipeLine.addLast(trafficShapingHandler);
                 idleHandler(pipeLine);
 
+                // 出站：gameEncoder -> compression -> frameEncoder
+                // 入站：frameDecoder -> rateLimit -> compression -> gameDecoder
                 pipeLine.addLast("frameEncoder", new LengthFieldPrepender(MESSAGE_LENGTH_OFFSET));
-                pipeLine.addLast("gameEncoder", newMessageEncoder());
-
                 pipeLine.addLast("frameDecoder",
                         new LengthFieldBasedFrameDecoder(MAX_FRAME_LENGTH, 0, MESSAGE_LENGTH_OFFSET, 0, 4));
+                inboundRateLimitHandler(pipeLine);
+                compressionHandler(pipeLine);
+
+                pipeLine.addLast("gameEncoder", newMessageEncoder());
                 pipeLine.addLast("gameDecoder", newMessageDecoder());
+                messageRateLimitHandler(pipeLine);
 
                 pipeLine.addLast("messageHandler", new TcpChannelReaderHandler());
+                trafficMetricsHandler(pipeLine);
             }
         };
     }
@@ -112,24 +113,35 @@ class InnerNettyTcpGameServer<S, M> extends AbstractInnerNettyGameServer<S, M> {
             @Override
             protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
                 GameSubject subject = getInnerSessionByChannel(ctx.channel()).getSubject();
-                out.add(getGameServerRegister().decoder().decode(in, subject));
+                out.add(decodeMessage(in, subject));
             }
         };
     }
 
-    private MessageToByteEncoder<M> newMessageEncoder() {
-        return new MessageToByteEncoder<M>() {
+    private MessageToMessageEncoder<M> newMessageEncoder() {
+        return new MessageToMessageEncoder<M>() {
             @Override
-            protected void encode(ChannelHandlerContext ctx, M msg, ByteBuf out) throws Exception {
+            protected void encode(ChannelHandlerContext ctx, M msg, List<Object> out) throws Exception {
+                if (msg instanceof ByteBuf) {
+                    // 已编码的广播消息，直接交给下一个处理器（MessageToMessageEncoder会释放msg，这里需要先retain）
+                    out.add(((ByteBuf) msg).retain());
+                    return;
+                }
                 GameSubject subject = getInnerSessionByChannel(ctx.channel()).getSubject();
-                ByteBuf buf = getGameServerRegister().encoder().encode(msg, subject);
-                out.writeBytes(buf);
+                // 编码器返回的缓冲直接交给Netty写出，写出后由Netty释放，不再拷贝到新的缓冲中
+                out.add(getGameServerRegister().encoder().encode(msg, subject));
             }
         };
     }
 
+    @Override
+    protected boolean isChannelBroadcastSupported() {
+        return true;
+    }
+
     @Override
     protected void shutdown0() {
+        closeBoundChannels();
         accepterGroup.shutdownGracefully();
         super.shutdown0();
     }
@@ -148,7 +160,7 @@ class InnerNettyTcpGameServer<S, M> extends AbstractInnerNettyGameServer<S, M> {
                 return;
             }
 
-            LogUtil.c2sMessage("读取到tcp消息:" + msg);
+            LogUtil.c2sMessage("读取到tcp消息:{}", msg);
             // 消息分发
             dispatchMessage(ctx.channel(), msg);
         }
@@ -156,24 +168,24 @@ class InnerNettyTcpGameServer<S, M> extends AbstractInnerNettyGameServer<S, M> {
         @Override
         public void channelRegistered(ChannelHandlerContext ctx) throws Exception {
             super.channelRegistered(ctx);
-            LogUtil.session("server channel registered:" + ctx.channel());
+            LogUtil.session("server channel registered:{}", ctx.channel());
         }
 
         @Override
         public void channelUnregistered(ChannelHandlerContext ctx) throws Exception {
             super.channelUnregistered(ctx);
-            LogUtil.session("server channel unregistered:" + ctx.channel());
+            LogUtil.session("server channel unregistered:{}", ctx.channel());
         }
 
         @Override
         public void channelActive(ChannelHandlerContext ctx) throws Exception {
             super.channelActive(ctx);
             Channel channel = ctx.channel();
-            LogUtil.session("连接建立成功:" + channel);
+            LogUtil.session("连接建立成功:{}", channel);
 
             incrementOnline();
 
-            long channelId = channel2Id(channel);
+            long channelId = nextSessionId();
             setChannelId(channel, channelId);
             NettySession innerSession = new NettySession(channel);
             innerSession.setId(channelId);
@@ -181,6 +193,7 @@ class InnerNettyTcpGameServer<S, M> extends AbstractInnerNettyGameServer<S, M> {
 
             S session = getGameServerRegister().sessionCreator().newSession(innerSession);
             recordSession(channelId, session);
+            bindSession(channel, innerSession, session);
 
             getGameServerRegister().connectOpenedOperation().onConnected(session);
         }
@@ -188,7 +201,7 @@ class InnerNettyTcpGameServer<S, M> extends AbstractInnerNettyGameServer<S, M> {
         @Override
         public void channelInactive(ChannelHandlerContext ctx) throws Exception {
             super.channelInactive(ctx);
-            LogUtil.session("tcp server channel channelInactive:" + ctx.channel());
+            LogUtil.session("tcp server channel channelInactive:{}", ctx.channel());
 
             decrementOnline();
 
@@ -207,7 +220,7 @@ class InnerNettyTcpGameServer<S, M> extends AbstractInnerNettyGameServer<S, M> {
         @Override
         public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
             super.exceptionCaught(ctx, cause);
-            LogUtil.session("server channel exceptionCaught:" + ctx.channel());
+            LogUtil.session("server channel exceptionCaught:{}", ctx.channel());
 
             if (getGameServerRegister().connectExceptionOperation() != null) {
                 getGameServerRegister().connectExceptionOperation()
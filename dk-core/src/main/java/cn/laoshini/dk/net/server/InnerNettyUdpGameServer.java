@@ -1,18 +1,24 @@
 package cn.laoshini.dk.net.server;
 
+import java.net.InetSocketAddress;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
-import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
 import io.netty.channel.socket.DatagramPacket;
-import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.util.concurrent.ScheduledFuture;
 
+import cn.laoshini.dk.domain.GameSubject;
 import cn.laoshini.dk.exception.BusinessException;
 import cn.laoshini.dk.net.codec.INettyMessageEncoder;
 import cn.laoshini.dk.net.session.NettyUdpSession;
@@ -27,8 +33,30 @@ import cn.laoshini.dk.util.LogUtil;
  */
 class InnerNettyUdpGameServer<S, M> extends AbstractInnerNettyGameServer<S, M> {
 
+    /**
+     * 默认的UDP读写缓冲区大小
+     */
+    private static final int UDP_BUFFER_SIZE = 1024 * 1024;
+
     private boolean buildSession;
 
+    private boolean sequenced;
+
+    private boolean reliable;
+
+    private long retransmitTimeout = UdpGameServerRegister.DEFAULT_RETRANSMIT_TIMEOUT;
+
+    private long sessionIdleMillis = TimeUnit.SECONDS.toMillis(UdpGameServerRegister.DEFAULT_SESSION_IDLE_SECONDS);
+
+    /**
+     * 客户端地址与会话的对应关系，同一个客户端的数据包复用同一个会话
+     */
+    private final Map<InetSocketAddress, NettyUdpSession> addressSessions = new ConcurrentHashMap<>();
+
+    private ScheduledFuture<?> idleCheckFuture;
+
+    private ScheduledFuture<?> retransmitFuture;
+
     InnerNettyUdpGameServer(GameServerRegisterAdaptor<S, M> gameServerRegister) {
         super(gameServerRegister, "netty-udp-server");
     }
@@ -40,40 +68,59 @@ class InnerNettyUdpGameServer<S, M> extends AbstractInnerNettyGameServer<S, M> {
         if (getGameServerRegister() instanceof UdpGameServerRegister) {
             UdpGameServerRegister register = (UdpGameServerRegister) getGameServerRegister();
             buildSession = register.isBuildSession();
+            sequenced = register.isSequenced();
+            reliable = register.isReliable();
+            retransmitTimeout = register.retransmitTimeout();
+            sessionIdleMillis = TimeUnit.SECONDS.toMillis(register.sessionIdleSeconds());
         }
 
         // 监听的端口
         int port = getPort();
 
-        workerGroup = new NioEventLoopGroup();
+        workerGroup = newWorkerGroup("udp-worker");
         try {
             // udp不能使用ServerBootstrap
             Bootstrap b = new Bootstrap();
             LogUtil.start("UDP游戏 [{}] 开始启动...", getGameName());
             // 设置UDP通道
-            b.group(workerGroup).channel(NioDatagramChannel.class)
+            b.group(workerGroup).channel(transport.datagramChannelClass())
                     // 支持广播
                     .option(ChannelOption.SO_BROADCAST, true).option(ChannelOption.SO_BACKLOG, 128)
-                    // 设置UDP读缓冲区为1M
-                    .option(ChannelOption.SO_RCVBUF, 1024 * 1024)
-                    // 设置UDP写缓冲区为1M
-                    .option(ChannelOption.SO_SNDBUF, 1024 * 1024)
+                    // 设置UDP读缓冲区，默认为1M
+                    .option(ChannelOption.SO_RCVBUF, bufferSize(getGameServerRegister().receiveBufferSize()))
+                    // 设置UDP写缓冲区，默认为1M
+                    .option(ChannelOption.SO_SNDBUF, bufferSize(getGameServerRegister().sendBufferSize()))
                     // 初始化处理器
-                    .handler(new ChannelInitializer<NioDatagramChannel>() {
+                    .handler(new ChannelInitializer<DatagramChannel>() {
                         @Override
-                        protected void initChannel(NioDatagramChannel ch) throws Exception {
+                        protected void initChannel(DatagramChannel ch) throws Exception {
                             ChannelPipeline pipeLine = ch.pipeline();
                             pipeLine.addLast("messageHandler", new UdpServerHandler());
+                            trafficMetricsHandler(pipeLine);
                         }
                     });
 
-            ChannelFuture f = b.bind(port).sync();
+            Channel channel = bind(b, port);
             LogUtil.start("UDP游戏 [{}] 成功绑定端口 [{}]", getGameName(), port);
 
+            if (buildSession) {
+                // 检查间隔取超时时间的一半，会话最多在超时后再存活半个超时时间
+                long period = Math.max(sessionIdleMillis / 2, 1000L);
+                // 在通道的事件线程中清除，与创建会话、读取数据包串行执行
+                idleCheckFuture = channel.eventLoop()
+                        .scheduleAtFixedRate(this::expireIdleSessions, period, period, TimeUnit.MILLISECONDS);
+            }
+            if (reliable) {
+                // 检查间隔取重传超时时间的一半，数据包最多在超时后再等待半个超时时间重发
+                long period = Math.max(retransmitTimeout / 2, 10L);
+                retransmitFuture = channel.eventLoop()
+                        .scheduleAtFixedRate(this::retransmit, period, period, TimeUnit.MILLISECONDS);
+            }
+
             // 执行游戏服启动成功后的逻辑
             serverStartsSuccessful();
 
-            f.channel().closeFuture().await();
+            awaitBoundChannelsClosed();
         } catch (Exception e) {
             throw new BusinessException("udp.start.error", String.format("UDP游戏服 [%s] 启动异常", getServerConfig()));
         } finally {
@@ -82,14 +129,96 @@ class InnerNettyUdpGameServer<S, M> extends AbstractInnerNettyGameServer<S, M> {
 
     }
 
+    private int bufferSize(int size) {
+        return size > 0 ? size : UDP_BUFFER_SIZE;
+    }
+
     @Override
     protected void shutdown0() {
+        if (idleCheckFuture != null) {
+            idleCheckFuture.cancel(false);
+        }
+        if (retransmitFuture != null) {
+            retransmitFuture.cancel(false);
+        }
         super.shutdown0();
 
+        addressSessions.clear();
         clearInnerSessions();
         clearSessions();
     }
 
+    /**
+     * 获取客户端地址对应的会话，不存在时创建；只在通道的事件线程中调用
+     */
+    private NettyUdpSession obtainSession(Channel channel, InetSocketAddress sender) {
+        NettyUdpSession innerSession = addressSessions.get(sender);
+        if (innerSession != null) {
+            return innerSession;
+        }
+
+        // 所有客户端共用同一个通道，不能在通道上保存会话id
+        long sessionId = nextSessionId();
+        innerSession = new NettyUdpSession(channel);
+        innerSession.setId(sessionId);
+        innerSession.setRecipient(sender);
+        innerSession.setSequenced(sequenced);
+        innerSession.setReliable(reliable, retransmitTimeout);
+        innerSession.setEncoder((INettyMessageEncoder) getGameServerRegister().encoder());
+        addressSessions.put(sender, innerSession);
+        recordInnerSession(sessionId, innerSession);
+
+        S session = getGameServerRegister().sessionCreator().newSession(innerSession);
+        recordSession(sessionId, session);
+        incrementOnline();
+        LogUtil.session("udp会话建立:{}", sender);
+
+        if (getGameServerRegister().connectOpenedOperation() != null) {
+            getGameServerRegister().connectOpenedOperation().onConnected(session);
+        }
+        return innerSession;
+    }
+
+    /**
+     * 清除超过空闲时间没有收到数据包的会话，只在通道的事件线程中调用
+     */
+    private void expireIdleSessions() {
+        long expireTime = System.currentTimeMillis() - sessionIdleMillis;
+        Iterator<NettyUdpSession> iterator = addressSessions.values().iterator();
+        while (iterator.hasNext()) {
+            NettyUdpSession innerSession = iterator.next();
+            if (innerSession.getLastReadTime() > expireTime) {
+                continue;
+            }
+
+            iterator.remove();
+            long sessionId = innerSession.getId();
+            decrementOnline();
+            LogUtil.session("udp会话空闲超时，清除会话:{}", sessionId);
+
+            S session = removeSession(sessionId);
+            if (session != null && getGameServerRegister().connectClosedOperation() != null) {
+                getGameServerRegister().connectClosedOperation().onDisconnected(session);
+            }
+            removeInnerSession(sessionId);
+            innerSession.close();
+        }
+    }
+
+    /**
+     * 可靠模式下重发超时未确认的包，只在通道的事件线程中调用
+     */
+    private void retransmit() {
+        long now = System.currentTimeMillis();
+        for (NettyUdpSession innerSession : addressSessions.values()) {
+            try {
+                innerSession.retransmit(now);
+            } catch (Exception e) {
+                LogUtil.error(e, "udp会话重传数据包出错:" + innerSession.getId());
+            }
+        }
+    }
+
     private class UdpServerHandler extends SimpleChannelInboundHandler<DatagramPacket> {
 
         @Override
@@ -98,42 +227,38 @@ class InnerNettyUdpGameServer<S, M> extends AbstractInnerNettyGameServer<S, M> {
                 return;
             }
 
+            /*
+             * 创建会话模式下，同一个客户端地址的数据包复用同一个会话，会话超过空闲时间没有收到数据包后清除。
+             * 保留会话对象的原因：
+             * 由于UDP面向无连接，如果服务端要想客户端主动推送消息，需要知道客户端的地址，这些数据保存在{@link NettyUdpSession}中，以备用户之需。
+             */
+            NettyUdpSession innerSession = null;
+            S session = null;
+            if (buildSession) {
+                innerSession = obtainSession(ctx.channel(), packet.sender());
+                innerSession.touch();
+                session = getSession(innerSession.getId());
+            }
+
             if (isPaused()) {
                 // 业务暂停时，停止接受客户端消息，或返回提示信息，或考虑其他的处理方式
-                sendPauseMessage(getSessionByChannel(ctx.channel()));
+                sendPauseMessage(session);
                 return;
             }
 
-            // 读取收到的数据
-            ByteBuf buf = packet.copy().content();
-            byte[] req = new byte[buf.readableBytes()];
-            buf.readBytes(req);
+            // 直接解码数据包的内容，不拷贝；数据包在该方法返回后由SimpleChannelInboundHandler释放
+            ByteBuf buf = packet.content();
+            if (innerSession != null && innerSession.isSequenced() && !innerSession.acceptSequence(buf)) {
+                LogUtil.c2sMessage("丢弃重复、过期、乱序或只有确认号的udp数据包, sender:{}", packet.sender());
+                return;
+            }
 
             // 消息解码
-            M message = getGameServerRegister().decoder().decode(buf, null);
-            LogUtil.c2sMessage("读取到udp消息:" + message);
+            GameSubject subject = innerSession == null ? null : innerSession.getSubject();
+            M message = decodeMessage(buf, subject);
+            LogUtil.c2sMessage("读取到udp消息:{}", message);
 
             if (message != null) {
-                S session = null;
-                if (buildSession) {
-                    /*
-                     * 由于系统会在客户端消息到达时，创建会话对象，如果服务器不停止则不会清除，用户需要根据自己的情况决定是否清除这些数据。
-                     * 保留会话对象的原因：
-                     * 由于UDP面向无连接，如果服务端要想客户端主动推送消息，需要知道客户端的hostname和port，这些数据保存在{@link NettyUdpSession}中，以备用户之需。
-                     */
-                    Channel channel = ctx.channel();
-                    long channelId = channel2Id(channel);
-                    setChannelId(channel, channelId);
-                    NettyUdpSession innerSession = new NettyUdpSession(channel);
-                    innerSession.setId(channelId);
-                    innerSession.setPort(packet.sender().getPort());
-                    innerSession.setHostName(packet.sender().getHostName());
-                    innerSession.setEncoder((INettyMessageEncoder) getGameServerRegister().encoder());
-                    recordInnerSession(channelId, innerSession);
-
-                    session = getGameServerRegister().sessionCreator().newSession(innerSession);
-                }
-
                 // 消息分发
                 dispatchMessage(session, message);
             }
@@ -1,20 +1,23 @@
 package cn.laoshini.dk.net.server;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrameAggregator;
 import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.codec.http.websocketx.extensions.compression.WebSocketServerCompressionHandler;
+import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
-import io.netty.handler.stream.ChunkedWriteHandler;
 
 import cn.laoshini.dk.domain.GameSubject;
 import cn.laoshini.dk.exception.BusinessException;
@@ -29,6 +32,11 @@ import cn.laoshini.dk.util.LogUtil;
  */
 public class InnerNettyWebsocketGameServer<S, M> extends AbstractInnerNettyGameServer<S, M> {
 
+    /**
+     * 握手请求的最大长度
+     */
+    private static final int HANDSHAKE_MAX_CONTENT_LENGTH = 8192;
+
     private EventLoopGroup bossGroup;
 
     public InnerNettyWebsocketGameServer(GameServerRegisterAdaptor<S, M> gameServerRegister) {
@@ -40,40 +48,53 @@ public class InnerNettyWebsocketGameServer<S, M> extends AbstractInnerNettyGameS
         super.run();
 
         int port = getPort();
-        bossGroup = new NioEventLoopGroup();
-        workerGroup = new NioEventLoopGroup();
+        WebsocketGameServerRegister<S, M> register = (WebsocketGameServerRegister<S, M>) getGameServerRegister();
+        bossGroup = newAcceptorGroup("websocket-boss");
+        workerGroup = newWorkerGroup("websocket-worker");
         try {
             LogUtil.start("Websocket游戏 [{}] 开始启动...", getGameName());
             ServerBootstrap b = new ServerBootstrap();
-            b.group(bossGroup, workerGroup).channel(NioServerSocketChannel.class)
+            applyChildOptions(b);
+            b.group(bossGroup, workerGroup).channel(transport.serverChannelClass())
                     .childHandler(new ChannelInitializer<SocketChannel>() {
                         @Override
                         protected void initChannel(SocketChannel ch) throws Exception {
+                            flushConsolidationHandler(ch.pipeline());
                             idleHandler(ch.pipeline());
-                            //设置log监听器，并且日志级别为debug，方便观察运行流程
-                            ch.pipeline().addLast("logging", new LoggingHandler("DEBUG"));
+                            if (register.isWireLogging()) {
+                                // 打印每一帧的内容，仅用于调试
+                                ch.pipeline().addLast("logging", new LoggingHandler(LogLevel.DEBUG));
+                            }
                             //设置解码器
                             ch.pipeline().addLast("http-codec", new HttpServerCodec());
-                            // 聚合器，使用websocket会用到
-                            ch.pipeline().addLast("aggregator", new HttpObjectAggregator(65536));
-                            // 用于大数据的分区传输
-                            ch.pipeline().addLast("http-chunked", new ChunkedWriteHandler());
-                            // websocket服务器处理的协议，用于指定给客户端连接访问的路由："/ws"
-                            // 本handler会帮你处理一些繁重的复杂的事。会帮你处理握手动作: handshaking
-                            // 对于websocket来讲，都是以frames进行传输的，不同的数据类型对应的frames也不同。
-                            ch.pipeline().addLast(new WebSocketServerProtocolHandler("/ws"));
+                            // 聚合握手请求
+                            ch.pipeline().addLast("aggregator", new HttpObjectAggregator(HANDSHAKE_MAX_CONTENT_LENGTH));
+                            // 开启消息帧压缩时，Websocket使用标准的permessage-deflate扩展协商压缩
+                            boolean compression = register.isCompression() || register.isCompressionEnabled();
+                            if (compression) {
+                                // permessage-deflate压缩扩展，需要在协议处理器之前加入
+                                ch.pipeline().addLast("compression", new WebSocketServerCompressionHandler());
+                            }
+                            // websocket服务器处理的协议，用于指定给客户端连接访问的路由，并处理握手、ping/pong和关闭帧
+                            ch.pipeline().addLast(new WebSocketServerProtocolHandler(register.path(), null,
+                                    compression, register.maxFramePayloadLength()));
+                            // 将分片消息的续帧聚合为一个完整的帧，聚合使用分配器提供的组合缓冲，不拷贝帧内容
+                            ch.pipeline().addLast("frame-aggregator",
+                                    new WebSocketFrameAggregator(register.maxMessageLength()));
+                            inboundRateLimitHandler(ch.pipeline());
                             // 自定义的业务handler
                             ch.pipeline().addLast("handler", new WebsocketServerHandler());
+                            trafficMetricsHandler(ch.pipeline());
                         }
                     });
 
-            Channel ch = b.bind(port).sync().channel();
+            bind(b, port);
             LogUtil.start("Websocket游戏 [{}] 成功绑定端口 [{}]", getGameName(), port);
 
             // 执行游戏服启动成功后的逻辑
             serverStartsSuccessful();
 
-            ch.closeFuture().sync();
+            awaitBoundChannelsClosed();
         } catch (InterruptedException e) {
             throw new BusinessException("websocket.start.error",
                     String.format("Websocket游戏服 [%s] 启动异常", getServerConfig()));
@@ -89,16 +110,30 @@ public class InnerNettyWebsocketGameServer<S, M> extends AbstractInnerNettyGameS
         GameSubject subject = getInnerSession(channelId).getSubject();
 
         // 消息体
-        M message = getGameServerRegister().decoder().decode(msg.content(), subject);
+        M message = decodeMessage(msg.content(), subject);
 
-        LogUtil.c2sMessage("读取到websocket消息:" + message);
+        LogUtil.c2sMessage("读取到websocket消息:{}", message);
 
         // 消息分发
         dispatchMessage(channelId, message);
     }
 
+    @Override
+    protected boolean isChannelBroadcastSupported() {
+        return true;
+    }
+
+    @Override
+    protected Object broadcastFrame(ByteBuf encoded) {
+        if (((WebsocketGameServerRegister) getGameServerRegister()).isBinaryFrame()) {
+            return new BinaryWebSocketFrame(encoded);
+        }
+        return new TextWebSocketFrame(encoded);
+    }
+
     @Override
     protected void shutdown0() {
+        closeBoundChannels();
         bossGroup.shutdownGracefully();
         workerGroup.shutdownGracefully();
     }
@@ -137,11 +172,11 @@ public class InnerNettyWebsocketGameServer<S, M> extends AbstractInnerNettyGameS
         public void channelActive(ChannelHandlerContext ctx) throws Exception {
             super.channelActive(ctx);
             Channel channel = ctx.channel();
-            LogUtil.session("Websocket连接建立成功:" + channel);
+            LogUtil.session("Websocket连接建立成功:{}", channel);
 
             incrementOnline();
 
-            long channelId = channel2Id(channel);
+            long channelId = nextSessionId();
             setChannelId(channel, channelId);
             NettyWebsocketSession innerSession = new NettyWebsocketSession(channel);
             innerSession.setId(channelId);
@@ -152,6 +187,7 @@ public class InnerNettyWebsocketGameServer<S, M> extends AbstractInnerNettyGameS
 
             S session = getGameServerRegister().sessionCreator().newSession(innerSession);
             recordSession(channelId, session);
+            bindSession(channel, innerSession, session);
 
             getGameServerRegister().connectOpenedOperation().onConnected(session);
         }
@@ -159,7 +195,7 @@ public class InnerNettyWebsocketGameServer<S, M> extends AbstractInnerNettyGameS
         @Override
         public void channelInactive(ChannelHandlerContext ctx) throws Exception {
             super.channelInactive(ctx);
-            LogUtil.session("Websocket server channel channelInactive:" + ctx.channel());
+            LogUtil.session("Websocket server channel channelInactive:{}", ctx.channel());
 
             decrementOnline();
 
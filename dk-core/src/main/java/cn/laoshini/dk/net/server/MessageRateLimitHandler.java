@@ -0,0 +1,66 @@
+package cn.laoshini.dk.net.server;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+
+import cn.laoshini.dk.constant.RateLimitPolicy;
+import cn.laoshini.dk.domain.msg.IMessage;
+import cn.laoshini.dk.net.MessageHandlerHolder;
+import cn.laoshini.dk.util.LogUtil;
+
+/**
+ * 按消息id限制单个连接的请求频率，每个连接一个实例
+ * <p>
+ * 放在消息解码器之后，限制值来自Handler的{@link cn.laoshini.dk.annotation.MessageHandle#rateLimit()}配置，
+ * 只对实现了{@link IMessage}的消息生效；超过限制时，THROTTLE策略丢弃该消息，KICK策略断开连接
+ * </p>
+ *
+ * @author fagarine
+ */
+class MessageRateLimitHandler extends ChannelInboundHandlerAdapter {
+
+    private final RateLimitPolicy policy;
+
+    private final IntObjectMap<TokenBucket> buckets = new IntObjectHashMap<>();
+
+    MessageRateLimitHandler(RateLimitPolicy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof IMessage)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+
+        int messageId = ((IMessage<?>) msg).getId();
+        int rateLimit = MessageHandlerHolder.getRateLimit(messageId);
+        if (rateLimit <= 0) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(messageId);
+        if (bucket == null) {
+            bucket = new TokenBucket(rateLimit, now);
+            buckets.put(messageId, bucket);
+        }
+        if (bucket.tryAcquire(1, now) == 0L) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+
+        ReferenceCountUtil.release(msg);
+        if (RateLimitPolicy.KICK.equals(policy)) {
+            LogUtil.session("消息[{}]请求频率超过限制，断开连接:{}", messageId, ctx.channel());
+            ctx.close();
+        } else {
+            LogUtil.session("消息[{}]请求频率超过限制，丢弃消息:{}", messageId, ctx.channel());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package cn.laoshini.dk.net.server;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * Netty传输层实现选择
+ * <p>
+ * 在Linux系统且epoll本地库可用时使用{@link EpollEventLoopGroup}等epoll实现（边缘触发、支持SO_REUSEPORT，系统调用和垃圾对象更少），
+ * 否则使用JDK NIO实现；使用方只需要通过该类创建线程组和获取通道类型，不需要关心具体使用了哪种实现
+ * </p>
+ *
+ * @author fagarine
+ */
+public enum NettyTransport {
+    /**
+     * JDK NIO实现，所有平台可用
+     */
+    NIO,
+
+    /**
+     * Linux epoll本地实现
+     */
+    EPOLL,
+    ;
+
+    private static final boolean EPOLL_AVAILABLE = epollAvailable();
+
+    private static boolean epollAvailable() {
+        try {
+            return Epoll.isAvailable();
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    /**
+     * 选择传输层实现
+     *
+     * @param preferNative 是否优先使用本地实现，为true且当前系统支持epoll时返回{@link #EPOLL}
+     * @return 该方法不会返回null
+     */
+    public static NettyTransport select(boolean preferNative) {
+        return preferNative && EPOLL_AVAILABLE ? EPOLL : NIO;
+    }
+
+    /**
+     * 创建事件循环线程组
+     *
+     * @param threads 线程数，不大于0时使用Netty的默认值（CPU核数的2倍）
+     * @param threadName 线程名称前缀
+     * @return 返回新创建的线程组
+     */
+    public EventLoopGroup newEventLoopGroup(int threads, String threadName) {
+        int count = Math.max(threads, 0);
+        DefaultThreadFactory threadFactory = new DefaultThreadFactory(threadName);
+        if (this == EPOLL) {
+            return new EpollEventLoopGroup(count, threadFactory);
+        }
+        return new NioEventLoopGroup(count, threadFactory);
+    }
+
+    /**
+     * 返回线程组对应的传输层实现，用于为外部创建的线程组选择匹配的通道类型
+     *
+     * @param group 事件循环线程组
+     * @return 该方法不会返回null
+     */
+    public static NettyTransport of(EventLoopGroup group) {
+        return group instanceof EpollEventLoopGroup ? EPOLL : NIO;
+    }
+
+    public Class<? extends ServerSocketChannel> serverChannelClass() {
+        return this == EPOLL ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    public Class<? extends SocketChannel> socketChannelClass() {
+        return this == EPOLL ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    public Class<? extends DatagramChannel> datagramChannelClass() {
+        return this == EPOLL ? EpollDatagramChannel.class : NioDatagramChannel.class;
+    }
+
+    /**
+     * 是否支持SO_REUSEPORT（多个socket绑定同一端口，由内核分发连接），仅epoll实现支持
+     */
+    public boolean isReusePortSupported() {
+        return this == EPOLL;
+    }
+}
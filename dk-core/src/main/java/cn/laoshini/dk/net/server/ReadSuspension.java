@@ -0,0 +1,129 @@
+package cn.laoshini.dk.net.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+/**
+ * 连接暂停读取的统一入口
+ * <p>
+ * 限流、会话待处理消息过多、HTTP管线化请求过多等多种原因都可能暂停同一个连接的读取，如果各自直接修改autoRead，
+ * 一个原因解除时会把其他原因的暂停也一起撤销。这里在连接上按原因记录暂停状态，只有所有原因都解除后才恢复读取。
+ * </p>
+ * <p>
+ * 同一原因重复暂停或重复恢复不会重复计数；所有修改都在连接的事件循环中执行，其他线程调用时会提交到事件循环。
+ * </p>
+ *
+ * @author fagarine
+ */
+public final class ReadSuspension {
+
+    /**
+     * 记录在连接上的暂停原因，按{@link Reason}的序号存放为位标记
+     */
+    private static final AttributeKey<AtomicInteger> SUSPEND_REASONS = AttributeKey.valueOf("DK_READ_SUSPEND_REASONS");
+
+    private ReadSuspension() {
+    }
+
+    /**
+     * 暂停读取的原因
+     */
+    public enum Reason {
+        /**
+         * 连接入站流量超过限制
+         */
+        RATE_LIMIT,
+
+        /**
+         * 会话已接收但尚未执行完的消息过多
+         */
+        RECEIVE_BACKLOG,
+
+        /**
+         * 排队等待处理的HTTP管线化请求过多
+         */
+        HTTP_PIPELINE,
+        ;
+
+        private int mask() {
+            return 1 << ordinal();
+        }
+    }
+
+    /**
+     * 因指定原因暂停连接的读取
+     *
+     * @param channel 连接
+     * @param reason 暂停原因
+     */
+    public static void suspend(Channel channel, Reason reason) {
+        if (channel.eventLoop().inEventLoop()) {
+            suspend0(channel, reason);
+        } else {
+            channel.eventLoop().execute(() -> suspend0(channel, reason));
+        }
+    }
+
+    /**
+     * 解除指定原因的暂停，没有其他暂停原因时恢复读取
+     *
+     * @param channel 连接
+     * @param reason 暂停原因
+     */
+    public static void resume(Channel channel, Reason reason) {
+        if (channel.eventLoop().inEventLoop()) {
+            resume0(channel, reason);
+        } else {
+            channel.eventLoop().execute(() -> resume0(channel, reason));
+        }
+    }
+
+    /**
+     * 连接是否因指定原因暂停了读取
+     */
+    public static boolean isSuspended(Channel channel, Reason reason) {
+        AtomicInteger reasons = channel.attr(SUSPEND_REASONS).get();
+        return reasons != null && (reasons.get() & reason.mask()) != 0;
+    }
+
+    private static void suspend0(Channel channel, Reason reason) {
+        AtomicInteger reasons = reasons(channel);
+        int old = reasons.get();
+        if ((old & reason.mask()) != 0) {
+            return;
+        }
+        reasons.set(old | reason.mask());
+        if (old == 0) {
+            channel.config().setAutoRead(false);
+        }
+    }
+
+    private static void resume0(Channel channel, Reason reason) {
+        AtomicInteger reasons = channel.attr(SUSPEND_REASONS).get();
+        if (reasons == null) {
+            return;
+        }
+        int old = reasons.get();
+        if ((old & reason.mask()) == 0) {
+            return;
+        }
+        int current = old & ~reason.mask();
+        reasons.set(current);
+        if (current == 0) {
+            channel.config().setAutoRead(true);
+        }
+    }
+
+    private static AtomicInteger reasons(Channel channel) {
+        Attribute<AtomicInteger> attr = channel.attr(SUSPEND_REASONS);
+        AtomicInteger reasons = attr.get();
+        if (reasons == null) {
+            reasons = new AtomicInteger();
+            attr.set(reasons);
+        }
+        return reasons;
+    }
+}
@@ -0,0 +1,119 @@
+package cn.laoshini.dk.net.server;
+
+import io.netty.channel.Channel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.ChannelMatchers;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+import cn.laoshini.dk.net.session.AbstractSession;
+
+/**
+ * 会话组，用于房间、队伍、场景等需要向一组玩家广播消息的场景
+ * <p>
+ * 内部使用Netty的{@link ChannelGroup}记录连接，连接关闭后会自动从组中移除；通过会话组广播消息时，
+ * 消息只编码一次，组内所有连接共享编码后的缓冲。会话组由{@link AbstractInnerNettyGameServer#newSessionGroup(String)}创建，
+ * 可以在多个线程中并发使用。
+ * </p>
+ *
+ * @author fagarine
+ */
+public class SessionGroup {
+
+    private final ChannelGroup channels;
+
+    private final AbstractInnerNettyGameServer<?, ?> server;
+
+    SessionGroup(String name, AbstractInnerNettyGameServer<?, ?> server) {
+        this.channels = new DefaultChannelGroup(name, GlobalEventExecutor.INSTANCE);
+        this.server = server;
+    }
+
+    /**
+     * 将会话加入组中
+     *
+     * @param session 当康系统内部会话对象
+     * @return 如果会话已在组中或会话已断开，返回false
+     */
+    public boolean add(AbstractSession session) {
+        Channel channel = toChannel(session);
+        return channel != null && channel.isActive() && channels.add(channel);
+    }
+
+    /**
+     * 通过会话id将会话加入组中
+     *
+     * @param sessionId 会话id
+     * @return 如果会话不存在、已在组中或已断开，返回false
+     */
+    public boolean add(long sessionId) {
+        return add(server.innerSession(sessionId));
+    }
+
+    public boolean remove(AbstractSession session) {
+        Channel channel = toChannel(session);
+        return channel != null && channels.remove(channel);
+    }
+
+    public boolean remove(long sessionId) {
+        return remove(server.innerSession(sessionId));
+    }
+
+    public boolean contains(AbstractSession session) {
+        Channel channel = toChannel(session);
+        return channel != null && channels.contains(channel);
+    }
+
+    /**
+     * 向组内所有会话广播消息
+     *
+     * @param message 消息
+     * @return 返回消息写入的连接数量
+     */
+    public int broadcast(Object message) {
+        return server.broadcast(message, channels, ChannelMatchers.all());
+    }
+
+    /**
+     * 向组内除指定会话外的所有会话广播消息，如同场景内的其他玩家广播某个玩家的动作
+     *
+     * @param message 消息
+     * @param excluded 排除的会话
+     * @return 返回消息写入的连接数量
+     */
+    public int broadcastExcept(Object message, AbstractSession excluded) {
+        Channel channel = toChannel(excluded);
+        if (channel == null) {
+            return broadcast(message);
+        }
+        return server.broadcast(message, channels, ChannelMatchers.isNot(channel));
+    }
+
+    public int size() {
+        return channels.size();
+    }
+
+    public boolean isEmpty() {
+        return channels.isEmpty();
+    }
+
+    public String name() {
+        return channels.name();
+    }
+
+    public void clear() {
+        channels.clear();
+    }
+
+    private Channel toChannel(AbstractSession session) {
+        if (session != null && session.getChannel() instanceof Channel) {
+            return (Channel) session.getChannel();
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionGroup{" + "name=" + channels.name() + ", size=" + channels.size() + '}';
+    }
+}
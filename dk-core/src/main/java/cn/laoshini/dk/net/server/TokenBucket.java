@@ -0,0 +1,80 @@
+package cn.laoshini.dk.net.server;
+
+/**
+ * 令牌桶，桶容量为每秒的令牌数，即最多允许1秒的突发流量
+ * <p>
+ * 该类不是线程安全的，只能在连接所在的事件线程中使用
+ * </p>
+ *
+ * @author fagarine
+ */
+final class TokenBucket {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000D;
+
+    private final double capacity;
+
+    private final double tokensPerNano;
+
+    private double tokens;
+
+    private long lastRefillTime;
+
+    TokenBucket(int tokensPerSecond, long now) {
+        this.capacity = tokensPerSecond;
+        this.tokensPerNano = tokensPerSecond / NANOS_PER_SECOND;
+        this.tokens = tokensPerSecond;
+        this.lastRefillTime = now;
+    }
+
+    /**
+     * 尝试获取令牌
+     * <p>
+     * 单次获取数量大于桶容量时（如一条超过每秒字节限制的大消息），只要桶是满的就允许通过，不足部分记为欠额，由后续的令牌补足
+     * </p>
+     *
+     * @param permits 令牌数量
+     * @param now 当前时间（纳秒）
+     * @return 返回0表示获取成功，否则返回需要等待的纳秒数
+     */
+    long tryAcquire(long permits, long now) {
+        long waitNanos = waitNanos(permits, now);
+        if (waitNanos == 0L) {
+            take(permits);
+        }
+        return waitNanos;
+    }
+
+    /**
+     * 计算获取令牌需要等待的时间，不扣除令牌；需要同时从多个桶获取令牌时，先检查所有的桶，都满足后再分别调用{@link #take(long)}
+     *
+     * @param permits 令牌数量
+     * @param now 当前时间（纳秒）
+     * @return 返回0表示可以获取，否则返回需要等待的纳秒数
+     */
+    long waitNanos(long permits, long now) {
+        refill(now);
+        double required = Math.min(permits, capacity);
+        if (tokens >= required) {
+            return 0L;
+        }
+        return Math.max(1L, (long) Math.ceil((required - tokens) / tokensPerNano));
+    }
+
+    /**
+     * 扣除令牌，调用前应该已经通过{@link #waitNanos(long, long)}确认可以获取
+     *
+     * @param permits 令牌数量
+     */
+    void take(long permits) {
+        tokens -= permits;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillTime;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefillTime = now;
+        }
+    }
+}
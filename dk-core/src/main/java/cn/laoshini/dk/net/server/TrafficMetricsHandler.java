@@ -0,0 +1,70 @@
+package cn.laoshini.dk.net.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import cn.laoshini.dk.monitor.ServerMetrics;
+
+/**
+ * 游戏服流量统计处理器，同一个服务器的所有连接共用一个实例
+ * <p>
+ * 放在pipeline头部时统计收发的字节数，放在pipeline尾部时统计业务层写出的消息数，读取的消息数在消息分发时统计；
+ * 只做原子计数，不改变消息内容。
+ * </p>
+ *
+ * @author fagarine
+ */
+@ChannelHandler.Sharable
+class TrafficMetricsHandler extends ChannelDuplexHandler {
+
+    private final ServerMetrics metrics;
+
+    private final boolean frameLevel;
+
+    private TrafficMetricsHandler(ServerMetrics metrics, boolean frameLevel) {
+        this.metrics = metrics;
+        this.frameLevel = frameLevel;
+    }
+
+    /**
+     * 创建统计字节数的处理器，需要加在pipeline头部
+     */
+    static TrafficMetricsHandler bytes(ServerMetrics metrics) {
+        return new TrafficMetricsHandler(metrics, true);
+    }
+
+    /**
+     * 创建统计写出消息数的处理器，需要加在pipeline尾部
+     */
+    static TrafficMetricsHandler messages(ServerMetrics metrics) {
+        return new TrafficMetricsHandler(metrics, false);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (frameLevel) {
+            if (msg instanceof ByteBuf) {
+                metrics.bytesIn().mark(((ByteBuf) msg).readableBytes());
+            } else if (msg instanceof ByteBufHolder) {
+                metrics.bytesIn().mark(((ByteBufHolder) msg).content().readableBytes());
+            }
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (!frameLevel) {
+            metrics.messagesOut().mark();
+        } else if (msg instanceof ByteBuf) {
+            metrics.bytesOut().mark(((ByteBuf) msg).readableBytes());
+        } else if (msg instanceof ByteBufHolder) {
+            metrics.bytesOut().mark(((ByteBufHolder) msg).content().readableBytes());
+        }
+        ctx.write(msg, promise);
+    }
+}
@@ -1,7 +1,8 @@
 package cn.laoshini.dk.net.session;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import cn.laoshini.dk.constant.GameCodeEnum;
 import cn.laoshini.dk.domain.GameSubject;
@@ -10,24 +11,54 @@ import cn.laoshini.dk.util.CollectionUtil;
 
 /**
  * 当康系统网络连接会话对象抽象类
+ * <p>
+ * 会话id、所属主体等每条消息都会用到的数据使用独立的volatile字段保存；其他属性通过{@link SessionAttributeKey}按下标存放在数组中，
+ * 以字符串为key的属性（{@link #add(String, Object)}等方法）存放在会话自己的Map中，两类属性都可以在Netty线程和业务线程之间安全地读写
+ * </p>
  *
  * @param <T> 连接通道类型
  * @author fagarine
  */
 public abstract class AbstractSession<T> {
 
-    private static final String SESSION_ID_KEY = "SESSION ID";
-
-    private static final String GAME_SUBJECT_KEY = "GAME SUBJECT";
+    /**
+     * 属性数组的最小长度
+     */
+    private static final int MIN_ATTR_SLOTS = 8;
 
-    private static final String HTTP_CONNECT_KEY = "HTTP CONNECT";
+    /**
+     * 标记类属性的值
+     */
+    private static final Object FLAG = "";
 
-    private static final String HTTP_KEEP_ALIVE_KEY = "HTTP KEEP ALIVE";
     protected T channel;
-    private Map<String, Object> keyToAttrs = new HashMap<>();
+
+    private volatile long id;
+
+    private volatile GameSubject subject;
+
+    private volatile boolean httpConnect;
+
+    private volatile boolean httpKeepAlive;
+
+    /**
+     * 按{@link SessionAttributeKey#index()}存放的属性值，读操作不加锁，写操作和扩容在当前对象上同步
+     */
+    private volatile AtomicReferenceArray<Object> attrs;
+
+    /**
+     * 以字符串为key的属性，第一次写入时创建；字符串key可能是动态拼接的，不转换为全局唯一的{@link SessionAttributeKey}，
+     * 避免key随会话数量无限增长
+     */
+    private volatile Map<String, Object> namedAttrs;
 
     public AbstractSession(T channel) {
         this.channel = channel;
+        this.attrs = new AtomicReferenceArray<>(slotCount(SessionAttributeKey.count()));
+    }
+
+    private static int slotCount(int keyCount) {
+        return Math.max(MIN_ATTR_SLOTS, keyCount + (keyCount >> 1));
     }
 
     /**
@@ -56,6 +87,26 @@ public abstract class AbstractSession<T> {
      */
     public abstract void sendMessage(Object message);
 
+    /**
+     * 写入消息但不立即发送，消息会在调用{@link #flush()}后一起发送；适合在一个逻辑帧内向同一连接推送多条消息，
+     * 在帧结束时统一调用{@link #flush()}，多条消息只需要一次系统调用
+     * <p>
+     * 默认实现直接调用{@link #sendMessage(Object)}，不支持延迟发送的会话类型不需要重写该方法
+     * </p>
+     *
+     * @param message 消息内容
+     */
+    public void write(Object message) {
+        sendMessage(message);
+    }
+
+    /**
+     * 发送所有通过{@link #write(Object)}写入、尚未发送的消息
+     */
+    public void flush() {
+        // 默认实现中write()已直接发送消息，这里不需要做任何事
+    }
+
     /**
      * 将传入数据作为{@link RespMessage}消息的内容，拼装成一个{@link RespMessage}对象发送
      *
@@ -98,64 +149,160 @@ public abstract class AbstractSession<T> {
         return channel;
     }
 
+    /**
+     * 获取属性值
+     *
+     * @param key 属性key
+     * @param <V> 属性值类型
+     * @return 属性不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V attr(SessionAttributeKey<V> key) {
+        AtomicReferenceArray<Object> current = attrs;
+        int index = key.index();
+        return index < current.length() ? (V) current.get(index) : null;
+    }
+
+    /**
+     * 设置属性值
+     *
+     * @param key 属性key
+     * @param value 属性值，为null时等同于移除属性
+     * @param <V> 属性值类型
+     */
+    public <V> void setAttr(SessionAttributeKey<V> key, V value) {
+        int index = key.index();
+        synchronized (this) {
+            AtomicReferenceArray<Object> current = attrs;
+            if (index >= current.length()) {
+                if (value == null) {
+                    return;
+                }
+                current = grow(current, index);
+            }
+            current.set(index, value);
+        }
+    }
+
+    public boolean hasAttr(SessionAttributeKey<?> key) {
+        return attr(key) != null;
+    }
+
+    public <V> V removeAttr(SessionAttributeKey<V> key) {
+        V old = attr(key);
+        if (old != null) {
+            setAttr(key, null);
+        }
+        return old;
+    }
+
+    private AtomicReferenceArray<Object> grow(AtomicReferenceArray<Object> current, int index) {
+        AtomicReferenceArray<Object> grown = new AtomicReferenceArray<>(slotCount(index + 1));
+        for (int i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        attrs = grown;
+        return grown;
+    }
+
+    private Map<String, Object> namedAttrs() {
+        Map<String, Object> current = namedAttrs;
+        if (current == null) {
+            synchronized (this) {
+                current = namedAttrs;
+                if (current == null) {
+                    current = new ConcurrentHashMap<>();
+                    namedAttrs = current;
+                }
+            }
+        }
+        return current;
+    }
+
     public Object getAttr(String key) {
-        return keyToAttrs.get(key);
+        Map<String, Object> current = namedAttrs;
+        return current == null ? null : current.get(key);
     }
 
     public void addFlag(String key) {
-        keyToAttrs.put(key, "");
+        namedAttrs().put(key, FLAG);
     }
 
     public boolean containsAttr(String key) {
-        return keyToAttrs.containsKey(key);
+        Map<String, Object> current = namedAttrs;
+        return current != null && current.containsKey(key);
     }
 
+    /**
+     * 添加以字符串为key的属性
+     *
+     * @param key 属性key
+     * @param v 属性值，为null时等同于移除属性
+     */
     public void add(String key, Object v) {
-        keyToAttrs.put(key, v);
+        if (v == null) {
+            remove(key);
+        } else {
+            namedAttrs().put(key, v);
+        }
     }
 
     public void remove(String key) {
-        keyToAttrs.remove(key);
+        Map<String, Object> current = namedAttrs;
+        if (current != null) {
+            current.remove(key);
+        }
     }
 
     public void putAttrs(Map<String, Object> attrs) {
         if (CollectionUtil.isNotEmpty(attrs)) {
-            keyToAttrs.putAll(attrs);
+            attrs.forEach(this::add);
         }
     }
 
     public void clear() {
-        keyToAttrs.clear();
+        synchronized (this) {
+            attrs = new AtomicReferenceArray<>(attrs.length());
+            namedAttrs = null;
+        }
+        id = 0L;
+        subject = null;
+        httpConnect = false;
+        httpKeepAlive = false;
     }
 
-    public Long getId() {
-        return containsAttr(SESSION_ID_KEY) ? (Long) keyToAttrs.get(SESSION_ID_KEY) : 0L;
+    public long getId() {
+        return id;
     }
 
     public void setId(long id) {
-        keyToAttrs.put(SESSION_ID_KEY, id);
+        this.id = id;
     }
 
     public GameSubject getSubject() {
-        return (GameSubject) keyToAttrs.get(GAME_SUBJECT_KEY);
+        return subject;
     }
 
     public void setSubject(GameSubject subject) {
-        keyToAttrs.put(GAME_SUBJECT_KEY, subject);
+        this.subject = subject;
     }
 
     public boolean isHttpConnect() {
-        return containsAttr(HTTP_CONNECT_KEY);
+        return httpConnect;
     }
 
     public void setHttpConnect(boolean isKeepAlive) {
-        addFlag(HTTP_CONNECT_KEY);
+        this.httpConnect = true;
         if (isKeepAlive) {
-            addFlag(HTTP_KEEP_ALIVE_KEY);
+            this.httpKeepAlive = true;
         }
     }
 
     public boolean isHttpKeepAlive() {
-        return containsAttr(HTTP_KEEP_ALIVE_KEY);
+        return httpKeepAlive;
+    }
+
+    public void setHttpKeepAlive(boolean httpKeepAlive) {
+        this.httpKeepAlive = httpKeepAlive;
     }
 }
@@ -1,7 +1,7 @@
 package cn.laoshini.dk.net.session;
 
 import cn.laoshini.dk.executor.AbstractOrderedWorker;
-import cn.laoshini.dk.executor.OrderedQueuePoolExecutor;
+import cn.laoshini.dk.executor.IOrderedExecutor;
 import cn.laoshini.dk.util.LogUtil;
 
 /**
@@ -15,16 +15,27 @@ final class DefaultMessageSender<S extends AbstractSession, M> implements IMessa
 
     private final int coreThreads;
 
-    private final OrderedQueuePoolExecutor messageSender;
+    private final IOrderedExecutor<Long> messageSender;
 
     public DefaultMessageSender(int coreThreads) {
         this.coreThreads = coreThreads;
-        messageSender = new OrderedQueuePoolExecutor("message-sender", coreThreads, Integer.MAX_VALUE);
+        messageSender = IOrderedExecutor.newExecutor("message-sender", coreThreads, Integer.MAX_VALUE);
     }
 
     @Override
     public void send(S session, M msg) {
-        messageSender.addTask(session.getId(), new MessageSendWorker(session, msg));
+        messageSender.addTask(session.getId(), new MessageSendWorker(session, msg, true));
+    }
+
+    @Override
+    public void write(S session, M msg) {
+        messageSender.addTask(session.getId(), new MessageSendWorker(session, msg, false));
+    }
+
+    @Override
+    public void flush(S session) {
+        // 与写入消息使用同一个有序队列，保证在此之前写入的消息都已进入通道
+        messageSender.addTask(session.getId(), new MessageFlushWorker(session));
     }
 
     private class MessageSendWorker extends AbstractOrderedWorker {
@@ -33,15 +44,38 @@ final class DefaultMessageSender<S extends AbstractSession, M> implements IMessa
 
         private M msg;
 
-        public MessageSendWorker(S session, M msg) {
+        private boolean flush;
+
+        public MessageSendWorker(S session, M msg, boolean flush) {
             this.session = session;
             this.msg = msg;
+            this.flush = flush;
+        }
+
+        @Override
+        protected void action() {
+            // 池化的消息编码后会被回收，日志必须在写入通道之前记录
+            if (flush) {
+                LogUtil.s2cMessage("发送消息：{}", msg);
+                session.sendMessage(msg);
+            } else {
+                LogUtil.s2cMessage("写入消息：{}", msg);
+                session.write(msg);
+            }
+        }
+    }
+
+    private class MessageFlushWorker extends AbstractOrderedWorker {
+
+        private S session;
+
+        MessageFlushWorker(S session) {
+            this.session = session;
         }
 
         @Override
         protected void action() {
-            session.sendMessage(msg);
-            LogUtil.s2cMessage("发送消息：{}", msg);
+            session.flush();
         }
     }
 }
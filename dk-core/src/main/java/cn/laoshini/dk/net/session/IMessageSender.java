@@ -1,5 +1,7 @@
 package cn.laoshini.dk.net.session;
 
+import cn.laoshini.dk.util.LogUtil;
+
 /**
  * 消息发送接口定义类
  *
@@ -11,13 +13,38 @@ package cn.laoshini.dk.net.session;
 public interface IMessageSender<S, M> {
 
     /**
-     * 发送消息
+     * 发送消息，消息交给该方法后调用方不能再访问消息对象（池化的消息编码后会被回收复用）
      *
      * @param session 消息所属的会话对象
      * @param msg 消息
      */
     void send(S session, M msg);
 
+    /**
+     * 写入消息但不立即发送，需要在之后调用{@link #flush(Object)}发送；用于在一个逻辑帧内向同一会话推送多条消息，
+     * 帧结束时统一flush，减少系统调用次数
+     * <p>
+     * 默认实现直接调用{@link #send(Object, Object)}
+     * </p>
+     *
+     * @param session 消息所属的会话对象
+     * @param msg 消息
+     */
+    default void write(S session, M msg) {
+        send(session, msg);
+    }
+
+    /**
+     * 发送所有通过{@link #write(Object, Object)}写入、尚未发送的消息
+     *
+     * @param session 会话对象
+     */
+    default void flush(S session) {
+        if (session instanceof AbstractSession) {
+            ((AbstractSession) session).flush();
+        }
+    }
+
     /**
      * 创建并返回一个负责发送消息的默认实现对象
      *
@@ -27,4 +54,25 @@ public interface IMessageSender<S, M> {
     static IMessageSender defaultSender(int coreThreads) {
         return new DefaultMessageSender<>(coreThreads);
     }
+
+    /**
+     * 创建并返回一个直接发送消息的实现对象，消息在调用线程中直接写入连接，不经过发送线程池
+     *
+     * @return 返回一个负责发送消息的实现对象，仅适用于当康系统的会话类型
+     */
+    static IMessageSender directSender() {
+        return new IMessageSender<AbstractSession, Object>() {
+            @Override
+            public void send(AbstractSession session, Object msg) {
+                LogUtil.s2cMessage("发送消息：{}", msg);
+                session.sendMessage(msg);
+            }
+
+            @Override
+            public void write(AbstractSession session, Object msg) {
+                LogUtil.s2cMessage("写入消息：{}", msg);
+                session.write(msg);
+            }
+        };
+    }
 }
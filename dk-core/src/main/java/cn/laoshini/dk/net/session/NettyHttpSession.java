@@ -1,8 +1,10 @@
 package cn.laoshini.dk.net.session;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
@@ -10,8 +12,12 @@ import io.netty.channel.ChannelFutureListener;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
 
 import cn.laoshini.dk.net.codec.INettyMessageEncoder;
+import cn.laoshini.dk.util.LogUtil;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.CONNECTION;
 import static io.netty.handler.codec.http.HttpHeaderValues.KEEP_ALIVE;
@@ -20,18 +26,36 @@ import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
 /**
  * 对应Netty Http服务器的会话类型
+ * <p>
+ * 每个连接对应一个会话，保持连接（keep-alive）时同一连接上的多个请求复用同一个会话，会话中记录的URI、请求方法和请求头为当前正在处理的请求的信息；
+ * 每个请求使用独立的请求头快照，开始处理下一个请求时不会修改上一个请求的请求头。
+ * </p>
+ * <p>
+ * 每个请求只能响应一次，重复的响应会被丢弃，保证管线化请求的响应顺序不会错乱
+ * </p>
  *
  * @author fagarine
  */
 public class NettyHttpSession extends NettySession {
 
-    private static final String HTTP_ENCODER_KEY = "HTTP ENCODER";
+    private static final SessionAttributeKey<INettyMessageEncoder<Object>> HTTP_ENCODER_KEY = SessionAttributeKey
+            .valueOf("HTTP ENCODER");
 
     private String uri;
 
     private String method;
 
-    private Map<String, String> headers = new HashMap<>();
+    private volatile Map<String, String> headers = Collections.emptyMap();
+
+    /**
+     * 当前请求是否已响应
+     */
+    private final AtomicBoolean responded = new AtomicBoolean();
+
+    /**
+     * 响应发出后的回调，服务器用来处理同一连接上排队的下一个请求
+     */
+    private volatile Runnable responseListener;
 
     public NettyHttpSession(Channel channel, boolean isKeepAlive) {
         super(channel);
@@ -40,26 +64,95 @@ public class NettyHttpSession extends NettySession {
 
     @Override
     public void sendMessage(Object message) {
-        boolean keepAlive = isHttpKeepAlive();
+        if (!responded.compareAndSet(false, true)) {
+            LogUtil.error("HTTP请求已响应，丢弃重复的响应, session:{}, message:{}", getId(), message);
+            return;
+        }
         ByteBuf data = encoder().encode(message, getSubject());
         FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, OK, data);
         response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/octet-stream");
-        response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+        writeResponse(response);
+    }
 
+    /**
+     * 以指定状态码响应当前请求，响应不带内容；用于请求无法解码、处理超时等没有业务响应的情况
+     *
+     * @param status HTTP状态码
+     * @return 如果当前请求已响应，返回false
+     */
+    public boolean sendStatus(HttpResponseStatus status) {
+        if (!responded.compareAndSet(false, true)) {
+            return false;
+        }
+        writeResponse(new DefaultFullHttpResponse(HTTP_1_1, status));
+        return true;
+    }
+
+    private void writeResponse(FullHttpResponse response) {
+        Channel channel = this.channel;
+        if (channel == null || !channel.isActive()) {
+            response.release();
+            return;
+        }
+
+        boolean keepAlive = isHttpKeepAlive();
+        response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
         if (!keepAlive) {
             channel.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
         } else {
             response.headers().set(CONNECTION, KEEP_ALIVE);
-            channel.writeAndFlush(response);
+            channel.writeAndFlush(response, channel.voidPromise());
+            Runnable listener = responseListener;
+            if (listener != null) {
+                listener.run();
+            }
+        }
+    }
+
+    /**
+     * 开始处理连接上的一个新请求，记录请求的相关信息
+     *
+     * @param request HTTP请求
+     */
+    public void beginRequest(HttpRequest request) {
+        setHttpConnect(false);
+        setHttpKeepAlive(HttpUtil.isKeepAlive(request));
+        setUri(request.uri());
+        setMethod(request.method().name());
+        Map<String, String> snapshot = new HashMap<>(request.headers().size() * 2);
+        for (Map.Entry<String, String> entry : request.headers()) {
+            snapshot.put(entry.getKey(), entry.getValue());
         }
+        headers = Collections.unmodifiableMap(snapshot);
+        responded.set(false);
+    }
+
+    /**
+     * 当前请求是否已响应
+     */
+    public boolean isResponded() {
+        return responded.get();
+    }
+
+    public void setResponseListener(Runnable responseListener) {
+        this.responseListener = responseListener;
+    }
+
+    /**
+     * HTTP连接每个请求只对应一个响应，不支持延迟发送，直接发送消息
+     */
+    @Override
+    public void write(Object message) {
+        sendMessage(message);
     }
 
     public INettyMessageEncoder<Object> encoder() {
-        return (INettyMessageEncoder<Object>) getAttr(HTTP_ENCODER_KEY);
+        return attr(HTTP_ENCODER_KEY);
     }
 
+    @SuppressWarnings("unchecked")
     public <M> void addEncoder(INettyMessageEncoder<M> encoder) {
-        add(HTTP_ENCODER_KEY, encoder);
+        setAttr(HTTP_ENCODER_KEY, (INettyMessageEncoder<Object>) encoder);
     }
 
     public String getUri() {
@@ -78,14 +171,19 @@ public class NettyHttpSession extends NettySession {
         this.method = method;
     }
 
+    /**
+     * 返回当前请求的请求头快照，不可修改
+     */
     public Map<String, String> getHeaders() {
         return headers;
     }
 
     public void setHeaders(List<Map.Entry<String, String>> entries) {
+        Map<String, String> snapshot = new HashMap<>(headers);
         for (Map.Entry<String, String> entry : entries) {
-            headers.put(entry.getKey(), entry.getValue());
+            snapshot.put(entry.getKey(), entry.getValue());
         }
+        headers = Collections.unmodifiableMap(snapshot);
     }
 
     @Override
@@ -93,7 +191,8 @@ public class NettyHttpSession extends NettySession {
         super.clear();
         uri = null;
         method = null;
-        headers.clear();
-        headers = null;
+        headers = Collections.emptyMap();
+        responded.set(false);
+        responseListener = null;
     }
 }
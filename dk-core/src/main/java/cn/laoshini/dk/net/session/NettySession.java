@@ -38,7 +38,32 @@ public class NettySession extends AbstractSession<Channel> {
     @Override
     public void sendMessage(Object message) {
         if (channel != null && channel.isActive()) {
-            channel.writeAndFlush(message);
+            channel.writeAndFlush(toOutbound(message));
         }
     }
+
+    @Override
+    public void write(Object message) {
+        if (channel != null && channel.isActive()) {
+            // 不关心写入结果，使用voidPromise避免为每条消息创建Future对象
+            channel.write(toOutbound(message), channel.voidPromise());
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (channel != null) {
+            channel.flush();
+        }
+    }
+
+    /**
+     * 将消息转换为写入通道的对象，子类可以在这里将消息包装为对应协议的数据帧
+     *
+     * @param message 消息内容
+     * @return 返回实际写入通道的对象
+     */
+    protected Object toOutbound(Object message) {
+        return message;
+    }
 }
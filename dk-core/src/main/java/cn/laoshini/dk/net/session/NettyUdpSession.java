@@ -1,33 +1,283 @@
 package cn.laoshini.dk.net.session;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.socket.DatagramPacket;
 
 import cn.laoshini.dk.net.codec.INettyMessageEncoder;
+import cn.laoshini.dk.util.LogUtil;
 
 /**
  * 对应Netty Udp服务器的会话类型
+ * <p>
+ * UDP服务器的所有客户端共用同一个通道，会话以客户端地址区分；关闭会话只清除会话数据，不会关闭共用的通道。
+ * </p>
+ * <p>
+ * 开启序号模式后，收发的每个数据包前都带有包头：序号（int） + 确认号（int）。序号由发送方递增，
+ * 接收方丢弃序号不大于已收到的最大序号的包（重复包和乱序到达的过期包），确认号为发送方已收到的对方的最大序号；
+ * 该模式适合移动同步这类只关心最新状态的消息，只负责去重和丢弃过期包，不提供确认重传。
+ * 序号在通道的事件线程中分配，保证数据包发出的顺序与序号的顺序一致。
+ * </p>
+ * <p>
+ * 可靠模式在序号模式的基础上按序确认和重传（回退N帧）：接收方只接受序号紧接已收到序号的包，确认号表示该序号及之前的包都已收到；
+ * 发送方保留已发出但未确认的包，超过重传超时时间仍未确认时，按顺序重发所有未确认的包，重传次数超过上限后放弃。
+ * 没有数据需要发送时，以只有包头的数据包回复确认，只有包头的包不需要确认。
+ * </p>
+ * <p>
+ * 会话关闭后发送的消息直接丢弃。
+ * </p>
  *
  * @author fagarine
  */
 public class NettyUdpSession extends NettySession {
+    /**
+     * 序号模式下的包头长度：序号 + 确认号
+     */
+    public static final int SEQUENCE_HEADER_BYTES = Integer.BYTES * 2;
+
+    /**
+     * 可靠模式下单个数据包的最大重传次数，超过后放弃所有未确认的包
+     */
+    public static final int MAX_RETRANSMITS = 10;
+
     private INettyMessageEncoder<Object> encoder;
     private String hostName;
     private int port;
+    private volatile InetSocketAddress recipient;
+
+    /**
+     * 最后一次收到数据包的时间，用于清除空闲会话
+     */
+    private volatile long lastReadTime = System.currentTimeMillis();
+
+    private volatile boolean sequenced;
+    /**
+     * 本方最后一次发送使用的序号，只在通道的事件线程中修改
+     */
+    private final AtomicInteger sendSequence = new AtomicInteger();
+    /**
+     * 已收到的对方的最大序号，只在通道的事件线程中修改
+     */
+    private volatile int receivedSequence;
+    private volatile boolean received;
+    /**
+     * 对方确认收到的本方最大序号
+     */
+    private volatile int ackedSequence;
+
+    private volatile boolean reliable;
+    /**
+     * 可靠模式下的重传超时时间（毫秒）
+     */
+    private long retransmitTimeout;
+    /**
+     * 可靠模式下已发出但未确认的包，按序号排列；会话可能在其他线程中清除，访问时需要同步
+     */
+    private final Deque<PendingPacket> unacked = new ArrayDeque<>();
+    /**
+     * 可靠模式下，是否有收到的包还没有回复确认
+     */
+    private boolean ackRequired;
 
     public NettyUdpSession(Channel channel) {
         super(channel);
     }
 
+    @Override
+    public String getIp() {
+        InetSocketAddress address = recipient();
+        return address == null ? null : address.getAddress().getHostAddress();
+    }
+
+    @Override
+    public void close() {
+        // 通道由所有客户端共用，不能关闭
+        channel = null;
+        clear();
+    }
+
     @Override
     public void sendMessage(Object message) {
-        ByteBuf byteBuf = encoder.encode(message, getSubject());
-        InetSocketAddress address = new InetSocketAddress(hostName, port);
-        DatagramPacket packet = new DatagramPacket(byteBuf, address);
-        super.sendMessage(packet);
+        send(message, true);
+    }
+
+    @Override
+    public void write(Object message) {
+        send(message, false);
+    }
+
+    @Override
+    public void flush() {
+        Channel ch = channel;
+        if (ch != null) {
+            ch.flush();
+        }
+    }
+
+    /**
+     * 会话可能在其他线程中被关闭，这里只读取一次通道、编码器和地址，会话已关闭时丢弃消息
+     */
+    private void send(Object message, boolean flush) {
+        Channel ch = channel;
+        INettyMessageEncoder<Object> enc = encoder;
+        InetSocketAddress address = recipient();
+        if (ch == null || enc == null || address == null || !ch.isActive()) {
+            return;
+        }
+
+        ByteBuf content = enc.encode(message, getSubject());
+        if (!sequenced) {
+            writePacket(ch, new DatagramPacket(content, address), flush);
+        } else if (ch.eventLoop().inEventLoop()) {
+            writeSequenced(ch, content, address, flush);
+        } else {
+            ch.eventLoop().execute(() -> writeSequenced(ch, content, address, flush));
+        }
+    }
+
+    private void writeSequenced(Channel ch, ByteBuf content, InetSocketAddress address, boolean flush) {
+        int sequence = sendSequence.incrementAndGet();
+        if (reliable) {
+            synchronized (unacked) {
+                unacked.addLast(new PendingPacket(sequence, content.retainedDuplicate(), System.currentTimeMillis()));
+            }
+            // 确认号随数据包一起发出
+            ackRequired = false;
+        }
+        writePacket(ch, newSequencedPacket(ch, sequence, content, address), flush);
+    }
+
+    private DatagramPacket newSequencedPacket(Channel ch, int sequence, ByteBuf content, InetSocketAddress address) {
+        ByteBuf header = ch.alloc().ioBuffer(SEQUENCE_HEADER_BYTES);
+        header.writeInt(sequence);
+        header.writeInt(receivedSequence);
+        if (content == null) {
+            return new DatagramPacket(header, address);
+        }
+        CompositeByteBuf packet = ch.alloc().compositeDirectBuffer(2);
+        return new DatagramPacket(packet.addComponents(true, header, content), address);
+    }
+
+    /**
+     * 可靠模式下重发超时未确认的包，并为没有随数据包发出的确认回复只有包头的包；只能在通道的事件线程中定时调用
+     *
+     * @param now 当前时间（毫秒）
+     */
+    public void retransmit(long now) {
+        Channel ch = channel;
+        InetSocketAddress address = recipient();
+        if (!reliable || ch == null || address == null || !ch.isActive()) {
+            return;
+        }
+
+        boolean written = false;
+        synchronized (unacked) {
+            PendingPacket oldest = unacked.peekFirst();
+            if (oldest != null && now - oldest.sentTime >= retransmitTimeout) {
+                if (oldest.attempts >= MAX_RETRANSMITS) {
+                    LogUtil.session("udp会话[{}]的数据包[{}]重传{}次仍未确认，放弃{}个未确认的包", getId(), oldest.sequence,
+                            oldest.attempts, unacked.size());
+                    releaseUnacked();
+                } else {
+                    // 接收方只接受连续的序号，从最早的未确认包开始按顺序全部重发
+                    for (PendingPacket pending : unacked) {
+                        pending.sentTime = now;
+                        pending.attempts++;
+                        ByteBuf content = pending.content.retainedDuplicate();
+                        ch.write(newSequencedPacket(ch, pending.sequence, content, address), ch.voidPromise());
+                    }
+                    ackRequired = false;
+                    written = true;
+                }
+            }
+        }
+
+        if (ackRequired) {
+            ackRequired = false;
+            // 只有包头的包使用最后发出的序号，接收方按重复包丢弃，只读取其中的确认号
+            ch.write(newSequencedPacket(ch, sendSequence.get(), null, address), ch.voidPromise());
+            written = true;
+        }
+        if (written) {
+            ch.flush();
+        }
+    }
+
+    private void releaseUnacked() {
+        PendingPacket pending;
+        while ((pending = unacked.pollFirst()) != null) {
+            pending.content.release();
+        }
+    }
+
+    private void writePacket(Channel ch, DatagramPacket packet, boolean flush) {
+        if (flush) {
+            ch.writeAndFlush(packet);
+        } else {
+            ch.write(packet, ch.voidPromise());
+        }
+    }
+
+    /**
+     * 读取序号模式的包头，并判断数据包是否应该处理，只能在通道的事件线程中调用
+     *
+     * @param content 数据包内容，读取后读索引位于包头之后
+     * @return 如果是重复、过期、乱序（可靠模式）或只有包头的包，返回false
+     */
+    public boolean acceptSequence(ByteBuf content) {
+        if (content.readableBytes() < SEQUENCE_HEADER_BYTES) {
+            return false;
+        }
+        int sequence = content.readInt();
+        int ack = content.readInt();
+        // 序号允许溢出回绕，使用差值比较新旧
+        if (ack - ackedSequence > 0) {
+            ackedSequence = ack;
+            if (reliable) {
+                removeAcked(ack);
+            }
+        }
+
+        // 只有包头的包只携带确认号，不需要处理，也不需要回复确认
+        if (!content.isReadable()) {
+            return false;
+        }
+
+        if (reliable) {
+            ackRequired = true;
+            // 只接受连续的序号，乱序到达的包丢弃后等待对方重传
+            if (received && sequence != receivedSequence + 1) {
+                return false;
+            }
+        } else if (received && sequence - receivedSequence <= 0) {
+            return false;
+        }
+        receivedSequence = sequence;
+        received = true;
+        return true;
+    }
+
+    private void removeAcked(int ack) {
+        synchronized (unacked) {
+            PendingPacket pending;
+            while ((pending = unacked.peekFirst()) != null && pending.sequence - ack <= 0) {
+                unacked.pollFirst();
+                pending.content.release();
+            }
+        }
+    }
+
+    private InetSocketAddress recipient() {
+        if (recipient == null && hostName != null) {
+            recipient = new InetSocketAddress(hostName, port);
+        }
+        return recipient;
     }
 
     public void setEncoder(INettyMessageEncoder<Object> encoder) {
@@ -36,10 +286,77 @@ public class NettyUdpSession extends NettySession {
 
     public void setHostName(String hostName) {
         this.hostName = hostName;
+        this.recipient = null;
     }
 
     public void setPort(int port) {
         this.port = port;
+        this.recipient = null;
+    }
+
+    /**
+     * 设置客户端地址，直接使用收到的数据包的发送方地址，避免每次发送消息时创建地址对象和解析主机名
+     *
+     * @param recipient 客户端地址
+     */
+    public void setRecipient(InetSocketAddress recipient) {
+        this.recipient = recipient;
+        this.hostName = recipient.getHostString();
+        this.port = recipient.getPort();
+    }
+
+    public void setSequenced(boolean sequenced) {
+        this.sequenced = sequenced;
+    }
+
+    public boolean isSequenced() {
+        return sequenced;
+    }
+
+    /**
+     * 设置可靠模式，可靠模式需要同时开启序号模式
+     *
+     * @param reliable 是否开启
+     * @param retransmitTimeout 重传超时时间（毫秒）
+     */
+    public void setReliable(boolean reliable, long retransmitTimeout) {
+        this.reliable = reliable;
+        this.retransmitTimeout = retransmitTimeout;
+    }
+
+    public boolean isReliable() {
+        return reliable;
+    }
+
+    /**
+     * 返回可靠模式下已发出但未确认的包的数量
+     */
+    public int getUnackedCount() {
+        synchronized (unacked) {
+            return unacked.size();
+        }
+    }
+
+    /**
+     * 返回对方确认收到的本方最大序号
+     */
+    public int getAckedSequence() {
+        return ackedSequence;
+    }
+
+    /**
+     * 返回本方最后一次发送使用的序号
+     */
+    public int getSendSequence() {
+        return sendSequence.get();
+    }
+
+    public void touch() {
+        lastReadTime = System.currentTimeMillis();
+    }
+
+    public long getLastReadTime() {
+        return lastReadTime;
     }
 
     @Override
@@ -49,5 +366,39 @@ public class NettyUdpSession extends NettySession {
         encoder = null;
         hostName = null;
         port = 0;
+        recipient = null;
+        sequenced = false;
+        sendSequence.set(0);
+        receivedSequence = 0;
+        received = false;
+        ackedSequence = 0;
+        reliable = false;
+        ackRequired = false;
+        synchronized (unacked) {
+            releaseUnacked();
+        }
+    }
+
+    /**
+     * 可靠模式下已发出但未确认的包
+     */
+    private static final class PendingPacket {
+
+        private final int sequence;
+
+        /**
+         * 数据包内容（不含包头），重发时使用其副本
+         */
+        private final ByteBuf content;
+
+        private long sentTime;
+
+        private int attempts;
+
+        private PendingPacket(int sequence, ByteBuf content, long sentTime) {
+            this.sequence = sequence;
+            this.content = content;
+            this.sentTime = sentTime;
+        }
     }
 }
@@ -22,7 +22,7 @@ public class NettyWebsocketSession extends NettySession {
     }
 
     @Override
-    public void sendMessage(Object message) {
+    protected Object toOutbound(Object message) {
         ByteBuf byteBuf = encoder.encode(message, getSubject());
         WebSocketFrame frame;
         if (binaryFrame) {
@@ -30,7 +30,7 @@ public class NettyWebsocketSession extends NettySession {
         } else {
             frame = new TextWebSocketFrame(byteBuf);
         }
-        super.sendMessage(frame);
+        return frame;
     }
 
     public void setEncoder(INettyMessageEncoder<Object> encoder) {
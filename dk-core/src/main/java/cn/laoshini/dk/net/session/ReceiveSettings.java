@@ -0,0 +1,171 @@
+package cn.laoshini.dk.net.session;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import io.netty.channel.Channel;
+
+import cn.laoshini.dk.common.SpringContextHolder;
+import cn.laoshini.dk.constant.MessageOverflowPolicy;
+import cn.laoshini.dk.executor.IOrderedExecutor;
+import cn.laoshini.dk.util.LogUtil;
+
+/**
+ * 消息接收配置，所有消息接收分发逻辑（游戏服自动配置的默认分发、dk-game-core的消息分发）共用同一组配置项：
+ * <ul>
+ * <li>dk.message.receive.threads: 线程数量，默认为CPU核心数</li>
+ * <li>dk.message.receive.max-queue-size: 单个任务队列的最大长度，默认不限制</li>
+ * <li>dk.message.receive.session-limit: 单个会话的待处理消息上限，默认为0，表示不限制</li>
+ * <li>dk.message.receive.session-resume: 暂停读取后，待处理消息降到多少时恢复读取，默认为上限的一半</li>
+ * <li>dk.message.receive.overflow-policy: 会话待处理消息达到上限时的处理策略，参见{@link MessageOverflowPolicy}，默认为pause-read</li>
+ * <li>dk.message.receive.parallel-threads: 无序消息线程池的线程数量，默认为CPU核心数</li>
+ * </ul>
+ *
+ * @author fagarine
+ */
+public final class ReceiveSettings {
+
+    public static final String THREADS_KEY = "dk.message.receive.threads";
+
+    public static final String MAX_QUEUE_SIZE_KEY = "dk.message.receive.max-queue-size";
+
+    public static final String SESSION_LIMIT_KEY = "dk.message.receive.session-limit";
+
+    public static final String SESSION_RESUME_KEY = "dk.message.receive.session-resume";
+
+    public static final String OVERFLOW_POLICY_KEY = "dk.message.receive.overflow-policy";
+
+    public static final String PARALLEL_THREADS_KEY = "dk.message.receive.parallel-threads";
+
+    /**
+     * 记录在会话上的消息接收状态
+     */
+    private static final SessionAttributeKey<ReceiveState> RECEIVE_STATE = SessionAttributeKey
+            .valueOf("DK_RECEIVE_STATE");
+
+    private final int threads;
+
+    private final int maxQueueSize;
+
+    private final int sessionLimit;
+
+    private final int sessionResume;
+
+    private final MessageOverflowPolicy overflowPolicy;
+
+    private final int parallelThreads;
+
+    private ReceiveSettings(int threads, int maxQueueSize, int sessionLimit, int sessionResume,
+            MessageOverflowPolicy overflowPolicy, int parallelThreads) {
+        this.threads = threads;
+        this.maxQueueSize = maxQueueSize;
+        this.sessionLimit = Math.max(sessionLimit, 0);
+        this.sessionResume =
+                sessionResume < 0 || sessionResume >= this.sessionLimit ? this.sessionLimit / 2 : sessionResume;
+        this.overflowPolicy = overflowPolicy;
+        this.parallelThreads = Math.max(parallelThreads, 1);
+    }
+
+    /**
+     * 从配置项中读取消息接收配置，Spring容器未初始化时使用默认值
+     *
+     * @return 该方法不会返回null
+     */
+    public static ReceiveSettings load() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxQueueSize = Integer.MAX_VALUE;
+        int sessionLimit = 0;
+        int sessionResume = -1;
+        String policy = null;
+        int parallelThreads = threads;
+        if (SpringContextHolder.isInitialized()) {
+            threads = SpringContextHolder.getIntProperty(THREADS_KEY, threads);
+            maxQueueSize = SpringContextHolder.getIntProperty(MAX_QUEUE_SIZE_KEY, maxQueueSize);
+            sessionLimit = SpringContextHolder.getIntProperty(SESSION_LIMIT_KEY, sessionLimit);
+            sessionResume = SpringContextHolder.getIntProperty(SESSION_RESUME_KEY, sessionResume);
+            policy = SpringContextHolder.getStringProperty(OVERFLOW_POLICY_KEY, null);
+            parallelThreads = SpringContextHolder.getIntProperty(PARALLEL_THREADS_KEY, parallelThreads);
+        }
+        return new ReceiveSettings(threads, maxQueueSize, sessionLimit, sessionResume,
+                MessageOverflowPolicy.of(policy, MessageOverflowPolicy.PAUSE_READ), parallelThreads);
+    }
+
+    /**
+     * 按配置创建有序消息线程池
+     *
+     * @param name 线程池名称
+     * @return 该方法不会返回null
+     */
+    public IOrderedExecutor<Long> newOrderedExecutor(String name) {
+        return IOrderedExecutor.newExecutor(name, threads, maxQueueSize);
+    }
+
+    /**
+     * 按配置创建不需要按顺序执行的消息使用的工作窃取线程池
+     *
+     * @param name 线程名称前缀
+     * @return 该方法不会返回null
+     */
+    public ForkJoinPool newParallelExecutor(String name) {
+        return new ForkJoinPool(parallelThreads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(name + "-" + thread.getPoolIndex());
+            return thread;
+        }, (t, e) -> LogUtil.error(String.format("无序消息线程[%s]执行出错", t.getName()), e), true);
+    }
+
+    /**
+     * 获取会话的消息接收状态，不存在时创建
+     *
+     * @param session 会话
+     * @return 未开启会话级别限制，或会话不是Netty连接时返回null
+     */
+    public ReceiveState receiveState(AbstractSession session) {
+        if (sessionLimit <= 0 || !(session.getChannel() instanceof Channel)) {
+            return null;
+        }
+
+        ReceiveState state = session.attr(RECEIVE_STATE);
+        if (state == null) {
+            synchronized (session) {
+                state = session.attr(RECEIVE_STATE);
+                if (state == null) {
+                    state = new ReceiveState(this, session.getId(), (Channel) session.getChannel());
+                    session.setAttr(RECEIVE_STATE, state);
+                }
+            }
+        }
+        return state;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public int getSessionLimit() {
+        return sessionLimit;
+    }
+
+    public int getSessionResume() {
+        return sessionResume;
+    }
+
+    public MessageOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public int getParallelThreads() {
+        return parallelThreads;
+    }
+
+    @Override
+    public String toString() {
+        return "ReceiveSettings{" + "threads=" + threads + ", maxQueueSize=" + maxQueueSize + ", sessionLimit="
+               + sessionLimit + ", sessionResume=" + sessionResume + ", overflowPolicy=" + overflowPolicy
+               + ", parallelThreads=" + parallelThreads + '}';
+    }
+}
@@ -0,0 +1,151 @@
+package cn.laoshini.dk.net.session;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.netty.channel.Channel;
+import io.netty.channel.socket.DatagramChannel;
+
+import cn.laoshini.dk.constant.MessageOverflowPolicy;
+import cn.laoshini.dk.net.server.ReadSuspension;
+import cn.laoshini.dk.util.LogUtil;
+
+/**
+ * 单个会话的消息接收状态，记录该会话已接收但尚未执行完的消息数量，用于实现会话级别的反压
+ * <p>
+ * 待处理消息按会话计数；UDP的所有会话共用一个通道，暂停读取会影响所有玩家，所以UDP会话达到上限时，pause-read策略按reject处理
+ * </p>
+ *
+ * @author fagarine
+ * @see ReceiveSettings#receiveState(AbstractSession)
+ */
+public final class ReceiveState {
+
+    private final long sessionId;
+
+    private final Channel channel;
+
+    private final int sessionLimit;
+
+    private final int sessionResume;
+
+    private final MessageOverflowPolicy overflowPolicy;
+
+    /**
+     * 达到上限时是否暂停读取，UDP会话共用通道，不能暂停读取
+     */
+    private final boolean pauseRead;
+
+    /**
+     * 已接收但尚未执行完的消息数量
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * 尚未开始执行的消息，仅在{@link MessageOverflowPolicy#DROP_OLDEST}策略下使用
+     */
+    private final Queue<Runnable> workers;
+
+    /**
+     * 是否已暂停读取，只在连接的事件循环中修改
+     */
+    private final AtomicBoolean readPaused = new AtomicBoolean();
+
+    ReceiveState(ReceiveSettings settings, long sessionId, Channel channel) {
+        this.sessionId = sessionId;
+        this.channel = channel;
+        this.sessionLimit = settings.getSessionLimit();
+        this.sessionResume = settings.getSessionResume();
+        this.overflowPolicy = settings.getOverflowPolicy();
+        this.pauseRead = overflowPolicy == MessageOverflowPolicy.PAUSE_READ && !(channel instanceof DatagramChannel);
+        this.workers = overflowPolicy == MessageOverflowPolicy.DROP_OLDEST ? new ConcurrentLinkedQueue<>() : null;
+    }
+
+    /**
+     * 接收一条消息，在连接的事件循环中调用
+     *
+     * @param worker 消息任务
+     * @return 消息被拒绝时返回false，调用方应该向客户端返回队列已满的错误
+     */
+    public boolean accept(Runnable worker) {
+        int count = pending.incrementAndGet();
+        switch (overflowPolicy) {
+            case REJECT:
+                if (count > sessionLimit) {
+                    pending.decrementAndGet();
+                    return false;
+                }
+                break;
+
+            case DROP_OLDEST:
+                if (count > sessionLimit) {
+                    Runnable oldest = workers.poll();
+                    if (oldest != null) {
+                        pending.decrementAndGet();
+                        LogUtil.error("会话[{}]待处理消息达到上限，丢弃最早的消息:{}", sessionId, oldest);
+                    }
+                }
+                workers.offer(worker);
+                break;
+
+            default:
+                if (!pauseRead) {
+                    // UDP会话不能暂停读取，超过上限的消息直接拒绝
+                    if (count > sessionLimit) {
+                        pending.decrementAndGet();
+                        return false;
+                    }
+                    break;
+                }
+                // 已读取的消息仍然接收，只是暂停读取后续数据，由TCP流量控制反压到客户端；本方法在连接的事件循环中调用
+                if (count >= sessionLimit && readPaused.compareAndSet(false, true)) {
+                    ReadSuspension.suspend(channel, ReadSuspension.Reason.RECEIVE_BACKLOG);
+                }
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * 消息开始执行前调用，获取执行权
+     *
+     * @param worker 消息任务
+     * @return 如果消息已被丢弃，返回false
+     */
+    public boolean claim(Runnable worker) {
+        return workers == null || workers.remove(worker);
+    }
+
+    /**
+     * 消息执行完成后调用
+     */
+    public void release() {
+        int count = pending.decrementAndGet();
+        if (count <= sessionResume && readPaused.get()) {
+            // 在连接的事件循环中恢复读取，与暂停操作串行执行
+            channel.eventLoop().execute(this::tryResume);
+        }
+    }
+
+    /**
+     * 已接收的消息没能加入执行队列时调用，撤销{@link #accept(Runnable)}的计数
+     *
+     * @param worker 消息任务
+     */
+    public void cancel(Runnable worker) {
+        if (claim(worker)) {
+            release();
+        }
+    }
+
+    /**
+     * 在连接的事件循环中执行，重新检查待处理数量，避免提交恢复任务之后又发生的暂停被这里撤销
+     */
+    private void tryResume() {
+        if (pending.get() <= sessionResume && readPaused.compareAndSet(true, false)) {
+            ReadSuspension.resume(channel, ReadSuspension.Reason.RECEIVE_BACKLOG);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package cn.laoshini.dk.net.session;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 会话属性的key，用法与Netty的AttributeKey类似
+ * <p>
+ * 同名的key全局唯一，每个key在创建时分配一个递增的下标，会话按下标将属性值存放在数组中，读取属性时不需要计算hash和比较字符串；
+ * key应该作为常量定义并复用，不要在每次读写属性时重新获取。创建的key不会被回收，名称不固定（如拼接了玩家id）的属性
+ * 应该使用会话以字符串为key的属性方法（如{@link AbstractSession#add(String, Object)}）。
+ * </p>
+ *
+ * @param <T> 属性值的类型
+ * @author fagarine
+ */
+public final class SessionAttributeKey<T> {
+
+    private static final ConcurrentMap<String, SessionAttributeKey<?>> KEYS = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger NEXT_INDEX = new AtomicInteger();
+
+    private final String name;
+
+    private final int index;
+
+    private SessionAttributeKey(String name, int index) {
+        this.name = name;
+        this.index = index;
+    }
+
+    /**
+     * 获取名称对应的key，不存在时创建；只应该用于定义常量
+     *
+     * @param name 属性名称
+     * @param <T> 属性值的类型
+     * @return 该方法不会返回null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> SessionAttributeKey<T> valueOf(String name) {
+        SessionAttributeKey<?> key = KEYS.get(name);
+        if (key == null) {
+            key = KEYS.computeIfAbsent(name, k -> new SessionAttributeKey<>(k, NEXT_INDEX.getAndIncrement()));
+        }
+        return (SessionAttributeKey<T>) key;
+    }
+
+    /**
+     * 返回当前已创建的key的数量，用于预估会话属性数组的大小
+     */
+    static int count() {
+        return NEXT_INDEX.get();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    int index() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,67 @@
+package cn.laoshini.dk.net.session;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 会话id分配器
+ * <p>
+ * 会话id由服务器id和单调递增的序号组成：高23位为服务器id，低40位为序号，同一服务器内不会重复，不同服务器之间也不会重复；
+ * 分配id只需要一次原子自增，不依赖连接的地址，NAT后的多个客户端也不会得到相同的id
+ * </p>
+ *
+ * @author fagarine
+ */
+public final class SessionIdAllocator {
+
+    /**
+     * 序号占用的位数
+     */
+    private static final int SEQUENCE_BITS = 40;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /**
+     * 支持的最大服务器id，保证生成的id为正数
+     */
+    public static final int MAX_SERVER_ID = (1 << (Long.SIZE - 1 - SEQUENCE_BITS)) - 1;
+
+    private final long prefix;
+
+    private final AtomicLong sequence;
+
+    public SessionIdAllocator(int serverId) {
+        this(serverId, 0L);
+    }
+
+    /**
+     * @param serverId 服务器id
+     * @param lastSequence 最后一次分配的序号，下一次分配从该序号之后开始，用于测试序号回绕
+     */
+    SessionIdAllocator(int serverId, long lastSequence) {
+        if (serverId < 0 || serverId > MAX_SERVER_ID) {
+            throw new IllegalArgumentException(String.format("服务器id超出会话id支持的范围[0, %d]: %d", MAX_SERVER_ID, serverId));
+        }
+        this.prefix = (long) serverId << SEQUENCE_BITS;
+        this.sequence = new AtomicLong(lastSequence);
+    }
+
+    /**
+     * 分配一个新的会话id
+     *
+     * @return 返回正整数
+     */
+    public long next() {
+        long seq = sequence.incrementAndGet() & SEQUENCE_MASK;
+        return prefix | (seq == 0 ? sequence.incrementAndGet() & SEQUENCE_MASK : seq);
+    }
+
+    /**
+     * 从会话id中解析出服务器id
+     *
+     * @param sessionId 会话id
+     * @return 返回分配该id的服务器id
+     */
+    public static int serverIdOf(long sessionId) {
+        return (int) (sessionId >>> SEQUENCE_BITS);
+    }
+}
@@ -4,14 +4,18 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
+import java.util.zip.Deflater;
 
 import com.google.protobuf.ExtensionRegistry;
 import com.google.protobuf.MessageLite;
 
 import cn.laoshini.dk.constant.GameServerProtocolEnum;
+import cn.laoshini.dk.constant.MessageExecuteModel;
+import cn.laoshini.dk.constant.RateLimitPolicy;
 import cn.laoshini.dk.constant.ServerType;
 import cn.laoshini.dk.domain.GameServerConfig;
 import cn.laoshini.dk.exception.BusinessException;
+import cn.laoshini.dk.net.codec.CompressionDictionaryTrainer;
 import cn.laoshini.dk.net.codec.INettyMessageDecoder;
 import cn.laoshini.dk.net.codec.INettyMessageEncoder;
 import cn.laoshini.dk.net.connect.IConnectClosedHandler;
@@ -50,6 +54,23 @@ public class GameServerRegisterAdaptor<S, M> implements IGameServerRegister<S, M
     private GameServerProtocolEnum protocol = GameServerProtocolEnum.TCP;
     private int idleTime;
     private boolean tcpNoDelay;
+    private MessageExecuteModel executeModel = MessageExecuteModel.POOLED;
+    private boolean nativeTransport = true;
+    private boolean reusePort;
+    private int acceptorThreads = 1;
+    private int workerThreads;
+    private int receiveBufferSize;
+    private int sendBufferSize;
+    private int writeBufferLowWaterMark;
+    private int writeBufferHighWaterMark;
+    private int flushConsolidation;
+    private int rateLimitBytes;
+    private int rateLimitMessages;
+    private RateLimitPolicy rateLimitPolicy;
+    private int compressionThreshold;
+    private int compressionLevel = Deflater.BEST_SPEED;
+    private byte[] compressionDictionary;
+    private CompressionDictionaryTrainer compressionSampler;
     private ServerType serverType = ServerType.GAME;
     private List<IGameDataLoader> dataLoaders = new ArrayList<>();
     private ISessionCreator<S> sessionCreator;
@@ -320,6 +341,159 @@ public class GameServerRegisterAdaptor<S, M> implements IGameServerRegister<S, M
         return self();
     }
 
+    /**
+     * 设置消息执行模型，默认为{@link MessageExecuteModel#POOLED}
+     *
+     * @param executeModel 消息执行模型
+     * @return 返回当前对象
+     */
+    public GameServerRegisterAdaptor<S, M> setExecuteModel(MessageExecuteModel executeModel) {
+        if (executeModel != null) {
+            this.executeModel = executeModel;
+        }
+        return self();
+    }
+
+    /**
+     * 设置是否优先使用本地传输实现（Linux下的epoll），默认为true，当前系统不支持时自动使用NIO实现
+     *
+     * @param nativeTransport 是否优先使用本地传输实现
+     * @return 返回当前对象
+     */
+    public GameServerRegisterAdaptor<S, M> setNativeTransport(boolean nativeTransport) {
+        this.nativeTransport = nativeTransport;
+        return self();
+    }
+
+    /**
+     * 开启SO_REUSEPORT，按接收线程数量多次绑定同一端口，由内核在多个socket之间分发连接，仅在使用epoll时有效
+     *
+     * @return 返回当前对象
+     */
+    public GameServerRegisterAdaptor<S, M> setReusePort() {
+        this.reusePort = true;
+        return self();
+    }
+
+    /**
+     * 设置Netty事件循环的线程数
+     *
+     * @param acceptorThreads 接收连接的线程数，不大于0时使用1个线程
+     * @param workerThreads 处理读写的线程数，不大于0时使用Netty的默认值（CPU核数的2倍）
+     * @return 返回当前对象
+     */
+    public GameServerRegisterAdaptor<S, M> setEventLoopThreads(int acceptorThreads, int workerThreads) {
+        this.acceptorThreads = Math.max(acceptorThreads, 1);
+        this.workerThreads = workerThreads;
+        return self();
+    }
+
+    /**
+     * 设置连接的socket缓冲区大小（SO_RCVBUF、SO_SNDBUF），不大于0的值表示使用操作系统的默认值（可自动调节）
+     *
+     * @param receiveBufferSize 接收缓冲区字节数
+     * @param sendBufferSize 发送缓冲区字节数
+     * @return 返回当前对象
+     */
+    public GameServerRegisterAdaptor<S, M> setSocketBufferSize(int receiveBufferSize, int sendBufferSize) {
+        this.receiveBufferSize = receiveBufferSize;
+        this.sendBufferSize = sendBufferSize;
+        return self();
+    }
+
+    /**
+     * 设置连接写缓冲的高低水位线，待写出字节数超过高水位线时通道变为不可写，降到低水位线以下后恢复可写
+     *
+     * @param low 低水位线字节数
+     * @param high 高水位线字节数
+     * @return 返回当前对象
+     */
+    public GameServerRegisterAdaptor<S, M> setWriteBufferWaterMark(int low, int high) {
+        if (low < 0 || high < low) {
+            throw new IllegalArgumentException(String.format("写缓冲水位线设置错误, low:%d, high:%d", low, high));
+        }
+        this.writeBufferLowWaterMark = low;
+        this.writeBufferHighWaterMark = high;
+        return self();
+    }
+
+    /**
+     * 开启写出合并：同一连接上连续的多次flush合并为一次系统调用（使用Netty的FlushConsolidationHandler），
+     * 不在读取过程中的flush会延迟到事件循环的下一个任务中执行，从而与同一批次到达的其他消息一起发送；
+     * 仅对TCP、Websocket协议有效，默认不开启
+     *
+     * @param explicitFlushAfterFlushes 最多合并多少次flush后强制执行一次真正的flush，不大于0表示不开启
+     * @return 返回当前对象
+     */
+    public GameServerRegisterAdaptor<S, M> setFlushConsolidation(int explicitFlushAfterFlushes) {
+        this.flushConsolidation = explicitFlushAfterFlushes;
+        return self();
+    }
+
+    /**
+     * 开启连接流量限制：每个连接使用独立的令牌桶，在IO线程中、消息解码之前限制每秒的字节数和消息数；
+     * 开启后，Handler通过{@link cn.laoshini.dk.annotation.MessageHandle#rateLimit()}配置的单条消息频率限制同时生效；
+     * 仅对TCP、Websocket协议有效，默认不开启
+     *
+     * @param bytesPerSecond 每个连接每秒最多接收的字节数，不大于0表示不限制
+     * @param messagesPerSecond 每个连接每秒最多接收的消息数，不大于0表示不限制
+     * @param policy 超过限制时的处理策略
+     * @return 返回当前对象
+     */
+    public GameServerRegisterAdaptor<S, M> setRateLimit(int bytesPerSecond, int messagesPerSecond,
+            RateLimitPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("流量限制策略不能为空");
+        }
+        this.rateLimitBytes = Math.max(bytesPerSecond, 0);
+        this.rateLimitMessages = Math.max(messagesPerSecond, 0);
+        this.rateLimitPolicy = policy;
+        return self();
+    }
+
+    /**
+     * 开启消息帧压缩：长度不小于阈值的帧使用zlib压缩，是否压缩由每个连接的客户端声明，默认不开启；
+     * TCP协议开启后每个帧的内容前增加1个字节的压缩标记，与使用哪种消息编解码器无关；
+     * Websocket协议使用permessage-deflate扩展协商，HTTP协议按请求的Accept-Encoding协商压缩响应；
+     * UDP的所有客户端共用一个通道，不支持压缩
+     *
+     * @param threshold 压缩阈值（字节），不大于0表示不开启
+     * @param level 压缩级别，0~9，延迟敏感的场景建议使用{@link Deflater#BEST_SPEED}
+     * @return 返回当前对象
+     */
+    public GameServerRegisterAdaptor<S, M> setCompression(int threshold, int level) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("压缩级别超出范围[0, 9]: " + level);
+        }
+        this.compressionThreshold = Math.max(threshold, 0);
+        this.compressionLevel = level;
+        return self();
+    }
+
+    /**
+     * 设置压缩使用的预设字典，服务器与客户端必须使用相同的字典，
+     * 字典可以通过{@link cn.laoshini.dk.net.codec.CompressionDictionaryTrainer}从消息样本中训练得到
+     *
+     * @param dictionary 预设字典，传入null表示不使用字典
+     * @return 返回当前对象
+     */
+    public GameServerRegisterAdaptor<S, M> setCompressionDictionary(byte[] dictionary) {
+        this.compressionDictionary = dictionary == null || dictionary.length == 0 ? null : dictionary;
+        return self();
+    }
+
+    /**
+     * 设置字典训练取样器，开启压缩后所有连接发出的帧在压缩前交给取样器，按其取样间隔和样本上限取样；
+     * 取样完成后调用{@link CompressionDictionaryTrainer#trainTo(int, java.nio.file.Path)}生成字典文件
+     *
+     * @param sampler 取样器，传入null表示不取样
+     * @return 返回当前对象
+     */
+    public GameServerRegisterAdaptor<S, M> setCompressionSampler(CompressionDictionaryTrainer sampler) {
+        this.compressionSampler = sampler;
+        return self();
+    }
+
     /**
      * 设置服务器类型
      *
@@ -489,7 +663,7 @@ public class GameServerRegisterAdaptor<S, M> implements IGameServerRegister<S, M
     public GameServerConfig toGameServerConfig() {
         return GameServerConfig.builder().gameId(gameId()).gameName(gameName()).serverId(serverId())
                 .serverName(serverName()).port(port()).serverType(serverType).protocol(protocol).idleTime(idleTime)
-                .tcpNoDelay(tcpNoDelay).build();
+                .tcpNoDelay(tcpNoDelay).executeModel(executeModel).build();
     }
 
     private GameServerRegisterAdaptor<S, M> self() {
@@ -536,6 +710,82 @@ public class GameServerRegisterAdaptor<S, M> implements IGameServerRegister<S, M
         return tcpNoDelay;
     }
 
+    public MessageExecuteModel executeModel() {
+        return executeModel;
+    }
+
+    public boolean isNativeTransport() {
+        return nativeTransport;
+    }
+
+    public boolean isReusePort() {
+        return reusePort;
+    }
+
+    public int acceptorThreads() {
+        return acceptorThreads;
+    }
+
+    public int workerThreads() {
+        return workerThreads;
+    }
+
+    public int receiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    public int sendBufferSize() {
+        return sendBufferSize;
+    }
+
+    public int writeBufferLowWaterMark() {
+        return writeBufferLowWaterMark;
+    }
+
+    public int writeBufferHighWaterMark() {
+        return writeBufferHighWaterMark;
+    }
+
+    public int flushConsolidation() {
+        return flushConsolidation;
+    }
+
+    public boolean isRateLimitEnabled() {
+        return rateLimitPolicy != null;
+    }
+
+    public int rateLimitBytes() {
+        return rateLimitBytes;
+    }
+
+    public int rateLimitMessages() {
+        return rateLimitMessages;
+    }
+
+    public RateLimitPolicy rateLimitPolicy() {
+        return rateLimitPolicy;
+    }
+
+    public boolean isCompressionEnabled() {
+        return compressionThreshold > 0;
+    }
+
+    public int compressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public int compressionLevel() {
+        return compressionLevel;
+    }
+
+    public byte[] compressionDictionary() {
+        return compressionDictionary;
+    }
+
+    public CompressionDictionaryTrainer compressionSampler() {
+        return compressionSampler;
+    }
+
     @Override
     public ServerType serverType() {
         return serverType;
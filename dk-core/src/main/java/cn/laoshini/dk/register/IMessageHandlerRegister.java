@@ -79,9 +79,11 @@ public interface IMessageHandlerRegister extends IFunctionRegister {
             }
 
             List<Class<?>> classes = handlerScanner.findClasses(classLoader);
-            for (Class<?> clazz : classes) {
-                registerHandlerClass(clazz);
-            }
+            MessageHandlerHolder.batchUpdate(() -> {
+                for (Class<?> clazz : classes) {
+                    registerHandlerClass(clazz);
+                }
+            });
         }
     }
 
@@ -120,9 +122,11 @@ public interface IMessageHandlerRegister extends IFunctionRegister {
      */
     default IMessageHandlerRegister registerHandlerClasses(Map<Integer, Class<?>> handlerClassMap) {
         if (CollectionUtil.isNotEmpty(handlerClassMap)) {
-            for (Map.Entry<Integer, Class<?>> entry : handlerClassMap.entrySet()) {
-                registerHandlerClass(entry.getKey(), entry.getValue());
-            }
+            MessageHandlerHolder.batchUpdate(() -> {
+                for (Map.Entry<Integer, Class<?>> entry : handlerClassMap.entrySet()) {
+                    registerHandlerClass(entry.getKey(), entry.getValue());
+                }
+            });
         }
         return this;
     }
@@ -10,11 +10,41 @@ import cn.laoshini.dk.exception.BusinessException;
  */
 public final class UdpGameServerRegister<S, M> extends GameServerRegisterAdaptor<S, M> {
 
+    /**
+     * 默认的会话空闲超时时间（秒）
+     */
+    public static final int DEFAULT_SESSION_IDLE_SECONDS = 300;
+
+    /**
+     * 可靠模式下默认的重传超时时间（毫秒）
+     */
+    public static final int DEFAULT_RETRANSMIT_TIMEOUT = 200;
+
     /**
      * 是否创建会话对象，因为UDP面向无连接，一般不需要创建会话对象
      */
     private boolean buildSession;
 
+    /**
+     * 会话空闲超时时间（秒），超过该时间没有收到客户端的数据包，清除会话
+     */
+    private int sessionIdleSeconds = DEFAULT_SESSION_IDLE_SECONDS;
+
+    /**
+     * 是否使用序号模式，见{@link cn.laoshini.dk.net.session.NettyUdpSession}
+     */
+    private boolean sequenced;
+
+    /**
+     * 是否使用可靠模式（按序确认和超时重传），见{@link cn.laoshini.dk.net.session.NettyUdpSession}
+     */
+    private boolean reliable;
+
+    /**
+     * 可靠模式下的重传超时时间（毫秒）
+     */
+    private int retransmitTimeout = DEFAULT_RETRANSMIT_TIMEOUT;
+
     public UdpGameServerRegister() {
         setProtocol(GameServerProtocolEnum.UDP);
     }
@@ -50,4 +80,71 @@ public final class UdpGameServerRegister<S, M> extends GameServerRegisterAdaptor
     public boolean isBuildSession() {
         return buildSession;
     }
+
+    /**
+     * 设置会话空闲超时时间，超过该时间没有收到客户端的数据包，清除会话并回调连接断开处理
+     *
+     * @param seconds 超时时间（秒），必须大于0
+     * @return 返回当前对象
+     */
+    public UdpGameServerRegister<S, M> setSessionIdleTimeout(int seconds) {
+        if (seconds <= 0) {
+            throw new IllegalArgumentException("会话空闲超时时间必须大于0: " + seconds);
+        }
+        this.sessionIdleSeconds = seconds;
+        return this;
+    }
+
+    public int sessionIdleSeconds() {
+        return sessionIdleSeconds;
+    }
+
+    /**
+     * 设置为序号模式（不可靠）：收发的数据包带有序号和确认号包头，丢弃重复和过期的包，丢失的包不会重传，适合只关心最新状态的消息；
+     * 该模式需要记录每个客户端的状态，会同时开启创建会话对象模式
+     *
+     * @return 返回当前对象
+     */
+    public UdpGameServerRegister<S, M> sequenced() {
+        this.sequenced = true;
+        this.buildSession = true;
+        return this;
+    }
+
+    public boolean isSequenced() {
+        return sequenced;
+    }
+
+    /**
+     * 设置为可靠模式：在序号模式的基础上，接收方只接受连续的序号并回复确认，发送方超时未收到确认时按顺序重发，
+     * 保证数据包按发送顺序送达；会同时开启序号模式和创建会话对象模式
+     *
+     * @return 返回当前对象
+     */
+    public UdpGameServerRegister<S, M> reliable() {
+        this.reliable = true;
+        return sequenced();
+    }
+
+    public boolean isReliable() {
+        return reliable;
+    }
+
+    /**
+     * 设置可靠模式下的重传超时时间，发出的数据包超过该时间没有收到确认时重发
+     *
+     * @param millis 超时时间（毫秒），必须大于0
+     * @return 返回当前对象
+     */
+    public UdpGameServerRegister<S, M> setRetransmitTimeout(int millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("重传超时时间必须大于0: " + millis);
+        }
+        this.retransmitTimeout = millis;
+        return this;
+    }
+
+    public int retransmitTimeout() {
+        return retransmitTimeout;
+    }
 }
@@ -15,6 +15,31 @@ public final class WebsocketGameServerRegister<S, M> extends GameServerRegisterA
      */
     private FrameType frameType = FrameType.TEXT;
 
+    /**
+     * 客户端连接的路径
+     */
+    private String path = "/ws";
+
+    /**
+     * 单个帧的最大长度
+     */
+    private int maxFramePayloadLength = 65536;
+
+    /**
+     * 分片消息（续帧）聚合后的最大长度
+     */
+    private int maxMessageLength = 65536;
+
+    /**
+     * 是否支持permessage-deflate压缩扩展
+     */
+    private boolean compression;
+
+    /**
+     * 是否在通道中加入日志处理器，打印每一帧的内容，仅用于调试
+     */
+    private boolean wireLogging;
+
     public WebsocketGameServerRegister() {
         setProtocol(GameServerProtocolEnum.WEBSOCKET);
     }
@@ -76,6 +101,78 @@ public final class WebsocketGameServerRegister<S, M> extends GameServerRegisterA
         return FrameType.BINARY.equals(frameType);
     }
 
+    /**
+     * 设置客户端连接的路径，默认为"/ws"
+     *
+     * @param path 路径，必须以"/"开头
+     * @return 返回当前对象
+     */
+    public WebsocketGameServerRegister<S, M> setPath(String path) {
+        if (path == null || !path.startsWith("/")) {
+            throw new IllegalArgumentException("Websocket路径必须以'/'开头: " + path);
+        }
+        this.path = path;
+        return this;
+    }
+
+    public String path() {
+        return path;
+    }
+
+    /**
+     * 设置帧长度限制
+     *
+     * @param maxFramePayloadLength 单个帧的最大长度，超过该长度将关闭连接
+     * @param maxMessageLength 分片消息聚合后的最大长度，不能小于单个帧的最大长度
+     * @return 返回当前对象
+     */
+    public WebsocketGameServerRegister<S, M> setFrameLimits(int maxFramePayloadLength, int maxMessageLength) {
+        if (maxFramePayloadLength <= 0 || maxMessageLength < maxFramePayloadLength) {
+            throw new IllegalArgumentException(
+                    String.format("帧长度限制非法, maxFramePayloadLength:%d, maxMessageLength:%d", maxFramePayloadLength,
+                            maxMessageLength));
+        }
+        this.maxFramePayloadLength = maxFramePayloadLength;
+        this.maxMessageLength = maxMessageLength;
+        return this;
+    }
+
+    public int maxFramePayloadLength() {
+        return maxFramePayloadLength;
+    }
+
+    public int maxMessageLength() {
+        return maxMessageLength;
+    }
+
+    /**
+     * 开启permessage-deflate压缩扩展，客户端在握手时声明支持才会生效
+     *
+     * @return 返回当前对象
+     */
+    public WebsocketGameServerRegister<S, M> compression() {
+        this.compression = true;
+        return this;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * 在通道中加入日志处理器，以DEBUG级别打印每一帧的内容；格式化每一帧的开销很大，只应在调试时开启
+     *
+     * @return 返回当前对象
+     */
+    public WebsocketGameServerRegister<S, M> wireLogging() {
+        this.wireLogging = true;
+        return this;
+    }
+
+    public boolean isWireLogging() {
+        return wireLogging;
+    }
+
     /**
      * Websocket的帧数据格式类型（正式消息，不包含握手、断开连接等消息）
      */
@@ -10,6 +10,7 @@ import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 
 import cn.laoshini.dk.constant.GameServerProtocolEnum;
+import cn.laoshini.dk.constant.MessageExecuteModel;
 import cn.laoshini.dk.net.codec.INettyMessageDecoder;
 import cn.laoshini.dk.net.codec.INettyMessageEncoder;
 import cn.laoshini.dk.net.msg.IMessageDispatcher;
@@ -62,4 +63,94 @@ public class DangKangGameServerProperties {
      */
     private Class<IMessageDispatcher> messageDispatcher;
 
+    /**
+     * 消息执行模型（EVENT_LOOP, POOLED, VIRTUAL_THREAD）
+     */
+    private MessageExecuteModel executeModel = MessageExecuteModel.POOLED;
+
+    /**
+     * 是否优先使用本地传输实现（Linux下的epoll），当前系统不支持时自动使用NIO
+     */
+    private boolean nativeTransport = true;
+
+    /**
+     * 是否开启SO_REUSEPORT，开启后每个接收线程各自绑定一次端口，仅epoll下有效
+     */
+    private boolean reusePort;
+
+    /**
+     * 接收连接的线程数
+     */
+    private int acceptorThreads = 1;
+
+    /**
+     * 处理读写的线程数，不大于0时使用Netty的默认值
+     */
+    private int workerThreads;
+
+    /**
+     * 连接的接收缓冲区大小（SO_RCVBUF），不大于0时使用操作系统的默认值
+     */
+    private int soRcvbuf;
+
+    /**
+     * 连接的发送缓冲区大小（SO_SNDBUF），不大于0时使用操作系统的默认值
+     */
+    private int soSndbuf;
+
+    /**
+     * 连接写缓冲的低水位线
+     */
+    private int writeBufferLowWaterMark = 32 * 1024;
+
+    /**
+     * 连接写缓冲的高水位线
+     */
+    private int writeBufferHighWaterMark = 64 * 1024;
+
+    /**
+     * 写出合并：最多合并多少次flush后强制执行一次真正的flush，不大于0表示不开启
+     */
+    private int flushConsolidation;
+
+    /**
+     * 每个连接每秒最多接收的字节数，不大于0表示不限制
+     */
+    private int rateLimitBytes;
+
+    /**
+     * 每个连接每秒最多接收的消息数，不大于0表示不限制
+     */
+    private int rateLimitMessages;
+
+    /**
+     * 连接流量超过限制时的处理策略：throttle（暂停读取）或kick（断开连接）
+     */
+    private String rateLimitPolicy = "throttle";
+
+    /**
+     * 消息帧压缩阈值（字节），长度不小于该值的帧才会压缩，不大于0表示不开启压缩
+     */
+    private int compressionThreshold;
+
+    /**
+     * 压缩级别，0~9，默认为1（速度优先）
+     */
+    private int compressionLevel = 1;
+
+    /**
+     * 压缩使用的预设字典文件路径，为空表示不使用字典
+     */
+    private String compressionDictionary;
+
+    /**
+     * 消息日志采样率：每多少条消息记录一条，不大于1表示全部记录
+     */
+    private int messageLogSampleRate = 1;
+
+    /**
+     * Prometheus指标查询服务的端口，不大于0表示不开启
+     */
+    private int metricsPort;
+
 }
@@ -1,6 +1,12 @@
 package cn.laoshini.dk.starter;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -8,6 +14,8 @@ import org.springframework.stereotype.Component;
 import cn.laoshini.dk.condition.ConditionalOnPropertyExists;
 import cn.laoshini.dk.constant.GameCodeEnum;
 import cn.laoshini.dk.constant.GameServerProtocolEnum;
+import cn.laoshini.dk.constant.MessageExecuteModel;
+import cn.laoshini.dk.constant.RateLimitPolicy;
 import cn.laoshini.dk.domain.GameSubject;
 import cn.laoshini.dk.domain.msg.AbstractMessage;
 import cn.laoshini.dk.domain.msg.ReqMessage;
@@ -16,14 +24,17 @@ import cn.laoshini.dk.exception.BusinessException;
 import cn.laoshini.dk.exception.MessageException;
 import cn.laoshini.dk.executor.AbstractOrderedWorker;
 import cn.laoshini.dk.executor.IOrderedExecutor;
-import cn.laoshini.dk.executor.OrderedQueuePoolExecutor;
+import cn.laoshini.dk.monitor.MetricsHttpServer;
 import cn.laoshini.dk.net.MessageHandlerHolder;
 import cn.laoshini.dk.net.codec.INettyMessageDecoder;
 import cn.laoshini.dk.net.codec.INettyMessageEncoder;
 import cn.laoshini.dk.net.codec.JsonNettyMessageDecoder;
 import cn.laoshini.dk.net.codec.JsonNettyMessageEncoder;
 import cn.laoshini.dk.net.msg.IMessageDispatcher;
+import cn.laoshini.dk.net.msg.IRecyclable;
 import cn.laoshini.dk.net.session.AbstractSession;
+import cn.laoshini.dk.net.session.ReceiveSettings;
+import cn.laoshini.dk.net.session.ReceiveState;
 import cn.laoshini.dk.register.GameServerRegisterAdaptor;
 import cn.laoshini.dk.register.IMessageHandlerRegister;
 import cn.laoshini.dk.register.IMessageRegister;
@@ -71,6 +82,44 @@ public class DkGameServerAutoConfiguration {
     private Class<INettyMessageDecoder> decoderClass;
     @Value("${dk.game.server.message-dispatcher:}")
     private Class<IMessageDispatcher> messageDispatcherClass;
+    @Value("${dk.game.server.execute-model:POOLED}")
+    private String executeModel;
+    @Value("${dk.game.server.native-transport:true}")
+    private boolean nativeTransport;
+    @Value("${dk.game.server.reuse-port:false}")
+    private boolean reusePort;
+    @Value("${dk.game.server.acceptor-threads:1}")
+    private int acceptorThreads;
+    @Value("${dk.game.server.worker-threads:0}")
+    private int workerThreads;
+    @Value("${dk.game.server.so-rcvbuf:0}")
+    private int receiveBufferSize;
+    @Value("${dk.game.server.so-sndbuf:0}")
+    private int sendBufferSize;
+    @Value("${dk.game.server.write-buffer-low-water-mark:32768}")
+    private int writeBufferLowWaterMark;
+    @Value("${dk.game.server.write-buffer-high-water-mark:65536}")
+    private int writeBufferHighWaterMark;
+    @Value("${dk.game.server.flush-consolidation:0}")
+    private int flushConsolidation;
+    @Value("${dk.game.server.rate-limit-bytes:0}")
+    private int rateLimitBytes;
+    @Value("${dk.game.server.rate-limit-messages:0}")
+    private int rateLimitMessages;
+    @Value("${dk.game.server.rate-limit-policy:throttle}")
+    private String rateLimitPolicy;
+    @Value("${dk.game.server.compression-threshold:0}")
+    private int compressionThreshold;
+    @Value("${dk.game.server.compression-level:1}")
+    private int compressionLevel;
+    @Value("${dk.game.server.compression-dictionary:}")
+    private String compressionDictionary;
+    @Value("${dk.game.server.message-log-sample-rate:1}")
+    private int messageLogSampleRate;
+    @Value("${dk.game.server.metrics-port:0}")
+    private int metricsPort;
+
+    private MetricsHttpServer metricsServer;
 
     @PostConstruct
     public void registerGameServer() {
@@ -91,8 +140,29 @@ public class DkGameServerAutoConfiguration {
             default:
                 throw new BusinessException("unsupported.server.protocol", "不支持的游戏服通信协议:" + protocol);
         }
+        if (reusePort) {
+            register.setReusePort();
+        }
+        if (rateLimitBytes > 0 || rateLimitMessages > 0) {
+            register.setRateLimit(rateLimitBytes, rateLimitMessages,
+                    RateLimitPolicy.of(rateLimitPolicy, RateLimitPolicy.THROTTLE));
+        }
+        LogUtil.setMessageSampleRate(messageLogSampleRate);
+        if (metricsPort > 0) {
+            metricsServer = new MetricsHttpServer(metricsPort);
+            metricsServer.start();
+        }
+        if (compressionThreshold > 0) {
+            register.setCompression(compressionThreshold, compressionLevel)
+                    .setCompressionDictionary(readCompressionDictionary());
+        }
         register.setGameId(gameId).setGameName(gameName).setServerId(serverId).setServerName(serverName).setPort(port)
-                .setTcpNoDelay()
+                .setTcpNoDelay().setExecuteModel(MessageExecuteModel.of(executeModel, MessageExecuteModel.POOLED))
+                // 传输层及socket参数
+                .setNativeTransport(nativeTransport).setEventLoopThreads(acceptorThreads, workerThreads)
+                .setSocketBufferSize(receiveBufferSize, sendBufferSize)
+                .setWriteBufferWaterMark(writeBufferLowWaterMark, writeBufferHighWaterMark)
+                .setFlushConsolidation(flushConsolidation)
                 // 消息编解码器，默认使用JSON格式通信
                 .setMessageEncode(encoder()).setMessageDecode(decoder())
                 // 连接建立成功时的逻辑，创建并关联GameSubject对象
@@ -106,8 +176,8 @@ public class DkGameServerAutoConfiguration {
                 .onConnectException((session, cause) -> LogUtil.error("connect exception"))
                 // 消息发送逻辑
                 .onMessageSend(AbstractSession::sendMessage)
-                // 消息到达处理逻辑，加入本地任务队列
-                .onMessageDispatcher(dispatcher());
+                // 消息到达处理逻辑，线程池模型下加入本地任务队列，其他模型下直接执行
+                .onMessageDispatcher(dispatcher(register));
         DangKangGameStarter starter = DangKangGameStarter.get().gameServer(register);
 
         if (CollectionUtil.isNotEmpty(packagePrefixes)) {
@@ -170,7 +240,8 @@ public class DkGameServerAutoConfiguration {
     }
 
     @SuppressWarnings("unchecked")
-    private IMessageDispatcher<AbstractSession, AbstractMessage<?>> dispatcher() {
+    private IMessageDispatcher<AbstractSession, AbstractMessage<?>> dispatcher(
+            GameServerRegisterAdaptor<AbstractSession, AbstractMessage<?>> register) {
         if (messageDispatcherClass != null) {
             checkType(IMessageDispatcher.class, messageDispatcherClass, "消息分发调度类");
             try {
@@ -180,7 +251,32 @@ public class DkGameServerAutoConfiguration {
                         "用户定义的消息分发调度类实例化失败，class:" + messageDispatcherClass);
             }
         }
-        return (session, message) -> ReceivedMessageQueue.addMessage(session, (ReqMessage) message);
+        return (session, message) -> {
+            if (MessageExecuteModel.POOLED.equals(register.executeModel())) {
+                ReceivedMessageQueue.addMessage(session, (ReqMessage) message);
+            } else {
+                ReceivedMessageQueue.handleMessage(session, (ReqMessage) message);
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdownMetricsServer() {
+        if (metricsServer != null) {
+            metricsServer.shutdown();
+            metricsServer = null;
+        }
+    }
+
+    private byte[] readCompressionDictionary() {
+        if (compressionDictionary == null || compressionDictionary.isEmpty()) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(Paths.get(compressionDictionary));
+        } catch (IOException e) {
+            throw new BusinessException("compression.dictionary.error", "压缩字典文件读取失败，file:" + compressionDictionary);
+        }
     }
 
     private void checkType(Class<?> superType, Class<?> type, String name) {
@@ -202,12 +298,61 @@ public class DkGameServerAutoConfiguration {
         }
     }
 
+    /**
+     * 默认的消息接收队列，与dk-game-core的消息分发使用相同的dk.message.receive.*配置项和会话级别的溢出策略；
+     * 对应Handler不需要按顺序执行的消息不进入有序线程池，直接交给工作窃取线程池并行执行
+     */
     private static class ReceivedMessageQueue {
-        private static final IOrderedExecutor<Long> MESSAGE_EXECUTOR = new OrderedQueuePoolExecutor(
-                "game-received-message", 3, Integer.MAX_VALUE);
+        private static final ReceiveSettings SETTINGS = ReceiveSettings.load();
+
+        private static final IOrderedExecutor<Long> MESSAGE_EXECUTOR = SETTINGS
+                .newOrderedExecutor("game-received-message");
+
+        /**
+         * 不需要按顺序执行的消息使用的线程池
+         */
+        private static final ForkJoinPool PARALLEL_EXECUTOR = SETTINGS
+                .newParallelExecutor("game-received-message-parallel");
 
         static void addMessage(AbstractSession session, ReqMessage<Object> message) {
-            MESSAGE_EXECUTOR.addTask(session.getId(), new MessageHandleWorker(session, message));
+            message.markEnqueued();
+            MessageHandleWorker worker = new MessageHandleWorker(session, message);
+            ReceiveState state = SETTINGS.receiveState(session);
+            if (state != null) {
+                if (!state.accept(worker)) {
+                    LogUtil.error("会话[{}]待处理消息达到上限，拒绝消息:{}", session.getId(), message.getId());
+                    rejectMessage(session, message);
+                    return;
+                }
+                worker.receiveState = state;
+            }
+
+            if (!MessageHandlerHolder.isSequential(message.getId())) {
+                PARALLEL_EXECUTOR.execute(worker);
+                return;
+            }
+
+            if (!MESSAGE_EXECUTOR.addTask(session.getId(), worker)) {
+                if (state != null) {
+                    state.cancel(worker);
+                }
+                rejectMessage(session, message);
+            }
+        }
+
+        private static void rejectMessage(AbstractSession session, ReqMessage<Object> message) {
+            RespMessage resp = new RespMessage();
+            resp.setId(message.getId() + 1);
+            resp.setCode(GameCodeEnum.MESSAGE_QUEUE_FULL.getCode());
+            resp.setParams(GameCodeEnum.MESSAGE_QUEUE_FULL.getDesc());
+            session.sendMessage(resp);
+            if (message instanceof IRecyclable) {
+                ((IRecyclable) message).recycle();
+            }
+        }
+
+        static void handleMessage(AbstractSession session, ReqMessage<Object> message) {
+            new MessageHandleWorker(session, message).run();
         }
 
         /**
@@ -219,6 +364,11 @@ public class DkGameServerAutoConfiguration {
 
             private ReqMessage<Object> message;
 
+            /**
+             * 所属会话的消息接收状态，未开启会话级别限制时为null
+             */
+            private ReceiveState receiveState;
+
             MessageHandleWorker(AbstractSession session, ReqMessage<Object> message) {
                 this.session = session;
                 this.message = message;
@@ -226,6 +376,15 @@ public class DkGameServerAutoConfiguration {
 
             @Override
             protected void action() {
+                // 消息已被丢弃（会话待处理消息达到上限，且使用丢弃最早消息的策略）
+                if (receiveState != null && !receiveState.claim(this)) {
+                    if (message instanceof IRecyclable) {
+                        ((IRecyclable) message).recycle();
+                    }
+                    return;
+                }
+
+                message.markDequeued();
                 try {
                     doMessageHandle();
                 } catch (MessageException e) {
@@ -242,6 +401,14 @@ public class DkGameServerAutoConfiguration {
                     resp.setCode(GameCodeEnum.UNKNOWN_ERROR.getCode());
                     resp.setParams("未知错误");
                     session.sendMessage(resp);
+                } finally {
+                    if (receiveState != null) {
+                        receiveState.release();
+                    }
+                    // 消息处理完成，如果消息来自对象池，回收消息对象
+                    if (message instanceof IRecyclable) {
+                        ((IRecyclable) message).recycle();
+                    }
                 }
             }
 
@@ -252,6 +419,11 @@ public class DkGameServerAutoConfiguration {
 
                 MessageHandlerHolder.doMessageHandler(message, session.getSubject());
             }
+
+            @Override
+            public String toString() {
+                return "MessageHandleWorker{" + "message=" + message + '}';
+            }
         }
     }
 
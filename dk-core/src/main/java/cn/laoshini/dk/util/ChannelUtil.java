@@ -1,9 +1,14 @@
 package cn.laoshini.dk.util;
 
 import java.net.InetSocketAddress;
+import java.util.Arrays;
 
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.Channel;
 
+import cn.laoshini.dk.domain.GameSubject;
+import cn.laoshini.dk.net.session.NettySession;
+
 /**
  * @author fagarine
  */
@@ -11,12 +16,25 @@ public class ChannelUtil {
     private ChannelUtil() {
     }
 
+    /**
+     * 根据连接的远程地址计算id，同一时刻只有地址和端口都相同的连接才会得到相同的id
+     *
+     * @param channel 连接通道
+     * @return 返回id
+     * @deprecated 基于地址的id在连接断开后会被复用，且与地址信息耦合，会话id请使用{@link cn.laoshini.dk.net.session.SessionIdAllocator}分配
+     */
+    @Deprecated
     public static long channel2Id(Channel channel) {
         InetSocketAddress address = (InetSocketAddress) channel.remoteAddress();
-        String ip = address.getAddress().getHostAddress();
-        int port = address.getPort();
-        Long id = ip2Long(ip) * 100000L + port;
-        return id;
+        byte[] ip = address.getAddress().getAddress();
+        long ipNum;
+        if (ip.length == 4) {
+            ipNum = ((ip[0] & 0xFFL) << 24) | ((ip[1] & 0xFFL) << 16) | ((ip[2] & 0xFFL) << 8) | (ip[3] & 0xFFL);
+        } else {
+            // IPv6地址，取散列值
+            ipNum = Arrays.hashCode(ip) & 0xFFFFFFFFL;
+        }
+        return ipNum * 100000L + address.getPort();
     }
 
     public static long ip2Long(String ip) {
@@ -30,8 +48,8 @@ public class ChannelUtil {
             ip = ip.replaceAll("[^0-9.]", "");
             String[] ips = ip.split("\\.");
             if (ips.length == 4) {
-                num = Long.parseLong(ips[0]) << 24 + Long.parseLong(ips[1]) << 16 + Long.parseLong(ips[2]) << 8 + Long
-                        .parseLong(ips[3]);
+                num = (Long.parseLong(ips[0]) << 24) | (Long.parseLong(ips[1]) << 16) | (Long.parseLong(ips[2]) << 8)
+                      | Long.parseLong(ips[3]);
             }
         } catch (NullPointerException e) {
             e.printStackTrace();
@@ -40,4 +58,20 @@ public class ChannelUtil {
         return num;
     }
 
+
+    /**
+     * 获取消息主体所在连接的缓冲分配器，编码器在通道外编码消息时使用，使编码结果与通道使用相同的（默认为池化的）分配器
+     *
+     * @param subject 消息主体，允许为null
+     * @return 如果找不到对应的连接，返回{@link ByteBufAllocator#DEFAULT}
+     */
+    public static ByteBufAllocator allocator(GameSubject subject) {
+        if (subject != null && subject.getSession() instanceof NettySession) {
+            Channel channel = ((NettySession) subject.getSession()).getChannel();
+            if (channel != null) {
+                return channel.alloc();
+            }
+        }
+        return ByteBufAllocator.DEFAULT;
+    }
 }
@@ -1,13 +1,18 @@
 package cn.laoshini.dk.util;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.JSONReader;
+import com.alibaba.fastjson.parser.JSONScanner;
+import com.alibaba.fastjson.parser.JSONToken;
+import com.alibaba.fastjson.serializer.JSONSerializer;
+import com.alibaba.fastjson.serializer.SerializeWriter;
 
 import cn.laoshini.dk.constant.GameCodeEnum;
 import cn.laoshini.dk.constant.GameConstant;
@@ -88,20 +93,126 @@ public class MessageUtil {
         return jsonStrToMessage(jsonStr);
     }
 
+    /**
+     * 以流的方式解析JSON格式的消息，消息内容直接解析为消息id对应的类型，不再经过JSONObject中转
+     * <p>
+     * 如果传入的是JSON数组，只解析第一条消息
+     * </p>
+     *
+     * @param jsonStr JSON字符串
+     * @return 如果是空数组返回null，格式错误时抛出异常
+     */
+    public static AbstractMessage<Object> readJsonMessage(String jsonStr) {
+        try (JSONReader reader = new JSONReader(new JSONScanner(jsonStr))) {
+            if (reader.peek() == JSONToken.LBRACKET) {
+                reader.startArray();
+                if (!reader.hasNext()) {
+                    return null;
+                }
+            }
+            return readJsonMessage(reader);
+        }
+    }
+
+    private static AbstractMessage<Object> readJsonMessage(JSONReader reader) {
+        Integer messageId = null;
+        Integer code = null;
+        String params = null;
+        Object detail = null;
+        Class<?> clazz = null;
+
+        reader.startObject();
+        while (reader.hasNext()) {
+            String key = reader.readString();
+            if (GameConstant.MESSAGE_ID_KEY.equals(key)) {
+                messageId = reader.readInteger();
+            } else if (GameConstant.MESSAGE_CODE_KEY.equals(key)) {
+                code = reader.readInteger();
+            } else if (GameConstant.MESSAGE_EXTENDS_KEY.equals(key)) {
+                Object value = reader.readObject();
+                params = value == null ? null : value.toString();
+            } else if (GameConstant.MESSAGE_DETAIL_KEY.equals(key)) {
+                // 消息id在消息内容之前时（当康系统发出的消息都是如此），直接解析为目标类型
+                clazz = messageId == null ? null : MessageHolder.getMessageClass(messageId);
+                detail = clazz != null ? reader.readObject(clazz) : reader.readObject();
+            } else {
+                reader.readObject();
+            }
+        }
+        reader.endObject();
+
+        if (messageId == null) {
+            throw new MessageException(GameCodeEnum.MESSAGE_ID_NULL, "message.id.null", "消息ID不能为空");
+        }
+
+        AbstractMessage<Object> message;
+        if (code != null) {
+            message = new RespMessage<>();
+            message.setCode(code);
+        } else {
+            message = new ReqMessage<>();
+        }
+        message.setId(messageId);
+        message.setParams(params);
+
+        if (GameCodeEnum.OK.getCode() == message.getCode()) {
+            if (clazz == null && detail instanceof JSONObject) {
+                // 消息内容出现在消息id之前，只能先解析为JSONObject再转换
+                clazz = MessageHolder.getMessageClass(messageId);
+                if (clazz != null) {
+                    detail = ((JSONObject) detail).toJavaObject(clazz);
+                }
+            }
+            message.setData(detail);
+        }
+        return message;
+    }
+
     public static byte[] messageToJsonBytes(AbstractMessage<?> message) {
-        String jsonStr = messageToJsonString(message);
-        return jsonStr.getBytes(UTF_8);
+        try (SerializeWriter writer = writeJsonMessage(message)) {
+            return writer.toBytes(UTF_8);
+        }
+    }
+
+    /**
+     * 将消息以JSON格式直接写入输出流，不创建中间的字符串和字节数组
+     *
+     * @param message 消息
+     * @param out 输出流
+     * @return 返回写入的字节数
+     * @throws IOException 写入输出流出错时抛出
+     */
+    public static int writeJsonMessage(AbstractMessage<?> message, OutputStream out) throws IOException {
+        try (SerializeWriter writer = writeJsonMessage(message)) {
+            return writer.writeToEx(out, UTF_8);
+        }
     }
 
     public static String messageToJsonString(AbstractMessage<?> message) {
-        Map<String, Object> map = new HashMap<>(4);
-        map.put(GameConstant.MESSAGE_ID_KEY, message.getId());
-        if (message instanceof RespMessage) {
-            map.put(GameConstant.MESSAGE_CODE_KEY, message.getCode());
+        try (SerializeWriter writer = writeJsonMessage(message)) {
+            return writer.toString();
         }
-        map.put(GameConstant.MESSAGE_DETAIL_KEY, message.getData());
-        map.put(GameConstant.MESSAGE_EXTENDS_KEY, message.getParams());
+    }
 
-        return JSON.toJSONString(map);
+    /**
+     * 按字段顺序直接序列化消息，值为null的字段不输出（与JSON.toJSONString(map)的默认行为一致）；
+     * SerializeWriter内部使用线程缓存的字符数组，不需要为每条消息创建Map
+     */
+    private static SerializeWriter writeJsonMessage(AbstractMessage<?> message) {
+        SerializeWriter writer = new SerializeWriter();
+        writer.writeFieldValue('{', GameConstant.MESSAGE_ID_KEY, message.getId());
+        if (message instanceof RespMessage) {
+            writer.writeFieldValue(',', GameConstant.MESSAGE_CODE_KEY, message.getCode());
+        }
+        if (message.getData() != null) {
+            writer.write(',');
+            writer.writeFieldName(GameConstant.MESSAGE_DETAIL_KEY);
+            new JSONSerializer(writer).write(message.getData());
+        }
+        if (message.getParams() != null) {
+            writer.writeFieldValue(',', GameConstant.MESSAGE_EXTENDS_KEY, message.getParams());
+        }
+        writer.write('}');
+        return writer;
     }
 }
@@ -0,0 +1,119 @@
+package cn.laoshini.dk.executor;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import cn.laoshini.dk.monitor.DkMetrics;
+
+/**
+ * @author fagarine
+ */
+public class PerKeyOrderedExecutorTest {
+
+    private static final int KEYS = 8;
+
+    private static final int TASKS_PER_KEY = 20000;
+
+    private PerKeyOrderedExecutor executor;
+
+    @Before
+    public void init() {
+        executor = new PerKeyOrderedExecutor("per-key-test", 8, Integer.MAX_VALUE);
+    }
+
+    @After
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * 回收线程不停地回收空闲队列，同一key的任务仍然不能并发执行，并且按加入顺序执行
+     */
+    @Test
+    public void testSameKeyOrderWhileEvicting() throws Exception {
+        AtomicBoolean evicting = new AtomicBoolean(true);
+        AtomicInteger retired = new AtomicInteger();
+        Thread evictor = new Thread(() -> {
+            while (evicting.get()) {
+                for (Map.Entry<Long, AtomicTaskQueue> entry : executor.getQueues().entrySet()) {
+                    if (entry.getValue().tryRetire()) {
+                        executor.getQueues().remove(entry.getKey(), entry.getValue());
+                        retired.incrementAndGet();
+                    }
+                }
+            }
+        }, "test-evictor");
+        evictor.start();
+
+        AtomicBoolean[] running = new AtomicBoolean[KEYS];
+        AtomicIntegerArray lastSeq = new AtomicIntegerArray(KEYS);
+        AtomicInteger violations = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(KEYS * TASKS_PER_KEY);
+        for (int k = 0; k < KEYS; k++) {
+            running[k] = new AtomicBoolean();
+            lastSeq.set(k, -1);
+        }
+
+        for (int seq = 0; seq < TASKS_PER_KEY; seq++) {
+            for (int k = 0; k < KEYS; k++) {
+                int key = k;
+                int expected = seq;
+                boolean added = executor.addTask((long) key, new AbstractOrderedWorker() {
+                    @Override
+                    protected void action() {
+                        if (!running[key].compareAndSet(false, true)) {
+                            violations.incrementAndGet();
+                        }
+                        if (lastSeq.get(key) != expected - 1) {
+                            violations.incrementAndGet();
+                        }
+                        lastSeq.set(key, expected);
+                        Thread.yield();
+                        running[key].set(false);
+                        done.countDown();
+                    }
+                });
+                Assert.assertTrue(added);
+            }
+            if (seq % 64 == 0) {
+                // 给回收线程制造队列暂时为空的机会
+                Thread.yield();
+            }
+        }
+
+        Assert.assertTrue(done.await(60, TimeUnit.SECONDS));
+        evicting.set(false);
+        evictor.join();
+
+        Assert.assertEquals(0, violations.get());
+        Assert.assertTrue("回收线程应该至少回收过一次队列", retired.get() > 0);
+    }
+
+    /**
+     * 虚拟线程有序线程池创建后与其他有序线程池一样登记到监控指标中，运行环境不支持虚拟线程时跳过
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testVirtualThreadExecutorRegistered() {
+        String name = "per-key-virtual-test";
+        PerKeyOrderedExecutor virtual = PerKeyOrderedExecutor.newVirtualThreadExecutor(name, Integer.MAX_VALUE);
+        Assume.assumeNotNull(virtual);
+        try {
+            Map<String, Object> executors = (Map<String, Object>) DkMetrics.snapshot().get("executors");
+            Assert.assertTrue(executors.containsKey(name));
+        } finally {
+            DkMetrics.unregisterExecutor(name);
+            virtual.shutdown();
+        }
+    }
+}
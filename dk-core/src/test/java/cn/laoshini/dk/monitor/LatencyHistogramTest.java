@@ -0,0 +1,78 @@
+package cn.laoshini.dk.monitor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author fagarine
+ */
+public class LatencyHistogramTest {
+
+    private static final int SUB_BUCKETS = 16;
+
+    @Test
+    public void testSmallValuesExact() {
+        for (int value = 0; value < SUB_BUCKETS; value++) {
+            Assert.assertEquals(value, LatencyHistogram.bucketIndex(value));
+            Assert.assertEquals(value, LatencyHistogram.bucketUpperBound(value));
+        }
+    }
+
+    /**
+     * 所有桶首尾相连：每个桶的上界落在该桶内，上界加1落在下一个桶内，最后一个桶的上界为Long.MAX_VALUE
+     */
+    @Test
+    public void testBucketsContiguous() {
+        int last = LatencyHistogram.bucketIndex(Long.MAX_VALUE);
+        for (int index = 0; index < last; index++) {
+            long upper = LatencyHistogram.bucketUpperBound(index);
+            Assert.assertEquals(index, LatencyHistogram.bucketIndex(upper));
+            Assert.assertEquals(index + 1, LatencyHistogram.bucketIndex(upper + 1));
+        }
+        Assert.assertEquals(Long.MAX_VALUE, LatencyHistogram.bucketUpperBound(last));
+    }
+
+    @Test
+    public void testRelativeError() {
+        long[] values = { 17L, 100L, 1_000L, 123_456L, 1_000_000_007L, Long.MAX_VALUE / 3 };
+        for (long value : values) {
+            long upper = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(value));
+            Assert.assertTrue(upper >= value);
+            Assert.assertTrue("桶上界与实际值的误差不应超过1/16", upper - value <= value / SUB_BUCKETS);
+        }
+    }
+
+    @Test
+    public void testStatistics() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0L, histogram.percentile(0.99));
+        Assert.assertEquals(0D, histogram.mean(), 0D);
+
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5L);
+
+        Assert.assertEquals(101L, histogram.count());
+        Assert.assertEquals(5050L, histogram.sum());
+        Assert.assertEquals(100L, histogram.max());
+        Assert.assertEquals(5050D / 101, histogram.mean(), 1e-9);
+
+        long p50 = histogram.percentile(0.5);
+        Assert.assertTrue(p50 >= 50 && p50 <= 50 + 50 / SUB_BUCKETS);
+        Assert.assertEquals("百分位结果不应超过记录过的最大值", 100L, histogram.percentile(1D));
+        Assert.assertEquals(0L, histogram.percentile(0.001));
+    }
+
+    @Test
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000L);
+        histogram.reset();
+
+        Assert.assertEquals(0L, histogram.count());
+        Assert.assertEquals(0L, histogram.sum());
+        Assert.assertEquals(0L, histogram.max());
+        Assert.assertEquals(0L, histogram.percentile(0.5));
+    }
+}
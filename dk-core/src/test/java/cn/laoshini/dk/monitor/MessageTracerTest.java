@@ -0,0 +1,81 @@
+package cn.laoshini.dk.monitor;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cn.laoshini.dk.constant.Constants;
+import cn.laoshini.dk.domain.msg.ReqMessage;
+
+/**
+ * @author fagarine
+ */
+public class MessageTracerTest {
+
+    private static final int BUFFER_SIZE = 256;
+
+    private static final int BASE_ID = 70000;
+
+    @Before
+    public void init() {
+        MessageTracer.setSlowThreshold(0L);
+    }
+
+    @After
+    public void destroy() {
+        MessageTracer.setSlowThreshold(Constants.HANDLER_RESPONSE_LIMIT);
+    }
+
+    /**
+     * 写满环形缓冲后继续记录，旧记录被覆盖，查询结果只包含最近的{@value #BUFFER_SIZE}条，最新的在前
+     */
+    @Test
+    public void testSlowRecordsWrapAround() {
+        int recorded = BUFFER_SIZE + 44;
+        for (int i = 0; i < recorded; i++) {
+            recordSlow(BASE_ID + i);
+        }
+
+        List<SlowMessageRecord> records = MessageTracer.recentSlowMessages(Integer.MAX_VALUE);
+        Assert.assertEquals(BUFFER_SIZE, records.size());
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            Assert.assertEquals(BASE_ID + recorded - 1 - i, records.get(i).getMessageId());
+        }
+    }
+
+    @Test
+    public void testRecentSlowMessagesLimit() {
+        for (int i = 0; i < 10; i++) {
+            recordSlow(BASE_ID + i);
+        }
+
+        List<SlowMessageRecord> records = MessageTracer.recentSlowMessages(3);
+        Assert.assertEquals(3, records.size());
+        Assert.assertEquals(BASE_ID + 9, records.get(0).getMessageId());
+        Assert.assertEquals(BASE_ID + 7, records.get(2).getMessageId());
+        Assert.assertTrue(MessageTracer.recentSlowMessages(-1).isEmpty());
+    }
+
+    /**
+     * 未达到阈值的消息只计入耗时统计，不记录为慢消息
+     */
+    @Test
+    public void testBelowThresholdNotRecorded() {
+        recordSlow(BASE_ID);
+        MessageTracer.setSlowThreshold(1000L);
+        int fastId = BASE_ID + 1;
+        long fastCount = MessageTracer.timings(fastId).total().count();
+
+        MessageTracer.record(fastId, new ReqMessage<>(), 0L, 1000L);
+
+        Assert.assertEquals(fastCount + 1, MessageTracer.timings(fastId).total().count());
+        Assert.assertEquals(BASE_ID, MessageTracer.recentSlowMessages(1).get(0).getMessageId());
+    }
+
+    private static void recordSlow(int messageId) {
+        MessageTracer.record(messageId, new ReqMessage<>(), 0L, 1000L);
+    }
+}
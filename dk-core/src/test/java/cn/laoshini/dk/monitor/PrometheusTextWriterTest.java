@@ -0,0 +1,51 @@
+package cn.laoshini.dk.monitor;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author fagarine
+ */
+public class PrometheusTextWriterTest {
+
+    @Test
+    public void testLabelEscape() {
+        Assert.assertEquals("cache=\"a\\\"b\\\\c\\nd\"", PrometheusTextWriter.label("cache", "a\"b\\c\nd"));
+        Assert.assertEquals("server_id=\"3\"", PrometheusTextWriter.label("server_id", 3));
+    }
+
+    @Test
+    public void testSamples() {
+        PrometheusTextWriter writer = new PrometheusTextWriter();
+        writer.type("dk_server_online", "gauge");
+        writer.sample("dk_server_online", PrometheusTextWriter.label("server_id", 1), 25L);
+        writer.sample("dk_cache_hit_rate", PrometheusTextWriter.label("cache", "role"), 0.5D);
+
+        String expected = "# TYPE dk_server_online gauge\n" + "dk_server_online{server_id=\"1\"} 25\n"
+                + "dk_cache_hit_rate{cache=\"role\"} 0.5\n";
+        Assert.assertEquals(expected, writer.toString());
+    }
+
+    /**
+     * 耗时分布按summary格式输出，单位由纳秒转换为秒
+     */
+    @Test
+    public void testSummary() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.SECONDS.toNanos(1));
+        histogram.record(TimeUnit.SECONDS.toNanos(1));
+
+        PrometheusTextWriter writer = new PrometheusTextWriter();
+        writer.summary("dk_handler_latency_seconds", PrometheusTextWriter.label("message_id", 1001), histogram);
+
+        String expected = "dk_handler_latency_seconds{message_id=\"1001\",quantile=\"0.5\"} 1.0\n"
+                + "dk_handler_latency_seconds{message_id=\"1001\",quantile=\"0.9\"} 1.0\n"
+                + "dk_handler_latency_seconds{message_id=\"1001\",quantile=\"0.99\"} 1.0\n"
+                + "dk_handler_latency_seconds{message_id=\"1001\",quantile=\"0.999\"} 1.0\n"
+                + "dk_handler_latency_seconds_sum{message_id=\"1001\"} 2.0\n"
+                + "dk_handler_latency_seconds_count{message_id=\"1001\"} 2\n";
+        Assert.assertEquals(expected, writer.toString());
+    }
+}
@@ -0,0 +1,53 @@
+package cn.laoshini.dk.monitor;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author fagarine
+ */
+public class RateMeterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testRate() {
+        RateMeter meter = new RateMeter(0L);
+        meter.mark(100);
+
+        Assert.assertEquals(100D, meter.ratePerSecond(SECOND), DELTA);
+        meter.mark(300);
+        Assert.assertEquals(150D, meter.ratePerSecond(3 * SECOND), DELTA);
+        Assert.assertEquals(400L, meter.total());
+    }
+
+    /**
+     * 两个读取方交替读取，各自得到的都是距今至少1秒区间的速率，不会因为对方刚读取过而得到缓存值或极短区间的速率
+     */
+    @Test
+    public void testReadersDoNotShareWindow() {
+        RateMeter meter = new RateMeter(0L);
+        meter.mark(100);
+        // 读取方A在第1秒读取
+        Assert.assertEquals(100D, meter.ratePerSecond(SECOND), DELTA);
+
+        meter.mark(50);
+        // 读取方B在A读取后0.5秒读取，区间从第0秒开始，而不是从A读取的时刻开始
+        Assert.assertEquals(100D, meter.ratePerSecond(SECOND + SECOND / 2), DELTA);
+        // 读取方A在第2秒再次读取，区间为[1, 2]秒，不受B读取的影响
+        Assert.assertEquals(50D, meter.ratePerSecond(2 * SECOND), DELTA);
+    }
+
+    @Test
+    public void testWithinFirstSecond() {
+        RateMeter meter = new RateMeter(0L);
+        Assert.assertEquals(0D, meter.ratePerSecond(0L), DELTA);
+
+        meter.mark(10);
+        Assert.assertEquals(20D, meter.ratePerSecond(SECOND / 2), DELTA);
+    }
+}
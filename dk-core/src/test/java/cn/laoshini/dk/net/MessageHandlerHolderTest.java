@@ -0,0 +1,70 @@
+package cn.laoshini.dk.net;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import cn.laoshini.dk.net.handler.IMessageHandler;
+
+/**
+ * @author fagarine
+ */
+public class MessageHandlerHolderTest {
+
+    private static final int FIRST_ID = 93001;
+
+    private static final int SECOND_ID = 93003;
+
+    private static final IMessageHandler<Object> HANDLER = (req, subject) -> {
+    };
+
+    @After
+    public void destroy() {
+        MessageHandlerHolder.unregisterHandler(FIRST_ID);
+        MessageHandlerHolder.unregisterHandler(SECOND_ID);
+    }
+
+    @Test
+    public void testRegisterVisibleImmediately() {
+        MessageHandlerHolder.registerSingletonHandler(FIRST_ID, HANDLER);
+
+        Assert.assertTrue(MessageHandlerHolder.exists(FIRST_ID));
+        Assert.assertSame(HANDLER, MessageHandlerHolder.getSingletonHandler(FIRST_ID));
+    }
+
+    /**
+     * 批量注册期间不重新生成消息分发表，批量注册结束后所有Handler一起生效
+     */
+    @Test
+    public void testBatchUpdate() {
+        MessageHandlerHolder.batchUpdate(() -> {
+            MessageHandlerHolder.registerSingletonHandler(FIRST_ID, HANDLER);
+            MessageHandlerHolder.batchUpdate(() -> MessageHandlerHolder.registerSingletonHandler(SECOND_ID, HANDLER));
+
+            Assert.assertFalse("嵌套的批量注册结束时不应该重新生成消息分发表", MessageHandlerHolder.exists(SECOND_ID));
+            Assert.assertFalse(MessageHandlerHolder.exists(FIRST_ID));
+        });
+
+        Assert.assertTrue(MessageHandlerHolder.exists(FIRST_ID));
+        Assert.assertTrue(MessageHandlerHolder.exists(SECOND_ID));
+    }
+
+    /**
+     * 批量注册中途失败时，已完成的注册仍然生效，之后的注册操作立即生效
+     */
+    @Test
+    public void testBatchUpdateFailure() {
+        try {
+            MessageHandlerHolder.batchUpdate(() -> {
+                MessageHandlerHolder.registerSingletonHandler(FIRST_ID, HANDLER);
+                throw new IllegalStateException("register failed");
+            });
+            Assert.fail("批量注册逻辑的异常应该抛出");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(MessageHandlerHolder.exists(FIRST_ID));
+        }
+
+        MessageHandlerHolder.registerSingletonHandler(SECOND_ID, HANDLER);
+        Assert.assertTrue(MessageHandlerHolder.exists(SECOND_ID));
+    }
+}
@@ -0,0 +1,90 @@
+package cn.laoshini.dk.net.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import cn.laoshini.dk.net.server.FrameCompressionHandler;
+
+import static cn.laoshini.dk.constant.GameConstant.MAX_FRAME_LENGTH;
+
+/**
+ * 预设字典训练和取样测试
+ *
+ * @author fagarine
+ */
+public class CompressionDictionaryTrainerTest {
+
+    private static final int DICTIONARY_SIZE = 4096;
+
+    /**
+     * 训练得到的字典用于压缩新消息，解压后内容不变，且压缩后比不使用字典更小
+     */
+    @Test
+    public void testTrainedDictionaryRoundTrip() throws Exception {
+        CompressionDictionaryTrainer trainer = new CompressionDictionaryTrainer();
+        for (int i = 0; i < 50; i++) {
+            trainer.addSample(message(i));
+        }
+        byte[] dictionary = trainer.train(DICTIONARY_SIZE);
+        Assert.assertTrue(dictionary.length > 0);
+        Assert.assertTrue(dictionary.length <= DICTIONARY_SIZE);
+
+        ByteBuf src = Unpooled.wrappedBuffer(message(1000));
+        ByteBuf withDictionary = Unpooled.buffer();
+        ByteBuf withoutDictionary = Unpooled.buffer();
+        ByteBuf inflated = Unpooled.buffer();
+        try {
+            Assert.assertTrue(ZlibFrameCompressor.compress(src, withDictionary, Deflater.BEST_SPEED, dictionary));
+            Assert.assertTrue(ZlibFrameCompressor.compress(src, withoutDictionary, Deflater.BEST_SPEED, null));
+            Assert.assertTrue("使用字典后压缩率应该更高", withDictionary.readableBytes() < withoutDictionary.readableBytes());
+
+            ZlibFrameCompressor.decompress(withDictionary, inflated, dictionary, MAX_FRAME_LENGTH);
+            Assert.assertEquals(src, inflated);
+        } finally {
+            src.release();
+            withDictionary.release();
+            withoutDictionary.release();
+            inflated.release();
+        }
+    }
+
+    /**
+     * 压缩处理器按取样间隔把发出的帧交给训练器，达到样本上限后不再取样，且取样不影响帧的发送
+     */
+    @Test
+    public void testSampleOutboundFrames() {
+        CompressionDictionaryTrainer trainer = new CompressionDictionaryTrainer().setSampling(2, 3);
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new FrameCompressionHandler(Integer.MAX_VALUE, Deflater.BEST_SPEED, null, trainer));
+        try {
+            for (int i = 0; i < 10; i++) {
+                Assert.assertTrue(channel.writeOutbound(Unpooled.wrappedBuffer(message(i))));
+                ByteBuf frame = channel.readOutbound();
+                Assert.assertEquals(1 + message(i).length, frame.readableBytes());
+                frame.release();
+
+                // 第0、2、4个帧被取样
+                Assert.assertEquals(Math.min(i / 2 + 1, 3), trainer.sampleCount());
+            }
+            Assert.assertTrue(trainer.isFull());
+            Assert.assertTrue(trainer.train(DICTIONARY_SIZE).length > 0);
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    private static byte[] message(int index) {
+        String text = String.format("{\"id\":%06d,\"roleId\":%010d,\"scene\":{\"mapId\":1001,\"x\":%05d,\"y\":%05d},"
+                                    + "\"items\":[{\"itemId\":2001,\"count\":%04d},{\"itemId\":2002,\"count\":%04d}],"
+                                    + "\"buffs\":[{\"buffId\":3001,\"expire\":%010d}],\"status\":\"NORMAL\"}", index,
+                10000000L + index, index * 7 % 100000, index * 13 % 100000, index % 10000, index * 3 % 10000,
+                1600000000L + index);
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
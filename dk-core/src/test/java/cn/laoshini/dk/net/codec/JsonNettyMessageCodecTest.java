@@ -0,0 +1,168 @@
+package cn.laoshini.dk.net.codec;
+
+import java.util.Collections;
+
+import com.alibaba.fastjson.JSONObject;
+import io.netty.buffer.ByteBuf;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import cn.laoshini.dk.constant.GameCodeEnum;
+import cn.laoshini.dk.constant.GameConstant;
+import cn.laoshini.dk.domain.msg.AbstractMessage;
+import cn.laoshini.dk.domain.msg.ReqMessage;
+import cn.laoshini.dk.domain.msg.RespMessage;
+import cn.laoshini.dk.net.MessageHolder;
+import cn.laoshini.dk.util.MessageUtil;
+
+/**
+ * JSON消息编码器与解码器的往返测试
+ *
+ * @author fagarine
+ */
+public class JsonNettyMessageCodecTest {
+
+    private static final int LOGIN_ID = 91001;
+
+    private static final int UNREGISTERED_ID = 91003;
+
+    @BeforeClass
+    public static void registerMessages() {
+        MessageHolder.registerMessage(LOGIN_ID, LoginDto.class);
+    }
+
+    @Test
+    public void testRequestRoundTrip() {
+        ReqMessage<LoginDto> request = new ReqMessage<>();
+        request.setId(LOGIN_ID);
+        request.setParams("ext");
+        request.setData(new LoginDto("dk", 7));
+
+        AbstractMessage<?> decoded = roundTrip(new JsonNettyMessageEncoder(), request);
+
+        Assert.assertTrue(decoded instanceof ReqMessage);
+        Assert.assertEquals(LOGIN_ID, decoded.getId());
+        Assert.assertEquals("ext", decoded.getParams());
+        Assert.assertTrue("已登记消息类的消息内容应该直接解析为该类型", decoded.getData() instanceof LoginDto);
+        LoginDto data = (LoginDto) decoded.getData();
+        Assert.assertEquals("dk", data.getAccount());
+        Assert.assertEquals(7, data.getLevel());
+    }
+
+    @Test
+    public void testResponseRoundTrip() {
+        RespMessage<LoginDto> response = new RespMessage<>();
+        response.setId(LOGIN_ID);
+        response.setData(new LoginDto("dk", 8));
+
+        AbstractMessage<?> decoded = roundTrip(new JsonNettyMessageEncoder(), response);
+
+        Assert.assertTrue("带返回码的消息应该解码为RespMessage", decoded instanceof RespMessage);
+        Assert.assertEquals(GameCodeEnum.OK.getCode(), decoded.getCode());
+        Assert.assertEquals(8, ((LoginDto) decoded.getData()).getLevel());
+    }
+
+    /**
+     * 返回码不是OK时，消息内容不解析
+     */
+    @Test
+    public void testErrorResponseRoundTrip() {
+        RespMessage<LoginDto> response = new RespMessage<>();
+        response.setId(LOGIN_ID);
+        response.setCode(GameCodeEnum.MESSAGE_DECODE_ERROR.getCode());
+        response.setParams("bad request");
+        response.setData(new LoginDto("dk", 9));
+
+        AbstractMessage<?> decoded = roundTrip(new JsonNettyMessageEncoder(), response);
+
+        Assert.assertEquals(GameCodeEnum.MESSAGE_DECODE_ERROR.getCode(), decoded.getCode());
+        Assert.assertEquals("bad request", decoded.getParams());
+        Assert.assertNull(decoded.getData());
+    }
+
+    @Test
+    public void testUnregisteredMessageClass() {
+        ReqMessage<Object> request = new ReqMessage<>();
+        request.setId(UNREGISTERED_ID);
+        request.setData(Collections.singletonMap("gold", 100));
+
+        AbstractMessage<?> decoded = roundTrip(new JsonNettyMessageEncoder(), request);
+
+        Assert.assertTrue(decoded.getData() instanceof JSONObject);
+        Assert.assertEquals(100, ((JSONObject) decoded.getData()).getIntValue("gold"));
+    }
+
+    @Test
+    public void testShortLengthRoundTrip() {
+        ReqMessage<LoginDto> request = new ReqMessage<>();
+        request.setId(LOGIN_ID);
+        request.setData(new LoginDto("short", 1));
+
+        AbstractMessage<?> decoded = roundTrip(new JsonShortLengthNettyMessageEncoder(), request);
+
+        Assert.assertEquals(LOGIN_ID, decoded.getId());
+        Assert.assertEquals("short", ((LoginDto) decoded.getData()).getAccount());
+    }
+
+    /**
+     * 消息内容出现在消息id之前时，先解析为JSONObject，再转换为登记的消息类
+     */
+    @Test
+    public void testDetailBeforeMessageId() {
+        String json = "{\"" + GameConstant.MESSAGE_DETAIL_KEY + "\":{\"account\":\"late\",\"level\":3},\""
+                + GameConstant.MESSAGE_ID_KEY + "\":" + LOGIN_ID + "}";
+
+        AbstractMessage<Object> decoded = MessageUtil.readJsonMessage(json);
+
+        Assert.assertEquals(LOGIN_ID, decoded.getId());
+        Assert.assertTrue(decoded.getData() instanceof LoginDto);
+        Assert.assertEquals("late", ((LoginDto) decoded.getData()).getAccount());
+    }
+
+    private static AbstractMessage<?> roundTrip(JsonNettyMessageEncoder encoder, AbstractMessage<?> message) {
+        ByteBuf buf = encoder.encode(message, null);
+        try {
+            int length = buf.readableBytes() - encoder.lengthFieldBytes();
+            int recorded = encoder.lengthFieldBytes() == Short.BYTES ? buf.getShort(0) : buf.getInt(0);
+            Assert.assertEquals("长度字段应该等于消息内容的字节数", length, recorded);
+
+            AbstractMessage<?> decoded = new JsonNettyMessageDecoder().decode(buf, null);
+            Assert.assertEquals(0, buf.readableBytes());
+            return decoded;
+        } finally {
+            buf.release();
+        }
+    }
+
+    public static class LoginDto {
+
+        private String account;
+
+        private int level;
+
+        public LoginDto() {
+        }
+
+        LoginDto(String account, int level) {
+            this.account = account;
+            this.level = level;
+        }
+
+        public String getAccount() {
+            return account;
+        }
+
+        public void setAccount(String account) {
+            this.account = account;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public void setLevel(int level) {
+            this.level = level;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package cn.laoshini.dk.net.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.Test;
+
+import cn.laoshini.dk.constant.RateLimitPolicy;
+
+/**
+ * @author fagarine
+ */
+public class InboundRateLimitHandlerTest {
+
+    private static final int BYTES_PER_SECOND = 100;
+
+    private static final int MESSAGES_PER_SECOND = 2;
+
+    /**
+     * 字节数超限而消息数未超限时，被拒绝的尝试不应该消耗消息数的令牌
+     */
+    @Test
+    public void testByteLimitDoesNotDrainMessageBudget() {
+        InboundRateLimitHandler handler =
+                new InboundRateLimitHandler(BYTES_PER_SECOND, MESSAGES_PER_SECOND, RateLimitPolicy.THROTTLE, 0L);
+
+        ByteBuf first = frame(BYTES_PER_SECOND);
+        ByteBuf second = frame(BYTES_PER_SECOND);
+        try {
+            Assert.assertEquals(0L, handler.acquire(first, 0L));
+            // 字节令牌已用完，恢复前的反复尝试（如暂停后的resume）都应该失败
+            for (int i = 0; i < 5; i++) {
+                Assert.assertTrue(handler.acquire(second, 0L) > 0L);
+            }
+        } finally {
+            first.release();
+            second.release();
+        }
+
+        // 不占字节数的消息只需要消息令牌，此时应该还剩1个
+        Assert.assertEquals(0L, handler.acquire(new Object(), 0L));
+        Assert.assertTrue("消息令牌用完后应该需要等待", handler.acquire(new Object(), 0L) > 0L);
+    }
+
+    private static ByteBuf frame(int size) {
+        return Unpooled.wrappedBuffer(new byte[size]);
+    }
+}
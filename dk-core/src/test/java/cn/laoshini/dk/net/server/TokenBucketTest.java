@@ -0,0 +1,96 @@
+package cn.laoshini.dk.net.server;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author fagarine
+ */
+public class TokenBucketTest {
+
+    private static final int RATE = 100;
+
+    /**
+     * 每个令牌的生成时间（纳秒）
+     */
+    private static final long NANOS_PER_TOKEN = TimeUnit.SECONDS.toNanos(1) / RATE;
+
+    /**
+     * 浮点计算允许的等待时间误差（纳秒）
+     */
+    private static final double DELTA = 1000D;
+
+    @Test
+    public void testInitialBurst() {
+        TokenBucket bucket = new TokenBucket(RATE, 0L);
+
+        Assert.assertEquals(0L, bucket.tryAcquire(RATE, 0L));
+        Assert.assertEquals(NANOS_PER_TOKEN, bucket.tryAcquire(1, 0L), DELTA);
+    }
+
+    @Test
+    public void testRefill() {
+        TokenBucket bucket = new TokenBucket(RATE, 0L);
+        Assert.assertEquals(0L, bucket.tryAcquire(RATE, 0L));
+
+        long halfSecond = TimeUnit.MILLISECONDS.toNanos(500);
+        Assert.assertEquals(0L, bucket.tryAcquire(RATE / 2, halfSecond));
+        Assert.assertTrue(bucket.tryAcquire(1, halfSecond) > 0);
+    }
+
+    @Test
+    public void testRefillCappedAtCapacity() {
+        TokenBucket bucket = new TokenBucket(RATE, 0L);
+
+        long later = TimeUnit.SECONDS.toNanos(10);
+        Assert.assertEquals(0L, bucket.tryAcquire(RATE, later));
+        Assert.assertTrue("闲置再久，桶内令牌也不应该超过每秒令牌数", bucket.tryAcquire(1, later) > 0);
+    }
+
+    @Test
+    public void testWaitTimeCoversMissingTokens() {
+        TokenBucket bucket = new TokenBucket(RATE, 0L);
+        Assert.assertEquals(0L, bucket.tryAcquire(RATE - 10, 0L));
+
+        long wait = bucket.tryAcquire(30, 0L);
+        Assert.assertEquals(20 * NANOS_PER_TOKEN, wait, DELTA);
+        Assert.assertEquals("等待返回的时间后应该可以获取成功", 0L, bucket.tryAcquire(30, wait));
+    }
+
+    /**
+     * 超过桶容量的请求在桶满时放行，欠下的令牌需要后续补足
+     */
+    @Test
+    public void testOversizedRequest() {
+        TokenBucket bucket = new TokenBucket(RATE, 0L);
+
+        Assert.assertEquals(0L, bucket.tryAcquire(RATE * 2 + 50, 0L));
+        Assert.assertEquals(151 * NANOS_PER_TOKEN, bucket.tryAcquire(1, 0L), DELTA);
+    }
+
+    /**
+     * 桶未满时，超过桶容量的请求只需要等到桶满，而不是永远无法获取
+     */
+    @Test
+    public void testOversizedRequestWaitsForFullBucket() {
+        TokenBucket bucket = new TokenBucket(RATE, 0L);
+        Assert.assertEquals(0L, bucket.tryAcquire(10, 0L));
+
+        long wait = bucket.tryAcquire(RATE * 3, 0L);
+        Assert.assertEquals(10 * NANOS_PER_TOKEN, wait, DELTA);
+        Assert.assertEquals(0L, bucket.tryAcquire(RATE * 3, wait));
+    }
+
+    @Test
+    public void testWaitNanosDoesNotConsume() {
+        TokenBucket bucket = new TokenBucket(RATE, 0L);
+
+        Assert.assertEquals(0L, bucket.waitNanos(RATE, 0L));
+        Assert.assertEquals("只检查不扣除，令牌应该仍然足够", 0L, bucket.waitNanos(RATE, 0L));
+
+        bucket.take(RATE);
+        Assert.assertEquals(NANOS_PER_TOKEN, bucket.waitNanos(1, 0L), DELTA);
+    }
+}
@@ -0,0 +1,89 @@
+package cn.laoshini.dk.net.session;
+
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author fagarine
+ */
+public class AbstractSessionTest {
+
+    private static final SessionAttributeKey<Integer> LEVEL = SessionAttributeKey.valueOf("test.level");
+
+    /**
+     * 以字符串为key的属性存放在会话自己的Map中，不创建全局的SessionAttributeKey
+     */
+    @Test
+    public void testNamedAttrsNotInterned() {
+        TestSession session = new TestSession();
+        int keyCount = SessionAttributeKey.count();
+
+        for (int i = 0; i < 1000; i++) {
+            session.add("player." + i, i);
+        }
+
+        Assert.assertEquals(keyCount, SessionAttributeKey.count());
+        Assert.assertEquals(999, session.getAttr("player.999"));
+    }
+
+    @Test
+    public void testNamedAttrs() {
+        TestSession session = new TestSession();
+        Assert.assertNull(session.getAttr("missing"));
+        Assert.assertFalse(session.containsAttr("missing"));
+
+        session.addFlag("flag");
+        session.add("gold", 100);
+        session.putAttrs(Collections.singletonMap("name", "dk"));
+        Assert.assertTrue(session.containsAttr("flag"));
+        Assert.assertEquals(100, session.getAttr("gold"));
+        Assert.assertEquals("dk", session.getAttr("name"));
+
+        session.add("gold", null);
+        session.remove("name");
+        Assert.assertFalse(session.containsAttr("gold"));
+        Assert.assertNull(session.getAttr("name"));
+        Assert.assertTrue(session.containsAttr("flag"));
+    }
+
+    @Test
+    public void testClear() {
+        TestSession session = new TestSession();
+        session.setId(7L);
+        session.add("gold", 100);
+        session.setAttr(LEVEL, 3);
+
+        session.clear();
+
+        Assert.assertEquals(0L, session.getId());
+        Assert.assertFalse(session.containsAttr("gold"));
+        Assert.assertNull(session.attr(LEVEL));
+    }
+
+    private static class TestSession extends AbstractSession<Void> {
+
+        private TestSession() {
+            super(null);
+        }
+
+        @Override
+        public String getIp() {
+            return "127.0.0.1";
+        }
+
+        @Override
+        public boolean isConnect() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void sendMessage(Object message) {
+        }
+    }
+}
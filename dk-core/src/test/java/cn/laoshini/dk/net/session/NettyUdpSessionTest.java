@@ -0,0 +1,146 @@
+package cn.laoshini.dk.net.session;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cn.laoshini.dk.domain.GameSubject;
+import cn.laoshini.dk.net.codec.INettyMessageEncoder;
+
+/**
+ * UDP会话可靠模式（按序确认和超时重传）测试
+ *
+ * @author fagarine
+ */
+public class NettyUdpSessionTest {
+
+    private static final long RETRANSMIT_TIMEOUT = 100L;
+
+    private EmbeddedChannel channel;
+
+    private NettyUdpSession session;
+
+    @Before
+    public void setUp() {
+        channel = new EmbeddedChannel();
+        session = new NettyUdpSession(channel);
+        session.setRecipient(new InetSocketAddress("127.0.0.1", 9999));
+        session.setEncoder(new TextEncoder());
+        session.setSequenced(true);
+        session.setReliable(true, RETRANSMIT_TIMEOUT);
+    }
+
+    @After
+    public void tearDown() {
+        session.clear();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testRetransmitUntilAcked() {
+        session.sendMessage("a");
+        session.sendMessage("b");
+        assertPacket(1, "a");
+        assertPacket(2, "b");
+        Assert.assertEquals(2, session.getUnackedCount());
+
+        // 未超时，不重发
+        session.retransmit(System.currentTimeMillis());
+        Assert.assertNull(channel.readOutbound());
+
+        // 超时后从最早的未确认包开始按顺序重发
+        long later = System.currentTimeMillis() + RETRANSMIT_TIMEOUT * 2;
+        session.retransmit(later);
+        assertPacket(1, "a");
+        assertPacket(2, "b");
+
+        // 确认序号1后，只重发序号2
+        Assert.assertFalse("只有包头的确认包不需要处理", session.acceptSequence(ackPacket(0, 1)));
+        Assert.assertEquals(1, session.getUnackedCount());
+        session.retransmit(later + RETRANSMIT_TIMEOUT * 2);
+        assertPacket(2, "b");
+        Assert.assertNull(channel.readOutbound());
+
+        session.acceptSequence(ackPacket(0, 2));
+        Assert.assertEquals(0, session.getUnackedCount());
+        session.retransmit(later + RETRANSMIT_TIMEOUT * 4);
+        Assert.assertNull("全部确认后不再重发", channel.readOutbound());
+    }
+
+    @Test
+    public void testGiveUpAfterMaxRetransmits() {
+        session.sendMessage("a");
+        assertPacket(1, "a");
+
+        long now = System.currentTimeMillis();
+        for (int i = 1; i <= NettyUdpSession.MAX_RETRANSMITS; i++) {
+            session.retransmit(now + RETRANSMIT_TIMEOUT * i);
+            assertPacket(1, "a");
+        }
+
+        session.retransmit(now + RETRANSMIT_TIMEOUT * (NettyUdpSession.MAX_RETRANSMITS + 1));
+        Assert.assertNull(channel.readOutbound());
+        Assert.assertEquals(0, session.getUnackedCount());
+    }
+
+    /**
+     * 接收方只接受连续的序号，收到数据包后由定时任务回复只有包头的确认包
+     */
+    @Test
+    public void testReceiveInOrderAndAck() {
+        Assert.assertTrue(session.acceptSequence(dataPacket(1, 0)));
+        Assert.assertFalse("乱序到达的包应该丢弃", session.acceptSequence(dataPacket(3, 0)));
+        Assert.assertFalse("重复的包应该丢弃", session.acceptSequence(dataPacket(1, 0)));
+        Assert.assertTrue(session.acceptSequence(dataPacket(2, 0)));
+
+        session.retransmit(System.currentTimeMillis());
+        DatagramPacket ack = channel.readOutbound();
+        try {
+            ByteBuf content = ack.content();
+            Assert.assertEquals(NettyUdpSession.SEQUENCE_HEADER_BYTES, content.readableBytes());
+            Assert.assertEquals(0, content.readInt());
+            Assert.assertEquals(2, content.readInt());
+        } finally {
+            ack.release();
+        }
+
+        session.retransmit(System.currentTimeMillis());
+        Assert.assertNull("已确认的包不需要再次回复", channel.readOutbound());
+    }
+
+    private void assertPacket(int sequence, String text) {
+        DatagramPacket packet = channel.readOutbound();
+        Assert.assertNotNull(packet);
+        try {
+            ByteBuf content = packet.content();
+            Assert.assertEquals(sequence, content.readInt());
+            content.readInt();
+            Assert.assertEquals(text, content.toString(StandardCharsets.UTF_8));
+        } finally {
+            packet.release();
+        }
+    }
+
+    private static ByteBuf ackPacket(int sequence, int ack) {
+        return Unpooled.buffer().writeInt(sequence).writeInt(ack);
+    }
+
+    private static ByteBuf dataPacket(int sequence, int ack) {
+        return ackPacket(sequence, ack).writeByte(1);
+    }
+
+    private static class TextEncoder implements INettyMessageEncoder<Object> {
+        @Override
+        public ByteBuf encode(Object message, GameSubject subject) {
+            return Unpooled.copiedBuffer(String.valueOf(message), StandardCharsets.UTF_8);
+        }
+    }
+}
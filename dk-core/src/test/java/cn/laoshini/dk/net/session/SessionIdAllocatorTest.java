@@ -0,0 +1,85 @@
+package cn.laoshini.dk.net.session;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author fagarine
+ */
+public class SessionIdAllocatorTest {
+
+    private static final long SEQUENCE_MASK = (1L << 40) - 1;
+
+    @Test
+    public void testPacking() {
+        SessionIdAllocator allocator = new SessionIdAllocator(5);
+
+        long first = allocator.next();
+        long second = allocator.next();
+        Assert.assertEquals((5L << 40) | 1L, first);
+        Assert.assertEquals((5L << 40) | 2L, second);
+        Assert.assertEquals(5, SessionIdAllocator.serverIdOf(first));
+        Assert.assertEquals(5, SessionIdAllocator.serverIdOf(second));
+    }
+
+    @Test
+    public void testServerIdRange() {
+        long id = new SessionIdAllocator(SessionIdAllocator.MAX_SERVER_ID).next();
+        Assert.assertTrue("最大服务器id生成的会话id应该为正数", id > 0);
+        Assert.assertEquals(SessionIdAllocator.MAX_SERVER_ID, SessionIdAllocator.serverIdOf(id));
+
+        Assert.assertEquals(0, SessionIdAllocator.serverIdOf(new SessionIdAllocator(0).next()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeServerId() {
+        new SessionIdAllocator(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testServerIdTooLarge() {
+        new SessionIdAllocator(SessionIdAllocator.MAX_SERVER_ID + 1);
+    }
+
+    /**
+     * 序号用完后回绕，跳过0，不影响服务器id部分
+     */
+    @Test
+    public void testSequenceOverflow() {
+        SessionIdAllocator allocator = new SessionIdAllocator(7, SEQUENCE_MASK - 1);
+
+        long last = allocator.next();
+        Assert.assertEquals((7L << 40) | SEQUENCE_MASK, last);
+        Assert.assertEquals(7, SessionIdAllocator.serverIdOf(last));
+
+        long wrapped = allocator.next();
+        Assert.assertEquals("回绕后应该跳过序号0", (7L << 40) | 1L, wrapped);
+        Assert.assertEquals(7, SessionIdAllocator.serverIdOf(wrapped));
+        Assert.assertEquals((7L << 40) | 2L, allocator.next());
+    }
+
+    @Test
+    public void testConcurrentUnique() throws Exception {
+        int threads = 4;
+        int idsPerThread = 20000;
+        SessionIdAllocator allocator = new SessionIdAllocator(3);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                for (int j = 0; j < idsPerThread; j++) {
+                    ids.add(allocator.next());
+                }
+                done.countDown();
+            }).start();
+        }
+
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(threads * idsPerThread, ids.size());
+    }
+}
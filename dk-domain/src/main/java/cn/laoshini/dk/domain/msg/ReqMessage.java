@@ -7,6 +7,59 @@ package cn.laoshini.dk.domain.msg;
  */
 public class ReqMessage<Type> extends AbstractMessage<Type> {
 
+    /**
+     * 消息处理各阶段的时间点（System.nanoTime()），只用于耗时统计，不参与序列化
+     */
+    private transient long decodeNanos;
+    private transient long enqueueNanos;
+    private transient long dequeueNanos;
+
+    /**
+     * 记录消息解码完成的时间，只记录第一次
+     */
+    public void markDecoded() {
+        if (decodeNanos == 0L) {
+            decodeNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * 记录消息加入执行队列的时间，消息经过多个队列时只记录第一次
+     */
+    public void markEnqueued() {
+        if (enqueueNanos == 0L) {
+            enqueueNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * 记录消息开始执行的时间，消息经过多个队列时记录最后一次
+     */
+    public void markDequeued() {
+        dequeueNanos = System.nanoTime();
+    }
+
+    public long decodeNanos() {
+        return decodeNanos;
+    }
+
+    public long enqueueNanos() {
+        return enqueueNanos;
+    }
+
+    public long dequeueNanos() {
+        return dequeueNanos;
+    }
+
+    /**
+     * 清除记录的时间点，消息对象回收复用前调用
+     */
+    public void clearTrace() {
+        decodeNanos = 0L;
+        enqueueNanos = 0L;
+        dequeueNanos = 0L;
+    }
+
     @Override
     public String toString() {
         return "ReqMessage{" + "id=" + id + ", params='" + params + '\'' + ", data=" + data + '}';
@@ -2,25 +2,28 @@ package cn.laoshini.dk.client;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
+import java.util.zip.Deflater;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.LengthFieldPrepender;
 
 import cn.laoshini.dk.net.codec.INettyMessageDecoder;
 import cn.laoshini.dk.net.codec.INettyMessageEncoder;
+import cn.laoshini.dk.net.connect.IConnectClosedHandler;
 import cn.laoshini.dk.net.msg.IMessageDispatcher;
+import cn.laoshini.dk.net.server.FrameCompressionHandler;
+import cn.laoshini.dk.net.server.NettyTransport;
 import cn.laoshini.dk.net.session.IMessageSender;
 import cn.laoshini.dk.net.session.ISessionCreator;
 import cn.laoshini.dk.net.session.NettySession;
@@ -50,6 +53,10 @@ public abstract class AbstractNettyTcpClient<S, M> implements Runnable {
      */
     public static final int RECONNECT_COUNT = 5;
     protected EventLoopGroup group;
+    /**
+     * 线程组是否由外部传入，外部传入的线程组由使用方负责关闭，多个客户端可以共用同一个线程组
+     */
+    private boolean sharedGroup;
     private String serverHost;
     private int serverPort;
     private boolean connecting = true;
@@ -65,6 +72,10 @@ public abstract class AbstractNettyTcpClient<S, M> implements Runnable {
     private IMessageDispatcher<S, M> messageDispatcher;
     private IMessageRegister messageRegister;
     private Function<M, Integer> idReader;
+    private IConnectClosedHandler<S> connectClosedHandler;
+    private int compressionThreshold;
+    private int compressionLevel = Deflater.BEST_SPEED;
+    private byte[] compressionDictionary;
 
     @Override
     public void run() {
@@ -74,16 +85,17 @@ public abstract class AbstractNettyTcpClient<S, M> implements Runnable {
             messageRegister.action(AbstractNettyTcpClient.class.getClassLoader());
         }
 
-        group = new NioEventLoopGroup();
+        NettyTransport transport;
+        if (sharedGroup) {
+            transport = NettyTransport.of(group);
+        } else {
+            transport = NettyTransport.select(true);
+            group = transport.newEventLoopGroup(0, "tcp-client");
+        }
+        connecting = true;
         ChannelFuture connect = null;
         try {
-            Bootstrap b = new Bootstrap();
-            b.group(group).channel(NioSocketChannel.class);
-            // 通过NoDelay禁用Nagle,使消息立即发出去，不用等待到一定的数据量才发出去
-            b.option(ChannelOption.TCP_NODELAY, true);
-            b.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
-            b.option(ChannelOption.SO_KEEPALIVE, true);
-            b.handler(new TcpClientChannelHandler());
+            Bootstrap b = newBootstrap(transport);
 
             // 尝试连接的次数
             int tryConnectNum = 0;
@@ -107,6 +119,7 @@ public abstract class AbstractNettyTcpClient<S, M> implements Runnable {
                 connect.channel().closeFuture().sync();
 
                 // 客户端已进入同步等待中，只有客户端连接关闭后才会走到这里
+                connected.set(false);
                 LogUtil.info("连接关闭");
             } else {
                 LogUtil.info("连接服务器失败");
@@ -115,10 +128,49 @@ public abstract class AbstractNettyTcpClient<S, M> implements Runnable {
             LogUtil.error("连接服务器线程中断", e);
             Thread.currentThread().interrupt();
         } finally {
-            group.shutdownGracefully();
+            if (!sharedGroup) {
+                group.shutdownGracefully();
+            }
         }
     }
 
+    /**
+     * 以非阻塞方式发起一次连接，不会重试，也不会等待连接关闭；只能在使用外部线程组时调用（参见{@link #setEventLoopGroup}）
+     * <p>
+     * 连接结果通过返回的ChannelFuture获取，连接成功后可以通过其通道的closeFuture监听连接关闭，由调用方决定是否重连
+     * </p>
+     *
+     * @return 返回本次连接的ChannelFuture
+     */
+    public ChannelFuture connect() {
+        if (!sharedGroup) {
+            throw new ClientException("非阻塞连接需要使用外部传入的线程组");
+        }
+        checkDepends();
+
+        connecting = true;
+        ChannelFuture future = newBootstrap(NettyTransport.of(group)).connect(serverHost, serverPort);
+        future.addListener((ChannelFutureListener) f -> {
+            connecting = false;
+            if (f.isSuccess()) {
+                connected.set(true);
+                f.channel().closeFuture().addListener(cf -> connected.set(false));
+            }
+        });
+        return future;
+    }
+
+    private Bootstrap newBootstrap(NettyTransport transport) {
+        Bootstrap b = new Bootstrap();
+        b.group(group).channel(transport.socketChannelClass());
+        // 通过NoDelay禁用Nagle,使消息立即发出去，不用等待到一定的数据量才发出去
+        b.option(ChannelOption.TCP_NODELAY, true);
+        b.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+        b.option(ChannelOption.SO_KEEPALIVE, true);
+        b.handler(new TcpClientChannelHandler());
+        return b;
+    }
+
     protected void checkDepends() {
         if (StringUtil.isEmptyString(serverHost)) {
             throw new ClientException("服务器地址不能为空");
@@ -151,8 +203,12 @@ public abstract class AbstractNettyTcpClient<S, M> implements Runnable {
 
     public void close() {
         if (connected.get()) {
-            // 关闭连接
-            group.shutdownGracefully();
+            // 关闭连接，共用的线程组只关闭当前连接
+            if (!sharedGroup) {
+                group.shutdownGracefully();
+            } else if (context != null) {
+                context.close();
+            }
 
             // 重置连接状态
             connected.set(false);
@@ -261,6 +317,51 @@ public abstract class AbstractNettyTcpClient<S, M> implements Runnable {
         return this;
     }
 
+    /**
+     * 使用外部创建的线程组，设置后客户端关闭时不会关闭该线程组；适合需要同时连接多个服务器的场景，如集群内服务器之间的连接
+     *
+     * @param group 事件循环线程组，建议通过{@link NettyTransport#newEventLoopGroup(int, String)}创建
+     * @return 返回当前对象
+     */
+    public AbstractNettyTcpClient<S, M> setEventLoopGroup(EventLoopGroup group) {
+        this.group = group;
+        this.sharedGroup = group != null;
+        return this;
+    }
+
+    public IConnectClosedHandler<S> connectClosedHandler() {
+        return connectClosedHandler;
+    }
+
+    /**
+     * 设置连接关闭时的处理逻辑
+     *
+     * @param connectClosedHandler 连接关闭处理器，在连接的事件线程中执行
+     * @return 返回当前对象
+     */
+    public AbstractNettyTcpClient<S, M> setConnectClosedHandler(IConnectClosedHandler<S> connectClosedHandler) {
+        this.connectClosedHandler = connectClosedHandler;
+        return this;
+    }
+
+    /**
+     * 开启消息帧压缩，需要与服务器的压缩配置一致（服务器开启压缩后，每个帧的内容前都有1个字节的压缩标记）
+     *
+     * @param threshold 压缩阈值（字节），不大于0表示不开启
+     * @param level 压缩级别，0~9
+     * @param dictionary 预设字典，服务器使用字典时必须传入相同的字典，否则传入null
+     * @return 返回当前对象
+     */
+    public AbstractNettyTcpClient<S, M> setCompression(int threshold, int level, byte[] dictionary) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("压缩级别超出范围[0, 9]: " + level);
+        }
+        this.compressionThreshold = Math.max(threshold, 0);
+        this.compressionLevel = level;
+        this.compressionDictionary = dictionary == null || dictionary.length == 0 ? null : dictionary;
+        return this;
+    }
+
     public Function<M, Integer> idReader() {
         return idReader;
     }
@@ -281,13 +382,18 @@ public abstract class AbstractNettyTcpClient<S, M> implements Runnable {
         protected void initChannel(SocketChannel ch) throws Exception {
             LogUtil.info("ClientChannelHandler initChannel:" + Thread.currentThread().getId());
 
+            // 出站：clientEncoder -> compression -> frameEncoder
+            // 入站：frameDecoder -> compression -> clientDecoder
             ChannelPipeline pipeLine = ch.pipeline();
             pipeLine.addLast("frameEncoder", new LengthFieldPrepender(MESSAGE_LENGTH_OFFSET));
-            pipeLine.addLast("clientEncoder", messageEncoder());
-
             pipeLine.addLast("frameDecoder",
                     new LengthFieldBasedFrameDecoder(MAX_FRAME_LENGTH, 0, MESSAGE_LENGTH_OFFSET, 0, 4));
+            if (compressionThreshold > 0) {
+                pipeLine.addLast("compression",
+                        new FrameCompressionHandler(compressionThreshold, compressionLevel, compressionDictionary));
+            }
 
+            pipeLine.addLast("clientEncoder", messageEncoder());
             pipeLine.addLast("clientDecoder", messageDecoder());
             pipeLine.addLast("messageHandler", new TcpClientMessageHandler());
         }
@@ -296,7 +402,7 @@ public abstract class AbstractNettyTcpClient<S, M> implements Runnable {
     class TcpClientMessageHandler extends SimpleChannelInboundHandler<M> {
         @Override
         protected void channelRead0(ChannelHandlerContext ctx, M msg) throws Exception {
-            LogUtil.info("接收到服务器消息: " + msg);
+            LogUtil.s2cMessage("接收到服务器消息: {}", msg);
 
             if (messageDispatcher != null) {
                 messageDispatcher.dispatch(session, msg);
@@ -319,8 +425,12 @@ public abstract class AbstractNettyTcpClient<S, M> implements Runnable {
         @Override
         public void channelInactive(ChannelHandlerContext ctx) throws Exception {
             super.channelInactive(ctx);
+            S closed = session;
             context = null;
             session = null;
+            if (connectClosedHandler != null && closed != null) {
+                connectClosedHandler.onDisconnected(closed);
+            }
             LogUtil.info("ClientChannelHandler channelInactive:" + Thread.currentThread().getId());
         }
 
@@ -0,0 +1,19 @@
+package cn.laoshini.dk.cluster;
+
+import cn.laoshini.dk.exception.DkRuntimeException;
+
+/**
+ * 集群通信异常
+ *
+ * @author fagarine
+ */
+public class ClusterException extends DkRuntimeException {
+
+    public ClusterException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ClusterException(String message) {
+        super("cluster.exception.key", message);
+    }
+}
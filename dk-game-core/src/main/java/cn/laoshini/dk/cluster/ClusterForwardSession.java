@@ -0,0 +1,93 @@
+package cn.laoshini.dk.cluster;
+
+import cn.laoshini.dk.domain.msg.AbstractMessage;
+import cn.laoshini.dk.net.session.AbstractSession;
+import cn.laoshini.dk.util.LogUtil;
+
+/**
+ * 转发会话，代表通过其他服务器转发过来的玩家
+ * <p>
+ * 角色所属服务器执行转发消息时，使用该会话作为消息主体的会话；通过该会话发送的消息会经集群连接发回转发方服务器，
+ * 再由转发方推送给玩家。会话id使用角色id，同一角色的转发消息在有序线程池中按到达顺序执行。
+ * 转发会话没有自己的网络通道，{@link #getChannel()}始终返回null，会话组等依赖网络通道的功能不适用于转发会话。
+ * </p>
+ * <p>
+ * {@link #isConnect()}反映的是玩家的连接状态：转发方通知玩家已离开（{@link ClusterManager#cancelForward(long)}）、
+ * 或集群连接断开后，会话即视为断开
+ * </p>
+ * <p>
+ * 集群连接使用JSON编解码，只支持发送{@link AbstractMessage}类型的消息
+ * </p>
+ *
+ * @author fagarine
+ */
+public class ClusterForwardSession extends AbstractSession<Void> {
+
+    private final long roleId;
+
+    private final int originServerId;
+
+    private final AbstractSession link;
+
+    private volatile boolean connected = true;
+
+    ClusterForwardSession(long roleId, int originServerId, AbstractSession link) {
+        super(null);
+        this.roleId = roleId;
+        this.originServerId = originServerId;
+        this.link = link;
+        setId(roleId);
+    }
+
+    @Override
+    public String getIp() {
+        return isConnect() ? link.getIp() : null;
+    }
+
+    @Override
+    public boolean isConnect() {
+        return connected && link.isConnect();
+    }
+
+    @Override
+    public void close() {
+        connected = false;
+        clear();
+    }
+
+    @Override
+    public void sendMessage(Object message) {
+        if (!(message instanceof AbstractMessage)) {
+            LogUtil.error("转发会话只支持发送AbstractMessage类型的消息, roleId:{}, message:{}", roleId, message);
+            return;
+        }
+        if (!isConnect()) {
+            LogUtil.debug("转发会话已断开，丢弃消息, roleId:{}, message:{}", roleId, message);
+            return;
+        }
+
+        AbstractMessage<?> msg = (AbstractMessage<?>) message;
+        link.sendMessage(ClusterHeader.wrap(msg, ClusterHeader.PUSH, 0L, originServerId, roleId));
+    }
+
+    /**
+     * 返回消息来源的集群连接
+     */
+    AbstractSession link() {
+        return link;
+    }
+
+    /**
+     * 返回转发的角色id
+     */
+    public long getRoleId() {
+        return roleId;
+    }
+
+    /**
+     * 返回转发方服务器id，即玩家实际连接的服务器
+     */
+    public int getOriginServerId() {
+        return originServerId;
+    }
+}
@@ -0,0 +1,139 @@
+package cn.laoshini.dk.cluster;
+
+import cn.laoshini.dk.domain.msg.AbstractMessage;
+import cn.laoshini.dk.domain.msg.ReqMessage;
+import cn.laoshini.dk.domain.msg.RespMessage;
+
+/**
+ * 集群消息头，编码在消息的扩展字段（params）中随消息传输，消息原有的扩展内容保留在消息头之后
+ * <p>
+ * 格式为：dkc|类型|序号|来源服务器id|角色id[|原扩展内容]，没有原扩展内容时（null）不输出最后一段
+ * </p>
+ *
+ * @author fagarine
+ */
+final class ClusterHeader {
+
+    private static final String PREFIX = "dkc";
+
+    private static final char SEPARATOR = '|';
+
+    /**
+     * RPC请求，需要返回{@link #RESPONSE}
+     */
+    static final char REQUEST = 'q';
+
+    /**
+     * RPC响应，序号与请求相同
+     */
+    static final char RESPONSE = 'r';
+
+    /**
+     * 转发的玩家消息，在角色所属服务器上执行
+     */
+    static final char FORWARD = 'f';
+
+    /**
+     * 角色所属服务器发回给玩家的消息，由转发方服务器推送给玩家
+     */
+    static final char PUSH = 'p';
+
+    /**
+     * 玩家已离开转发方服务器，角色所属服务器收到后移除对应的转发会话
+     */
+    static final char LEAVE = 'l';
+
+    private final char kind;
+
+    private final long sequence;
+
+    private final int sourceServerId;
+
+    private final long roleId;
+
+    private final String params;
+
+    private ClusterHeader(char kind, long sequence, int sourceServerId, long roleId, String params) {
+        this.kind = kind;
+        this.sequence = sequence;
+        this.sourceServerId = sourceServerId;
+        this.roleId = roleId;
+        this.params = params;
+    }
+
+    static String encode(char kind, long sequence, int sourceServerId, long roleId, String params) {
+        StringBuilder builder = new StringBuilder(32 + (params == null ? 0 : params.length() + 1));
+        builder.append(PREFIX).append(SEPARATOR).append(kind).append(SEPARATOR).append(sequence).append(SEPARATOR)
+                .append(sourceServerId).append(SEPARATOR).append(roleId);
+        if (params != null) {
+            builder.append(SEPARATOR).append(params);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 复制消息并在副本的扩展字段中写入消息头；消息写入通道后在事件线程中异步编码，不能直接修改业务代码传入的消息对象
+     *
+     * @param message 原消息
+     * @return 返回与原消息类型相同（请求或响应）的新消息
+     */
+    static AbstractMessage<Object> wrap(AbstractMessage<?> message, char kind, long sequence, int sourceServerId,
+            long roleId) {
+        AbstractMessage<Object> copy;
+        if (message instanceof RespMessage) {
+            copy = new RespMessage<>();
+        } else {
+            copy = new ReqMessage<>();
+        }
+        copy.setId(message.getId());
+        copy.setCode(message.getCode());
+        copy.setData(message.getData());
+        copy.setParams(encode(kind, sequence, sourceServerId, roleId, message.getParams()));
+        return copy;
+    }
+
+    /**
+     * 解析消息头
+     *
+     * @param params 消息的扩展字段
+     * @return 如果不是集群消息，返回null
+     */
+    static ClusterHeader decode(String params) {
+        if (params == null || !params.startsWith(PREFIX + SEPARATOR)) {
+            return null;
+        }
+        String[] parts = params.split("\\|", 6);
+        if (parts.length < 5 || parts[1].length() != 1) {
+            return null;
+        }
+        try {
+            return new ClusterHeader(parts[1].charAt(0), Long.parseLong(parts[2]), Integer.parseInt(parts[3]),
+                    Long.parseLong(parts[4]), parts.length == 6 ? parts[5] : null);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    char kind() {
+        return kind;
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    int sourceServerId() {
+        return sourceServerId;
+    }
+
+    long roleId() {
+        return roleId;
+    }
+
+    /**
+     * 返回消息原有的扩展内容
+     */
+    String params() {
+        return params;
+    }
+}
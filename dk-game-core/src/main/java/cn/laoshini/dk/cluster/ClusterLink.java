@@ -0,0 +1,137 @@
+package cn.laoshini.dk.cluster;
+
+import java.util.concurrent.TimeUnit;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import cn.laoshini.dk.client.AbstractNettyTcpClient;
+import cn.laoshini.dk.client.JsonNettyTcpClient;
+import cn.laoshini.dk.domain.msg.AbstractMessage;
+import cn.laoshini.dk.net.session.AbstractSession;
+import cn.laoshini.dk.net.session.IMessageSender;
+import cn.laoshini.dk.util.LogUtil;
+
+/**
+ * 当前服务器到集群中另一个服务器的长连接
+ * <p>
+ * 连接使用{@link JsonNettyTcpClient}实现，所有连接共用{@link ClusterManager}的线程组，不额外占用线程；连接以非阻塞方式建立，
+ * 连接失败或断开后在事件循环中延迟{@link AbstractNettyTcpClient#RECONNECT_DELAY}毫秒重连，直到调用{@link #close()}。
+ * 同一个连接上可以同时有任意多个未完成的请求，请求与响应通过消息头中的序号对应
+ * </p>
+ *
+ * @author fagarine
+ */
+final class ClusterLink {
+
+    private final ClusterNode node;
+
+    private final JsonNettyTcpClient<AbstractSession, AbstractMessage> client;
+
+    private final EventLoopGroup group;
+
+    private volatile boolean running = true;
+
+    /**
+     * 当前连接的通道，尚未连接成功时为null
+     */
+    private volatile Channel channel;
+
+    /**
+     * 等待执行的重连任务
+     */
+    private volatile ScheduledFuture<?> reconnectFuture;
+
+    @SuppressWarnings("unchecked")
+    ClusterLink(ClusterNode node, ClusterManager manager, EventLoopGroup group) {
+        this.node = node;
+        this.group = group;
+        this.client = new JsonNettyTcpClient<>();
+        client.setServerHost(node.getHost()).setServerPort(node.getPort()).setEventLoopGroup(group)
+                .setMessageSender(IMessageSender.directSender())
+                .setMessageDispatcher(manager::onMessage)
+                .setConnectClosedHandler(session -> manager.onLinkClosed(node.getServerId()));
+    }
+
+    void start() {
+        connect();
+    }
+
+    private void connect() {
+        if (!running) {
+            return;
+        }
+
+        ChannelFuture future;
+        try {
+            future = client.connect();
+        } catch (Exception e) {
+            LogUtil.error(String.format("集群节点[%s]连接出错", node), e);
+            scheduleReconnect(group.next());
+            return;
+        }
+
+        future.addListener((ChannelFutureListener) f -> {
+            if (!f.isSuccess()) {
+                LogUtil.info("集群节点[{}]没有连接上，等待重连", node);
+                scheduleReconnect(group.next());
+                return;
+            }
+
+            Channel ch = f.channel();
+            channel = ch;
+            if (!running) {
+                // 连接过程中已关闭
+                ch.close();
+                return;
+            }
+            LogUtil.info("集群节点[{}]连接成功", node);
+            ch.closeFuture().addListener(cf -> scheduleReconnect(ch.eventLoop()));
+        });
+    }
+
+    private void scheduleReconnect(EventLoop eventLoop) {
+        if (running) {
+            reconnectFuture = eventLoop
+                    .schedule(this::connect, AbstractNettyTcpClient.RECONNECT_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 发送消息
+     *
+     * @param message 消息
+     * @return 连接不可用时返回false
+     */
+    boolean send(AbstractMessage<?> message) {
+        if (!client.isValidConnect()) {
+            return false;
+        }
+        client.sendMsgToServer(message);
+        return true;
+    }
+
+    boolean isConnected() {
+        return client.isValidConnect();
+    }
+
+    ClusterNode node() {
+        return node;
+    }
+
+    void close() {
+        running = false;
+        ScheduledFuture<?> future = reconnectFuture;
+        if (future != null) {
+            future.cancel(false);
+        }
+        Channel ch = channel;
+        if (ch != null) {
+            ch.close();
+        }
+    }
+}
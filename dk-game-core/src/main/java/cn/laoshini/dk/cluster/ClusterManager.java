@@ -0,0 +1,628 @@
+package cn.laoshini.dk.cluster;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongToIntFunction;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import cn.laoshini.dk.domain.GameSubject;
+import cn.laoshini.dk.domain.msg.AbstractMessage;
+import cn.laoshini.dk.domain.msg.ReqMessage;
+import cn.laoshini.dk.domain.msg.RespMessage;
+import cn.laoshini.dk.executor.NonOrderedQueuePoolExecutor;
+import cn.laoshini.dk.id.DefaultRoleIdGenerator;
+import cn.laoshini.dk.net.handler.MessageReceiveDispatcher;
+import cn.laoshini.dk.net.server.NettyTransport;
+import cn.laoshini.dk.net.session.AbstractSession;
+import cn.laoshini.dk.util.LogUtil;
+
+/**
+ * 集群管理器，负责当前服务器与集群中其他服务器之间的连接、RPC请求和玩家消息转发
+ * <p>
+ * 每个服务器启动一个集群监听端口，并根据{@link IClusterDiscovery}返回的节点列表，与其他每个服务器各保持一条长连接；
+ * 连接断开后自动重连，节点列表按{@link #setRefreshInterval(long)}设置的间隔定时刷新。集群连接使用JSON编解码，
+ * 集群内传输的消息都是{@link AbstractMessage}，集群控制信息（类型、序号、来源服务器、角色id）编码在消息的扩展字段中。
+ * </p>
+ * <p>
+ * RPC请求：{@link #request(int, ReqMessage)}将请求发往目标服务器，目标服务器使用消息id对应的
+ * {@link cn.laoshini.dk.net.handler.IHttpMessageHandler#call(ReqMessage, GameSubject)}处理并返回结果；
+ * 同一条连接上可以同时有任意多个未完成的请求，超时、连接断开时返回的Future以{@link ClusterException}异常结束。
+ * 返回的Future在网络线程中完成，耗时的后续逻辑应该使用thenXxxAsync系列方法执行。
+ * </p>
+ * <p>
+ * 玩家消息转发：{@link #forward(long, ReqMessage, AbstractSession)}根据角色id找到角色所属服务器并转发消息，
+ * 所属服务器以{@link ClusterForwardSession}作为玩家会话，按正常流程（{@link MessageReceiveDispatcher}）执行消息，
+ * 执行过程中发给玩家的消息经原连接发回，再由转发方推送给玩家。玩家下线时转发方调用{@link #cancelForward(long)}，
+ * 通知所属服务器移除对应的转发会话。
+ * </p>
+ * <p>
+ * 在同一台机器上测试时，为每个服务器创建一个使用不同端口的管理器，共用同一个{@link StaticClusterDiscovery}即可，
+ * 例如节点列表为：1@127.0.0.1:9101,2@127.0.0.1:9102
+ * </p>
+ *
+ * @author fagarine
+ */
+public class ClusterManager {
+
+    /**
+     * 默认的请求超时时间（毫秒）
+     */
+    public static final long DEFAULT_REQUEST_TIMEOUT = 3000L;
+
+    /**
+     * 默认的节点列表刷新间隔（毫秒）
+     */
+    public static final long DEFAULT_REFRESH_INTERVAL = 30000L;
+
+    private final int serverId;
+
+    private final int port;
+
+    private IClusterDiscovery discovery = new PropertyClusterDiscovery();
+
+    private long requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+
+    private long refreshInterval = DEFAULT_REFRESH_INTERVAL;
+
+    private int requestThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 根据角色id计算角色所属服务器id，默认使用{@link DefaultRoleIdGenerator}的id格式
+     */
+    private LongToIntFunction roleLocator = DefaultRoleIdGenerator::serverIdOf;
+
+    /**
+     * 到其他服务器的连接，key为服务器id
+     */
+    private final ConcurrentMap<Integer, ClusterLink> links = new ConcurrentHashMap<>();
+
+    /**
+     * 等待响应的请求，key为请求序号
+     */
+    private final ConcurrentMap<Long, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+
+    /**
+     * 转发方记录的已转发玩家的会话，key为角色id，用于将所属服务器发回的消息推送给玩家
+     */
+    private final ConcurrentMap<Long, AbstractSession> forwardedPlayers = new ConcurrentHashMap<>();
+
+    /**
+     * 所属方记录的转发会话，key为角色id
+     */
+    private final ConcurrentMap<Long, ClusterForwardSession> forwardSessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private EventLoopGroup group;
+
+    private ClusterServer server;
+
+    private ExecutorService requestExecutor;
+
+    private ScheduledFuture<?> refreshFuture;
+
+    private volatile boolean started;
+
+    /**
+     * @param serverId 当前服务器id，需要与集群节点列表中的id一致
+     * @param port 当前服务器的集群监听端口
+     */
+    public ClusterManager(int serverId, int port) {
+        if (port <= 0 || port > 65535) {
+            throw new IllegalArgumentException("集群监听端口无效: " + port);
+        }
+        this.serverId = serverId;
+        this.port = port;
+    }
+
+    /**
+     * 启动集群服务：绑定集群监听端口，并连接当前已知的所有节点
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+
+        NettyTransport transport = NettyTransport.select(true);
+        group = transport.newEventLoopGroup(0, "cluster-worker");
+        server = new ClusterServer(this);
+        try {
+            server.bind(port, group);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            group.shutdownGracefully();
+            throw new ClusterException(String.format("集群服务绑定端口[%d]失败, serverId:%d", port, serverId), e);
+        }
+
+        requestExecutor = new NonOrderedQueuePoolExecutor(Math.max(requestThreads, 1));
+        started = true;
+        refresh();
+        refreshFuture = group.scheduleWithFixedDelay(this::refreshSafely, refreshInterval, refreshInterval,
+                TimeUnit.MILLISECONDS);
+        LogUtil.start("集群服务启动成功, serverId:{}, port:{}, 节点:{}", serverId, port, links.keySet());
+    }
+
+    /**
+     * 停止集群服务，断开所有连接，所有未完成的请求以异常结束
+     */
+    public synchronized void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+
+        refreshFuture.cancel(false);
+        links.values().forEach(ClusterLink::close);
+        links.clear();
+        server.close();
+        for (Long seq : pendingRequests.keySet()) {
+            failRequest(seq, "集群服务已关闭");
+        }
+        forwardSessions.values().forEach(ClusterForwardSession::close);
+        forwardSessions.clear();
+        forwardedPlayers.clear();
+        requestExecutor.shutdown();
+        group.shutdownGracefully();
+        LogUtil.info("集群服务已关闭, serverId:{}", serverId);
+    }
+
+    /**
+     * 重新获取节点列表，连接新增的节点，断开已移除或地址已变化的节点
+     */
+    public synchronized void refresh() {
+        if (!started) {
+            return;
+        }
+
+        List<ClusterNode> nodes = discovery.discover();
+        Map<Integer, ClusterNode> latest = new HashMap<>(nodes.size());
+        for (ClusterNode node : nodes) {
+            if (node.getServerId() != serverId) {
+                latest.put(node.getServerId(), node);
+            }
+        }
+
+        for (Iterator<ClusterLink> it = links.values().iterator(); it.hasNext(); ) {
+            ClusterLink link = it.next();
+            if (!link.node().equals(latest.get(link.node().getServerId()))) {
+                it.remove();
+                link.close();
+                onLinkClosed(link.node().getServerId());
+                LogUtil.info("断开集群节点: {}", link.node());
+            }
+        }
+
+        for (ClusterNode node : latest.values()) {
+            if (!links.containsKey(node.getServerId())) {
+                ClusterLink link = new ClusterLink(node, this, group);
+                links.put(node.getServerId(), link);
+                link.start();
+                LogUtil.info("连接集群节点: {}", node);
+            }
+        }
+    }
+
+    private void refreshSafely() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            LogUtil.error("刷新集群节点列表出错", e);
+        }
+    }
+
+    /**
+     * 使用默认超时时间向目标服务器发送RPC请求
+     *
+     * @param targetServerId 目标服务器id
+     * @param message 请求消息
+     * @return 返回目标服务器的响应
+     * @see #request(int, ReqMessage, long)
+     */
+    public CompletableFuture<RespMessage<Object>> request(int targetServerId, ReqMessage<?> message) {
+        return request(targetServerId, message, requestTimeout);
+    }
+
+    /**
+     * 向目标服务器发送RPC请求，目标服务器使用消息id对应的Handler的call()方法处理请求
+     * <p>
+     * 目标服务器为当前服务器时，请求直接在本地的请求线程池中执行，此时消息主体没有会话；
+     * 业务逻辑出错时返回的响应带有对应的错误码，而不是以异常结束
+     * </p>
+     *
+     * @param targetServerId 目标服务器id
+     * @param message 请求消息，集群连接使用JSON编解码，消息内容需要能够被JSON序列化
+     * @param timeoutMillis 超时时间（毫秒）
+     * @return 返回目标服务器的响应；目标服务器未连接、请求超时或连接断开时，以{@link ClusterException}异常结束
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<RespMessage<Object>> request(int targetServerId, ReqMessage<?> message,
+            long timeoutMillis) {
+        CompletableFuture<RespMessage<Object>> future = new CompletableFuture<>();
+        if (!started) {
+            future.completeExceptionally(new ClusterException("集群服务未启动"));
+            return future;
+        }
+
+        if (targetServerId == serverId) {
+            ReqMessage<Object> local = (ReqMessage<Object>) message;
+            local.markEnqueued();
+            try {
+                requestExecutor.execute(() -> future.complete(handleRequest(local, new GameSubject())));
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(new ClusterException("集群请求线程池已关闭", e));
+            }
+            return future;
+        }
+
+        ClusterLink link = links.get(targetServerId);
+        if (link == null || !link.isConnected()) {
+            future.completeExceptionally(new ClusterException(String.format("集群节点[%d]未连接", targetServerId)));
+            return future;
+        }
+
+        long seq = sequence.incrementAndGet();
+        PendingRequest pending = new PendingRequest(targetServerId, message.getId(), future);
+        pendingRequests.put(seq, pending);
+        pending.timeout = group.schedule(() -> failRequest(seq, "请求超时"), timeoutMillis, TimeUnit.MILLISECONDS);
+        if (!link.send(ClusterHeader.wrap(message, ClusterHeader.REQUEST, seq, serverId, 0L))) {
+            failRequest(seq, "连接不可用");
+        }
+        return future;
+    }
+
+    /**
+     * 将玩家消息转发到角色所属的服务器执行
+     * <p>
+     * 所属服务器执行过程中发给玩家的消息，会经集群连接发回当前服务器，再通过传入的玩家会话推送给玩家；
+     * 玩家下线时应该调用{@link #cancelForward(long)}
+     * </p>
+     *
+     * @param roleId 角色id
+     * @param message 玩家消息
+     * @param playerSession 玩家在当前服务器上的会话
+     * @return 如果角色属于当前服务器，返回false，消息没有被转发，需要调用方在本地处理
+     * @throws ClusterException 角色所属服务器未连接时抛出
+     */
+    public boolean forward(long roleId, ReqMessage<?> message, AbstractSession playerSession) {
+        int owner = ownerOf(roleId);
+        if (owner == serverId) {
+            return false;
+        }
+
+        ClusterLink link = links.get(owner);
+        if (link == null || !link.isConnected()) {
+            throw new ClusterException(String.format("角色[%d]所属的集群节点[%d]未连接", roleId, owner));
+        }
+
+        // 所属服务器的推送可能在send()返回之前到达，所以先登记，发送失败时撤销登记
+        AbstractSession previous = forwardedPlayers.put(roleId, playerSession);
+        if (!link.send(ClusterHeader.wrap(message, ClusterHeader.FORWARD, 0L, serverId, roleId))) {
+            if (previous == null) {
+                forwardedPlayers.remove(roleId, playerSession);
+            } else {
+                forwardedPlayers.replace(roleId, playerSession, previous);
+            }
+            throw new ClusterException(String.format("角色[%d]所属的集群节点[%d]连接不可用", roleId, owner));
+        }
+        return true;
+    }
+
+    /**
+     * 取消角色的消息转发，不再向玩家推送所属服务器发回的消息，并通知所属服务器移除角色的转发会话，一般在玩家下线时调用
+     *
+     * @param roleId 角色id
+     */
+    public void cancelForward(long roleId) {
+        if (forwardedPlayers.remove(roleId) == null) {
+            return;
+        }
+
+        ClusterLink link = links.get(ownerOf(roleId));
+        if (link == null || !link.send(ClusterHeader.wrap(new ReqMessage<>(), ClusterHeader.LEAVE, 0L, serverId,
+                roleId))) {
+            // 连接已断开时，所属服务器会在连接断开后清除该连接上的所有转发会话
+            LogUtil.debug("角色[{}]所属的集群节点未连接，不发送离开通知", roleId);
+        }
+    }
+
+    /**
+     * 返回角色所属的服务器id
+     *
+     * @param roleId 角色id
+     * @return 返回服务器id
+     */
+    public int ownerOf(long roleId) {
+        return roleLocator.applyAsInt(roleId);
+    }
+
+    /**
+     * 返回当前已连接的服务器id
+     *
+     * @return 该方法不会返回null
+     */
+    public Set<Integer> connectedServerIds() {
+        Set<Integer> ids = new TreeSet<>();
+        links.forEach((id, link) -> {
+            if (link.isConnected()) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+
+    public boolean isConnected(int targetServerId) {
+        ClusterLink link = links.get(targetServerId);
+        return link != null && link.isConnected();
+    }
+
+    /**
+     * 处理集群连接上收到的消息，由连接的事件线程调用
+     */
+    @SuppressWarnings("unchecked")
+    void onMessage(AbstractSession session, AbstractMessage message) {
+        ClusterHeader header = ClusterHeader.decode(message.getParams());
+        if (header == null) {
+            LogUtil.error("收到非集群消息，已丢弃: {}", message);
+            return;
+        }
+        message.setParams(header.params());
+
+        switch (header.kind()) {
+            case ClusterHeader.REQUEST:
+                if (message instanceof ReqMessage) {
+                    receiveRequest(session, header, (ReqMessage<Object>) message);
+                    return;
+                }
+                break;
+
+            case ClusterHeader.RESPONSE:
+                if (message instanceof RespMessage) {
+                    completeRequest(header.sequence(), (RespMessage<Object>) message);
+                    return;
+                }
+                break;
+
+            case ClusterHeader.FORWARD:
+                if (message instanceof ReqMessage) {
+                    receiveForward(session, header, (ReqMessage<Object>) message);
+                    return;
+                }
+                break;
+
+            case ClusterHeader.PUSH:
+                pushToPlayer(header.roleId(), message);
+                return;
+
+            case ClusterHeader.LEAVE:
+                receiveLeave(session, header.roleId());
+                return;
+
+            default:
+                break;
+        }
+        LogUtil.error("无效的集群消息, 类型:{}, 来源服务器:{}, message:{}", header.kind(), header.sourceServerId(), message);
+    }
+
+    private void receiveRequest(AbstractSession session, ClusterHeader header, ReqMessage<Object> message) {
+        message.markDecoded();
+        message.markEnqueued();
+        GameSubject subject = new GameSubject();
+        subject.setSession(session);
+        try {
+            requestExecutor.execute(() -> {
+                RespMessage<Object> resp = handleRequest(message, subject);
+                session.sendMessage(ClusterHeader.wrap(resp, ClusterHeader.RESPONSE, header.sequence(), serverId, 0L));
+            });
+        } catch (RejectedExecutionException e) {
+            LogUtil.error("集群请求线程池已关闭，丢弃来自服务器[{}]的请求: {}", header.sourceServerId(), message);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private RespMessage<Object> handleRequest(ReqMessage<Object> message, GameSubject subject) {
+        message.markDequeued();
+        RespMessage<Object> resp = MessageReceiveDispatcher.dealMessageAndBack(message, subject);
+        if (resp == null) {
+            resp = RespMessage.noResponse();
+            resp.setId(message.getId());
+        }
+        return resp;
+    }
+
+    private void completeRequest(long seq, RespMessage<Object> resp) {
+        PendingRequest pending = pendingRequests.remove(seq);
+        if (pending == null) {
+            LogUtil.debug("集群请求[{}]已超时或已取消，丢弃响应: {}", seq, resp);
+            return;
+        }
+        pending.cancelTimeout();
+        pending.future.complete(resp);
+    }
+
+    private void failRequest(long seq, String reason) {
+        PendingRequest pending = pendingRequests.remove(seq);
+        if (pending != null) {
+            pending.cancelTimeout();
+            pending.future.completeExceptionally(new ClusterException(
+                    String.format("集群请求失败: %s, 目标服务器:%d, 消息id:%d", reason, pending.serverId, pending.messageId)));
+        }
+    }
+
+    private void receiveForward(AbstractSession link, ClusterHeader header, ReqMessage<Object> message) {
+        message.markDecoded();
+        ClusterForwardSession session = forwardSessions.compute(header.roleId(), (roleId, old) -> {
+            if (old != null && old.link() == link) {
+                return old;
+            }
+            ClusterForwardSession created = new ClusterForwardSession(roleId, header.sourceServerId(), link);
+            GameSubject subject = new GameSubject();
+            subject.setSession(created);
+            created.setSubject(subject);
+            return created;
+        });
+        MessageReceiveDispatcher.messageReceived(message, session.getSubject());
+    }
+
+    private void receiveLeave(AbstractSession link, long roleId) {
+        ClusterForwardSession session = forwardSessions.get(roleId);
+        if (session != null && session.link() == link && forwardSessions.remove(roleId, session)) {
+            session.close();
+        }
+    }
+
+    private void pushToPlayer(long roleId, AbstractMessage<?> message) {
+        AbstractSession player = forwardedPlayers.get(roleId);
+        if (player == null || !player.isConnect()) {
+            if (player != null) {
+                forwardedPlayers.remove(roleId, player);
+            }
+            LogUtil.debug("角色[{}]不在线，丢弃所属服务器发回的消息: {}", roleId, message);
+            return;
+        }
+        player.sendMessage(message);
+    }
+
+    /**
+     * 到目标服务器的连接断开时调用，该连接上未完成的请求以异常结束
+     */
+    void onLinkClosed(int targetServerId) {
+        for (Map.Entry<Long, PendingRequest> entry : pendingRequests.entrySet()) {
+            if (entry.getValue().serverId == targetServerId) {
+                failRequest(entry.getKey(), "连接断开");
+            }
+        }
+    }
+
+    /**
+     * 其他服务器连入的连接断开时调用，清除通过该连接转发过来的会话
+     */
+    void onPeerClosed(AbstractSession link) {
+        for (Iterator<ClusterForwardSession> it = forwardSessions.values().iterator(); it.hasNext(); ) {
+            ClusterForwardSession session = it.next();
+            if (session.link() == link) {
+                it.remove();
+                session.close();
+            }
+        }
+    }
+
+    public int getServerId() {
+        return serverId;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public IClusterDiscovery getDiscovery() {
+        return discovery;
+    }
+
+    /**
+     * 设置集群节点发现方式，默认使用{@link PropertyClusterDiscovery}，需要在{@link #start()}之前设置
+     *
+     * @param discovery 节点发现方式
+     * @return 返回当前对象
+     */
+    public ClusterManager setDiscovery(IClusterDiscovery discovery) {
+        if (discovery == null) {
+            throw new IllegalArgumentException("集群节点发现方式不能为空");
+        }
+        this.discovery = discovery;
+        return this;
+    }
+
+    public long getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public ClusterManager setRequestTimeout(long requestTimeout) {
+        if (requestTimeout <= 0) {
+            throw new IllegalArgumentException("请求超时时间必须大于0: " + requestTimeout);
+        }
+        this.requestTimeout = requestTimeout;
+        return this;
+    }
+
+    public long getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    /**
+     * 设置节点列表刷新间隔，需要在{@link #start()}之前设置
+     *
+     * @param refreshInterval 刷新间隔（毫秒）
+     * @return 返回当前对象
+     */
+    public ClusterManager setRefreshInterval(long refreshInterval) {
+        if (refreshInterval <= 0) {
+            throw new IllegalArgumentException("节点列表刷新间隔必须大于0: " + refreshInterval);
+        }
+        this.refreshInterval = refreshInterval;
+        return this;
+    }
+
+    /**
+     * 设置处理其他服务器RPC请求的线程数，默认为CPU核心数，需要在{@link #start()}之前设置
+     *
+     * @param requestThreads 线程数
+     * @return 返回当前对象
+     */
+    public ClusterManager setRequestThreads(int requestThreads) {
+        this.requestThreads = requestThreads;
+        return this;
+    }
+
+    /**
+     * 设置根据角色id计算所属服务器id的方法，角色id不是由{@link DefaultRoleIdGenerator}生成时需要设置
+     *
+     * @param roleLocator 角色所属服务器计算方法
+     * @return 返回当前对象
+     */
+    public ClusterManager setRoleLocator(LongToIntFunction roleLocator) {
+        if (roleLocator == null) {
+            throw new IllegalArgumentException("角色所属服务器计算方法不能为空");
+        }
+        this.roleLocator = roleLocator;
+        return this;
+    }
+
+    private static final class PendingRequest {
+
+        private final int serverId;
+
+        private final int messageId;
+
+        private final CompletableFuture<RespMessage<Object>> future;
+
+        private volatile ScheduledFuture<?> timeout;
+
+        private PendingRequest(int serverId, int messageId, CompletableFuture<RespMessage<Object>> future) {
+            this.serverId = serverId;
+            this.messageId = messageId;
+            this.future = future;
+        }
+
+        private void cancelTimeout() {
+            ScheduledFuture<?> t = timeout;
+            if (t != null) {
+                t.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package cn.laoshini.dk.cluster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import cn.laoshini.dk.util.StringUtil;
+
+/**
+ * 集群节点，记录一个游戏服务器的id和集群通信地址
+ * <p>
+ * 文本格式为：服务器id@主机:端口，如 1001@127.0.0.1:9101；多个节点之间以英文逗号分隔
+ * </p>
+ *
+ * @author fagarine
+ */
+public final class ClusterNode {
+
+    private final int serverId;
+
+    private final String host;
+
+    private final int port;
+
+    public ClusterNode(int serverId, String host, int port) {
+        if (StringUtil.isEmptyString(host)) {
+            throw new IllegalArgumentException("集群节点地址不能为空, serverId:" + serverId);
+        }
+        if (port <= 0 || port > 65535) {
+            throw new IllegalArgumentException("集群节点端口无效, serverId:" + serverId + ", port:" + port);
+        }
+        this.serverId = serverId;
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * 解析单个节点
+     *
+     * @param text 格式为：服务器id@主机:端口
+     * @return 该方法不会返回null
+     */
+    public static ClusterNode parse(String text) {
+        String node = text.trim();
+        int at = node.indexOf('@');
+        int colon = node.lastIndexOf(':');
+        if (at <= 0 || colon <= at + 1 || colon == node.length() - 1) {
+            throw new IllegalArgumentException("集群节点格式错误，应为 服务器id@主机:端口 : " + text);
+        }
+        try {
+            int serverId = Integer.parseInt(node.substring(0, at));
+            int port = Integer.parseInt(node.substring(colon + 1));
+            return new ClusterNode(serverId, node.substring(at + 1, colon), port);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("集群节点格式错误，应为 服务器id@主机:端口 : " + text, e);
+        }
+    }
+
+    /**
+     * 解析以逗号分隔的多个节点，忽略空白项
+     *
+     * @param text 节点列表文本
+     * @return 该方法不会返回null
+     */
+    public static List<ClusterNode> parseList(String text) {
+        if (StringUtil.isEmptyString(text)) {
+            return Collections.emptyList();
+        }
+        List<ClusterNode> nodes = new ArrayList<>();
+        for (String item : text.split(",")) {
+            if (!item.trim().isEmpty()) {
+                nodes.add(parse(item));
+            }
+        }
+        return nodes;
+    }
+
+    public int getServerId() {
+        return serverId;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ClusterNode that = (ClusterNode) o;
+        return serverId == that.serverId && port == that.port && host.equals(that.host);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(serverId, host, port);
+    }
+
+    @Override
+    public String toString() {
+        return serverId + "@" + host + ":" + port;
+    }
+}
@@ -0,0 +1,129 @@
+package cn.laoshini.dk.cluster;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.util.AttributeKey;
+
+import cn.laoshini.dk.domain.msg.AbstractMessage;
+import cn.laoshini.dk.net.codec.JsonNettyMessageDecoder;
+import cn.laoshini.dk.net.codec.JsonNettyMessageEncoder;
+import cn.laoshini.dk.net.server.NettyTransport;
+import cn.laoshini.dk.net.session.NettySession;
+import cn.laoshini.dk.util.LogUtil;
+
+import static cn.laoshini.dk.constant.GameConstant.MAX_FRAME_LENGTH;
+import static cn.laoshini.dk.constant.GameConstant.MESSAGE_LENGTH_OFFSET;
+
+/**
+ * 接收集群中其他服务器连接的监听服务，使用与{@link cn.laoshini.dk.client.JsonNettyTcpClient}相同的帧格式和JSON编解码器
+ *
+ * @author fagarine
+ */
+final class ClusterServer {
+
+    private static final AttributeKey<NettySession> SESSION = AttributeKey.valueOf("DK_CLUSTER_SESSION");
+
+    private final ClusterManager manager;
+
+    private final JsonNettyMessageEncoder encoder = new JsonNettyMessageEncoder();
+
+    private final JsonNettyMessageDecoder decoder = new JsonNettyMessageDecoder();
+
+    private EventLoopGroup accepterGroup;
+
+    private Channel channel;
+
+    ClusterServer(ClusterManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * 绑定端口，方法返回时端口已绑定成功
+     *
+     * @param port 监听端口
+     * @param workerGroup 处理连接读写的线程组
+     */
+    void bind(int port, EventLoopGroup workerGroup) throws InterruptedException {
+        NettyTransport transport = NettyTransport.of(workerGroup);
+        accepterGroup = transport.newEventLoopGroup(1, "cluster-accepter");
+
+        ServerBootstrap b = new ServerBootstrap();
+        b.group(accepterGroup, workerGroup).channel(transport.serverChannelClass());
+        b.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+        b.option(ChannelOption.SO_BACKLOG, 128);
+        b.childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+        b.childOption(ChannelOption.TCP_NODELAY, true);
+        b.childOption(ChannelOption.SO_KEEPALIVE, true);
+        b.childHandler(new ChannelInitializer<SocketChannel>() {
+            @Override
+            protected void initChannel(SocketChannel ch) {
+                ChannelPipeline pipeLine = ch.pipeline();
+                pipeLine.addLast("frameEncoder", new LengthFieldPrepender(MESSAGE_LENGTH_OFFSET));
+                pipeLine.addLast("clusterEncoder", encoder);
+                pipeLine.addLast("frameDecoder",
+                        new LengthFieldBasedFrameDecoder(MAX_FRAME_LENGTH, 0, MESSAGE_LENGTH_OFFSET, 0, 4));
+                pipeLine.addLast("clusterDecoder", decoder);
+                pipeLine.addLast("clusterHandler", new ClusterChannelHandler());
+            }
+        });
+
+        try {
+            channel = b.bind(port).sync().channel();
+        } catch (Exception e) {
+            accepterGroup.shutdownGracefully();
+            throw e;
+        }
+    }
+
+    void close() {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        if (accepterGroup != null) {
+            accepterGroup.shutdownGracefully();
+            accepterGroup = null;
+        }
+    }
+
+    private class ClusterChannelHandler extends SimpleChannelInboundHandler<AbstractMessage> {
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            super.channelActive(ctx);
+            ctx.channel().attr(SESSION).set(new NettySession(ctx.channel()));
+            LogUtil.info("集群节点建立连接: {}", ctx.channel().remoteAddress());
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, AbstractMessage msg) {
+            manager.onMessage(ctx.channel().attr(SESSION).get(), msg);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            super.channelInactive(ctx);
+            NettySession session = ctx.channel().attr(SESSION).getAndSet(null);
+            if (session != null) {
+                manager.onPeerClosed(session);
+            }
+            LogUtil.info("集群节点断开连接: {}", ctx.channel().remoteAddress());
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            LogUtil.error(String.format("集群连接[%s]出错", ctx.channel().remoteAddress()), cause);
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package cn.laoshini.dk.cluster;
+
+import java.util.List;
+
+/**
+ * 集群节点发现接口，{@link ClusterManager}启动时和之后定时调用，根据返回结果建立或断开与其他服务器的连接
+ *
+ * @author fagarine
+ */
+@FunctionalInterface
+public interface IClusterDiscovery {
+
+    /**
+     * 返回当前集群中的所有节点，可以包含当前服务器自身（会被忽略）
+     *
+     * @return 不应该返回null
+     */
+    List<ClusterNode> discover();
+}
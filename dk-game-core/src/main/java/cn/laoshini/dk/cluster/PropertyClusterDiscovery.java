@@ -0,0 +1,38 @@
+package cn.laoshini.dk.cluster;
+
+import java.util.Collections;
+import java.util.List;
+
+import cn.laoshini.dk.common.SpringContextHolder;
+
+/**
+ * 从Spring环境配置中读取节点列表的集群发现实现
+ * <p>
+ * 配置项的值为以逗号分隔的节点列表，格式参见{@link ClusterNode}；配置可以写在本地配置文件中，
+ * 也可以由配置中心（如JDBC配置中心）统一下发，配置中心推送刷新后，下一次发现时就会使用新的节点列表
+ * </p>
+ *
+ * @author fagarine
+ */
+public class PropertyClusterDiscovery implements IClusterDiscovery {
+
+    public static final String DEFAULT_NODES_KEY = "dk.cluster.nodes";
+
+    private final String key;
+
+    public PropertyClusterDiscovery() {
+        this(DEFAULT_NODES_KEY);
+    }
+
+    public PropertyClusterDiscovery(String key) {
+        this.key = key;
+    }
+
+    @Override
+    public List<ClusterNode> discover() {
+        if (!SpringContextHolder.isInitialized()) {
+            return Collections.emptyList();
+        }
+        return ClusterNode.parseList(SpringContextHolder.getStringProperty(key, null));
+    }
+}
@@ -0,0 +1,30 @@
+package cn.laoshini.dk.cluster;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 使用固定节点列表的集群发现实现，适用于节点固定的部署，以及在同一台机器上启动多个服务器测试
+ *
+ * @author fagarine
+ */
+public class StaticClusterDiscovery implements IClusterDiscovery {
+
+    private final List<ClusterNode> nodes;
+
+    public StaticClusterDiscovery(List<ClusterNode> nodes) {
+        this.nodes = Collections.unmodifiableList(nodes);
+    }
+
+    /**
+     * @param nodes 以逗号分隔的节点列表，格式参见{@link ClusterNode}
+     */
+    public StaticClusterDiscovery(String nodes) {
+        this(ClusterNode.parseList(nodes));
+    }
+
+    @Override
+    public List<ClusterNode> discover() {
+        return nodes;
+    }
+}
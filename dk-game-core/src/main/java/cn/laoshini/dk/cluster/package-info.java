@@ -1,6 +1,11 @@
 /**
  * 该包下定义服务器集群功能
+ * <p>
+ * {@link cn.laoshini.dk.cluster.ClusterManager}负责服务器之间的长连接、RPC请求和玩家消息转发；
+ * 集群节点通过{@link cn.laoshini.dk.cluster.IClusterDiscovery}获取，默认读取配置项 dk.cluster.nodes
+ * （格式为：服务器id@主机:端口，多个节点以英文逗号分隔），该配置项可以由配置中心统一下发。
+ * </p>
  *
  * @author fagarine
  */
-package cn.laoshini.dk.cluster;
\ No newline at end of file
+package cn.laoshini.dk.cluster;
@@ -47,4 +47,14 @@ public class DefaultRoleIdGenerator implements IRoleIdGenerator {
         }
         return platNo * PLAT_HEAD + serverId * SERVER_HEAD + idIncrementer.nextId();
     }
+
+    /**
+     * 从该生成器生成的角色id中解析出角色所属的服务器id
+     *
+     * @param roleId 角色id
+     * @return 返回服务器id
+     */
+    public static int serverIdOf(long roleId) {
+        return (int) (roleId % PLAT_HEAD / SERVER_HEAD);
+    }
 }
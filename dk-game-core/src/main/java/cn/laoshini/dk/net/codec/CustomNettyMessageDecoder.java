@@ -80,8 +80,8 @@ public class CustomNettyMessageDecoder extends ByteToMessageDecoder
             reqOrder = 0;
         }
 
-        // 创建消息对象
-        ReqNettyCustomMessage<INettyDto> reqMessage = new ReqNettyCustomMessage<>();
+        // 创建消息对象，开启消息对象池时从对象池中获取
+        ReqNettyCustomMessage<INettyDto> reqMessage = ReqNettyCustomMessage.newInstance();
         reqMessage.setId(msgId);
 
         if (decodeOrder == reqOrder) {
@@ -152,8 +152,8 @@ public class CustomNettyMessageDecoder extends ByteToMessageDecoder
             reqOrder = 0;
         }
 
-        // 创建消息对象
-        ReqNettyCustomMessage<INettyDto> reqMessage = new ReqNettyCustomMessage<>();
+        // 创建消息对象，开启消息对象池时从对象池中获取
+        ReqNettyCustomMessage<INettyDto> reqMessage = ReqNettyCustomMessage.newInstance();
         reqMessage.setId(msgId);
 
         if (decodeOrder == reqOrder) {
@@ -1,96 +1,97 @@
 package cn.laoshini.dk.net.codec;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 
 import cn.laoshini.dk.domain.GameSubject;
+import cn.laoshini.dk.domain.msg.ReqMessage;
+import cn.laoshini.dk.net.msg.INettyCustomMessage;
 import cn.laoshini.dk.net.msg.INettyDto;
-import cn.laoshini.dk.net.msg.ReqNettyCustomMessage;
+import cn.laoshini.dk.net.msg.IRecyclable;
+import cn.laoshini.dk.net.msg.RespNettyCustomMessage;
+import cn.laoshini.dk.util.ChannelUtil;
 import cn.laoshini.dk.util.LogUtil;
-import cn.laoshini.dk.util.ZlibUtil;
 
 /**
  * Netty自定义消息类型编码器
  * <p>
- * 响应协议：长度 + 消息id ＋ 消息内容（字节数组，可能会压缩）
+ * 响应协议：长度 + 消息id ＋ 消息内容（字节数组）
+ * </p>
+ * <p>
+ * 消息内容直接写入分配器提供的缓冲中，写完后回填长度和消息id，不再经过中间缓冲拷贝；
+ * 编码器本身不做压缩，需要压缩时在连接上开启消息帧压缩（{@link cn.laoshini.dk.net.server.FrameCompressionHandler}）
+ * </p>
+ * <p>
+ * 编码器接受所有{@link INettyCustomMessage}消息（服务器发出的{@link RespNettyCustomMessage}和客户端发出的请求消息），
+ * 从对象池获取的返回消息在写入缓冲后回收
  * </p>
  *
  * @author fagarine
  */
-public class CustomNettyMessageEncoder extends MessageToByteEncoder<ReqNettyCustomMessage<INettyDto>>
-        implements INettyMessageEncoder<ReqNettyCustomMessage<INettyDto>> {
-    /** 消息体的大小超过512KB则压缩 */
-    private static final int COMPRESS_BYTES = 512000;
+public class CustomNettyMessageEncoder extends MessageToByteEncoder<INettyCustomMessage<INettyDto>>
+        implements INettyMessageEncoder<INettyCustomMessage<INettyDto>> {
 
     @Override
-    protected void encode(ChannelHandlerContext ctx, ReqNettyCustomMessage<INettyDto> resMsg, ByteBuf out) {
+    protected void encode(ChannelHandlerContext ctx, INettyCustomMessage<INettyDto> resMsg, ByteBuf out) {
+        try {
+            writeMessage(resMsg, out);
+
+            LogUtil.s2cMessage("返回消息内容[{}]", resMsg);
+        } finally {
+            recycleResponse(resMsg);
+        }
+    }
+
+    /**
+     * 将消息按协议格式写入out中，从out当前的写索引处开始写入
+     *
+     * @param resMsg 消息
+     * @param out 输出缓冲
+     */
+    private void writeMessage(INettyCustomMessage<INettyDto> resMsg, ByteBuf out) {
+        int start = out.writerIndex();
         // 占位
         out.writeInt(0);
         out.writeInt(0);
 
-        boolean zip = writeAndCompressMessage(resMsg, out);
-        // 消息长度
-        int length = out.readableBytes() - Integer.BYTES;
+        // 写入消息体内容
+        resMsg.write(out);
 
-        /*
-         * 长度的最高位：1代表压缩，0：未压缩，如果压缩将最高位设置为1
-         */
-        if (zip) {
-            length |= 0x80000000;
-        }
         // 长度
-        out.setInt(0, length);
+        out.setInt(start, out.writerIndex() - start - Integer.BYTES);
         // 消息id
-        out.setInt(4, resMsg.getId());
-
-        LogUtil.s2cMessage("返回消息内容[{}]", resMsg);
+        out.setInt(start + Integer.BYTES, resMsg.getId());
     }
 
-    private boolean writeAndCompressMessage(ReqNettyCustomMessage<INettyDto> resMsg, ByteBuf out) {
-        // 消息体的字节缓冲（默认大小为256字节）
-        ByteBuf msgBuf = Unpooled.buffer();
-        // 写入消息体内容
-        resMsg.write(msgBuf);
-
-        // 超过超度，压缩
-        if (msgBuf.readableBytes() > COMPRESS_BYTES) {
-            byte[] dst = new byte[msgBuf.readableBytes()];
-            msgBuf.getBytes(0, dst);
-            out.writeBytes(ZlibUtil.compress(dst));
-            return true;
-        } else {
-            out.writeBytes(msgBuf);
+    /**
+     * 从对象池获取的返回消息，在写入缓冲后回收；进入消息由消息处理逻辑执行完成后统一回收，这里不处理
+     *
+     * @param resMsg 返回消息
+     */
+    private void recycleResponse(INettyCustomMessage<INettyDto> resMsg) {
+        if (resMsg instanceof IRecyclable && !(resMsg instanceof ReqMessage)) {
+            ((IRecyclable) resMsg).recycle();
         }
-
-        // 返回是否zip压缩
-        return false;
     }
 
+    /**
+     * 编码消息，返回的缓冲从会话通道的分配器（默认为池化的直接内存）中获取，调用方负责写出或释放
+     */
     @Override
-    public ByteBuf encode(ReqNettyCustomMessage<INettyDto> resMsg, GameSubject subject) {
-        ByteBuf out = Unpooled.buffer();
-        // 占位
-        out.writeInt(0);
-        out.writeInt(0);
-
-        boolean zip = writeAndCompressMessage(resMsg, out);
-        // 消息长度
-        int length = out.readableBytes() - Integer.BYTES;
-
-        /*
-         * 长度的最高位：1代表压缩，0：未压缩，如果压缩将最高位设置为1
-         */
-        if (zip) {
-            length |= 0x80000000;
+    public ByteBuf encode(INettyCustomMessage<INettyDto> resMsg, GameSubject subject) {
+        ByteBufAllocator alloc = ChannelUtil.allocator(subject);
+        ByteBuf out = alloc.ioBuffer();
+        try {
+            writeMessage(resMsg, out);
+            LogUtil.s2cMessage("返回消息内容[{}]", resMsg);
+        } catch (RuntimeException e) {
+            out.release();
+            throw e;
+        } finally {
+            recycleResponse(resMsg);
         }
-        // 长度
-        out.setInt(0, length);
-        // 消息id
-        out.setInt(4, resMsg.getId());
-
-        LogUtil.s2cMessage("返回消息内容[{}]", resMsg);
 
         return out;
     }
@@ -0,0 +1,67 @@
+package cn.laoshini.dk.net.codec;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageDecoder;
+
+import cn.laoshini.dk.constant.GameCodeEnum;
+import cn.laoshini.dk.domain.GameSubject;
+import cn.laoshini.dk.domain.msg.ReqMessage;
+import cn.laoshini.dk.exception.MessageException;
+import cn.laoshini.dk.net.MessageHandlerHolder;
+
+/**
+ * 以消息id分帧的Protobuf消息解码器
+ * <p>
+ * 请求协议（长度由帧解码器处理）：消息id（int） + 消息内容（protobuf原始字节）
+ * </p>
+ * <p>
+ * 与{@link cn.laoshini.dk.net.msg.BaseProtobufMessage.Base}格式相比，消息内容不再包装在Any中，不需要传输类型URL，也不需要解析两次；
+ * 消息内容的Parser在Handler注册时已解析好（见{@link MessageHandlerHolder#getProtobufParser(int)}），
+ * 解码时通过{@link CodedInputStream}直接读取缓冲的nioBuffer，不拷贝到字节数组
+ * </p>
+ *
+ * @author fagarine
+ */
+@ChannelHandler.Sharable
+public class IdProtobufNettyMessageDecoder extends MessageToMessageDecoder<ByteBuf>
+        implements INettyMessageDecoder<ReqMessage<Message>> {
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        out.add(decode(in, null));
+    }
+
+    @Override
+    public ReqMessage<Message> decode(ByteBuf data, GameSubject subject) {
+        int messageId = data.readInt();
+        Parser<? extends Message> parser = MessageHandlerHolder.getProtobufParser(messageId);
+        if (parser == null) {
+            throw new MessageException(GameCodeEnum.MESSAGE_DECODE_ERROR, "protobuf.parser.null",
+                    String.format("消息id [%d] 没有对应的protobuf消息处理handler", messageId));
+        }
+
+        int length = data.readableBytes();
+        Message detail;
+        try {
+            CodedInputStream input = CodedInputStream.newInstance(data.nioBuffer(data.readerIndex(), length));
+            detail = parser.parseFrom(input);
+        } catch (IOException e) {
+            throw new MessageException(GameCodeEnum.MESSAGE_DECODE_ERROR, "message.decode.error",
+                    String.format("protobuf消息解析出错, id:%d, subject:%s", messageId, subject), e);
+        }
+        data.skipBytes(length);
+
+        ReqMessage<Message> message = new ReqMessage<>();
+        message.setId(messageId);
+        message.setData(detail);
+        return message;
+    }
+}
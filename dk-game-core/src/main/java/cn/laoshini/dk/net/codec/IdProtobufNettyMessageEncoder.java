@@ -0,0 +1,91 @@
+package cn.laoshini.dk.net.codec;
+
+import java.io.IOException;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+import cn.laoshini.dk.domain.GameSubject;
+import cn.laoshini.dk.domain.msg.AbstractMessage;
+import cn.laoshini.dk.exception.MessageException;
+import cn.laoshini.dk.util.ChannelUtil;
+import cn.laoshini.dk.util.LogUtil;
+
+import static cn.laoshini.dk.constant.GameCodeEnum.MESSAGE_ENCODER_ERROR;
+
+/**
+ * 以消息id分帧的Protobuf消息编码器，与{@link IdProtobufNettyMessageDecoder}配套使用
+ * <p>
+ * 响应协议（长度由帧编码器处理）：消息id（int） + 返回码（int） + 消息内容（protobuf原始字节，可能为空）
+ * </p>
+ * <p>
+ * 消息内容通过{@link CodedOutputStream}直接序列化到输出缓冲中；该格式不传输消息的扩展参数（params）
+ * </p>
+ *
+ * @author fagarine
+ */
+@ChannelHandler.Sharable
+public class IdProtobufNettyMessageEncoder extends MessageToByteEncoder<AbstractMessage<?>>
+        implements INettyMessageEncoder<AbstractMessage<?>> {
+
+    /** 消息头长度：消息id + 返回码 */
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, AbstractMessage<?> msg, ByteBuf out) throws Exception {
+        writeMessage(msg, out);
+        LogUtil.s2cMessage("返回消息内容[{}]", msg);
+    }
+
+    @Override
+    public ByteBuf encode(AbstractMessage<?> message, GameSubject subject) {
+        ByteBuf buf = ChannelUtil.allocator(subject).ioBuffer();
+        try {
+            writeMessage(message, buf);
+        } catch (IOException e) {
+            buf.release();
+            throw new MessageException(MESSAGE_ENCODER_ERROR, "message.encode.error", "protobuf消息编码出错", e);
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+        return buf;
+    }
+
+    private void writeMessage(AbstractMessage<?> message, ByteBuf out) throws IOException {
+        MessageLite detail = toMessageLite(message.getData());
+        int size = detail == null ? 0 : detail.getSerializedSize();
+        out.ensureWritable(HEADER_BYTES + size);
+        out.writeInt(message.getId());
+        out.writeInt(message.getCode());
+        if (size == 0) {
+            return;
+        }
+
+        int index = out.writerIndex();
+        if (out.nioBufferCount() == 1) {
+            CodedOutputStream output = CodedOutputStream.newInstance(out.nioBuffer(index, size));
+            detail.writeTo(output);
+            output.flush();
+            output.checkNoSpaceLeft();
+            out.writerIndex(index + size);
+        } else {
+            out.writeBytes(detail.toByteArray());
+        }
+    }
+
+    private MessageLite toMessageLite(Object data) {
+        if (data == null || data instanceof MessageLite) {
+            return (MessageLite) data;
+        }
+        if (data instanceof MessageLite.Builder) {
+            return ((MessageLite.Builder) data).build();
+        }
+        throw new MessageException(MESSAGE_ENCODER_ERROR, "message.encode.error",
+                "消息内容不是protobuf消息类型: " + data.getClass().getName());
+    }
+}
@@ -1,26 +1,71 @@
 package cn.laoshini.dk.net.handler;
 
+import java.util.concurrent.ForkJoinPool;
+
 import cn.laoshini.dk.constant.GameCodeEnum;
+import cn.laoshini.dk.constant.MessageOverflowPolicy;
 import cn.laoshini.dk.domain.GameSubject;
 import cn.laoshini.dk.domain.msg.ReqMessage;
 import cn.laoshini.dk.domain.msg.RespMessage;
 import cn.laoshini.dk.exception.MessageException;
 import cn.laoshini.dk.executor.IOrderedExecutor;
-import cn.laoshini.dk.executor.OrderedQueuePoolExecutor;
 import cn.laoshini.dk.net.MessageHandlerHolder;
+import cn.laoshini.dk.net.session.AbstractSession;
+import cn.laoshini.dk.net.session.ReceiveSettings;
+import cn.laoshini.dk.net.session.ReceiveState;
 import cn.laoshini.dk.server.worker.MessageReceiveWorker;
 import cn.laoshini.dk.util.LogUtil;
 
 /**
  * 消息到达处理分发和处理
+ * <p>
+ * 接收消息线程池的线程数量、单个任务队列长度，以及单个会话的待处理消息上限，都可以通过以下配置项设置（参见{@link ReceiveSettings}）：
+ * <ul>
+ * <li>dk.message.receive.threads: 线程数量，默认为CPU核心数</li>
+ * <li>dk.message.receive.max-queue-size: 单个任务队列的最大长度，默认不限制</li>
+ * <li>dk.message.receive.session-limit: 单个会话的待处理消息上限，默认为0，表示不限制</li>
+ * <li>dk.message.receive.session-resume: 暂停读取后，待处理消息降到多少时恢复读取，默认为上限的一半</li>
+ * <li>dk.message.receive.overflow-policy: 会话待处理消息达到上限时的处理策略，参见{@link MessageOverflowPolicy}，默认为pause-read</li>
+ * <li>dk.message.receive.parallel-threads: 无序消息线程池的线程数量，默认为CPU核心数</li>
+ * </ul>
+ * </p>
+ * <p>
+ * 待处理消息按会话计数；UDP的所有会话共用一个通道，暂停读取会影响所有玩家，所以UDP会话达到上限时，pause-read策略按reject处理
+ * </p>
+ * <p>
+ * 对应Handler标记为不需要按顺序执行（{@link cn.laoshini.dk.annotation.MessageHandle#sequential()}为false）的消息，
+ * 如排行榜、邮件列表等只读查询，不进入有序线程池，而是直接交给工作窃取线程池并行执行，不会排在同一玩家的有序消息后面等待
+ * </p>
  *
  * @author fagarine
  */
 public class MessageReceiveDispatcher {
-    private static IOrderedExecutor<Long> MESSAGE_EXECUTOR;
+
+    public static final String THREADS_KEY = ReceiveSettings.THREADS_KEY;
+
+    public static final String MAX_QUEUE_SIZE_KEY = ReceiveSettings.MAX_QUEUE_SIZE_KEY;
+
+    public static final String SESSION_LIMIT_KEY = ReceiveSettings.SESSION_LIMIT_KEY;
+
+    public static final String SESSION_RESUME_KEY = ReceiveSettings.SESSION_RESUME_KEY;
+
+    public static final String OVERFLOW_POLICY_KEY = ReceiveSettings.OVERFLOW_POLICY_KEY;
+
+    public static final String PARALLEL_THREADS_KEY = ReceiveSettings.PARALLEL_THREADS_KEY;
+
+    private static final ReceiveSettings SETTINGS = ReceiveSettings.load();
+
+    private static final IOrderedExecutor<Long> MESSAGE_EXECUTOR = SETTINGS.newOrderedExecutor("received-message");
+
+    /**
+     * 不需要按顺序执行的消息使用的线程池
+     */
+    private static final ForkJoinPool PARALLEL_EXECUTOR = SETTINGS.newParallelExecutor("received-message-parallel");
 
     static {
-        MESSAGE_EXECUTOR = new OrderedQueuePoolExecutor("received-message", 3);
+        LogUtil.start("接收消息线程池线程数:{}, 单个队列长度上限:{}, 单个会话待处理消息上限:{}, 溢出策略:{}, 无序消息线程数:{}",
+                SETTINGS.getThreads(), SETTINGS.getMaxQueueSize(), SETTINGS.getSessionLimit(),
+                SETTINGS.getOverflowPolicy(), SETTINGS.getParallelThreads());
     }
 
     private MessageReceiveDispatcher() {
@@ -33,7 +78,35 @@ public class MessageReceiveDispatcher {
      * @param gameSubject 消息所属主体
      */
     public static void messageReceived(ReqMessage<Object> reqMessage, GameSubject gameSubject) {
-        MESSAGE_EXECUTOR.addTask(gameSubject.getSession().getId(), new MessageReceiveWorker(reqMessage, gameSubject));
+        AbstractSession session = gameSubject.getSession();
+        reqMessage.markEnqueued();
+        MessageReceiveWorker worker = new MessageReceiveWorker(reqMessage, gameSubject);
+        ReceiveState state = SETTINGS.receiveState(session);
+        if (state != null) {
+            if (!state.accept(worker)) {
+                LogUtil.error("会话[{}]待处理消息达到上限，拒绝消息:{}", session.getId(), reqMessage.getId());
+                sendQueueFull(reqMessage, session);
+                return;
+            }
+            worker.setReceiveState(state);
+        }
+
+        if (!MessageHandlerHolder.isSequential(reqMessage.getId())) {
+            PARALLEL_EXECUTOR.execute(worker);
+            return;
+        }
+
+        if (!MESSAGE_EXECUTOR.addTask(session.getId(), worker)) {
+            if (state != null) {
+                state.cancel(worker);
+            }
+            sendQueueFull(reqMessage, session);
+        }
+    }
+
+    private static void sendQueueFull(ReqMessage<Object> reqMessage, AbstractSession session) {
+        session.sendMessage(buildErrorResponse(reqMessage.getId() + 1, GameCodeEnum.MESSAGE_QUEUE_FULL.getCode(),
+                GameCodeEnum.MESSAGE_QUEUE_FULL.getDesc()));
     }
 
     /**
@@ -0,0 +1,44 @@
+package cn.laoshini.dk.net.msg;
+
+import io.netty.util.Recycler;
+
+/**
+ * 可回收的自定义格式消息数据对象，开启消息对象池（参见{@link NettyRecyclers}）后，该类型的对象在读取消息时从对象池中获取，
+ * 并随所属消息一起回收
+ * <p>
+ * 子类需要实现{@link #clear()}方法，清空对象中的数据；如果对象中包含其他可回收的数据对象，也需要在该方法中回收
+ * </p>
+ *
+ * @author fagarine
+ */
+public abstract class AbstractRecyclableNettyDto implements INettyDto, IRecyclable {
+
+    private transient Recycler.Handle<AbstractRecyclableNettyDto> handle;
+
+    /**
+     * 对象是否是从对象池中取出且尚未回收的，避免重复回收
+     */
+    private transient boolean pooled;
+
+    /**
+     * 清空对象中的数据，对象回收前调用
+     */
+    protected abstract void clear();
+
+    @Override
+    public void recycle() {
+        if (pooled) {
+            pooled = false;
+            clear();
+            handle.recycle(this);
+        }
+    }
+
+    void setHandle(Recycler.Handle<AbstractRecyclableNettyDto> handle) {
+        this.handle = handle;
+    }
+
+    void setPooled() {
+        this.pooled = true;
+    }
+}
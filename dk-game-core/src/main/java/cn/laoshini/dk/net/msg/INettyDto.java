@@ -29,6 +29,18 @@ public interface INettyDto extends IByteDto<ByteBuf> {
     @Override
     void write(ByteBuf b);
 
+    /**
+     * 创建读取数据用的对象，开启消息对象池时，{@link AbstractRecyclableNettyDto}类型的对象从对象池中获取
+     *
+     * @param beanClass 要创建的对象的类型
+     * @param <T> 对象类型
+     * @return 该方法不会返回null
+     */
+    @Override
+    default <T extends IByteDto<ByteBuf>> T newBean(Class<T> beanClass) {
+        return NettyRecyclers.newDto(beanClass);
+    }
+
     /**
      * 从缓冲读取Boolean
      *
@@ -210,9 +222,30 @@ public interface INettyDto extends IByteDto<ByteBuf> {
             return null;
         }
 
-        byte[] bytes = new byte[length];
-        b.readBytes(bytes);
-        return new String(bytes, UTF_8);
+        // 直接从缓冲解码，不再复制到临时字节数组
+        String value = b.toString(b.readerIndex(), length, UTF_8);
+        b.skipBytes(length);
+        return value;
+    }
+
+    /**
+     * 向缓冲写入String，格式与{@link #writeBytes(ByteBuf, byte[])}写入UTF-8字节数组一致，但直接将字符编码进缓冲，不会创建临时字节数组
+     *
+     * @param b Netty字节缓冲区对象
+     * @param v String
+     */
+    @Override
+    default void writeString(ByteBuf b, String v) {
+        if (v == null || v.isEmpty()) {
+            b.writeInt(0);
+            return;
+        }
+
+        // 先占位长度，写入字符后回填实际字节数
+        int lengthIndex = b.writerIndex();
+        b.writeInt(0);
+        int length = b.writeCharSequence(v, UTF_8);
+        b.setInt(lengthIndex, length);
     }
 
 }
@@ -0,0 +1,133 @@
+package cn.laoshini.dk.net.msg;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.netty.util.Recycler;
+
+import cn.laoshini.dk.common.SpringContextHolder;
+import cn.laoshini.dk.constant.GameCodeEnum;
+import cn.laoshini.dk.domain.msg.AbstractMessage;
+import cn.laoshini.dk.domain.msg.ReqMessage;
+import cn.laoshini.dk.exception.MessageException;
+
+/**
+ * 自定义格式消息及其数据对象的对象池管理，基于Netty的{@link Recycler}实现
+ * <p>
+ * 对象池默认关闭，通过配置项 dk.message.recycle=true 开启；开启后：
+ * <ul>
+ * <li>解码器创建的{@link ReqNettyCustomMessage}从对象池中获取，消息处理逻辑执行完成后自动回收</li>
+ * <li>继承自{@link AbstractRecyclableNettyDto}的数据对象，在读取消息时从对象池中获取，随所属消息一起回收</li>
+ * <li>通过{@link RespNettyCustomMessage#newInstance()}获取的返回消息，
+ * 由{@link cn.laoshini.dk.net.codec.CustomNettyMessageEncoder}写入缓冲后自动回收，
+ * 使用其他编码器时需要在写出后自行调用{@link IRecyclable#recycle()}</li>
+ * </ul>
+ * 开启对象池后，消息处理逻辑中不能在处理结束后继续持有进入消息及其数据对象（如存入缓存、交给其他线程异步处理），
+ * 也不能将从对象池获取的返回消息发送给多个会话。
+ * </p>
+ *
+ * @author fagarine
+ */
+public final class NettyRecyclers {
+
+    /**
+     * 是否开启消息对象池的配置项
+     */
+    public static final String RECYCLE_KEY = "dk.message.recycle";
+
+    private static final Map<Class<?>, Recycler<?>> DTO_RECYCLERS = new ConcurrentHashMap<>();
+
+    private static volatile Boolean enabled;
+
+    private NettyRecyclers() {
+    }
+
+    /**
+     * 是否开启了消息对象池
+     *
+     * @return 返回配置项的值，默认为false
+     */
+    public static boolean isEnabled() {
+        Boolean value = enabled;
+        if (value == null) {
+            if (!SpringContextHolder.isInitialized()) {
+                return false;
+            }
+            value = SpringContextHolder.getBoolProperty(RECYCLE_KEY, false);
+            enabled = value;
+        }
+        return value;
+    }
+
+    /**
+     * 手动开启或关闭消息对象池，设置后不再读取配置项，用于没有Spring容器的场景（如独立的客户端、测试）
+     *
+     * @param enable 是否开启
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    /**
+     * 创建或从对象池中获取指定类型的数据对象
+     *
+     * @param dtoClass 数据对象类型
+     * @param <T> 数据对象类型
+     * @return 该方法不会返回null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T newDto(Class<T> dtoClass) {
+        if (isEnabled() && AbstractRecyclableNettyDto.class.isAssignableFrom(dtoClass)) {
+            Recycler<?> recycler = DTO_RECYCLERS.computeIfAbsent(dtoClass, DtoRecycler::new);
+            AbstractRecyclableNettyDto dto = (AbstractRecyclableNettyDto) recycler.get();
+            dto.setPooled();
+            return (T) dto;
+        }
+        return newInstance(dtoClass);
+    }
+
+    private static <T> T newInstance(Class<T> dtoClass) {
+        try {
+            return dtoClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new MessageException(GameCodeEnum.PARAM_ERROR, "build.dto.fail",
+                    "创建IByteDto实例出错:" + dtoClass.getName());
+        }
+    }
+
+    /**
+     * 清空消息内容，消息内容如果是可回收的，一起回收
+     *
+     * @param message 消息对象
+     */
+    static void clearMessage(AbstractMessage<?> message) {
+        Object data = message.getData();
+        if (data instanceof IRecyclable) {
+            ((IRecyclable) data).recycle();
+        }
+        message.setId(0);
+        message.setCode(GameCodeEnum.OK.getCode());
+        message.setParams("");
+        message.setData(null);
+        message.setDataType(null);
+        if (message instanceof ReqMessage) {
+            ((ReqMessage<?>) message).clearTrace();
+        }
+    }
+
+    private static final class DtoRecycler extends Recycler<AbstractRecyclableNettyDto> {
+
+        private final Class<?> dtoClass;
+
+        private DtoRecycler(Class<?> dtoClass) {
+            this.dtoClass = dtoClass;
+        }
+
+        @Override
+        protected AbstractRecyclableNettyDto newObject(Handle<AbstractRecyclableNettyDto> handle) {
+            AbstractRecyclableNettyDto dto = (AbstractRecyclableNettyDto) newInstance(dtoClass);
+            dto.setHandle(handle);
+            return dto;
+        }
+    }
+}
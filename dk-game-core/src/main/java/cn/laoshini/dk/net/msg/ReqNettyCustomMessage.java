@@ -1,5 +1,7 @@
 package cn.laoshini.dk.net.msg;
 
+import io.netty.util.Recycler;
+
 import cn.laoshini.dk.domain.msg.ReqMessage;
 
 /**
@@ -8,7 +10,54 @@ import cn.laoshini.dk.domain.msg.ReqMessage;
  * @author fagarine
  */
 public class ReqNettyCustomMessage<DataType extends INettyDto> extends ReqMessage<DataType>
-        implements INettyCustomMessage<DataType> {
+        implements INettyCustomMessage<DataType>, IRecyclable {
+
+    private static final Recycler<ReqNettyCustomMessage<?>> RECYCLER = new Recycler<ReqNettyCustomMessage<?>>() {
+        @Override
+        protected ReqNettyCustomMessage<?> newObject(Handle<ReqNettyCustomMessage<?>> handle) {
+            return new ReqNettyCustomMessage<>(handle);
+        }
+    };
+
+    private final transient Recycler.Handle<ReqNettyCustomMessage<?>> handle;
+
+    /**
+     * 对象是否是从对象池中取出且尚未回收的，避免重复回收
+     */
+    private transient boolean pooled;
+
+    public ReqNettyCustomMessage() {
+        this(null);
+    }
+
+    private ReqNettyCustomMessage(Recycler.Handle<ReqNettyCustomMessage<?>> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * 创建一个消息对象，开启消息对象池时从对象池中获取
+     *
+     * @param <DataType> 消息内容类型
+     * @return 该方法不会返回null
+     */
+    @SuppressWarnings("unchecked")
+    public static <DataType extends INettyDto> ReqNettyCustomMessage<DataType> newInstance() {
+        if (NettyRecyclers.isEnabled()) {
+            ReqNettyCustomMessage<DataType> message = (ReqNettyCustomMessage<DataType>) RECYCLER.get();
+            message.pooled = true;
+            return message;
+        }
+        return new ReqNettyCustomMessage<>();
+    }
+
+    @Override
+    public void recycle() {
+        if (pooled) {
+            pooled = false;
+            NettyRecyclers.clearMessage(this);
+            handle.recycle(this);
+        }
+    }
 
     @Override
     public String toString() {
@@ -1,5 +1,7 @@
 package cn.laoshini.dk.net.msg;
 
+import io.netty.util.Recycler;
+
 import cn.laoshini.dk.domain.msg.RespMessage;
 
 /**
@@ -8,7 +10,54 @@ import cn.laoshini.dk.domain.msg.RespMessage;
  * @author fagarine
  */
 public class RespNettyCustomMessage<DataType extends INettyDto> extends RespMessage<DataType>
-        implements INettyCustomMessage<DataType> {
+        implements INettyCustomMessage<DataType>, IRecyclable {
+
+    private static final Recycler<RespNettyCustomMessage<?>> RECYCLER = new Recycler<RespNettyCustomMessage<?>>() {
+        @Override
+        protected RespNettyCustomMessage<?> newObject(Handle<RespNettyCustomMessage<?>> handle) {
+            return new RespNettyCustomMessage<>(handle);
+        }
+    };
+
+    private final transient Recycler.Handle<RespNettyCustomMessage<?>> handle;
+
+    /**
+     * 对象是否是从对象池中取出且尚未回收的，避免重复回收
+     */
+    private transient boolean pooled;
+
+    public RespNettyCustomMessage() {
+        this(null);
+    }
+
+    private RespNettyCustomMessage(Recycler.Handle<RespNettyCustomMessage<?>> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * 创建一个返回消息对象，开启消息对象池时从对象池中获取，该对象会在编码完成后自动回收，只能发送给一个会话
+     *
+     * @param <DataType> 消息内容类型
+     * @return 该方法不会返回null
+     */
+    @SuppressWarnings("unchecked")
+    public static <DataType extends INettyDto> RespNettyCustomMessage<DataType> newInstance() {
+        if (NettyRecyclers.isEnabled()) {
+            RespNettyCustomMessage<DataType> message = (RespNettyCustomMessage<DataType>) RECYCLER.get();
+            message.pooled = true;
+            return message;
+        }
+        return new RespNettyCustomMessage<>();
+    }
+
+    @Override
+    public void recycle() {
+        if (pooled) {
+            pooled = false;
+            NettyRecyclers.clearMessage(this);
+            handle.recycle(this);
+        }
+    }
 
     @Override
     public String toString() {
@@ -1,5 +1,7 @@
 package cn.laoshini.dk.server;
 
+import java.util.zip.Deflater;
+
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
@@ -9,9 +11,7 @@ import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.LengthFieldPrepender;
 import io.netty.handler.timeout.IdleState;
@@ -22,14 +22,17 @@ import cn.laoshini.dk.constant.AttributeKeyConstant;
 import cn.laoshini.dk.constant.GameServerProtocolEnum;
 import cn.laoshini.dk.domain.GameServerConfig;
 import cn.laoshini.dk.domain.Player;
+import cn.laoshini.dk.domain.msg.ReqMessage;
 import cn.laoshini.dk.event.ChannelCloseEvent;
 import cn.laoshini.dk.eventbus.EventMgr;
 import cn.laoshini.dk.exception.BusinessException;
 import cn.laoshini.dk.net.codec.INettyMessageDecoder;
 import cn.laoshini.dk.net.codec.INettyMessageEncoder;
+import cn.laoshini.dk.net.server.FrameCompressionHandler;
+import cn.laoshini.dk.net.server.NettyTransport;
 import cn.laoshini.dk.net.session.NettySession;
+import cn.laoshini.dk.net.session.SessionIdAllocator;
 import cn.laoshini.dk.server.channel.INettyChannelReader;
-import cn.laoshini.dk.util.ChannelUtil;
 import cn.laoshini.dk.util.LogUtil;
 import cn.laoshini.dk.util.NetUtil;
 
@@ -57,6 +60,8 @@ public abstract class AbstractNettyTcpGameServer<MessageType> extends AbstractGa
 
     private INettyMessageDecoder<MessageType> decoder;
 
+    private SessionIdAllocator sessionIdAllocator;
+
     public AbstractNettyTcpGameServer(GameServerConfig serverConfig, String serverThreadName) {
         super(serverConfig, serverThreadName);
     }
@@ -74,33 +79,40 @@ public abstract class AbstractNettyTcpGameServer<MessageType> extends AbstractGa
         }
 
         channelReader = getChannelReader();
+        sessionIdAllocator = new SessionIdAllocator(getServerId());
 
-        // 大小为监听的端口数目
-        accepterGroup = new NioEventLoopGroup(1);
-        workerGroup = new NioEventLoopGroup(8);
+        // 当前系统支持时使用epoll，否则使用NIO
+        NettyTransport transport = NettyTransport.select(true);
+        accepterGroup = transport.newEventLoopGroup(1, "tcp-accepter");
+        workerGroup = transport.newEventLoopGroup(8, "tcp-worker");
 
         LogUtil.info("游戏 [{}] 开始启动...", getGameName());
 
         try {
             ServerBootstrap b = new ServerBootstrap();
-            b.group(accepterGroup, workerGroup).channel(NioServerSocketChannel.class);
+            b.group(accepterGroup, workerGroup).channel(transport.serverChannelClass());
 
             b.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
             b.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 2000);
             b.option(ChannelOption.SO_BACKLOG, 1024);
-            b.option(ChannelOption.TCP_NODELAY, true);
+            b.childOption(ChannelOption.TCP_NODELAY, true);
             b.childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
-            b.childOption(ChannelOption.SO_RCVBUF, 1024);
-            b.childOption(ChannelOption.SO_SNDBUF, 4096);
 
             b.childHandler(new ChannelInitializer<SocketChannel>() {
                 @Override
                 protected void initChannel(SocketChannel ch) throws Exception {
+                    // 出站：encoder -> compression -> frameEncoder
+                    // 入站：frameDecoder -> compression -> decoder
                     ch.pipeline().addLast("frameEncoder", new LengthFieldPrepender(MESSAGE_LENGTH_OFFSET));
-                    ch.pipeline().addLast(getEncoder());
-
                     ch.pipeline().addLast("frameDecoder",
                             new LengthFieldBasedFrameDecoder(MAX_FRAME_LENGTH, 0, MESSAGE_LENGTH_OFFSET, 0, 4));
+                    int compressionThreshold = getServerConfig().getCompressionThreshold();
+                    if (compressionThreshold > 0) {
+                        ch.pipeline().addLast("compression",
+                                new FrameCompressionHandler(compressionThreshold, Deflater.BEST_SPEED, null));
+                    }
+
+                    ch.pipeline().addLast(getEncoder());
                     ch.pipeline().addLast(getDecoder());
 
                     ch.pipeline().addLast(messageHandler());
@@ -202,6 +214,10 @@ public abstract class AbstractNettyTcpGameServer<MessageType> extends AbstractGa
         @Override
         public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
             try {
+                // 该处理器紧跟在消息解码器之后，到达时即为解码完成的时间；Protobuf的Base消息在转换为ReqMessage时记录
+                if (msg instanceof ReqMessage) {
+                    ((ReqMessage<?>) msg).markDecoded();
+                }
                 super.channelRead(ctx, msg);
                 if (shutdown.get()) {
                     return;
@@ -229,8 +245,7 @@ public abstract class AbstractNettyTcpGameServer<MessageType> extends AbstractGa
             Attribute<Player> attr = channel.attr(AttributeKeyConstant.PLAYER);
             Player player = new Player();
             NettySession session = new NettySession(channel);
-            long channelId = ChannelUtil.channel2Id(channel);
-            session.setId(channelId);
+            session.setId(sessionIdAllocator.next());
             session.setSubject(player);
             player.setSession(session);
             attr.set(player);
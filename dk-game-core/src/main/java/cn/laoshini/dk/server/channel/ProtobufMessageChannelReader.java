@@ -2,6 +2,7 @@ package cn.laoshini.dk.server.channel;
 
 import io.netty.channel.ChannelHandlerContext;
 
+import cn.laoshini.dk.domain.msg.ReqMessage;
 import cn.laoshini.dk.net.msg.BaseProtobufMessage;
 import cn.laoshini.dk.util.ByteMessageUtil;
 
@@ -16,8 +17,10 @@ public class ProtobufMessageChannelReader implements INettyChannelReader<BasePro
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, BaseProtobufMessage.Base msg) {
-        // 将protobuf对象转为ReqMessage对象
-        delegate.channelRead(ctx, ByteMessageUtil.baseToReqMessage(msg));
+        // 将protobuf对象转为ReqMessage对象，转换完成才算解码完成
+        ReqMessage<?> reqMessage = ByteMessageUtil.baseToReqMessage(msg);
+        reqMessage.markDecoded();
+        delegate.channelRead(ctx, reqMessage);
     }
 
 }
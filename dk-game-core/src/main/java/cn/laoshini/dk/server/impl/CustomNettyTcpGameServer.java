@@ -23,8 +23,10 @@ public class CustomNettyTcpGameServer extends AbstractNettyTcpGameServer<ReqNett
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     protected INettyMessageEncoder<ReqNettyCustomMessage<INettyDto>> getMessageEncoder() {
-        return new CustomNettyMessageEncoder();
+        // 编码器接受所有自定义格式消息，服务器实际发出的是RespNettyCustomMessage
+        return (INettyMessageEncoder) new CustomNettyMessageEncoder();
     }
 
     @Override
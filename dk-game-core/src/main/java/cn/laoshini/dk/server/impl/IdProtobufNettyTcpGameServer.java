@@ -0,0 +1,43 @@
+package cn.laoshini.dk.server.impl;
+
+import cn.laoshini.dk.domain.GameServerConfig;
+import cn.laoshini.dk.domain.msg.AbstractMessage;
+import cn.laoshini.dk.net.codec.INettyMessageDecoder;
+import cn.laoshini.dk.net.codec.INettyMessageEncoder;
+import cn.laoshini.dk.net.codec.IdProtobufNettyMessageDecoder;
+import cn.laoshini.dk.net.codec.IdProtobufNettyMessageEncoder;
+import cn.laoshini.dk.server.AbstractNettyTcpGameServer;
+import cn.laoshini.dk.server.channel.INettyChannelReader;
+import cn.laoshini.dk.server.channel.JsonMessageChannelReader;
+
+/**
+ * 使用Protobuf与客户端通信的TCP游戏服务器，消息以消息id分帧，消息内容为protobuf原始字节
+ * <p>
+ * 与{@link ProtobufNettyTcpGameServer}相比，不使用{@link cn.laoshini.dk.net.msg.BaseProtobufMessage.Base}包装消息，
+ * 协议格式见{@link IdProtobufNettyMessageDecoder}和{@link IdProtobufNettyMessageEncoder}
+ * </p>
+ *
+ * @author fagarine
+ */
+public class IdProtobufNettyTcpGameServer<M extends AbstractMessage> extends AbstractNettyTcpGameServer<M> {
+
+    public IdProtobufNettyTcpGameServer(GameServerConfig gameConfig) {
+        super(gameConfig, "IdProtobufTcpServer");
+    }
+
+    @Override
+    protected INettyMessageEncoder<M> getMessageEncoder() {
+        return (INettyMessageEncoder<M>) new IdProtobufNettyMessageEncoder();
+    }
+
+    @Override
+    protected INettyMessageDecoder<M> getMessageDecoder() {
+        return (INettyMessageDecoder<M>) new IdProtobufNettyMessageDecoder();
+    }
+
+    @Override
+    public INettyChannelReader<M> getChannelReader() {
+        // 解码器已经将消息转为ReqMessage，与JSON格式消息的读取处理相同
+        return (INettyChannelReader<M>) new JsonMessageChannelReader();
+    }
+}
@@ -4,6 +4,8 @@ import cn.laoshini.dk.domain.GameSubject;
 import cn.laoshini.dk.domain.msg.ReqMessage;
 import cn.laoshini.dk.executor.AbstractOrderedWorker;
 import cn.laoshini.dk.net.handler.MessageReceiveDispatcher;
+import cn.laoshini.dk.net.msg.IRecyclable;
+import cn.laoshini.dk.net.session.ReceiveState;
 
 /**
  * @author fagarine
@@ -14,6 +16,11 @@ public class MessageReceiveWorker extends AbstractOrderedWorker {
 
     private GameSubject gameSubject;
 
+    /**
+     * 所属会话的消息接收状态，未开启会话级别限制时为null
+     */
+    private ReceiveState receiveState;
+
     public MessageReceiveWorker(ReqMessage<Object> reqMessage, GameSubject gameSubject) {
         this.reqMessage = reqMessage;
         this.gameSubject = gameSubject;
@@ -21,6 +28,41 @@ public class MessageReceiveWorker extends AbstractOrderedWorker {
 
     @Override
     protected void action() {
-        MessageReceiveDispatcher.dealMessage(reqMessage, gameSubject);
+        reqMessage.markDequeued();
+        try {
+            if (receiveState == null) {
+                MessageReceiveDispatcher.dealMessage(reqMessage, gameSubject);
+                return;
+            }
+
+            // 消息已被丢弃（会话待处理消息达到上限，且使用丢弃最早消息的策略）
+            if (!receiveState.claim(this)) {
+                return;
+            }
+
+            try {
+                MessageReceiveDispatcher.dealMessage(reqMessage, gameSubject);
+            } finally {
+                receiveState.release();
+            }
+        } finally {
+            // 消息处理完成，如果消息来自对象池，回收消息对象
+            if (reqMessage instanceof IRecyclable) {
+                ((IRecyclable) reqMessage).recycle();
+            }
+        }
+    }
+
+    public ReqMessage<Object> getReqMessage() {
+        return reqMessage;
+    }
+
+    public void setReceiveState(ReceiveState receiveState) {
+        this.receiveState = receiveState;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageReceiveWorker{" + "reqMessage=" + reqMessage + '}';
     }
 }
@@ -0,0 +1,257 @@
+package cn.laoshini.dk.cluster;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import cn.laoshini.dk.constant.GameCodeEnum;
+import cn.laoshini.dk.domain.msg.AbstractMessage;
+import cn.laoshini.dk.domain.msg.ReqMessage;
+import cn.laoshini.dk.domain.msg.RespMessage;
+import cn.laoshini.dk.net.MessageHandlerHolder;
+import cn.laoshini.dk.net.handler.IHttpMessageHandler;
+import cn.laoshini.dk.net.handler.IMessageHandler;
+import cn.laoshini.dk.net.session.AbstractSession;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 在本机启动两个集群管理器，共用同一个{@link StaticClusterDiscovery}，测试请求、超时、连接断开、自动重连和消息转发
+ *
+ * @author fagarine
+ */
+public class ClusterManagerTest {
+
+    private static final int ECHO_ID = 90001;
+
+    private static final int SLOW_ID = 90003;
+
+    private static final int PUSH_ID = 90005;
+
+    private static final long SLOW_MILLIS = 1000L;
+
+    /**
+     * 测试使用的角色id格式：服务器id * ROLE_ID_BASE + 序号
+     */
+    private static final long ROLE_ID_BASE = 1000L;
+
+    private static final long WAIT_SECONDS = 5L;
+
+    /**
+     * 所属服务器执行转发消息时使用的会话
+     */
+    private static final AtomicReference<AbstractSession> FORWARD_SESSION = new AtomicReference<>();
+
+    private ClusterManager first;
+
+    private ClusterManager second;
+
+    private int secondPort;
+
+    private StaticClusterDiscovery discovery;
+
+    @BeforeClass
+    public static void registerHandlers() {
+        MessageHandlerHolder.registerSingletonHandler(ECHO_ID, (IHttpMessageHandler<Object>) (req, subject) -> {
+            RespMessage<Object> resp = new RespMessage<>();
+            resp.setId(req.getId() + 1);
+            resp.setData(req.getData());
+            return resp;
+        });
+        MessageHandlerHolder.registerSingletonHandler(SLOW_ID, (IHttpMessageHandler<Object>) (req, subject) -> {
+            try {
+                Thread.sleep(SLOW_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            RespMessage<Object> resp = new RespMessage<>();
+            resp.setId(req.getId() + 1);
+            return resp;
+        });
+        MessageHandlerHolder.registerSingletonHandler(PUSH_ID, (IMessageHandler<Object>) (req, subject) -> {
+            FORWARD_SESSION.set(subject.getSession());
+            subject.getSession().sendAsRespMessage(req.getId() + 1, req.getData());
+        });
+    }
+
+    @Before
+    public void startManagers() throws IOException {
+        int firstPort = freePort();
+        secondPort = freePort();
+        discovery = new StaticClusterDiscovery(String.format("1@127.0.0.1:%d,2@127.0.0.1:%d", firstPort, secondPort));
+
+        first = newManager(1, firstPort);
+        second = newManager(2, secondPort);
+        first.start();
+        second.start();
+        await("集群节点未能互相连接", () -> first.isConnected(2) && second.isConnected(1));
+    }
+
+    @After
+    public void stopManagers() {
+        first.stop();
+        second.stop();
+    }
+
+    @Test
+    public void testRequest() throws Exception {
+        RespMessage<Object> resp = first.request(2, newRequest(ECHO_ID, "ping")).get(WAIT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(ECHO_ID + 1, resp.getId());
+        assertEquals(GameCodeEnum.OK.getCode(), resp.getCode());
+        assertEquals("ping", resp.getData());
+        assertNull(resp.getParams());
+    }
+
+    @Test
+    public void testRequestTimeout() throws Exception {
+        long start = System.currentTimeMillis();
+        CompletableFuture<RespMessage<Object>> future = first.request(2, newRequest(SLOW_ID, "slow"), 100L);
+
+        assertFailed(future);
+        assertTrue("请求应该在目标服务器返回之前超时", System.currentTimeMillis() - start < SLOW_MILLIS);
+    }
+
+    @Test
+    public void testLinkClosedFailsPendingRequests() throws Exception {
+        long start = System.currentTimeMillis();
+        CompletableFuture<RespMessage<Object>> future = first.request(2, newRequest(SLOW_ID, "slow"), 60000L);
+
+        second.stop();
+
+        assertFailed(future);
+        assertTrue("连接断开后请求应该立即失败，而不是等待超时", System.currentTimeMillis() - start < 60000L);
+        await("连接断开后应该不再报告为已连接", () -> !first.isConnected(2));
+    }
+
+    /**
+     * 对端服务器断开后重新启动，连接应该在事件循环中自动重连，不需要重新发现节点
+     */
+    @Test
+    public void testReconnectAfterPeerRestart() throws Exception {
+        second.stop();
+        await("连接断开后应该不再报告为已连接", () -> !first.isConnected(2));
+
+        second = newManager(2, secondPort);
+        second.start();
+        await("对端服务器重启后应该自动重连", () -> first.isConnected(2) && second.isConnected(1));
+
+        RespMessage<Object> resp = first.request(2, newRequest(ECHO_ID, "again")).get(WAIT_SECONDS, TimeUnit.SECONDS);
+        assertEquals("again", resp.getData());
+    }
+
+    @Test
+    public void testForward() throws Exception {
+        RecordingSession player = new RecordingSession();
+        long localRoleId = ROLE_ID_BASE + 1;
+        long remoteRoleId = 2 * ROLE_ID_BASE + 1;
+
+        assertFalse("当前服务器的角色不应该被转发", first.forward(localRoleId, newRequest(PUSH_ID, "local"), player));
+        assertTrue(first.forward(remoteRoleId, newRequest(PUSH_ID, "hello"), player));
+
+        AbstractMessage<?> pushed = player.messages.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull("所属服务器的推送没有送达玩家会话", pushed);
+        assertTrue(pushed instanceof RespMessage);
+        assertEquals(PUSH_ID + 1, pushed.getId());
+        assertEquals("hello", pushed.getData());
+        assertNull(pushed.getParams());
+
+        AbstractSession forwardSession = FORWARD_SESSION.get();
+        assertTrue(forwardSession instanceof ClusterForwardSession);
+        assertEquals(remoteRoleId, ((ClusterForwardSession) forwardSession).getRoleId());
+        assertTrue(forwardSession.isConnect());
+
+        first.cancelForward(remoteRoleId);
+        await("取消转发后所属服务器的转发会话应该断开", () -> !forwardSession.isConnect());
+    }
+
+    private ClusterManager newManager(int serverId, int port) {
+        return new ClusterManager(serverId, port).setDiscovery(discovery).setRequestThreads(2)
+                .setRoleLocator(roleId -> (int) (roleId / ROLE_ID_BASE));
+    }
+
+    private static ReqMessage<Object> newRequest(int messageId, Object data) {
+        ReqMessage<Object> message = new ReqMessage<>();
+        message.setId(messageId);
+        message.setData(data);
+        return message;
+    }
+
+    private static void assertFailed(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(WAIT_SECONDS, TimeUnit.SECONDS);
+            fail("请求应该以异常结束");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ClusterException);
+        }
+    }
+
+    private static void await(String message, BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_SECONDS);
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(message);
+            }
+            try {
+                Thread.sleep(20L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(message);
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * 转发方的玩家会话，记录推送给玩家的消息
+     */
+    private static class RecordingSession extends AbstractSession<Void> {
+
+        private final BlockingQueue<AbstractMessage<?>> messages = new LinkedBlockingQueue<>();
+
+        private RecordingSession() {
+            super(null);
+        }
+
+        @Override
+        public String getIp() {
+            return "127.0.0.1";
+        }
+
+        @Override
+        public boolean isConnect() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            messages.clear();
+        }
+
+        @Override
+        public void sendMessage(Object message) {
+            messages.offer((AbstractMessage<?>) message);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package cn.laoshini.dk.net.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cn.laoshini.dk.net.msg.INettyDto;
+import cn.laoshini.dk.net.msg.NettyRecyclers;
+import cn.laoshini.dk.net.msg.RespNettyCustomMessage;
+
+/**
+ * 自定义格式消息编码器测试
+ *
+ * @author fagarine
+ */
+public class CustomNettyMessageEncoderTest {
+
+    private static final int RESP_ID = 94001;
+
+    @Before
+    public void enableRecycle() {
+        NettyRecyclers.setEnabled(true);
+    }
+
+    @After
+    public void disableRecycle() {
+        NettyRecyclers.setEnabled(false);
+    }
+
+    @Test
+    public void testEncodeRecyclesPooledResponse() {
+        RespNettyCustomMessage<INettyDto> resp = newResponse();
+
+        ByteBuf out = new CustomNettyMessageEncoder().encode(resp, null);
+        try {
+            assertFrame(out);
+        } finally {
+            out.release();
+        }
+
+        Assert.assertEquals("编码后消息应该已清空", 0, resp.getId());
+        assertReturnedToPool(resp);
+    }
+
+    /**
+     * 返回消息经过通道写出时同样会被编码器接受并回收
+     */
+    @Test
+    public void testPipelineEncodesAndRecyclesResponse() {
+        RespNettyCustomMessage<INettyDto> resp = newResponse();
+
+        EmbeddedChannel channel = new EmbeddedChannel(new CustomNettyMessageEncoder());
+        Assert.assertTrue(channel.writeOutbound(resp));
+        ByteBuf out = channel.readOutbound();
+        try {
+            assertFrame(out);
+        } finally {
+            out.release();
+            channel.finishAndReleaseAll();
+        }
+
+        assertReturnedToPool(resp);
+    }
+
+    @Test
+    public void testUnpooledResponseNotRecycled() {
+        NettyRecyclers.setEnabled(false);
+        RespNettyCustomMessage<INettyDto> resp = newResponse();
+
+        new CustomNettyMessageEncoder().encode(resp, null).release();
+
+        Assert.assertEquals("不是从对象池获取的消息不应该被清空", RESP_ID, resp.getId());
+    }
+
+    private static RespNettyCustomMessage<INettyDto> newResponse() {
+        RespNettyCustomMessage<INettyDto> resp = RespNettyCustomMessage.newInstance();
+        resp.setId(RESP_ID);
+        resp.setParams("ok");
+        return resp;
+    }
+
+    private static void assertReturnedToPool(RespNettyCustomMessage<INettyDto> resp) {
+        RespNettyCustomMessage<INettyDto> reused = RespNettyCustomMessage.newInstance();
+        Assert.assertSame("编码后消息应该已回到对象池", resp, reused);
+        // 放回对象池，Recycler只保留部分新建对象，放回已回收过的对象保证其他用例也能取到池中的对象
+        reused.recycle();
+    }
+
+    private static void assertFrame(ByteBuf out) {
+        int length = out.readInt();
+        Assert.assertEquals(out.readableBytes(), length);
+        Assert.assertEquals(RESP_ID, out.readInt());
+    }
+}
@@ -0,0 +1,177 @@
+package cn.laoshini.dk.net.codec;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.StringValue;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import cn.laoshini.dk.constant.GameCodeEnum;
+import cn.laoshini.dk.domain.GameSubject;
+import cn.laoshini.dk.domain.msg.ReqMessage;
+import cn.laoshini.dk.domain.msg.RespMessage;
+import cn.laoshini.dk.exception.MessageException;
+import cn.laoshini.dk.net.MessageHandlerHolder;
+import cn.laoshini.dk.net.handler.IMessageHandler;
+
+/**
+ * 以消息id分帧的Protobuf编码器与解码器测试
+ *
+ * @author fagarine
+ */
+public class IdProtobufNettyMessageCodecTest {
+
+    private static final int ECHO_ID = 92001;
+
+    private static final int UNKNOWN_ID = 92003;
+
+    private final IdProtobufNettyMessageEncoder encoder = new IdProtobufNettyMessageEncoder();
+
+    private final IdProtobufNettyMessageDecoder decoder = new IdProtobufNettyMessageDecoder();
+
+    @BeforeClass
+    public static void registerHandlers() {
+        MessageHandlerHolder.registerSingletonHandler(ECHO_ID, new EchoHandler());
+    }
+
+    @AfterClass
+    public static void unregisterHandlers() {
+        MessageHandlerHolder.unregisterHandler(ECHO_ID);
+    }
+
+    @Test
+    public void testParserResolvedFromHandler() {
+        Assert.assertSame(StringValue.parser(), MessageHandlerHolder.getProtobufParser(ECHO_ID));
+        Assert.assertNull(MessageHandlerHolder.getProtobufParser(UNKNOWN_ID));
+    }
+
+    @Test
+    public void testDecodeRequest() {
+        ByteBuf buf = Unpooled.buffer();
+        // 读取位置不在缓冲起始处，确认解码时按读取位置截取消息内容
+        buf.writeInt(-1);
+        buf.writeInt(ECHO_ID);
+        buf.writeBytes(text("hello").toByteArray());
+        buf.skipBytes(Integer.BYTES);
+        try {
+            ReqMessage<Message> message = decoder.decode(buf, null);
+
+            Assert.assertEquals(ECHO_ID, message.getId());
+            Assert.assertEquals(text("hello"), message.getData());
+            Assert.assertEquals(0, buf.readableBytes());
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testDecodeEmptyPayload() {
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeInt(ECHO_ID);
+        try {
+            Assert.assertEquals(StringValue.getDefaultInstance(), decoder.decode(buf, null).getData());
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test(expected = MessageException.class)
+    public void testDecodeUnknownId() {
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeInt(UNKNOWN_ID);
+        try {
+            decoder.decode(buf, null);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testEncodeResponse() throws InvalidProtocolBufferException {
+        RespMessage<StringValue> response = new RespMessage<>();
+        response.setId(ECHO_ID + 1);
+        response.setData(text("world"));
+
+        ByteBuf buf = encoder.encode(response, null);
+        try {
+            Assert.assertEquals(ECHO_ID + 1, buf.readInt());
+            Assert.assertEquals(GameCodeEnum.OK.getCode(), buf.readInt());
+            Assert.assertEquals(text("world"), StringValue.parseFrom(buf.nioBuffer()));
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testEncodeBuilderAndEmptyData() throws InvalidProtocolBufferException {
+        RespMessage<Object> response = new RespMessage<>();
+        response.setId(ECHO_ID + 1);
+        response.setData(StringValue.newBuilder().setValue("builder"));
+        ByteBuf buf = encoder.encode(response, null);
+        try {
+            buf.skipBytes(Integer.BYTES * 2);
+            Assert.assertEquals(text("builder"), StringValue.parseFrom(buf.nioBuffer()));
+        } finally {
+            buf.release();
+        }
+
+        response.setCode(GameCodeEnum.MESSAGE_DECODE_ERROR.getCode());
+        response.setData(null);
+        buf = encoder.encode(response, null);
+        try {
+            Assert.assertEquals("没有消息内容时只有消息头", Integer.BYTES * 2, buf.readableBytes());
+            Assert.assertEquals(GameCodeEnum.MESSAGE_DECODE_ERROR.getCode(), buf.getInt(Integer.BYTES));
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test(expected = MessageException.class)
+    public void testEncodeNonProtobufData() {
+        RespMessage<Object> response = new RespMessage<>();
+        response.setId(ECHO_ID + 1);
+        response.setData("not a protobuf message");
+        encoder.encode(response, null);
+    }
+
+    /**
+     * 服务器响应的消息内容，去掉返回码后作为请求再次解码，内容不变
+     */
+    @Test
+    public void testRoundTrip() {
+        RespMessage<StringValue> response = new RespMessage<>();
+        response.setId(ECHO_ID);
+        response.setData(text("round trip"));
+
+        ByteBuf encoded = encoder.encode(response, null);
+        ByteBuf request = Unpooled.buffer();
+        try {
+            request.writeInt(encoded.readInt());
+            encoded.skipBytes(Integer.BYTES);
+            request.writeBytes(encoded);
+
+            ReqMessage<Message> decoded = decoder.decode(request, null);
+            Assert.assertEquals(ECHO_ID, decoded.getId());
+            Assert.assertEquals(text("round trip"), decoded.getData());
+        } finally {
+            encoded.release();
+            request.release();
+        }
+    }
+
+    private static StringValue text(String value) {
+        return StringValue.newBuilder().setValue(value).build();
+    }
+
+    public static class EchoHandler implements IMessageHandler<StringValue> {
+
+        @Override
+        public void action(ReqMessage<StringValue> reqMessage, GameSubject subject) {
+            subject.getSession().sendAsRespMessage(reqMessage.getId() + 1, reqMessage.getData());
+        }
+    }
+}
@@ -24,6 +24,8 @@ public class GmConstants {
     public static final int GET_GAME_SERVER_INFO_REQ = 11;
     public static final int PAUSE_GAME_SERVER_REQ = 13;
     public static final int RELEASE_GAME_SERVER_REQ = 15;
+    public static final int GET_METRICS_REQ = 17;
+    public static final int GET_SLOW_MESSAGES_REQ = 19;
 
     private GmConstants() {
     }
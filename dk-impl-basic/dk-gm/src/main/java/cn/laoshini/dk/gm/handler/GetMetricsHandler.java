@@ -0,0 +1,32 @@
+package cn.laoshini.dk.gm.handler;
+
+import cn.laoshini.dk.annotation.MessageHandle;
+import cn.laoshini.dk.domain.GameSubject;
+import cn.laoshini.dk.domain.msg.ReqMessage;
+import cn.laoshini.dk.domain.msg.RespMessage;
+import cn.laoshini.dk.exception.MessageException;
+import cn.laoshini.dk.gm.message.server.GetMetricsReq;
+import cn.laoshini.dk.gm.message.server.GetMetricsRes;
+import cn.laoshini.dk.monitor.DkMetrics;
+import cn.laoshini.dk.net.handler.IHttpMessageHandler;
+
+/**
+ * 查询服务器运行指标
+ *
+ * @author fagarine
+ */
+@MessageHandle(id = GetMetricsReq.MESSAGE_ID)
+public class GetMetricsHandler implements IHttpMessageHandler<GetMetricsReq> {
+
+    @Override
+    public void action(ReqMessage<GetMetricsReq> reqMessage, GameSubject subject) throws MessageException {
+        subject.getSession().sendMessage(call(reqMessage, subject));
+    }
+
+    @Override
+    public RespMessage call(ReqMessage<GetMetricsReq> reqMessage, GameSubject subject) throws MessageException {
+        GetMetricsRes res = new GetMetricsRes();
+        res.setMetrics(DkMetrics.snapshot());
+        return buildRespMessage(GetMetricsRes.MESSAGE_ID, res);
+    }
+}
@@ -0,0 +1,34 @@
+package cn.laoshini.dk.gm.handler;
+
+import cn.laoshini.dk.annotation.MessageHandle;
+import cn.laoshini.dk.domain.GameSubject;
+import cn.laoshini.dk.domain.msg.ReqMessage;
+import cn.laoshini.dk.domain.msg.RespMessage;
+import cn.laoshini.dk.exception.MessageException;
+import cn.laoshini.dk.gm.message.server.GetSlowMessagesReq;
+import cn.laoshini.dk.gm.message.server.GetSlowMessagesRes;
+import cn.laoshini.dk.monitor.MessageTracer;
+import cn.laoshini.dk.net.handler.IHttpMessageHandler;
+
+/**
+ * 查询最近的慢消息记录
+ *
+ * @author fagarine
+ */
+@MessageHandle(id = GetSlowMessagesReq.MESSAGE_ID)
+public class GetSlowMessagesHandler implements IHttpMessageHandler<GetSlowMessagesReq> {
+
+    @Override
+    public void action(ReqMessage<GetSlowMessagesReq> reqMessage, GameSubject subject) throws MessageException {
+        subject.getSession().sendMessage(call(reqMessage, subject));
+    }
+
+    @Override
+    public RespMessage call(ReqMessage<GetSlowMessagesReq> reqMessage, GameSubject subject) throws MessageException {
+        GetSlowMessagesReq req = reqMessage.getData();
+        int limit = req == null || req.getLimit() <= 0 ? Integer.MAX_VALUE : req.getLimit();
+        GetSlowMessagesRes res = new GetSlowMessagesRes();
+        res.setRecords(MessageTracer.recentSlowMessages(limit));
+        return buildRespMessage(GetSlowMessagesRes.MESSAGE_ID, res);
+    }
+}
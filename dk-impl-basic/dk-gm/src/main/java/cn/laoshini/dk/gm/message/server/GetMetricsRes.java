@@ -0,0 +1,27 @@
+package cn.laoshini.dk.gm.message.server;
+
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import cn.laoshini.dk.annotation.Message;
+import cn.laoshini.dk.gm.constant.GmConstants;
+
+/**
+ * @author fagarine
+ */
+@Getter
+@Setter
+@ToString
+@Message(id = GetMetricsRes.MESSAGE_ID, gm = true)
+public class GetMetricsRes {
+
+    public static final int MESSAGE_ID = GmConstants.GM_HEAD + GmConstants.GET_METRICS_REQ + 1;
+
+    /**
+     * 服务器运行指标，耗时类指标单位为毫秒
+     */
+    private Map<String, Object> metrics;
+}
@@ -0,0 +1,25 @@
+package cn.laoshini.dk.gm.message.server;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import cn.laoshini.dk.annotation.Message;
+import cn.laoshini.dk.gm.constant.GmConstants;
+
+/**
+ * @author fagarine
+ */
+@Getter
+@Setter
+@ToString
+@Message(id = GetSlowMessagesReq.MESSAGE_ID, gm = true)
+public class GetSlowMessagesReq {
+
+    public static final int MESSAGE_ID = GmConstants.GM_HEAD + GmConstants.GET_SLOW_MESSAGES_REQ;
+
+    /**
+     * 最多返回的记录数量，不大于0时返回全部
+     */
+    private int limit;
+}
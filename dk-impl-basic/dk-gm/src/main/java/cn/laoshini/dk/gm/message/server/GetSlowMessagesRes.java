@@ -0,0 +1,28 @@
+package cn.laoshini.dk.gm.message.server;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import cn.laoshini.dk.annotation.Message;
+import cn.laoshini.dk.gm.constant.GmConstants;
+import cn.laoshini.dk.monitor.SlowMessageRecord;
+
+/**
+ * @author fagarine
+ */
+@Getter
+@Setter
+@ToString
+@Message(id = GetSlowMessagesRes.MESSAGE_ID, gm = true)
+public class GetSlowMessagesRes {
+
+    public static final int MESSAGE_ID = GmConstants.GM_HEAD + GmConstants.GET_SLOW_MESSAGES_REQ + 1;
+
+    /**
+     * 最近的慢消息记录，最新的在前
+     */
+    private List<SlowMessageRecord> records;
+}